@@ -0,0 +1,156 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read;
+
+import static org.junit.Assume.assumeTrue;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+import android.view.FrameMetrics;
+import android.view.Window;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalogWriter;
+import com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalogs;
+import com.google.samples.quickstart.engagesdksamples.read.model.MappedEbookCatalog;
+import com.google.samples.quickstart.engagesdksamples.read.model.SyntheticCatalogGenerator;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Flings the home grid and reports frame timings, so changes to the grid's binding and recycling can
+ * be compared. Results are logged and sent as instrumentation status; run on a physical device with
+ * animations enabled for meaningful numbers.
+ *
+ * <p>Pass the instrumentation argument {@code catalogSize}, for example 1000000, to fling through a
+ * generated catalog of that many ebooks instead of the app's own.
+ */
+@RunWith(AndroidJUnit4.class)
+public class EbookGridFrameTimingTest {
+
+  private static final String TAG = EbookGridFrameTimingTest.class.getSimpleName();
+  private static final int NUM_FLINGS = 10;
+  private static final int FLING_VELOCITY = 10000;
+  private static final long FLING_SETTLE_MILLIS = 1500L;
+  private static final long JANK_THRESHOLD_NANOS = 16_666_667L;
+  private static final String CATALOG_SIZE_ARGUMENT = "catalogSize";
+  private static final int GENERATED_NUM_AUTHORS = 1_000;
+  private static final int GENERATED_NUM_GENRES = 50;
+  private static final long GENERATED_CATALOG_SEED = 1L;
+
+  @Test
+  public void flingFrameTimingTest() throws Exception {
+    // Per-window frame metrics were added in API 24.
+    assumeTrue(Build.VERSION.SDK_INT >= Build.VERSION_CODES.N);
+    installRequestedCatalog();
+
+    List<Long> frameDurationsNanos = Collections.synchronizedList(new ArrayList<>());
+    HandlerThread metricsThread = new HandlerThread("FrameMetrics");
+    metricsThread.start();
+    Window.OnFrameMetricsAvailableListener listener =
+        (window, frameMetrics, dropCount) ->
+            frameDurationsNanos.add(frameMetrics.getMetric(FrameMetrics.TOTAL_DURATION));
+
+    try (ActivityScenario<MainActivity> scenario = ActivityScenario.launch(MainActivity.class)) {
+      scenario.onActivity(
+          activity ->
+              activity
+                  .getWindow()
+                  .addOnFrameMetricsAvailableListener(
+                      listener, new Handler(metricsThread.getLooper())));
+
+      for (int fling = 0; fling < NUM_FLINGS; fling++) {
+        // Alternate directions so the grid is flung back through recycled cards.
+        int velocity = fling % 2 == 0 ? FLING_VELOCITY : -FLING_VELOCITY / 2;
+        scenario.onActivity(
+            activity -> {
+              RecyclerView recyclerView = activity.findViewById(R.id.recyclerViewEbooks);
+              recyclerView.fling(/* velocityX= */ 0, velocity);
+            });
+        Thread.sleep(FLING_SETTLE_MILLIS);
+      }
+
+      scenario.onActivity(
+          activity -> activity.getWindow().removeOnFrameMetricsAvailableListener(listener));
+    } finally {
+      metricsThread.quitSafely();
+    }
+
+    reportFrameTimings(frameDurationsNanos);
+  }
+
+  /**
+   * Installs a generated catalog of the size given by the catalogSize argument, if present. It is
+   * installed memory-mapped, as the app would load it, so the app keeps it instead of loading its
+   * own.
+   */
+  private static void installRequestedCatalog() throws IOException {
+    String catalogSize = InstrumentationRegistry.getArguments().getString(CATALOG_SIZE_ARGUMENT);
+    if (catalogSize == null) {
+      return;
+    }
+    Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+    File file = new File(context.getCacheDir(), "benchmark_catalog.bin");
+    EbookCatalogWriter.write(
+        new SyntheticCatalogGenerator(
+                GENERATED_NUM_AUTHORS, GENERATED_NUM_GENRES, GENERATED_CATALOG_SEED)
+            .generate(Integer.parseInt(catalogSize)),
+        file);
+    EbookCatalogs.install(MappedEbookCatalog.open(file));
+  }
+
+  private static void reportFrameTimings(List<Long> frameDurationsNanos) {
+    List<Long> sorted;
+    synchronized (frameDurationsNanos) {
+      sorted = new ArrayList<>(frameDurationsNanos);
+    }
+    assumeTrue("No frames were rendered", !sorted.isEmpty());
+    Collections.sort(sorted);
+
+    int jankyFrames = 0;
+    for (long duration : sorted) {
+      if (duration > JANK_THRESHOLD_NANOS) {
+        jankyFrames++;
+      }
+    }
+
+    Bundle results = new Bundle();
+    results.putInt("catalog_size", EbookCatalogs.get().size());
+    results.putInt("frames", sorted.size());
+    results.putInt("janky_frames", jankyFrames);
+    results.putDouble("janky_percent", 100.0 * jankyFrames / sorted.size());
+    results.putDouble("p50_frame_ms", percentileMillis(sorted, 50));
+    results.putDouble("p90_frame_ms", percentileMillis(sorted, 90));
+    results.putDouble("p99_frame_ms", percentileMillis(sorted, 99));
+    Log.i(TAG, "flingFrameTimingTest: " + results);
+    InstrumentationRegistry.getInstrumentation().sendStatus(/* resultCode= */ 0, results);
+  }
+
+  private static double percentileMillis(List<Long> sortedNanos, int percentile) {
+    int index = Math.min(sortedNanos.size() - 1, sortedNanos.size() * percentile / 100);
+    return sortedNanos.get(index) / 1_000_000.0;
+  }
+}
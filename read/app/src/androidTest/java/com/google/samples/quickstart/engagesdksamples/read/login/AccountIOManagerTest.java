@@ -68,7 +68,9 @@ public class AccountIOManagerTest {
   public void deleteTest() {
     AccountIOManager.saveAccount(appContext, freshAccount, TEST_ACCOUNT_FILE_NAME);
     assertTrue(AccountIOManager.loadAccount(appContext, TEST_ACCOUNT_FILE_NAME).isPresent());
+    assertTrue(AccountIOManager.hasSavedAccount(appContext, TEST_ACCOUNT_FILE_NAME));
     AccountIOManager.deleteAccount(appContext, TEST_ACCOUNT_FILE_NAME);
     assertFalse(AccountIOManager.loadAccount(appContext, TEST_ACCOUNT_FILE_NAME).isPresent());
+    assertFalse(AccountIOManager.hasSavedAccount(appContext, TEST_ACCOUNT_FILE_NAME));
   }
 }
@@ -0,0 +1,111 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import android.content.Context;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.work.ListenableWorker.Result;
+import androidx.work.testing.TestWorkerBuilder;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+public class CoReadingCompactionWorkerTest {
+
+  private static final int CATALOG_SIZE = 5;
+  private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+  private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+  private Context appContext;
+  private EbookCatalog previousCatalog;
+
+  @Before
+  public void setUp() {
+    appContext = ApplicationProvider.getApplicationContext();
+    previousCatalog = EbookCatalogs.get();
+    EbookCatalogs.install(ColumnarEbookCatalog.createSynthetic(CATALOG_SIZE));
+    appContext.deleteFile(CoReadingIOManager.CO_READING_FILE_NAME);
+  }
+
+  @After
+  public void tearDown() {
+    appContext.deleteFile(CoReadingIOManager.CO_READING_FILE_NAME);
+    EbookCatalogs.install(previousCatalog);
+  }
+
+  @Test
+  public void doWorkWithoutSavedModelSucceedsTest() {
+    assertEquals(Result.success(), createWorker().doWork());
+    assertFalse(CoReadingIOManager.loadModel(appContext).isPresent());
+  }
+
+  @Test
+  public void doWorkCompactsSavedModelTest() {
+    CoReadingEngagements engagements = new CoReadingEngagements();
+    recordSessions(engagements, /* numSessions= */ 2);
+    CoReadingIOManager.saveEngagements(
+        appContext, engagements, CoReadingIOManager.CO_READING_FILE_NAME);
+
+    assertEquals(Result.success(), createWorker().doWork());
+
+    CoReadingModel compacted = CoReadingIOManager.loadModel(appContext).get();
+    assertArrayEquals(new int[] {2}, compacted.getNeighbors(1));
+    assertArrayEquals(new int[0], compacted.getNeighbors(9));
+  }
+
+  @Test
+  public void engagementsSavedAfterCompactionKeepCompactionTest() {
+    CoReadingEngagements engagements = new CoReadingEngagements();
+    recordSessions(engagements, /* numSessions= */ 2);
+    CoReadingIOManager.saveEngagements(
+        appContext, engagements, CoReadingIOManager.CO_READING_FILE_NAME);
+    // The app keeps reading while the worker compacts the saved model.
+    engagements.add(/* ebookId= */ 1, /* engagementTime= */ 2 * DAY);
+    engagements.add(/* ebookId= */ 3, /* engagementTime= */ 2 * DAY + MINUTE);
+
+    createWorker().doWork();
+    CoReadingIOManager.saveEngagements(
+        appContext, engagements, CoReadingIOManager.CO_READING_FILE_NAME);
+
+    // Ebook 9 stays dropped, and the engagements read during compaction are kept.
+    CoReadingModel saved = CoReadingIOManager.loadModel(appContext).get();
+    assertArrayEquals(new int[] {2, 3}, saved.getNeighbors(1));
+    assertArrayEquals(new int[0], saved.getNeighbors(9));
+  }
+
+  private CoReadingCompactionWorker createWorker() {
+    return TestWorkerBuilder.from(
+            appContext, CoReadingCompactionWorker.class, Executors.newSingleThreadExecutor())
+        .build();
+  }
+
+  /** Reads ebooks 1, 2 and 9, which is not in the catalog, together in numSessions sessions. */
+  private static void recordSessions(CoReadingEngagements engagements, int numSessions) {
+    for (int session = 0; session < numSessions; session++) {
+      engagements.add(/* ebookId= */ 1, session * DAY);
+      engagements.add(/* ebookId= */ 2, session * DAY + MINUTE);
+      engagements.add(/* ebookId= */ 9, session * DAY + 2 * MINUTE);
+    }
+  }
+}
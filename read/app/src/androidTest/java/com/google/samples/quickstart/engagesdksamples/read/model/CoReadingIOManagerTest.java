@@ -0,0 +1,165 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.common.base.Optional;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+public class CoReadingIOManagerTest {
+
+  private static final String TEST_CO_READING_FILE_NAME = "test-co-reading";
+  private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+  private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+  private Context appContext;
+
+  @Before
+  public void setUp() {
+    appContext = ApplicationProvider.getApplicationContext();
+    appContext.deleteFile(TEST_CO_READING_FILE_NAME);
+  }
+
+  @After
+  public void cleanUp() {
+    appContext.deleteFile(TEST_CO_READING_FILE_NAME);
+  }
+
+  @Test
+  public void saveThenLoadPreservesNeighborsTest() {
+    CoReadingModel model = new CoReadingModel();
+    model.recordEngagement(/* ebookId= */ 1, /* engagementTime= */ 0);
+    model.recordEngagement(/* ebookId= */ 2, /* engagementTime= */ MINUTE);
+
+    CoReadingIOManager.saveModel(appContext, model, TEST_CO_READING_FILE_NAME);
+    Optional<CoReadingModel> loaded =
+        CoReadingIOManager.loadModel(appContext, TEST_CO_READING_FILE_NAME);
+
+    assertTrue(loaded.isPresent());
+    assertArrayEquals(new int[] {2}, loaded.get().getNeighbors(1));
+    assertArrayEquals(new int[] {1}, loaded.get().getNeighbors(2));
+  }
+
+  @Test
+  public void loadWithoutSavedModelIsAbsentTest() {
+    assertFalse(CoReadingIOManager.loadModel(appContext, TEST_CO_READING_FILE_NAME).isPresent());
+  }
+
+  @Test
+  public void saveEngagementsCreatesModelAndClearsEngagementsTest() {
+    CoReadingEngagements engagements = new CoReadingEngagements();
+    engagements.add(/* ebookId= */ 1, /* engagementTime= */ 0);
+    engagements.add(/* ebookId= */ 2, /* engagementTime= */ MINUTE);
+
+    CoReadingIOManager.saveEngagements(appContext, engagements, TEST_CO_READING_FILE_NAME);
+
+    assertTrue(engagements.isEmpty());
+    Optional<CoReadingModel> loaded =
+        CoReadingIOManager.loadModel(appContext, TEST_CO_READING_FILE_NAME);
+    assertTrue(loaded.isPresent());
+    assertArrayEquals(new int[] {2}, loaded.get().getNeighbors(1));
+  }
+
+  @Test
+  public void saveEngagementsAddsToSavedModelTest() {
+    CoReadingModel saved = new CoReadingModel();
+    saved.recordEngagement(/* ebookId= */ 1, /* engagementTime= */ 0);
+    saved.recordEngagement(/* ebookId= */ 2, /* engagementTime= */ MINUTE);
+    CoReadingIOManager.saveModel(appContext, saved, TEST_CO_READING_FILE_NAME);
+    CoReadingEngagements engagements = new CoReadingEngagements();
+    engagements.add(/* ebookId= */ 3, /* engagementTime= */ 2 * MINUTE);
+
+    CoReadingIOManager.saveEngagements(appContext, engagements, TEST_CO_READING_FILE_NAME);
+
+    // Ebook 3 joins the session already in the saved model rather than replacing the model.
+    CoReadingModel loaded =
+        CoReadingIOManager.loadModel(appContext, TEST_CO_READING_FILE_NAME).get();
+    assertArrayEquals(new int[] {2, 3}, loaded.getNeighbors(1));
+    assertArrayEquals(new int[] {1, 2}, loaded.getNeighbors(3));
+  }
+
+  @Test
+  public void saveModelLeavesNoTemporaryFileTest() {
+    CoReadingIOManager.saveModel(appContext, new CoReadingModel(), TEST_CO_READING_FILE_NAME);
+
+    assertTrue(appContext.getFileStreamPath(TEST_CO_READING_FILE_NAME).exists());
+    assertFalse(appContext.getFileStreamPath(TEST_CO_READING_FILE_NAME + ".tmp").exists());
+  }
+
+  @Test
+  public void takeAllEmptiesEngagementsTest() {
+    CoReadingEngagements engagements = new CoReadingEngagements();
+    engagements.add(/* ebookId= */ 1, /* engagementTime= */ 0);
+    engagements.add(/* ebookId= */ 2, /* engagementTime= */ MINUTE);
+
+    CoReadingEngagements taken = engagements.takeAll();
+    // Reading continues while the taken engagements are saved.
+    engagements.add(/* ebookId= */ 3, /* engagementTime= */ 2 * MINUTE);
+    CoReadingIOManager.saveEngagements(appContext, taken, TEST_CO_READING_FILE_NAME);
+
+    CoReadingModel loaded =
+        CoReadingIOManager.loadModel(appContext, TEST_CO_READING_FILE_NAME).get();
+    assertArrayEquals(new int[] {2}, loaded.getNeighbors(1));
+    assertArrayEquals(new int[0], loaded.getNeighbors(3));
+    assertFalse(engagements.isEmpty());
+  }
+
+  @Test
+  public void saveNoEngagementsDoesNotCreateModelTest() {
+    CoReadingIOManager.saveEngagements(
+        appContext, new CoReadingEngagements(), TEST_CO_READING_FILE_NAME);
+
+    assertFalse(CoReadingIOManager.loadModel(appContext, TEST_CO_READING_FILE_NAME).isPresent());
+  }
+
+  @Test
+  public void compactModelDropsRemovedEbooksTest() {
+    CoReadingModel saved = new CoReadingModel();
+    for (int session = 0; session < 2; session++) {
+      saved.recordEngagement(/* ebookId= */ 1, session * DAY);
+      saved.recordEngagement(/* ebookId= */ 2, session * DAY + MINUTE);
+      saved.recordEngagement(/* ebookId= */ 9, session * DAY + 2 * MINUTE);
+    }
+    CoReadingIOManager.saveModel(appContext, saved, TEST_CO_READING_FILE_NAME);
+
+    assertTrue(
+        CoReadingIOManager.compactModel(
+            appContext, /* catalogSize= */ 5, TEST_CO_READING_FILE_NAME));
+
+    CoReadingModel loaded =
+        CoReadingIOManager.loadModel(appContext, TEST_CO_READING_FILE_NAME).get();
+    assertArrayEquals(new int[] {2}, loaded.getNeighbors(1));
+    assertArrayEquals(new int[0], loaded.getNeighbors(9));
+  }
+
+  @Test
+  public void compactWithoutSavedModelDoesNothingTest() {
+    assertFalse(
+        CoReadingIOManager.compactModel(
+            appContext, /* catalogSize= */ 5, TEST_CO_READING_FILE_NAME));
+    assertFalse(CoReadingIOManager.loadModel(appContext, TEST_CO_READING_FILE_NAME).isPresent());
+  }
+}
@@ -0,0 +1,139 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.publish;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.android.engage.books.datamodel.EbookEntity;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.samples.quickstart.engagesdksamples.read.converters.EbookToEntityConverter;
+import java.util.Collections;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+public class ClusterValidatorTest {
+
+  private final ImmutableList<EbookEntity> notStartedEntities =
+      EbookToEntityConverter.convertAll(new int[] {1, 2, 3, 4});
+  private final ImmutableList<EbookEntity> inProgressEntities =
+      ImmutableList.of(inProgressEntity(/* ebookId= */ 1, /* progressPercentComplete= */ 50));
+
+  @Test
+  public void validClustersHaveNoViolationsTest() {
+    assertTrue(
+        ClusterValidator.validateRecommendationCluster("Title", notStartedEntities).isEmpty());
+    assertTrue(ClusterValidator.validateFeaturedCluster(notStartedEntities).isEmpty());
+    assertTrue(ClusterValidator.validateContinuationCluster(inProgressEntities).isEmpty());
+    assertTrue(ClusterValidator.validateRecommendationClusterCount(1).isEmpty());
+  }
+
+  @Test
+  public void emptyClusterIsInvalidTest() {
+    ImmutableList<ClusterValidator.Violation> violations =
+        ClusterValidator.validateFeaturedCluster(ImmutableList.of());
+
+    assertEquals(1, violations.size());
+    assertEquals(Constants.SET_FEATURED, violations.get(0).getStateToSet());
+    assertEquals(ClusterValidator.Violation.CLUSTER, violations.get(0).getEntityIndex());
+    assertEquals("Clusters cannot be empty.", violations.get(0).getMessage());
+  }
+
+  @Test
+  public void recommendationClusterWithoutTitleIsInvalidTest() {
+    ImmutableList<ClusterValidator.Violation> violations =
+        ClusterValidator.validateRecommendationCluster(" ", notStartedEntities);
+
+    assertEquals(1, violations.size());
+    assertEquals(Constants.SET_RECOMMENDATIONS, violations.get(0).getStateToSet());
+    assertEquals(ClusterValidator.Violation.CLUSTER, violations.get(0).getEntityIndex());
+  }
+
+  @Test
+  public void tooManyEntitiesIsInvalidTest() {
+    ImmutableList<EbookEntity> entities =
+        ImmutableList.copyOf(
+            Collections.nCopies(
+                ClusterValidator.MAX_FEATURED_ENTITIES + 1, notStartedEntities.get(0)));
+
+    ImmutableList<ClusterValidator.Violation> violations =
+        ClusterValidator.validateFeaturedCluster(entities);
+
+    assertEquals(1, violations.size());
+    assertEquals(ClusterValidator.Violation.CLUSTER, violations.get(0).getEntityIndex());
+  }
+
+  @Test
+  public void notStartedEbookInContinuationClusterIsInvalidTest() {
+    ImmutableList<EbookEntity> entities =
+        ImmutableList.of(inProgressEntities.get(0), notStartedEntities.get(1));
+
+    ImmutableList<ClusterValidator.Violation> violations =
+        ClusterValidator.validateContinuationCluster(entities);
+
+    assertEquals(2, violations.size());
+    for (ClusterValidator.Violation violation : violations) {
+      assertEquals(Constants.SET_CONTINUATION, violation.getStateToSet());
+      assertEquals(1, violation.getEntityIndex());
+    }
+  }
+
+  @Test
+  public void completedEbookInContinuationClusterIsInvalidTest() {
+    ImmutableList<ClusterValidator.Violation> violations =
+        ClusterValidator.validateContinuationCluster(
+            ImmutableList.of(
+                inProgressEntity(/* ebookId= */ 2, /* progressPercentComplete= */ 100)));
+
+    assertEquals(1, violations.size());
+    assertEquals(0, violations.get(0).getEntityIndex());
+  }
+
+  @Test
+  public void tooManyRecommendationClustersIsInvalidTest() {
+    assertEquals(1, ClusterValidator.validateRecommendationClusterCount(0).size());
+    assertEquals(
+        1,
+        ClusterValidator.validateRecommendationClusterCount(
+                ClusterValidator.MAX_RECOMMENDATION_CLUSTERS + 1)
+            .size());
+  }
+
+  @Test
+  public void requireValidThrowsOnViolationsTest() {
+    ImmutableList<ClusterValidator.Violation> violations =
+        ClusterValidator.validateFeaturedCluster(ImmutableList.of());
+
+    InvalidClusterException exception =
+        assertThrows(
+            "No exception thrown requiring an empty cluster be valid",
+            InvalidClusterException.class,
+            () -> ClusterValidator.requireValid(violations));
+
+    assertEquals(violations, exception.getViolations());
+    assertTrue(exception.getMessage().contains(violations.get(0).toString()));
+    // Does not throw.
+    ClusterValidator.requireValid(ImmutableList.of());
+  }
+
+  private static EbookEntity inProgressEntity(int ebookId, int progressPercentComplete) {
+    return EbookToEntityConverter.convert(
+        ebookId, Optional.of(/* value= */ 1000L), Optional.of(progressPercentComplete));
+  }
+}
@@ -15,13 +15,16 @@
 package com.google.samples.quickstart.engagesdksamples.read.publish;
 
 import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.MAX_SET_STATE_RETRIES;
+import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_ACCOUNT_TRANSITION;
 import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_CONTINUATION;
 import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_FEATURED;
+import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_OUTBOX;
 import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_RECOMMENDATIONS;
 import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_STATE_KEY;
 import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_USER_MANAGEMENT;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.mock;
@@ -47,8 +50,13 @@ import com.google.android.engage.service.AppEngagePublishStatusCode;
 import com.google.android.gms.tasks.Task;
 import com.google.android.gms.tasks.Tasks;
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSet;
 import com.google.samples.quickstart.engagesdksamples.read.login.Account;
+import com.google.samples.quickstart.engagesdksamples.read.model.ColumnarEbookCatalog;
 import com.google.samples.quickstart.engagesdksamples.read.model.Ebook;
+import com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalog;
+import com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalogs;
+import java.util.Map;
 import javax.annotation.Nullable;
 import org.junit.Before;
 import org.junit.Test;
@@ -629,6 +637,130 @@ public class EngageServiceWorkerTest {
     verify(mockPublishClient, never()).publishContinuationCluster(any());
   }
 
+  @Test
+  public void accountTransitionWithEveryEbookStartedDeletesEmptyClustersAndSignInCardTest()
+      throws Exception {
+    EbookCatalog previousCatalog = EbookCatalogs.get();
+    EbookCatalogs.install(ColumnarEbookCatalog.createSynthetic(/* numEbooks= */ 2));
+    try {
+      // Every ebook is started, so the featured and For You clusters are empty.
+      Account account = new Account();
+      for (int ebookId = 1; ebookId <= 2; ebookId++) {
+        account.markInProgressPageInEbook(
+            new Ebook(ebookId), /* page= */ 1, /* engagementTime= */ 100L + ebookId);
+      }
+      WorkerFactory workerFactory =
+          new EngageServiceWorkerFactory(mockPublishClient, Optional.of(account));
+      when(mockPublishClient.isServiceAvailable()).thenReturn(Tasks.forResult(Boolean.TRUE));
+      Task<Void> success = Tasks.forResult(null);
+      when(mockPublishClient.publishContinuationCluster(any())).thenReturn(success);
+      when(mockPublishClient.deleteFeaturedCluster()).thenReturn(success);
+      when(mockPublishClient.deleteRecommendationsClusters()).thenReturn(success);
+      when(mockPublishClient.deleteUserManagementCluster()).thenReturn(success);
+
+      EngageServiceWorker worker =
+          getSetStateWorker(SET_ACCOUNT_TRANSITION, /* runAttemptCount= */ 0, workerFactory);
+      Result result = worker.startWork().get();
+
+      assertEquals(Result.success(), result);
+      verify(mockPublishClient, times(1)).publishContinuationCluster(any());
+      verify(mockPublishClient, never()).publishFeaturedCluster(any());
+      verify(mockPublishClient, times(1)).deleteFeaturedCluster();
+      verify(mockPublishClient, never()).publishRecommendationClusters(any());
+      verify(mockPublishClient, times(1)).deleteRecommendationsClusters();
+      verify(mockPublishClient, times(1)).deleteUserManagementCluster();
+      verify(mockPublishClient, times(1))
+          .updatePublishStatus(
+              argThat(
+                  publishStatusRequest ->
+                      publishStatusRequest.getStatusCode()
+                          == AppEngagePublishStatusCode.PUBLISHED));
+    } finally {
+      EbookCatalogs.install(previousCatalog);
+    }
+  }
+
+  @Test
+  public void accountTransitionRunsEveryStepWhenOneFailsTest() throws Exception {
+    when(mockPublishClient.isServiceAvailable()).thenReturn(Tasks.forResult(Boolean.TRUE));
+    Task<Void> success = Tasks.forResult(null);
+    when(mockPublishClient.publishContinuationCluster(any())).thenReturn(success);
+    when(mockPublishClient.publishFeaturedCluster(any()))
+        .thenReturn(
+            Tasks.forException(
+                new AppEngageException(AppEngageErrorCode.SERVICE_CALL_INTERNAL)));
+    when(mockPublishClient.publishRecommendationClusters(any())).thenReturn(success);
+    when(mockPublishClient.deleteUserManagementCluster()).thenReturn(success);
+
+    EngageServiceWorker worker =
+        getSetStateWorker(
+            SET_ACCOUNT_TRANSITION,
+            /* runAttemptCount= */ 0,
+            workerFactoryWithAccountWithOneReadEbook);
+    Result result = worker.startWork().get();
+
+    // The featured cluster is retried, but the sign in card is still deleted.
+    assertEquals(Result.retry(), result);
+    verify(mockPublishClient, times(1)).publishRecommendationClusters(any());
+    verify(mockPublishClient, times(1)).deleteUserManagementCluster();
+    verify(mockPublishClient, times(1)).updatePublishStatus(any());
+  }
+
+  @Test
+  public void deliverOutboxContinuesPastRejectedClusterTest() throws Exception {
+    PublishOutbox outbox = new PublishOutbox(appContext);
+    clearOutbox(outbox);
+    outbox.record(SET_CONTINUATION);
+    outbox.record(SET_FEATURED);
+
+    when(mockPublishClient.isServiceAvailable()).thenReturn(Tasks.forResult(Boolean.TRUE));
+    AppEngageException rejection =
+        new AppEngageException(AppEngageErrorCode.SERVICE_CALL_INVALID_ARGUMENT);
+    when(mockPublishClient.publishContinuationCluster(any()))
+        .thenReturn(Tasks.forException(rejection));
+    when(mockPublishClient.publishFeaturedCluster(any())).thenReturn(Tasks.forResult(null));
+
+    EngageServiceWorker worker =
+        getSetStateWorker(
+            SET_OUTBOX, /* runAttemptCount= */ 0, workerFactoryWithAccountWithOneReadEbook);
+    Result result = worker.startWork().get();
+
+    assertEquals(Result.failure(), result);
+    verify(mockPublishClient, times(1)).publishContinuationCluster(any());
+    verify(mockPublishClient, times(1)).publishFeaturedCluster(any());
+    assertTrue(outbox.loadPending().isEmpty());
+  }
+
+  @Test
+  public void deliverOutboxKeepsEntriesOnRecoverableErrorTest() throws Exception {
+    PublishOutbox outbox = new PublishOutbox(appContext);
+    clearOutbox(outbox);
+    outbox.record(SET_CONTINUATION);
+    outbox.record(SET_FEATURED);
+
+    when(mockPublishClient.isServiceAvailable()).thenReturn(Tasks.forResult(Boolean.TRUE));
+    AppEngageException recoverable =
+        new AppEngageException(AppEngageErrorCode.SERVICE_CALL_INTERNAL);
+    when(mockPublishClient.publishContinuationCluster(any()))
+        .thenReturn(Tasks.forException(recoverable));
+
+    EngageServiceWorker worker =
+        getSetStateWorker(
+            SET_OUTBOX, /* runAttemptCount= */ 0, workerFactoryWithAccountWithOneReadEbook);
+    Result result = worker.startWork().get();
+
+    assertEquals(Result.retry(), result);
+    verify(mockPublishClient, never()).publishFeaturedCluster(any());
+    assertEquals(ImmutableSet.of(SET_CONTINUATION, SET_FEATURED), outbox.loadPending().keySet());
+    clearOutbox(outbox);
+  }
+
+  private static void clearOutbox(PublishOutbox outbox) {
+    for (Map.Entry<String, Long> entry : outbox.loadPending().entrySet()) {
+      outbox.markDelivered(entry.getKey(), entry.getValue());
+    }
+  }
+
   private EngageServiceWorker getSetStateWorker(String clusterToPublish, int runAttemptCount,
       WorkerFactory workerFactory) {
     Data clusterToPublishData =
@@ -0,0 +1,169 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.publish;
+
+import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_OUTBOX_ONE_TIME_WORK_NAME;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.LifecycleRegistry;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.work.Configuration;
+import androidx.work.WorkManager;
+import androidx.work.testing.SynchronousExecutor;
+import androidx.work.testing.WorkManagerTestInitHelper;
+import com.google.android.engage.service.AppEngageErrorCode;
+import com.google.android.engage.service.AppEngageException;
+import com.google.android.engage.service.AppEngagePublishClient;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.android.gms.tasks.Tasks;
+import com.google.samples.quickstart.engagesdksamples.read.login.Account;
+import com.google.samples.quickstart.engagesdksamples.read.login.AccountIOManager;
+import com.google.samples.quickstart.engagesdksamples.read.model.Ebook;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+
+@RunWith(AndroidJUnit4.class)
+public class ForegroundPublisherTest {
+
+  private static final long TIMEOUT_MILLIS = 5000;
+
+  @Mock private AppEngagePublishClient mockPublishClient;
+  private Context appContext;
+  private WorkManager workManager;
+  private TestProcessLifecycleOwner processLifecycleOwner;
+  private Account account;
+  private ForegroundPublisher publisher;
+
+  @Before
+  public void setUp() {
+    appContext = ApplicationProvider.getApplicationContext();
+    SynchronousExecutor synchronousExecutor = new SynchronousExecutor();
+    Configuration config =
+        new Configuration.Builder()
+            .setExecutor(synchronousExecutor)
+            .setTaskExecutor(synchronousExecutor)
+            .build();
+    WorkManagerTestInitHelper.initializeTestWorkManager(appContext, config);
+    workManager = WorkManager.getInstance(appContext);
+
+    mockPublishClient = mock();
+    when(mockPublishClient.isServiceAvailable()).thenReturn(Tasks.forResult(Boolean.TRUE));
+    processLifecycleOwner = new TestProcessLifecycleOwner();
+    processLifecycleOwner.lifecycle.setCurrentState(Lifecycle.State.RESUMED);
+    publisher =
+        new ForegroundPublisher(appContext, mockPublishClient, processLifecycleOwner.lifecycle);
+
+    account = new Account();
+    account.markInProgressPageInEbook(
+        new Ebook(/* id= */ 1), /* page= */ 1, /* engagementTime= */ 100L);
+    AccountIOManager.saveAccount(appContext, account);
+  }
+
+  @After
+  public void cleanUp() {
+    AccountIOManager.deleteAccount(appContext);
+  }
+
+  @Test
+  public void publishesContinuationWhileVisibleTest() throws Exception {
+    when(mockPublishClient.publishContinuationCluster(any())).thenReturn(Tasks.forResult(null));
+
+    publisher.publishContinuation(account);
+    publisher.awaitIdle();
+
+    verify(mockPublishClient, times(1)).publishContinuationCluster(any());
+    assertFalse(isHandedOffToWorker());
+  }
+
+  @Test
+  public void doesNotPublishForDeletedAccountTest() throws Exception {
+    AccountIOManager.deleteAccount(appContext);
+
+    publisher.publishContinuation(account);
+    publisher.awaitIdle();
+
+    verify(mockPublishClient, never()).publishContinuationCluster(any());
+    verify(mockPublishClient, never()).deleteContinuationCluster();
+    assertFalse(isHandedOffToWorker());
+  }
+
+  @Test
+  public void cancelPendingPublishDropsWaitingClusterTest() throws Exception {
+    TaskCompletionSource<Boolean> serviceAvailable = new TaskCompletionSource<>();
+    when(mockPublishClient.isServiceAvailable()).thenReturn(serviceAvailable.getTask());
+    when(mockPublishClient.publishContinuationCluster(any())).thenReturn(Tasks.forResult(null));
+
+    publisher.publishContinuation(account);
+    // The first cluster is being published, so the second one waits behind it.
+    verify(mockPublishClient, timeout(TIMEOUT_MILLIS)).isServiceAvailable();
+    publisher.publishContinuation(account);
+    publisher.cancelPendingPublish();
+    serviceAvailable.setResult(Boolean.TRUE);
+    publisher.awaitIdle();
+
+    verify(mockPublishClient, times(1)).publishContinuationCluster(any());
+    assertFalse(isHandedOffToWorker());
+  }
+
+  @Test
+  public void publishFailingAfterAppStoppedIsHandedOffTest() throws Exception {
+    TaskCompletionSource<Void> publish = new TaskCompletionSource<>();
+    when(mockPublishClient.publishContinuationCluster(any())).thenReturn(publish.getTask());
+
+    publisher.publishContinuation(account);
+    verify(mockPublishClient, timeout(TIMEOUT_MILLIS)).publishContinuationCluster(any());
+    processLifecycleOwner.lifecycle.setCurrentState(Lifecycle.State.CREATED);
+    // Nothing was waiting or had failed when the app stopped.
+    assertFalse(isHandedOffToWorker());
+    publish.setException(
+        new AppEngageException(AppEngageErrorCode.SERVICE_CALL_EXECUTION_FAILURE));
+    publisher.awaitIdle();
+
+    assertTrue(isHandedOffToWorker());
+  }
+
+  private boolean isHandedOffToWorker() throws Exception {
+    SetEngageState.awaitOutboxRecorded();
+    return !workManager.getWorkInfosForUniqueWork(SET_OUTBOX_ONE_TIME_WORK_NAME).get().isEmpty();
+  }
+
+  /** Lets a test move the app between the foreground and background on its own thread. */
+  private static final class TestProcessLifecycleOwner implements LifecycleOwner {
+
+    final LifecycleRegistry lifecycle = LifecycleRegistry.createUnsafe(this);
+
+    @NonNull
+    @Override
+    public Lifecycle getLifecycle() {
+      return lifecycle;
+    }
+  }
+}
@@ -0,0 +1,118 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.publish;
+
+import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_RECOMMENDATIONS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.android.engage.books.datamodel.EbookEntity;
+import com.google.android.engage.common.datamodel.Entity;
+import com.google.android.engage.common.datamodel.RecommendationCluster;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.samples.quickstart.engagesdksamples.read.login.Account;
+import com.google.samples.quickstart.engagesdksamples.read.model.CoReadingModel;
+import com.google.samples.quickstart.engagesdksamples.read.model.ColumnarEbookCatalog;
+import com.google.samples.quickstart.engagesdksamples.read.model.Ebook;
+import com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalog;
+import com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalogs;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+public class GetRecommendationClustersTest {
+
+  private static final int CATALOG_SIZE = 30;
+  private static final int READ_EBOOK_ID = 1;
+  private static final int NEIGHBOR_EBOOK_ID = 7;
+  private static final int STARTED_NEIGHBOR_EBOOK_ID = 8;
+  private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+  private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+  private EbookCatalog previousCatalog;
+  private Account account;
+  private CoReadingModel coReadingModel;
+
+  @Before
+  public void setUp() {
+    previousCatalog = EbookCatalogs.get();
+    EbookCatalogs.install(ColumnarEbookCatalog.createSynthetic(CATALOG_SIZE));
+    account = new Account();
+    account.markInProgressPageInEbook(
+        new Ebook(STARTED_NEIGHBOR_EBOOK_ID), /* page= */ 1, /* engagementTime= */ DAY);
+    account.markInProgressPageInEbook(
+        new Ebook(READ_EBOOK_ID), /* page= */ 1, /* engagementTime= */ 2 * DAY);
+    coReadingModel = new CoReadingModel();
+    coReadingModel.recordEngagement(READ_EBOOK_ID, /* engagementTime= */ 0);
+    coReadingModel.recordEngagement(NEIGHBOR_EBOOK_ID, /* engagementTime= */ MINUTE);
+    coReadingModel.recordEngagement(STARTED_NEIGHBOR_EBOOK_ID, /* engagementTime= */ 2 * MINUTE);
+  }
+
+  @After
+  public void tearDown() {
+    EbookCatalogs.install(previousCatalog);
+  }
+
+  @Test
+  public void readersAlsoReadClusterHasUnstartedNeighborsTest() {
+    ImmutableList<RecommendationCluster> clusters =
+        GetRecommendationClusters.getRecommendationClusters(account, Optional.of(coReadingModel));
+
+    assertEquals(2, clusters.size());
+    assertFalse(clusters.get(0).getEntities().isEmpty());
+    assertEquals(1, clusters.get(1).getEntities().size());
+    EbookEntity neighbor = (EbookEntity) clusters.get(1).getEntities().get(0);
+    assertEquals(new Ebook(NEIGHBOR_EBOOK_ID).getName(), neighbor.getName());
+  }
+
+  @Test
+  public void noReadersAlsoReadClusterWithoutModelTest() {
+    ImmutableList<RecommendationCluster> clusters =
+        GetRecommendationClusters.getRecommendationClusters(account, Optional.absent());
+
+    assertEquals(1, clusters.size());
+  }
+
+  @Test
+  public void noReadersAlsoReadClusterWithoutUnstartedNeighborsTest() {
+    account.markInProgressPageInEbook(
+        new Ebook(NEIGHBOR_EBOOK_ID), /* page= */ 1, /* engagementTime= */ DAY + MINUTE);
+
+    ImmutableList<RecommendationCluster> clusters =
+        GetRecommendationClusters.getRecommendationClusters(account, Optional.of(coReadingModel));
+
+    assertEquals(1, clusters.size());
+  }
+
+  @Test
+  public void recordedPayloadCoversEveryClusterTest() {
+    ImmutableList<RecommendationCluster> clusters =
+        GetRecommendationClusters.getRecommendationClusters(account, Optional.of(coReadingModel));
+
+    int payloadBytes = 0;
+    for (RecommendationCluster cluster : clusters) {
+      for (Entity entity : cluster.getEntities()) {
+        payloadBytes += ParcelSizeEstimator.sizeOf(entity);
+      }
+    }
+    assertEquals(
+        Integer.valueOf(payloadBytes), PayloadMetrics.getLastPayloadBytes(SET_RECOMMENDATIONS));
+  }
+}
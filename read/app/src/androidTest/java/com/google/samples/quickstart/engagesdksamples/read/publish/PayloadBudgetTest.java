@@ -0,0 +1,139 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.publish;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.google.android.engage.books.datamodel.EbookEntity;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.samples.quickstart.engagesdksamples.read.converters.EbookToEntityConverter;
+import com.google.samples.quickstart.engagesdksamples.read.model.ColumnarEbookCatalog;
+import com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalog;
+import com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalogs;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+public class PayloadBudgetTest {
+
+  private static final int NUM_EBOOKS = 20;
+  private static final int OVERSIZED_EBOOK_ID = NUM_EBOOKS + 1;
+
+  private EbookCatalog previousCatalog;
+  private ImmutableList<EbookEntity> entities;
+
+  @Before
+  public void setUp() {
+    previousCatalog = EbookCatalogs.get();
+    ColumnarEbookCatalog synthetic = ColumnarEbookCatalog.createSynthetic(NUM_EBOOKS);
+    ColumnarEbookCatalog.Builder builder = new ColumnarEbookCatalog.Builder(OVERSIZED_EBOOK_ID);
+    for (int id = 1; id <= NUM_EBOOKS; id++) {
+      builder.add(synthetic.getName(id), synthetic.getAuthors(id), synthetic.getPublishDate(id),
+          synthetic.getDescription(id), synthetic.getPrice(id), synthetic.getNumPages(id),
+          synthetic.getGenres(id), synthetic.getSeriesName(id), synthetic.getSeriesUnitIndex(id));
+    }
+    builder.add("Oversized", ImmutableList.of("Author"), 1L,
+        Strings.repeat("x", PayloadBudget.DEFAULT_BUDGET_BYTES), "$1.00", 10,
+        ImmutableList.of("Genre"), "Series", 1);
+    EbookCatalogs.install(builder.build());
+    int[] ebookIds = new int[NUM_EBOOKS];
+    for (int i = 0; i < NUM_EBOOKS; i++) {
+      ebookIds[i] = i + 1;
+    }
+    entities = EbookToEntityConverter.convertAll(ebookIds);
+  }
+
+  @After
+  public void tearDown() {
+    EbookCatalogs.install(previousCatalog);
+  }
+
+  @Test
+  public void planWithinBudgetKeepsAllEntitiesTest() {
+    PlannedEntities<EbookEntity> planned = new PayloadBudget().plan(entities);
+
+    assertEquals(entities, planned.getEntities());
+    assertEquals(0, planned.getDroppedEntities());
+    int payloadBytes = 0;
+    for (EbookEntity entity : entities) {
+      payloadBytes += ParcelSizeEstimator.sizeOf(entity);
+    }
+    assertEquals(payloadBytes, planned.getPayloadBytes());
+  }
+
+  @Test
+  public void planOverBudgetKeepsEntitiesThatFitInOrderTest() {
+    int budgetBytes = ParcelSizeEstimator.sizeOf(entities.get(0)) * 5 / 2;
+
+    PlannedEntities<EbookEntity> planned = new PayloadBudget(budgetBytes).plan(entities);
+
+    assertFalse(planned.getEntities().isEmpty());
+    assertEquals(entities.size(), planned.getEntities().size() + planned.getDroppedEntities());
+    assertTrue(planned.getPayloadBytes() <= budgetBytes);
+    // Kept entities keep their order, and each dropped entity did not fit when it was reached.
+    int keptIndex = 0;
+    int payloadBytes = 0;
+    for (EbookEntity entity : entities) {
+      int entityBytes = ParcelSizeEstimator.sizeOf(entity);
+      if (keptIndex < planned.getEntities().size()
+          && planned.getEntities().get(keptIndex) == entity) {
+        payloadBytes += entityBytes;
+        keptIndex++;
+      } else {
+        assertTrue(payloadBytes + entityBytes > budgetBytes);
+      }
+    }
+    assertEquals(planned.getEntities().size(), keptIndex);
+    assertEquals(payloadBytes, planned.getPayloadBytes());
+  }
+
+  @Test
+  public void planOversizedEntityDropsOnlyThatEntityTest() {
+    EbookEntity oversized = EbookToEntityConverter.convert(OVERSIZED_EBOOK_ID);
+
+    PlannedEntities<EbookEntity> planned =
+        new PayloadBudget().plan(ImmutableList.of(oversized, entities.get(0)));
+
+    assertEquals(ImmutableList.of(entities.get(0)), planned.getEntities());
+    assertEquals(1, planned.getDroppedEntities());
+  }
+
+  @Test
+  public void planAfterCountsEarlierClustersTest() {
+    int entityBytes = ParcelSizeEstimator.sizeOf(entities.get(0));
+    PayloadBudget budget = new PayloadBudget(entityBytes * 5 / 2);
+    PlannedEntities<EbookEntity> first = budget.plan(entities.subList(0, 1));
+
+    PlannedEntities<EbookEntity> second = budget.planAfter(entities.subList(0, 3), first);
+
+    // Only one more entity fits in what the first cluster left of the budget.
+    assertEquals(ImmutableList.of(entities.get(0)), second.getEntities());
+    assertEquals(2, second.getDroppedEntities());
+    assertEquals(entityBytes, second.getPayloadBytes());
+  }
+
+  @Test
+  public void nonPositiveBudgetExceptionTest() {
+    assertThrows("No exception thrown creating an empty budget",
+        IllegalArgumentException.class, () -> new PayloadBudget(/* budgetBytes= */ 0));
+  }
+}
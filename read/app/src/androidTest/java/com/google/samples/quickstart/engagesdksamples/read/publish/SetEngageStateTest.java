@@ -14,13 +14,10 @@
  */
 package com.google.samples.quickstart.engagesdksamples.read.publish;
 
-import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_CONTINUATION_ONE_TIME_WORK_NAME;
-import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_CONTINUATION_PERIODICALLY_WORK_NAME;
-import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_FEATURED_ONE_TIME_WORK_NAME;
-import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_FEATURED_PERIODICALLY_WORK_NAME;
-import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_RECOMMENDATIONS_ONE_TIME_WORK_NAME;
-import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_RECOMMENDATIONS_PERIODICALLY_WORK_NAME;
-import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_USER_MANAGEMENT_PERIODICALLY_WORK_NAME;
+import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_ACCOUNT_TRANSITION_ONE_TIME_WORK_NAME;
+import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_OUTBOX_ONE_TIME_WORK_NAME;
+import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_OUTBOX_PERIODICALLY_WORK_NAME;
+import static com.google.samples.quickstart.engagesdksamples.read.publish.SetEngageState.setAccountTransition;
 import static com.google.samples.quickstart.engagesdksamples.read.publish.SetEngageState.setAllEngageStatePeriodically;
 import static com.google.samples.quickstart.engagesdksamples.read.publish.SetEngageState.setContinuationCluster;
 import static com.google.samples.quickstart.engagesdksamples.read.publish.SetEngageState.setFeaturedCluster;
@@ -61,34 +58,47 @@ public class SetEngageStateTest {
 
   @Test
   public void setRecommendationsStartsWorkTest() throws Exception {
-    setRecommendationClusters(appContext);
-    assertSetStateWorkIsQueuedHelper(SET_RECOMMENDATIONS_ONE_TIME_WORK_NAME);
+    setRecommendationClusters(appContext).get();
+    assertSetStateWorkIsQueuedHelper(SET_OUTBOX_ONE_TIME_WORK_NAME);
   }
 
   @Test
   public void setFeaturedStartsWorkTest() throws Exception {
-    setFeaturedCluster(appContext);
-    assertSetStateWorkIsQueuedHelper(SET_FEATURED_ONE_TIME_WORK_NAME);
+    setFeaturedCluster(appContext).get();
+    assertSetStateWorkIsQueuedHelper(SET_OUTBOX_ONE_TIME_WORK_NAME);
   }
 
   @Test
   public void setContinuationStartsWorkTest() throws Exception {
-    setContinuationCluster(appContext);
-    assertSetStateWorkIsQueuedHelper(SET_CONTINUATION_ONE_TIME_WORK_NAME);
+    setContinuationCluster(appContext).get();
+    assertSetStateWorkIsQueuedHelper(SET_OUTBOX_ONE_TIME_WORK_NAME);
   }
 
   @Test
   public void setAllEngageStatePeriodicallyQueuesAllWorkTest() throws Exception {
     setAllEngageStatePeriodically(appContext);
-    assertSetStateWorkIsQueuedHelper(SET_RECOMMENDATIONS_PERIODICALLY_WORK_NAME);
-    assertSetStateWorkIsQueuedHelper(SET_FEATURED_PERIODICALLY_WORK_NAME);
-    assertSetStateWorkIsQueuedHelper(SET_CONTINUATION_PERIODICALLY_WORK_NAME);
-    assertSetStateWorkIsQueuedHelper(SET_USER_MANAGEMENT_PERIODICALLY_WORK_NAME);
+    assertSetStateWorkIsQueuedHelper(SET_OUTBOX_PERIODICALLY_WORK_NAME);
+  }
+
+  @Test
+  public void setAccountTransitionQueuesOutboxDeliveryTest() throws Exception {
+    setContinuationCluster(appContext).get();
+
+    setAccountTransition(appContext);
+
+    // The delivery cancelled by the transition is replaced, so the entry is still delivered.
+    boolean deliveryQueued = false;
+    for (WorkInfo workInfo :
+        workManager.getWorkInfosForUniqueWork(SET_OUTBOX_ONE_TIME_WORK_NAME).get()) {
+      deliveryQueued |= workInfo.getState() != WorkInfo.State.CANCELLED;
+    }
+    assertTrue(deliveryQueued);
+    assertSetStateWorkIsQueuedHelper(SET_ACCOUNT_TRANSITION_ONE_TIME_WORK_NAME);
   }
 
   private void assertSetStateWorkIsQueuedHelper(String workName) throws Exception {
     List<WorkInfo> workInfos = workManager.getWorkInfosForUniqueWork(workName).get();
-    // This should always be true since publishing work is unique and non-chainable
+    // This should always be true since each test enqueues a unique publishing work once
     assertTrue(workInfos.size() == 0 || workInfos.size() == 1);
 
     // Work info will only be present if the work was triggered.
@@ -20,18 +20,54 @@ import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
-import androidx.constraintlayout.widget.ConstraintLayout;
+import androidx.annotation.Nullable;
 import androidx.recyclerview.widget.RecyclerView;
-import com.google.samples.quickstart.engagesdksamples.read.model.Ebook;
+import com.google.samples.quickstart.engagesdksamples.read.image.CoverImageLoader;
+import com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalog;
+import java.util.List;
 
+/**
+ * Binds the ebooks in the catalog to the cards of the home grid. Binding reads straight from the
+ * catalog into views cached by the view holder, so it neither looks up views nor allocates.
+ *
+ * <p>When only an ebook's progress changes, just that card's progress badge is rebound.
+ */
 public class EbookListAdapter extends RecyclerView.Adapter<EbookListAdapter.ViewHolder> {
 
-  private static int MAX_EBOOKS_TO_DISPLAY = 999;
-
   private final HomeFragment homeFragment;
+  private final CoverImageLoader coverImageLoader;
+
+  /** Shared by every card; the tapped card's holder is stored in its tag. */
+  private final View.OnClickListener onCardClicked;
+
+  @Nullable private EbookListItems items;
 
   EbookListAdapter(HomeFragment homeFragment) {
     this.homeFragment = homeFragment;
+    this.coverImageLoader = CoverImageLoader.getInstance(homeFragment.requireContext());
+    this.onCardClicked =
+        view -> this.homeFragment.loadInfoFragment(((ViewHolder) view.getTag()).boundEbookId);
+    // Ebook ids never change position, which lets RecyclerView reuse views for unchanged items.
+    setHasStableIds(true);
+  }
+
+  /**
+   * Displays newItems. If only one item changed since the items last submitted, only that card is
+   * notified.
+   */
+  void submitItems(@NonNull EbookListItems newItems) {
+    EbookListItems previous = items;
+    if (newItems == previous) {
+      // Redelivered to a recreated view, whose RecyclerView binds every card anyway.
+      return;
+    }
+    items = newItems;
+    int changedPosition = previous == null ? -1 : newItems.getOnlyChangedPosition(previous);
+    if (changedPosition >= 0) {
+      notifyItemChanged(changedPosition, EbookListItems.PROGRESS_CHANGED);
+    } else {
+      notifyDataSetChanged();
+    }
   }
 
   @NonNull
@@ -40,49 +76,96 @@ public class EbookListAdapter extends RecyclerView.Adapter<EbookListAdapter.View
     View itemView =
         LayoutInflater.from(parent.getContext())
             .inflate(R.layout.ebook_item_card, parent, /* attachToRoot= */ false);
-    return new ViewHolder(itemView);
+    ViewHolder holder = new ViewHolder(itemView);
+    itemView.setTag(holder);
+    itemView.setOnClickListener(onCardClicked);
+    return holder;
   }
 
   @Override
-  public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-    ConstraintLayout itemCard = holder.getEbookItemCard();
-    Ebook ebook = new Ebook(position + 1); // Cannot have an id of 0.
-
-    itemCard.setOnClickListener(
-        view -> {
-          homeFragment.loadInfoFragment(ebook.getId());
-        });
+  public void onBindViewHolder(
+      @NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
+    if (isProgressOnlyChange(payloads)) {
+      bindProgress(holder, items.getProgressPercentComplete(position));
+    } else {
+      onBindViewHolder(holder, position);
+    }
+  }
 
-    ImageView thumbnail = itemCard.findViewById(R.id.imageThumbnail);
-    thumbnail.setImageResource(ebook.getSquareImageResourceId());
+  @Override
+  public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+    int ebookId = items.getEbookId(position);
+    holder.boundEbookId = ebookId;
+    EbookCatalog catalog = items.getCatalog();
+
+    int imageResourceId = catalog.getSquareImageResourceId(ebookId);
+    // Skip the cache lookup when the recycled card already shows the right image.
+    if (holder.boundImageResourceId != imageResourceId) {
+      coverImageLoader.load(holder.thumbnail, imageResourceId, holder.thumbnailSizePx);
+      holder.boundImageResourceId = imageResourceId;
+    }
+    holder.title.setText(catalog.getName(ebookId));
+    holder.author.setText(catalog.getAuthors(ebookId).get(0));
+    holder.price.setText(catalog.getPrice(ebookId));
+    bindProgress(holder, items.getProgressPercentComplete(position));
+  }
 
-    TextView title = itemCard.findViewById(R.id.textTitle);
-    title.setText(ebook.getName());
+  @Override
+  public int getItemCount() {
+    return items == null ? 0 : items.size();
+  }
 
-    TextView author = itemCard.findViewById(R.id.textAuthor);
-    author.setText(ebook.getAuthors().get(0));
+  @Override
+  public long getItemId(int position) {
+    return items.getEbookId(position);
+  }
 
-    TextView price = itemCard.findViewById(R.id.textPrice);
-    price.setText(ebook.getPrice());
+  private static boolean isProgressOnlyChange(List<Object> payloads) {
+    if (payloads.isEmpty()) {
+      return false;
+    }
+    for (Object payload : payloads) {
+      if (payload != EbookListItems.PROGRESS_CHANGED) {
+        return false;
+      }
+    }
+    return true;
   }
 
-  @Override
-  public int getItemCount() {
-    return MAX_EBOOKS_TO_DISPLAY;
+  private static void bindProgress(ViewHolder holder, int progressPercentComplete) {
+    if (progressPercentComplete == EbookListItems.NO_PROGRESS) {
+      holder.progress.setVisibility(View.GONE);
+    } else {
+      holder.progress.setText(
+          holder.progress
+              .getResources()
+              .getString(R.string.ebookCardProgress, progressPercentComplete));
+      holder.progress.setVisibility(View.VISIBLE);
+    }
   }
 
+  /** Holds the views of one ebook card so they are looked up only when the card is inflated. */
   public static class ViewHolder extends RecyclerView.ViewHolder {
 
-    private final ConstraintLayout ebookItemCard;
+    private final ImageView thumbnail;
+    private final TextView title;
+    private final TextView author;
+    private final TextView price;
+    private final TextView progress;
+    private final int thumbnailSizePx;
+
+    private int boundEbookId;
+    private int boundImageResourceId;
 
     public ViewHolder(@NonNull View itemView) {
       super(itemView);
 
-      ebookItemCard = itemView.findViewById(R.id.constraintEbookItemCard);
-    }
-
-    public ConstraintLayout getEbookItemCard() {
-      return ebookItemCard;
+      thumbnail = itemView.findViewById(R.id.imageThumbnail);
+      title = itemView.findViewById(R.id.textTitle);
+      author = itemView.findViewById(R.id.textAuthor);
+      price = itemView.findViewById(R.id.textPrice);
+      progress = itemView.findViewById(R.id.textProgress);
+      thumbnailSizePx = thumbnail.getLayoutParams().width;
     }
   }
 }
@@ -0,0 +1,104 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read;
+
+import androidx.annotation.NonNull;
+import com.google.common.base.Optional;
+import com.google.samples.quickstart.engagesdksamples.read.login.Account;
+import com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalog;
+
+/**
+ * The cards of the home grid: every ebook in the catalog in id order, with the logged in account's
+ * progress through it. Items are read from the catalog and account as they are bound, so nothing is
+ * built per ebook and catalogs of any size cost the same to update.
+ *
+ * <p>Each instance also records what changed since the previous one, so the adapter rebinds just
+ * the affected card. The account is read live, so instances must only be used on the main thread.
+ */
+final class EbookListItems {
+
+  /** Progress of an ebook that is not in progress, or when no account is logged in. */
+  static final int NO_PROGRESS = -1;
+
+  /** Change payload for an item whose progress is the only thing that changed. */
+  static final Object PROGRESS_CHANGED = new Object();
+
+  /** Changed ebook id meaning any item may have changed. */
+  private static final int ALL_EBOOKS = 0;
+
+  private final EbookCatalog catalog;
+  private final Optional<Account> account;
+  private final int version;
+  private final int changedEbookId;
+
+  private EbookListItems(
+      EbookCatalog catalog, Optional<Account> account, int version, int changedEbookId) {
+    this.catalog = catalog;
+    this.account = account;
+    this.version = version;
+    this.changedEbookId = changedEbookId;
+  }
+
+  /** Returns the items of catalog with the progress of account, if an account is logged in. */
+  static EbookListItems of(@NonNull EbookCatalog catalog, @NonNull Optional<Account> account) {
+    return new EbookListItems(catalog, account, /* version= */ 0, ALL_EBOOKS);
+  }
+
+  /** Returns these items after any item may have changed, for example the account changing. */
+  EbookListItems withAccount(@NonNull Optional<Account> newAccount) {
+    return new EbookListItems(catalog, newAccount, version + 1, ALL_EBOOKS);
+  }
+
+  /** Returns these items after the progress of just the ebook with ebookId changed. */
+  EbookListItems withProgressChanged(int ebookId) {
+    return new EbookListItems(catalog, account, version + 1, ebookId);
+  }
+
+  int size() {
+    return catalog.size();
+  }
+
+  int getEbookId(int position) {
+    return position + 1;
+  }
+
+  EbookCatalog getCatalog() {
+    return catalog;
+  }
+
+  /** Returns the percentage of the ebook read, or NO_PROGRESS if it is not in progress. */
+  int getProgressPercentComplete(int position) {
+    int ebookId = getEbookId(position);
+    if (!account.isPresent() || !account.get().isEbookInProgress(ebookId)) {
+      return NO_PROGRESS;
+    }
+    return account.get().getCurrentPageOfInProgressEbook(ebookId)
+        * 100
+        / catalog.getNumPages(ebookId);
+  }
+
+  /**
+   * Returns the position of the only item that changed since previous, or -1 if more than one item
+   * may have changed, including when updates were skipped between previous and these items.
+   */
+  int getOnlyChangedPosition(@NonNull EbookListItems previous) {
+    if (changedEbookId == ALL_EBOOKS
+        || version != previous.version + 1
+        || catalog != previous.catalog) {
+      return -1;
+    }
+    return changedEbookId - 1;
+  }
+}
@@ -35,21 +35,48 @@ import com.google.android.gms.oss.licenses.OssLicensesMenuActivity;
  */
 public class HomeFragment extends Fragment {
 
+  private static final int SPAN_COUNT = 3;
+  /**
+   * Rows of cards kept in the recycled view pool. A fast fling moves several rows on and off screen
+   * per frame, and the default pool of five views does not hold even two rows.
+   */
+  private static final int RECYCLED_ROWS = 4;
+  /** Rows kept bound just off screen so reversing a scroll does not rebind them. */
+  private static final int CACHED_ROWS = 1;
+
   private RecyclerView recyclerView;
   private MainActivityViewModel viewModel;
+  /** Kept across view recreation, along with the items it displays. */
+  private EbookListAdapter adapter;
 
   public HomeFragment() {
     super(R.layout.fragment_home);
   }
 
+  @Override
+  public void onCreate(@Nullable Bundle savedInstanceState) {
+    super.onCreate(savedInstanceState);
+    adapter = new EbookListAdapter(this);
+  }
+
   @Override
   @MainThread
   public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
     viewModel = new ViewModelProvider(requireActivity()).get(MainActivityViewModel.class);
 
     recyclerView = view.findViewById(R.id.recyclerViewEbooks);
-    recyclerView.setAdapter(new EbookListAdapter(this));
-    recyclerView.setLayoutManager(new GridLayoutManager(getContext(), /* spanCount= */ 3));
+    recyclerView.setAdapter(adapter);
+    GridLayoutManager layoutManager = new GridLayoutManager(getContext(), SPAN_COUNT);
+    // Binds the next row while the render thread draws the current frame.
+    layoutManager.setItemPrefetchEnabled(true);
+    recyclerView.setLayoutManager(layoutManager);
+    // Cards never change the grid's size, so adapter updates do not need a full layout pass.
+    recyclerView.setHasFixedSize(true);
+    recyclerView.setItemViewCacheSize(SPAN_COUNT * CACHED_ROWS);
+    recyclerView
+        .getRecycledViewPool()
+        .setMaxRecycledViews(/* viewType= */ 0, SPAN_COUNT * RECYCLED_ROWS);
+    viewModel.getEbookListItems().observe(getViewLifecycleOwner(), adapter::submitItems);
 
     Button signInButton = view.findViewById(R.id.buttonSignIn);
     signInButton.setOnClickListener(unused -> signIn());
@@ -62,6 +89,14 @@ public class HomeFragment extends Fragment {
         unused -> startActivity(new Intent(requireActivity(), OssLicensesMenuActivity.class)));
   }
 
+  @Override
+  public void onDestroyView() {
+    // The adapter outlives this view, so detach it to release the old RecyclerView.
+    recyclerView.setAdapter(null);
+    recyclerView = null;
+    super.onDestroyView();
+  }
+
   public void loadInfoFragment(int clickedEbookId) {
     if (requireActivity() instanceof MainActivity) {
       MainActivity mainActivity = (MainActivity) requireActivity();
@@ -28,10 +28,13 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
+import com.google.samples.quickstart.engagesdksamples.read.image.CoverImageLoader;
 import com.google.samples.quickstart.engagesdksamples.read.model.Ebook;
 
 public class InfoFragment extends Fragment {
 
+  private int clickedEbookId;
+  /** Set once the catalog has loaded. */
   private Ebook clickedEbook;
   private MainActivityViewModel viewModel;
 
@@ -43,25 +46,46 @@ public class InfoFragment extends Fragment {
   public void onCreate(@Nullable Bundle savedInstanceState) {
     super.onCreate(savedInstanceState);
 
-    clickedEbook = new Ebook(getArguments().getInt(EBOOK_ID_INFO_KEY));
+    clickedEbookId = getArguments().getInt(EBOOK_ID_INFO_KEY);
   }
 
   /**
-   * Initializes the view model, sets the in view ebook in the view model, populates all fields
-   * given current account info and the clicked ebook.
+   * Initializes the view model, then binds the clicked ebook once the catalog has loaded. A
+   * fragment restored after the process was killed is created before the catalog has loaded, and
+   * must not open it on the main thread.
    */
   @Override
   public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
     super.onViewCreated(view, savedInstanceState);
 
-    Resources res = getResources();
-
     viewModel = new ViewModelProvider(requireActivity()).get(MainActivityViewModel.class);
+    viewModel
+        .getCatalog()
+        .observe(
+            getViewLifecycleOwner(),
+            catalog -> bindEbook(view, new Ebook(catalog, clickedEbookId)));
+  }
+
+  /**
+   * Sets the in view ebook in the view model, populates all fields given current account info and
+   * the clicked ebook.
+   *
+   * @param view View from argument of onViewCreated
+   * @param ebook The clicked ebook, in the loaded catalog
+   */
+  private void bindEbook(View view, Ebook ebook) {
+    Resources res = getResources();
 
+    clickedEbook = ebook;
     viewModel.setInViewEbook(clickedEbook);
 
     ImageView image = view.findViewById(R.id.imageInfo);
-    image.setImageResource(clickedEbook.getSquareImageResourceId());
+    // The cover spans the width of the screen.
+    CoverImageLoader.getInstance(requireContext())
+        .load(
+            image,
+            clickedEbook.getSquareImageResourceId(),
+            res.getDisplayMetrics().widthPixels);
 
     TextView title = view.findViewById(R.id.textInfoTitle);
     title.setText(clickedEbook.getName());
@@ -25,6 +25,8 @@ import androidx.core.content.ContextCompat;
 import androidx.lifecycle.ViewModelProvider;
 import com.google.android.engage.service.Intents;
 import com.google.samples.quickstart.engagesdksamples.read.databinding.ActivityMainBinding;
+import com.google.samples.quickstart.engagesdksamples.read.model.CoReadingCompactionWorker;
+import com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalogs;
 import com.google.samples.quickstart.engagesdksamples.read.publish.EngageServiceBroadcastReceiver;
 
 /**
@@ -37,6 +39,9 @@ public class MainActivity extends AppCompatActivity {
 
   @Override
   protected void onCreate(Bundle savedInstanceState) {
+    // Restored fragments wait for the catalog to load in the background, but anything reading it
+    // while the activity is created must still find the catalog file rather than a synthetic one.
+    EbookCatalogs.initialize(getApplicationContext());
     super.onCreate(savedInstanceState);
     binding = ActivityMainBinding.inflate(getLayoutInflater());
     setContentView(binding.getRoot());
@@ -62,6 +67,7 @@ public class MainActivity extends AppCompatActivity {
     super.onStop();
     viewModel.saveAccount();
     setAllEngageStatePeriodically(getApplicationContext());
+    CoReadingCompactionWorker.schedulePeriodically(getApplicationContext());
   }
 
   void loadInfoFragment(int clickedEbookId) {
@@ -23,7 +23,13 @@ import androidx.lifecycle.MutableLiveData;
 import com.google.common.base.Optional;
 import com.google.samples.quickstart.engagesdksamples.read.login.Account;
 import com.google.samples.quickstart.engagesdksamples.read.login.AccountIOManager;
+import com.google.samples.quickstart.engagesdksamples.read.model.CoReadingEngagements;
+import com.google.samples.quickstart.engagesdksamples.read.model.CoReadingIOManager;
 import com.google.samples.quickstart.engagesdksamples.read.model.Ebook;
+import com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalog;
+import com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalogs;
+import com.google.samples.quickstart.engagesdksamples.read.publish.ForegroundPublisher;
+import com.google.samples.quickstart.engagesdksamples.read.publish.SetEngageState;
 
 /** View model handling account management for the main activity. */
 public class MainActivityViewModel extends AndroidViewModel {
@@ -32,23 +38,37 @@ public class MainActivityViewModel extends AndroidViewModel {
 
   @NonNull private Optional<Account> loggedInAccount = Optional.absent();
 
+  /**
+   * Engagements not yet added to the saved co-reading model. The model is shared by every account
+   * on the device, so these are kept when an account is deleted.
+   */
+  @NonNull private final CoReadingEngagements coReadingEngagements = new CoReadingEngagements();
+
   @NonNull private Optional<Ebook> inViewEbook = Optional.absent();
 
   @NonNull
   private final MutableLiveData<Optional<Integer>> inViewEbookCurrPage = new MutableLiveData<>();
 
+  @NonNull
+  private final MutableLiveData<EbookListItems> ebookListItems = new MutableLiveData<>();
+
+  @NonNull private final MutableLiveData<EbookCatalog> catalog = new MutableLiveData<>();
+
   public MainActivityViewModel(@NonNull Application application) {
     super(application);
+    EbookCatalogs.loadInBackground(application, this::onCatalogLoaded);
   }
 
   /**
-   * Saves a logged in account if present.
+   * Saves a logged in account if present, and adds new engagements to the co-reading model in the
+   * background.
    */
   public void saveAccount() {
     if (loggedInAccount.isPresent()) {
       AccountIOManager.saveAccount(getApplication(), loggedInAccount.get());
       Log.i(TAG, "saveAccount: Successfully saved");
     }
+    CoReadingIOManager.saveEngagements(getApplication(), coReadingEngagements);
   }
 
   /**
@@ -60,19 +80,27 @@ public class MainActivityViewModel extends AndroidViewModel {
       Log.i(TAG, "loadAccount: Account successfully loaded");
     }
     loggedInAccount = optionalLoadedAccount;
+    refreshEbookListItems();
   }
 
   /**
-   * Deletes any saved account and logs the user out.
+   * Deletes any saved account and logs the user out. If an account was logged in, the Engage
+   * surface is switched to the signed out state right away.
    */
   public void deleteAccount() {
+    boolean wasLoggedIn = loggedInAccount.isPresent();
     loggedInAccount = Optional.absent();
     AccountIOManager.deleteAccount(getApplication());
+    ForegroundPublisher.getInstance(getApplication()).cancelPendingPublish();
+    refreshEbookListItems();
+    if (wasLoggedIn) {
+      SetEngageState.setAccountTransition(getApplication());
+    }
   }
 
   /**
    * Sets the user's logged in account. Does nothing if the user is already logged in, otherwise
-   * creates a new account.
+   * creates a new account and switches the Engage surface to the signed in state right away.
    */
   public void logIn() {
     if (loggedInAccount.isPresent()) {
@@ -81,6 +109,10 @@ public class MainActivityViewModel extends AndroidViewModel {
     }
     Log.i(TAG, "logIn: New account created");
     loggedInAccount = Optional.of(new Account());
+    refreshEbookListItems();
+    // The worker reads the account from storage, so save it before publishing.
+    saveAccount();
+    SetEngageState.setAccountTransition(getApplication());
   }
 
   /**
@@ -106,9 +138,9 @@ public class MainActivityViewModel extends AndroidViewModel {
   }
 
   /**
-   * Marks the given page and engagement time in the logged in account for the in view ebook. If no
-   * ebook is in view, or no account is present, throws an IllegalStateException, although this
-   * should not occur.
+   * Marks the given page and engagement time in the logged in account for the in view ebook, and
+   * publishes the updated continuation cluster right away. If no ebook is in view, or no account is
+   * present, throws an IllegalStateException, although this should not occur.
    */
   public void markPageOfInViewEbook(int page, long engagementTime) {
     if (!inViewEbook.isPresent()) {
@@ -116,8 +148,12 @@ public class MainActivityViewModel extends AndroidViewModel {
     } else if (!loggedInAccount.isPresent()) {
       throw new IllegalStateException("Tried to mark a page when no account is logged in");
     }
+    Ebook ebook = inViewEbook.get();
     inViewEbookCurrPage.setValue(Optional.of(page));
-    loggedInAccount.get().markInProgressPageInEbook(inViewEbook.get(), page, engagementTime);
+    loggedInAccount.get().markInProgressPageInEbook(ebook, page, engagementTime);
+    coReadingEngagements.add(ebook.getId(), engagementTime);
+    updateEbookListItem(ebook.getId());
+    ForegroundPublisher.getInstance(getApplication()).publishContinuation(loggedInAccount.get());
   }
 
   /**
@@ -135,4 +171,46 @@ public class MainActivityViewModel extends AndroidViewModel {
   public LiveData<Optional<Integer>> getInViewEbookPage() {
     return inViewEbookCurrPage;
   }
+
+  /**
+   * @return A livedata of the home grid's items: every ebook in the catalog, with the logged in
+   *     account's progress through it. New items are set each time progress changes. No items are
+   *     set until the catalog has loaded.
+   */
+  public LiveData<EbookListItems> getEbookListItems() {
+    return ebookListItems;
+  }
+
+  /**
+   * @return A livedata of the ebook catalog, set once it has loaded in the background. Nothing on
+   *     the main thread should read the catalog before then.
+   */
+  public LiveData<EbookCatalog> getCatalog() {
+    return catalog;
+  }
+
+  private void onCatalogLoaded() {
+    EbookCatalog loadedCatalog = EbookCatalogs.get();
+    catalog.setValue(loadedCatalog);
+    ebookListItems.setValue(EbookListItems.of(loadedCatalog, loggedInAccount));
+  }
+
+  /** Marks every item as changed, for when the logged in account changes. */
+  private void refreshEbookListItems() {
+    EbookListItems currentItems = ebookListItems.getValue();
+    if (currentItems == null) {
+      // The items are built with the current account once the catalog has loaded.
+      return;
+    }
+    ebookListItems.setValue(currentItems.withAccount(loggedInAccount));
+  }
+
+  /** Marks the item of one ebook as changed. */
+  private void updateEbookListItem(int ebookId) {
+    EbookListItems currentItems = ebookListItems.getValue();
+    if (currentItems == null) {
+      return;
+    }
+    ebookListItems.setValue(currentItems.withProgressChanged(ebookId));
+  }
 }
@@ -0,0 +1,114 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.converters;
+
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Converts many ebook ids at once. Large inputs are split into contiguous chunks converted on a
+ * shared pool with one thread per processor; small inputs are converted on the calling thread,
+ * where the cost of handing work to other threads would outweigh the gain.
+ */
+final class BulkConverter {
+
+  /** Inputs smaller than this are converted sequentially. */
+  static final int PARALLEL_THRESHOLD = 64;
+
+  /** Converts one ebook id. Must be safe to call from multiple threads. */
+  interface IdConverter<T> {
+    T convert(int id);
+  }
+
+  private static final int NUM_THREADS = Runtime.getRuntime().availableProcessors();
+
+  private static volatile ExecutorService executor;
+
+  /**
+   * Returns the conversions of ids, in the same order. Blocks until every id is converted. A
+   * RuntimeException thrown converting any id is rethrown.
+   */
+  static <T> ImmutableList<T> convertAll(int[] ids, IdConverter<T> converter) {
+    if (ids.length < PARALLEL_THRESHOLD || NUM_THREADS == 1) {
+      ImmutableList.Builder<T> converted = ImmutableList.builder();
+      for (int id : ids) {
+        converted.add(converter.convert(id));
+      }
+      return converted.build();
+    }
+
+    Object[] results = new Object[ids.length];
+    int chunkSize = (ids.length + NUM_THREADS - 1) / NUM_THREADS;
+    List<Callable<Void>> chunks = new ArrayList<>(NUM_THREADS);
+    for (int start = 0; start < ids.length; start += chunkSize) {
+      int chunkStart = start;
+      int chunkEnd = Math.min(ids.length, start + chunkSize);
+      chunks.add(
+          () -> {
+            for (int i = chunkStart; i < chunkEnd; i++) {
+              results[i] = converter.convert(ids[i]);
+            }
+            return null;
+          });
+    }
+    try {
+      for (Future<Void> chunk : getExecutor().invokeAll(chunks)) {
+        chunk.get();
+      }
+    } catch (InterruptedException exception) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while converting ebooks.", exception);
+    } catch (ExecutionException exception) {
+      if (exception.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) exception.getCause();
+      }
+      throw new IllegalStateException("Failed to convert ebooks.", exception.getCause());
+    }
+    @SuppressWarnings("unchecked") // Every element was set by the converter.
+    List<T> converted = (List<T>) Arrays.asList(results);
+    return ImmutableList.copyOf(converted);
+  }
+
+  private static ExecutorService getExecutor() {
+    ExecutorService current = executor;
+    if (current == null) {
+      synchronized (BulkConverter.class) {
+        current = executor;
+        if (current == null) {
+          ThreadFactory threadFactory =
+              runnable -> {
+                Thread thread = new Thread(runnable, "BulkConverter");
+                // Idle workers must not keep the process alive.
+                thread.setDaemon(true);
+                return thread;
+              };
+          current = Executors.newFixedThreadPool(NUM_THREADS, threadFactory);
+          executor = current;
+        }
+      }
+    }
+    return current;
+  }
+
+  private BulkConverter() {}
+}
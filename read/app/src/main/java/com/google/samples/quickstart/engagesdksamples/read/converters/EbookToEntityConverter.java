@@ -20,7 +20,9 @@ import android.net.Uri;
 import com.google.android.engage.books.datamodel.EbookEntity;
 import com.google.android.engage.common.datamodel.Price;
 import com.google.common.base.Optional;
-import com.google.samples.quickstart.engagesdksamples.read.model.Ebook;
+import com.google.common.collect.ImmutableList;
+import com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalog;
+import com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalogs;
 
 /** Converts an Ebook with a given ID to an EbookEntity. */
 public final class EbookToEntityConverter {
@@ -33,6 +35,14 @@ public final class EbookToEntityConverter {
     return convert(ebookId, Optional.absent(), Optional.absent());
   }
 
+  /**
+   * Converts the Ebooks with ids ebookIds into EbookEntities, as {@link #convert(int)} does, and
+   * returns them in the same order. Large inputs are converted in parallel; blocks until done.
+   */
+  public static ImmutableList<EbookEntity> convertAll(int[] ebookIds) {
+    return BulkConverter.convertAll(ebookIds, EbookToEntityConverter::convert);
+  }
+
   /**
    * Converts data from an Ebook with id ebookId into an EbookEntity with the same data and returns
    * it. Sets the Ebook Entity's last engagement time to lastEngagementTime if present and progress
@@ -41,20 +51,20 @@ public final class EbookToEntityConverter {
   public static EbookEntity convert(int ebookId, Optional<Long> lastEngagementTime,
       Optional<Integer> progressPercentageComplete) {
 
-    Ebook ebook = new Ebook(ebookId);
+    EbookCatalog catalog = EbookCatalogs.get();
     EbookEntity.Builder entityBuilder = new EbookEntity.Builder();
     entityBuilder
-        .setName(ebook.getName())
-        .addAuthors(ebook.getAuthors())
+        .setName(catalog.getName(ebookId))
+        .addAuthors(catalog.getAuthors(ebookId))
         .setActionLinkUri(Uri.parse(ENGAGE_SDK_DOCS_URL))
-        .addPosterImage(ResourceIdToImage.convert(ebook.getSquareImageResourceId()))
-        .setPublishDateEpochMillis(ebook.getPublishDate())
-        .setDescription(ebook.getDescription())
-        .setPrice(getPrice(ebook.getPrice()))
-        .setPageCount(ebook.getNumPages())
-        .addGenres(ebook.getGenres())
-        .setSeriesName(ebook.getSeriesName())
-        .setSeriesUnitIndex(ebook.getSeriesUnitIndex());
+        .addPosterImage(ResourceIdToImage.convert(catalog.getSquareImageResourceId(ebookId)))
+        .setPublishDateEpochMillis(catalog.getPublishDate(ebookId))
+        .setDescription(catalog.getDescription(ebookId))
+        .setPrice(getPrice(catalog.getPrice(ebookId)))
+        .setPageCount(catalog.getNumPages(ebookId))
+        .addGenres(catalog.getGenres(ebookId))
+        .setSeriesName(catalog.getSeriesName(ebookId))
+        .setSeriesUnitIndex(catalog.getSeriesUnitIndex(ebookId));
     if (lastEngagementTime.isPresent()) {
       entityBuilder.setLastEngagementTimeMillis(lastEngagementTime.get());
     }
@@ -0,0 +1,39 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.image;
+
+/** Helpers for choosing how much to downsample an image while decoding it. */
+public final class BitmapSampling {
+
+  /**
+   * Returns the largest power of two by which an image of width x height pixels can be subsampled
+   * while staying at least requestedWidth x requestedHeight pixels. Suitable for
+   * BitmapFactory.Options.inSampleSize.
+   */
+  public static int calculateInSampleSize(
+      int width, int height, int requestedWidth, int requestedHeight) {
+    if (requestedWidth <= 0 || requestedHeight <= 0) {
+      throw new IllegalArgumentException("Requested size must be positive.");
+    }
+    int inSampleSize = 1;
+    while (width / (inSampleSize * 2) >= requestedWidth
+        && height / (inSampleSize * 2) >= requestedHeight) {
+      inSampleSize *= 2;
+    }
+    return inSampleSize;
+  }
+
+  private BitmapSampling() {}
+}
@@ -0,0 +1,173 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.image;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+import android.widget.ImageView;
+import androidx.annotation.DrawableRes;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import com.google.samples.quickstart.engagesdksamples.read.R;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Loads ebook covers into image views. Covers are decoded on background threads, downsampled to the
+ * size they are shown at, and kept in a memory cache sized from the app's memory class, so a card
+ * showing a cover that was seen before is bound without decoding anything.
+ */
+public final class CoverImageLoader {
+
+  private static final String TAG = CoverImageLoader.class.getSimpleName();
+
+  /** The cache may use up to 1/CACHE_MEMORY_DIVISOR of the app's memory class. */
+  private static final int CACHE_MEMORY_DIVISOR = 8;
+
+  private static final int DECODE_THREADS = 2;
+
+  private static volatile CoverImageLoader instance;
+
+  private final Resources resources;
+  private final LruCache<CoverKey, Bitmap> cache;
+  private final ExecutorService decodeExecutor = Executors.newFixedThreadPool(DECODE_THREADS);
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+  private CoverImageLoader(Context appContext) {
+    resources = appContext.getResources();
+    ActivityManager activityManager =
+        (ActivityManager) appContext.getSystemService(Context.ACTIVITY_SERVICE);
+    int maxCacheKilobytes = activityManager.getMemoryClass() * 1024 / CACHE_MEMORY_DIVISOR;
+    cache =
+        new LruCache<CoverKey, Bitmap>(maxCacheKilobytes) {
+          @Override
+          protected int sizeOf(CoverKey key, Bitmap bitmap) {
+            return bitmap.getByteCount() / 1024;
+          }
+        };
+  }
+
+  @NonNull
+  public static CoverImageLoader getInstance(@NonNull Context context) {
+    CoverImageLoader current = instance;
+    if (current == null) {
+      synchronized (CoverImageLoader.class) {
+        current = instance;
+        if (current == null) {
+          current = new CoverImageLoader(context.getApplicationContext());
+          instance = current;
+        }
+      }
+    }
+    return current;
+  }
+
+  /**
+   * Shows the drawable resourceId in imageView, decoded to no more than about twice sizePx pixels
+   * in each dimension. If imageView is bound to another cover before decoding finishes, only the
+   * latest cover is shown.
+   *
+   * @param imageView View to show the cover in
+   * @param resourceId Drawable resource of the cover
+   * @param sizePx Width and height the cover is shown at, in pixels
+   */
+  @MainThread
+  public void load(@NonNull ImageView imageView, @DrawableRes int resourceId, int sizePx) {
+    CoverKey key = new CoverKey(resourceId, sizePx);
+    imageView.setTag(R.id.coverImageKey, key);
+    Bitmap cached = cache.get(key);
+    if (cached != null) {
+      imageView.setImageBitmap(cached);
+      return;
+    }
+    imageView.setImageDrawable(null);
+    decodeExecutor.execute(
+        () -> {
+          Bitmap bitmap = getOrDecode(key);
+          if (bitmap == null) {
+            return;
+          }
+          mainHandler.post(
+              () -> {
+                if (key.equals(imageView.getTag(R.id.coverImageKey))) {
+                  imageView.setImageBitmap(bitmap);
+                }
+              });
+        });
+  }
+
+  @WorkerThread
+  @Nullable
+  private Bitmap getOrDecode(CoverKey key) {
+    // Cards showing the same cover are often bound together, and only the first needs to decode it.
+    Bitmap bitmap = cache.get(key);
+    if (bitmap != null) {
+      return bitmap;
+    }
+    BitmapFactory.Options options = new BitmapFactory.Options();
+    // Sample from the file's own pixels rather than first scaling them to the screen density.
+    options.inScaled = false;
+    options.inJustDecodeBounds = true;
+    BitmapFactory.decodeResource(resources, key.resourceId, options);
+    options.inSampleSize =
+        BitmapSampling.calculateInSampleSize(
+            options.outWidth, options.outHeight, key.sizePx, key.sizePx);
+    options.inJustDecodeBounds = false;
+    bitmap = BitmapFactory.decodeResource(resources, key.resourceId, options);
+    if (bitmap == null) {
+      Log.e(TAG, "Could not decode cover " + key.resourceId);
+      return null;
+    }
+    cache.put(key, bitmap);
+    return bitmap;
+  }
+
+  private static final class CoverKey {
+
+    private final int resourceId;
+    private final int sizePx;
+
+    CoverKey(int resourceId, int sizePx) {
+      if (sizePx <= 0) {
+        throw new IllegalArgumentException("Cover size must be positive.");
+      }
+      this.resourceId = resourceId;
+      this.sizePx = sizePx;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof CoverKey)) {
+        return false;
+      }
+      CoverKey that = (CoverKey) other;
+      return resourceId == that.resourceId && sizePx == that.sizePx;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * resourceId + sizePx;
+    }
+  }
+}
@@ -14,7 +14,10 @@
  */
 package com.google.samples.quickstart.engagesdksamples.read.login;
 
+import com.google.common.collect.ImmutableList;
 import com.google.samples.quickstart.engagesdksamples.read.model.Ebook;
+import com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalog;
+import com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalogs;
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
@@ -23,9 +26,21 @@ import java.util.Set;
 /** Contains data of a logged in user including place in ebooks and completed ebooks. */
 public class Account implements Serializable {
 
+  /** Matches the serialized form of accounts saved before this field was declared. */
+  private static final long serialVersionUID = -1638784304339589789L;
+
+  /** Maximum number of ebooks kept for the continuation cluster. */
+  public static final int MAX_CONTINUATION_EBOOKS = 10;
+
   private final Map<Integer, Integer> inProgressEbookIdToPage;
   private final Map<Integer, Long> inProgressEbookIdToLastEngagementTime;
 
+  /**
+   * Derived from the in progress maps, so it is not serialized. Built on first use and kept up to
+   * date by each page mark after that.
+   */
+  private transient ContinuationSet continuationSet;
+
   public Account() {
     inProgressEbookIdToPage = new HashMap<>();
     inProgressEbookIdToLastEngagementTime = new HashMap<>();
@@ -52,8 +67,11 @@ public class Account implements Serializable {
       throw new IllegalArgumentException(
           "Engagement time must be positive. " + "Engagement time is " + engagementTime);
     }
-    inProgressEbookIdToPage.put(ebook.getId(), page);
-    inProgressEbookIdToLastEngagementTime.put(ebook.getId(), engagementTime);
+    int ebookId = ebook.getId();
+    Long previousEngagementTime = inProgressEbookIdToLastEngagementTime.get(ebookId);
+    inProgressEbookIdToPage.put(ebookId, page);
+    inProgressEbookIdToLastEngagementTime.put(ebookId, engagementTime);
+    updateContinuationSet(ebookId, page, numPages, engagementTime, previousEngagementTime);
   }
 
   /**
@@ -95,4 +113,55 @@ public class Account implements Serializable {
     return inProgressEbookIdToPage.keySet();
   }
 
+  /**
+   * Returns up to MAX_CONTINUATION_EBOOKS in progress ebooks that are not yet complete, most
+   * recently engaged first.
+   */
+  public ImmutableList<ContinuationEbook> getContinuationEbooks() {
+    return getContinuationSet().snapshot();
+  }
+
+  private void updateContinuationSet(
+      int ebookId, int page, int numPages, long engagementTime, Long previousEngagementTime) {
+    if (continuationSet == null) {
+      // Built lazily from the maps, which already include this mark.
+      return;
+    }
+    int progressPercentComplete = page * 100 / numPages;
+    if (previousEngagementTime != null && engagementTime < previousEngagementTime) {
+      // Moving an ebook back in time may let a previously evicted ebook back into the set.
+      continuationSet = null;
+    } else if (progressPercentComplete < 100) {
+      continuationSet.offer(
+          new ContinuationEbook(ebookId, engagementTime, progressPercentComplete));
+    } else if (continuationSet.remove(ebookId) != null) {
+      // A completed ebook frees a slot; the next most recent ebook may have been evicted earlier.
+      continuationSet = null;
+    }
+  }
+
+  private ContinuationSet getContinuationSet() {
+    if (continuationSet == null) {
+      EbookCatalog catalog = EbookCatalogs.get();
+      ContinuationSet rebuilt = new ContinuationSet(MAX_CONTINUATION_EBOOKS);
+      for (Map.Entry<Integer, Integer> entry : inProgressEbookIdToPage.entrySet()) {
+        int ebookId = entry.getKey();
+        if (ebookId > catalog.size()) {
+          // The ebook is no longer in the catalog.
+          continue;
+        }
+        int progressPercentComplete = entry.getValue() * 100 / catalog.getNumPages(ebookId);
+        if (progressPercentComplete < 100) {
+          rebuilt.offer(
+              new ContinuationEbook(
+                  ebookId,
+                  inProgressEbookIdToLastEngagementTime.get(ebookId),
+                  progressPercentComplete));
+        }
+      }
+      continuationSet = rebuilt;
+    }
+    return continuationSet;
+  }
+
 }
@@ -81,6 +81,20 @@ public final class AccountIOManager {
     return account;
   }
 
+  /**
+   * Returns whether an account is saved, without loading it.
+   *
+   * @param appContext Application's context
+   */
+  public static boolean hasSavedAccount(Context appContext) {
+    return hasSavedAccount(appContext, ACCOUNT_FILE_NAME);
+  }
+
+  @VisibleForTesting
+  static boolean hasSavedAccount(Context appContext, String fileName) {
+    return appContext.getFileStreamPath(fileName).exists();
+  }
+
   /**
    * Deletes the saved account if present.
    *
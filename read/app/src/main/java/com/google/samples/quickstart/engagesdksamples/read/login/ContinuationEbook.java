@@ -0,0 +1,50 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.login;
+
+import java.util.Comparator;
+
+/** An in progress ebook eligible for the continuation cluster. */
+public final class ContinuationEbook {
+
+  /** Orders the most recently engaged ebooks first, breaking ties by ebook id. */
+  static final Comparator<ContinuationEbook> MOST_RECENT_FIRST =
+      (first, second) -> {
+        int byTime = Long.compare(second.lastEngagementTime, first.lastEngagementTime);
+        return byTime != 0 ? byTime : Integer.compare(first.ebookId, second.ebookId);
+      };
+
+  private final int ebookId;
+  private final long lastEngagementTime;
+  private final int progressPercentComplete;
+
+  ContinuationEbook(int ebookId, long lastEngagementTime, int progressPercentComplete) {
+    this.ebookId = ebookId;
+    this.lastEngagementTime = lastEngagementTime;
+    this.progressPercentComplete = progressPercentComplete;
+  }
+
+  public int getEbookId() {
+    return ebookId;
+  }
+
+  public long getLastEngagementTime() {
+    return lastEngagementTime;
+  }
+
+  public int getProgressPercentComplete() {
+    return progressPercentComplete;
+  }
+}
@@ -0,0 +1,66 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.login;
+
+import com.google.common.collect.ImmutableList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Bounded set of the most recently engaged, not yet completed ebooks. Offering or removing an ebook
+ * costs O(log capacity).
+ */
+final class ContinuationSet {
+
+  private final int capacity;
+  private final TreeSet<ContinuationEbook> ordered =
+      new TreeSet<>(ContinuationEbook.MOST_RECENT_FIRST);
+  private final Map<Integer, ContinuationEbook> ebookIdToEntry = new HashMap<>();
+
+  ContinuationSet(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive. Capacity is " + capacity);
+    }
+    this.capacity = capacity;
+  }
+
+  /**
+   * Adds entry, replacing any entry for the same ebook. If the set is over capacity afterwards, the
+   * least recently engaged entry is evicted.
+   */
+  void offer(ContinuationEbook entry) {
+    remove(entry.getEbookId());
+    ordered.add(entry);
+    ebookIdToEntry.put(entry.getEbookId(), entry);
+    if (ordered.size() > capacity) {
+      ebookIdToEntry.remove(ordered.pollLast().getEbookId());
+    }
+  }
+
+  /** Removes the entry for ebookId and returns it, or returns null if it was not in the set. */
+  ContinuationEbook remove(int ebookId) {
+    ContinuationEbook removed = ebookIdToEntry.remove(ebookId);
+    if (removed != null) {
+      ordered.remove(removed);
+    }
+    return removed;
+  }
+
+  /** Returns the entries, most recently engaged first. */
+  ImmutableList<ContinuationEbook> snapshot() {
+    return ImmutableList.copyOf(ordered);
+  }
+}
@@ -0,0 +1,81 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.login;
+
+import com.google.samples.quickstart.engagesdksamples.read.model.Ebook;
+import com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalog;
+import java.util.Random;
+
+/**
+ * Generates accounts with a reading history for tests and benchmarks. The same catalog, seed and
+ * parameters always produce the same history.
+ */
+public final class SyntheticHistoryGenerator {
+
+  /** Longest gap between two consecutive engagements, one day. */
+  private static final long MAXIMUM_ENGAGEMENT_GAP_MILLIS = 24 * 60 * 60 * 1000L;
+
+  private final EbookCatalog catalog;
+  private final long seed;
+
+  /**
+   * @param catalog Catalog to pick ebooks from. Accounts read page counts from the installed
+   *     catalog, so this should be the catalog returned by EbookCatalogs.get().
+   * @param seed Seed of the random source
+   */
+  public SyntheticHistoryGenerator(EbookCatalog catalog, long seed) {
+    this.catalog = catalog;
+    this.seed = seed;
+  }
+
+  /**
+   * Returns an account with numInProgress distinct ebooks of the catalog in progress. Each is
+   * stopped on a page before its last, and engagement times step back from latestEngagementTime by
+   * up to a day between ebooks.
+   *
+   * @param numInProgress Number of ebooks to mark in progress, at most the size of the catalog
+   * @param latestEngagementTime Engagement time of the most recently read ebook, in epoch millis
+   */
+  public Account generate(int numInProgress, long latestEngagementTime) {
+    if (numInProgress < 0 || numInProgress > catalog.size()) {
+      throw new IllegalArgumentException(
+          "Cannot mark " + numInProgress + " of " + catalog.size() + " ebooks in progress.");
+    }
+    Random random = new Random(seed);
+    // Partial Fisher-Yates shuffle: the first numInProgress ids end up a uniform random selection.
+    int[] ids = new int[catalog.size()];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = i + 1;
+    }
+    Account account = new Account();
+    long engagementTime = latestEngagementTime;
+    for (int i = 0; i < numInProgress; i++) {
+      int swap = i + random.nextInt(ids.length - i);
+      int id = ids[swap];
+      ids[swap] = ids[i];
+      ids[i] = id;
+
+      Ebook ebook = new Ebook(catalog, id);
+      // Stopping before the last page keeps the ebook in progress rather than completed.
+      int page = 1 + random.nextInt(Math.max(1, ebook.getNumPages() - 1));
+      if (engagementTime <= 0) {
+        throw new IllegalArgumentException("latestEngagementTime is too early for the history.");
+      }
+      account.markInProgressPageInEbook(ebook, page, engagementTime);
+      engagementTime -= 1 + (long) (random.nextDouble() * MAXIMUM_ENGAGEMENT_GAP_MILLIS);
+    }
+    return account;
+  }
+}
@@ -0,0 +1,74 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.model;
+
+import android.content.Context;
+import android.os.Build;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compacts the saved {@link CoReadingModel} once a day, while the device is charging and, where
+ * supported, idle. Engagements only ever add to the model, so this is where old sessions fade and
+ * ebooks removed from the catalog are dropped.
+ */
+public final class CoReadingCompactionWorker extends Worker {
+
+  private static final String TAG = CoReadingCompactionWorker.class.getSimpleName();
+  private static final String WORK_NAME = "COMPACT_CO_READING_PERIODICALLY_WORK_NAME";
+
+  public CoReadingCompactionWorker(
+      @NonNull Context context, @NonNull WorkerParameters workerParams) {
+    super(context, workerParams);
+  }
+
+  /**
+   * Queues the compaction unless it is already queued.
+   *
+   * @param appContext Application's context
+   */
+  public static void schedulePeriodically(Context appContext) {
+    Constraints.Builder constraints =
+        new Constraints.Builder().setRequiresCharging(true).setRequiresBatteryNotLow(true);
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+      constraints.setRequiresDeviceIdle(true);
+    }
+    PeriodicWorkRequest compactRequest =
+        new PeriodicWorkRequest.Builder(
+                CoReadingCompactionWorker.class, /* repeatInterval= */ 24, TimeUnit.HOURS)
+            .setConstraints(constraints.build())
+            .build();
+    WorkManager.getInstance(appContext)
+        .enqueueUniquePeriodicWork(WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, compactRequest);
+  }
+
+  @NonNull
+  @Override
+  public Result doWork() {
+    Context appContext = getApplicationContext();
+    EbookCatalogs.initialize(appContext);
+    if (CoReadingIOManager.compactModel(appContext, EbookCatalogs.get().size())) {
+      Log.i(TAG, "doWork: Compacted co-reading model");
+    }
+    return Result.success();
+  }
+}
@@ -0,0 +1,69 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.model;
+
+import java.util.Arrays;
+
+/**
+ * Engagements waiting to be added to the saved {@link CoReadingModel}. The app records engagements
+ * here rather than in a model of its own, so that saving them never overwrites changes another
+ * component, such as {@link CoReadingCompactionWorker}, made to the saved model meanwhile.
+ */
+public final class CoReadingEngagements {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private int[] ebookIds = new int[INITIAL_CAPACITY];
+  private long[] engagementTimes = new long[INITIAL_CAPACITY];
+  private int size;
+
+  /** Records that ebookId was engaged at engagementTime. */
+  public void add(int ebookId, long engagementTime) {
+    if (size == ebookIds.length) {
+      ebookIds = Arrays.copyOf(ebookIds, size * 2);
+      engagementTimes = Arrays.copyOf(engagementTimes, size * 2);
+    }
+    ebookIds[size] = ebookId;
+    engagementTimes[size] = engagementTime;
+    size++;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /** Records every engagement in model, in the order they were added. */
+  void applyTo(CoReadingModel model) {
+    for (int i = 0; i < size; i++) {
+      model.recordEngagement(ebookIds[i], engagementTimes[i]);
+    }
+  }
+
+  /** Moves every engagement into a new instance, leaving this one empty, and returns it. */
+  CoReadingEngagements takeAll() {
+    CoReadingEngagements taken = new CoReadingEngagements();
+    taken.ebookIds = ebookIds;
+    taken.engagementTimes = engagementTimes;
+    taken.size = size;
+    ebookIds = new int[INITIAL_CAPACITY];
+    engagementTimes = new long[INITIAL_CAPACITY];
+    size = 0;
+    return taken;
+  }
+
+  void clear() {
+    size = 0;
+  }
+}
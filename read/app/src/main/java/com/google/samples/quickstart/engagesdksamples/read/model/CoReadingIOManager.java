@@ -0,0 +1,161 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.model;
+
+import android.content.Context;
+import android.util.Log;
+import androidx.annotation.VisibleForTesting;
+import com.google.common.base.Optional;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Handles co-reading model saving and loading from app-specific internal storage. The model is only
+ * changed by loading it, changing it and saving it while holding a lock, so that changes made by
+ * the app and by {@link CoReadingCompactionWorker} do not overwrite each other. The app saves on a
+ * background thread, so the main thread never waits for a compaction.
+ */
+public final class CoReadingIOManager {
+
+  private static final String TAG = CoReadingIOManager.class.getSimpleName();
+  @VisibleForTesting static final String CO_READING_FILE_NAME = "co_reading";
+
+  /** Held while the saved model is read, changed and written back. */
+  private static final Object LOCK = new Object();
+
+  /** Saves engagements off the main thread, which must not wait for the file or the lock. */
+  private static final Executor SAVE_EXECUTOR = Executors.newSingleThreadExecutor();
+
+  /**
+   * Adds engagements to the saved co-reading model on a background thread, creating the model if
+   * none is saved. The engagements are taken from the buffer right away, so it may keep recording
+   * while they are saved. The saved model is the only copy that is ever written back, so changes
+   * made to it by other components are kept.
+   *
+   * @param appContext Application's context
+   * @param engagements Engagements recorded since they were last saved
+   */
+  public static void saveEngagements(Context appContext, CoReadingEngagements engagements) {
+    if (engagements.isEmpty()) {
+      return;
+    }
+    CoReadingEngagements taken = engagements.takeAll();
+    Context context = appContext.getApplicationContext();
+    SAVE_EXECUTOR.execute(() -> saveEngagements(context, taken, CO_READING_FILE_NAME));
+  }
+
+  @VisibleForTesting
+  static void saveEngagements(
+      Context appContext, CoReadingEngagements engagements, String fileName) {
+    if (engagements.isEmpty()) {
+      return;
+    }
+    synchronized (LOCK) {
+      Optional<CoReadingModel> savedModel = loadModel(appContext, fileName);
+      if (!savedModel.isPresent() && appContext.getFileStreamPath(fileName).exists()) {
+        // Writes are atomic, so only a model saved by an incompatible version gets here.
+        Log.w(TAG, "saveEngagements: Replacing unreadable co-reading model");
+      }
+      CoReadingModel model = savedModel.or(new CoReadingModel());
+      engagements.applyTo(model);
+      saveModel(appContext, model, fileName);
+    }
+    engagements.clear();
+  }
+
+  /**
+   * Compacts the saved co-reading model, if any, for a catalog of catalogSize ebooks. See {@link
+   * CoReadingModel#compact(int)}.
+   *
+   * @param appContext Application's context
+   * @return Whether a model was saved
+   */
+  public static boolean compactModel(Context appContext, int catalogSize) {
+    return compactModel(appContext, catalogSize, CO_READING_FILE_NAME);
+  }
+
+  @VisibleForTesting
+  static boolean compactModel(Context appContext, int catalogSize, String fileName) {
+    synchronized (LOCK) {
+      Optional<CoReadingModel> model = loadModel(appContext, fileName);
+      if (!model.isPresent()) {
+        return false;
+      }
+      model.get().compact(catalogSize);
+      saveModel(appContext, model.get(), fileName);
+      return true;
+    }
+  }
+
+  /**
+   * Writes model to a temporary file and then moves it into place, so a process killed mid-write
+   * leaves the previously saved model intact.
+   */
+  @VisibleForTesting
+  static void saveModel(Context appContext, CoReadingModel model, String fileName) {
+    File file = appContext.getFileStreamPath(fileName);
+    File tempFile = new File(file.getPath() + ".tmp");
+    try (ObjectOutputStream objectOutputStream =
+        new ObjectOutputStream(new FileOutputStream(tempFile))) {
+      objectOutputStream.writeObject(model);
+    } catch (IOException exception) {
+      Log.e(TAG, "save: ", exception);
+      tempFile.delete();
+      return;
+    }
+    if (!tempFile.renameTo(file)) {
+      Log.e(TAG, "save: Could not move co-reading model into place at " + file);
+      tempFile.delete();
+    }
+  }
+
+  /**
+   * Loads and returns the saved co-reading model from app-specific internal storage if present.
+   *
+   * @param appContext Application's context.
+   * @return Saved model. Returns Optional.absent() if no model is saved.
+   */
+  public static Optional<CoReadingModel> loadModel(Context appContext) {
+    return loadModel(appContext, CO_READING_FILE_NAME);
+  }
+
+  @VisibleForTesting
+  static Optional<CoReadingModel> loadModel(Context appContext, String fileName) {
+    if (!appContext.getFileStreamPath(fileName).exists()) {
+      // Nothing has been read on this device yet.
+      return Optional.absent();
+    }
+    Optional<CoReadingModel> model = Optional.absent();
+    try {
+      FileInputStream fileInputStream = appContext.openFileInput(fileName);
+      ObjectInputStream objectInputStream = new ObjectInputStream(fileInputStream);
+      model = Optional.of((CoReadingModel) objectInputStream.readObject());
+
+      objectInputStream.close();
+      fileInputStream.close();
+    } catch (IOException | ClassNotFoundException exception) {
+      Log.e(TAG, "load: ", exception);
+    }
+    return model;
+  }
+
+  private CoReadingIOManager() {}
+}
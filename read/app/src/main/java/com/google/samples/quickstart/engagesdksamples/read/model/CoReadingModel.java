@@ -0,0 +1,257 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.model;
+
+import androidx.annotation.NonNull;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sparse co-occurrence model of the ebooks read in the same reading session on this device, by any
+ * account. For each ebook it keeps only the neighborsPerEbook ebooks most often read alongside it,
+ * so it stays small however large the catalog is.
+ * <p>
+ * The model is updated incrementally with every engagement. Two ebooks co-occur when one is first
+ * engaged within SESSION_GAP_MILLIS of the other. Once an ebook's neighbors are full, a new
+ * neighbor replaces the least frequent one and inherits its count, so frequent neighbors are never
+ * displaced by a run of one-off ones. Counts only grow between calls to {@link #compact(int)}.
+ */
+public final class CoReadingModel implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  /** Default number of neighbors kept for each ebook. */
+  public static final int DEFAULT_NEIGHBORS_PER_EBOOK = 10;
+
+  /** Maximum time between engagements of two ebooks for them to be in the same session. */
+  static final long SESSION_GAP_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+  /** Number of recently engaged ebooks a newly engaged ebook may be paired with. */
+  private static final int RECENT_EBOOKS = 8;
+
+  private final int neighborsPerEbook;
+
+  /** Recently engaged ebooks, each at most once, and when each was last engaged. */
+  private final int[] recentEbookIds = new int[RECENT_EBOOKS];
+  private final long[] recentEngagementTimes = new long[RECENT_EBOOKS];
+  private int numRecent;
+  private int nextRecent;
+
+  /** Written as flat arrays by writeObject() rather than as one object per ebook. */
+  private transient Map<Integer, Neighbors> ebookIdToNeighbors = new HashMap<>();
+
+  public CoReadingModel() {
+    this(DEFAULT_NEIGHBORS_PER_EBOOK);
+  }
+
+  public CoReadingModel(int neighborsPerEbook) {
+    if (neighborsPerEbook <= 0) {
+      throw new IllegalArgumentException(
+          "Neighbors per ebook must be positive. Neighbors per ebook is " + neighborsPerEbook);
+    }
+    this.neighborsPerEbook = neighborsPerEbook;
+  }
+
+  /**
+   * Records that ebookId was engaged at engagementTime. If this starts a session with the ebook, it
+   * co-occurs with every other recently engaged ebook in the same session. Further engagements with
+   * the ebook during the session add nothing.
+   */
+  public void recordEngagement(int ebookId, long engagementTime) {
+    int recentIndex = -1;
+    boolean startsSession = true;
+    for (int i = 0; i < numRecent; i++) {
+      if (recentEbookIds[i] == ebookId) {
+        recentIndex = i;
+        startsSession = !isSameSession(recentEngagementTimes[i], engagementTime);
+      }
+    }
+    if (startsSession) {
+      for (int i = 0; i < numRecent; i++) {
+        if (recentEbookIds[i] != ebookId
+            && isSameSession(recentEngagementTimes[i], engagementTime)) {
+          increment(ebookId, recentEbookIds[i]);
+          increment(recentEbookIds[i], ebookId);
+        }
+      }
+    }
+    if (recentIndex < 0) {
+      // Replaces the least recently added ebook once all slots are taken.
+      recentIndex = nextRecent;
+      nextRecent = (nextRecent + 1) % RECENT_EBOOKS;
+      numRecent = Math.min(numRecent + 1, RECENT_EBOOKS);
+      recentEbookIds[recentIndex] = ebookId;
+    }
+    recentEngagementTimes[recentIndex] = engagementTime;
+  }
+
+  /**
+   * Returns the ids of the ebooks most often read in the same session as ebookId, most frequent
+   * first. Takes time linear in the number of neighbors returned.
+   */
+  @NonNull
+  public int[] getNeighbors(int ebookId) {
+    Neighbors neighbors = ebookIdToNeighbors.get(ebookId);
+    if (neighbors == null) {
+      return new int[0];
+    }
+    return Arrays.copyOf(neighbors.ids, neighbors.size);
+  }
+
+  /**
+   * Halves every count so older sessions weigh less than recent ones, then drops neighbors whose
+   * count reaches zero and ebooks no longer in a catalog of catalogSize ebooks. Takes time linear
+   * in the size of the model, so it is meant for a background job rather than every engagement.
+   */
+  public void compact(int catalogSize) {
+    Iterator<Map.Entry<Integer, Neighbors>> entries = ebookIdToNeighbors.entrySet().iterator();
+    while (entries.hasNext()) {
+      Map.Entry<Integer, Neighbors> entry = entries.next();
+      Neighbors neighbors = entry.getValue();
+      if (entry.getKey() <= catalogSize) {
+        neighbors.decay(catalogSize);
+      }
+      if (entry.getKey() > catalogSize || neighbors.size == 0) {
+        entries.remove();
+      }
+    }
+  }
+
+  private static boolean isSameSession(long firstTime, long secondTime) {
+    return Math.abs(firstTime - secondTime) <= SESSION_GAP_MILLIS;
+  }
+
+  private void increment(int ebookId, int neighborId) {
+    Neighbors neighbors = ebookIdToNeighbors.get(ebookId);
+    if (neighbors == null) {
+      neighbors = new Neighbors(neighborsPerEbook);
+      ebookIdToNeighbors.put(ebookId, neighbors);
+    }
+    neighbors.increment(neighborId);
+  }
+
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    out.defaultWriteObject();
+    int numEbooks = ebookIdToNeighbors.size();
+    int[] ebookIds = new int[numEbooks];
+    int[] numNeighbors = new int[numEbooks];
+    int totalNeighbors = 0;
+    for (Neighbors neighbors : ebookIdToNeighbors.values()) {
+      totalNeighbors += neighbors.size;
+    }
+    int[] neighborIds = new int[totalNeighbors];
+    int[] counts = new int[totalNeighbors];
+    int ebookIndex = 0;
+    int neighborIndex = 0;
+    for (Map.Entry<Integer, Neighbors> entry : ebookIdToNeighbors.entrySet()) {
+      Neighbors neighbors = entry.getValue();
+      ebookIds[ebookIndex] = entry.getKey();
+      numNeighbors[ebookIndex] = neighbors.size;
+      System.arraycopy(neighbors.ids, 0, neighborIds, neighborIndex, neighbors.size);
+      System.arraycopy(neighbors.counts, 0, counts, neighborIndex, neighbors.size);
+      ebookIndex++;
+      neighborIndex += neighbors.size;
+    }
+    out.writeObject(ebookIds);
+    out.writeObject(numNeighbors);
+    out.writeObject(neighborIds);
+    out.writeObject(counts);
+  }
+
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    int[] ebookIds = (int[]) in.readObject();
+    int[] numNeighbors = (int[]) in.readObject();
+    int[] neighborIds = (int[]) in.readObject();
+    int[] counts = (int[]) in.readObject();
+    ebookIdToNeighbors = new HashMap<>();
+    int neighborIndex = 0;
+    for (int i = 0; i < ebookIds.length; i++) {
+      Neighbors neighbors = new Neighbors(neighborsPerEbook);
+      // A model saved with more neighbors per ebook keeps only its most frequent ones.
+      neighbors.size = Math.min(numNeighbors[i], neighborsPerEbook);
+      System.arraycopy(neighborIds, neighborIndex, neighbors.ids, 0, neighbors.size);
+      System.arraycopy(counts, neighborIndex, neighbors.counts, 0, neighbors.size);
+      ebookIdToNeighbors.put(ebookIds[i], neighbors);
+      neighborIndex += numNeighbors[i];
+    }
+  }
+
+  /** One ebook's neighbors, kept in descending order of count. */
+  private static final class Neighbors {
+
+    private final int[] ids;
+    private final int[] counts;
+    private int size;
+
+    Neighbors(int capacity) {
+      ids = new int[capacity];
+      counts = new int[capacity];
+    }
+
+    void increment(int neighborId) {
+      int index = 0;
+      while (index < size && ids[index] != neighborId) {
+        index++;
+      }
+      if (index == size) {
+        if (size < ids.length) {
+          counts[index] = 0;
+          size++;
+        } else {
+          // Replace the least frequent neighbor, which is last, keeping its count.
+          index = size - 1;
+        }
+        ids[index] = neighborId;
+      }
+      counts[index]++;
+      // Counts only grow by one, so the neighbor moves past only those it now outnumbers.
+      while (index > 0 && counts[index - 1] < counts[index]) {
+        swap(index - 1, index);
+        index--;
+      }
+    }
+
+    /** Halves every count, dropping neighbors that reach zero or are past catalogSize. */
+    void decay(int catalogSize) {
+      int kept = 0;
+      for (int i = 0; i < size; i++) {
+        int count = counts[i] / 2;
+        if (count > 0 && ids[i] <= catalogSize) {
+          ids[kept] = ids[i];
+          counts[kept] = count;
+          kept++;
+        }
+      }
+      size = kept;
+    }
+
+    private void swap(int first, int second) {
+      int id = ids[first];
+      ids[first] = ids[second];
+      ids[second] = id;
+      int count = counts[first];
+      counts[first] = counts[second];
+      counts[second] = count;
+    }
+  }
+}
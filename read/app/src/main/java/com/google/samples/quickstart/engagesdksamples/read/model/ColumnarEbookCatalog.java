@@ -0,0 +1,240 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.model;
+
+import com.google.common.collect.ImmutableList;
+import com.google.samples.quickstart.engagesdksamples.read.R;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory {@link EbookCatalog} storing each field in its own array indexed by {@code id - 1}.
+ * Author and genre lists are interned so ebooks sharing the same authors or genres share a single
+ * list instance. All values are computed once when the catalog is built, so reads never allocate.
+ */
+public final class ColumnarEbookCatalog implements EbookCatalog {
+
+  private static final int MINIMUM_NUM_PAGES = 10;
+
+  private final String[] names;
+  private final long[] publishDates;
+  private final String[] descriptions;
+  private final String[] prices;
+  private final int[] numPages;
+  private final String[] seriesNames;
+  private final int[] seriesUnitIndices;
+  private final int[] authorsIndices;
+  private final int[] genresIndices;
+  private final ImmutableList<ImmutableList<String>> internedAuthors;
+  private final ImmutableList<ImmutableList<String>> internedGenres;
+
+  private ColumnarEbookCatalog(Builder builder) {
+    int size = builder.size;
+    names = Arrays.copyOf(builder.names, size);
+    publishDates = Arrays.copyOf(builder.publishDates, size);
+    descriptions = Arrays.copyOf(builder.descriptions, size);
+    prices = Arrays.copyOf(builder.prices, size);
+    numPages = Arrays.copyOf(builder.numPages, size);
+    seriesNames = Arrays.copyOf(builder.seriesNames, size);
+    seriesUnitIndices = Arrays.copyOf(builder.seriesUnitIndices, size);
+    authorsIndices = Arrays.copyOf(builder.authorsIndices, size);
+    genresIndices = Arrays.copyOf(builder.genresIndices, size);
+    internedAuthors = ImmutableList.copyOf(builder.internedAuthors);
+    internedGenres = ImmutableList.copyOf(builder.internedGenres);
+  }
+
+  /**
+   * Returns a catalog of numEbooks ebooks whose data is derived from their ids, matching the data
+   * the sample has always shown.
+   */
+  public static ColumnarEbookCatalog createSynthetic(int numEbooks) {
+    ImmutableList<String> authors = ImmutableList.of("Author_1");
+    ImmutableList<String> genres = ImmutableList.of("Genre_1");
+    Builder builder = new Builder(numEbooks);
+    for (int id = 1; id <= numEbooks; id++) {
+      builder.add(
+          "Ebook_Name_" + id,
+          authors,
+          /* publishDate= */ id,
+          "Description_" + id,
+          "$" + id + ".00",
+          // Want a minimum number of pages so all books may be in progress.
+          Math.max(MINIMUM_NUM_PAGES, id),
+          genres,
+          "Series_" + id,
+          /* seriesUnitIndex= */ id);
+    }
+    return builder.build();
+  }
+
+  @Override
+  public int size() {
+    return names.length;
+  }
+
+  @Override
+  public String getName(int id) {
+    return names[toIndex(id)];
+  }
+
+  @Override
+  public int getSquareImageResourceId(int id) {
+    toIndex(id);
+    return R.drawable.blue_square;
+  }
+
+  @Override
+  public ImmutableList<String> getAuthors(int id) {
+    return internedAuthors.get(authorsIndices[toIndex(id)]);
+  }
+
+  @Override
+  public long getPublishDate(int id) {
+    return publishDates[toIndex(id)];
+  }
+
+  @Override
+  public String getDescription(int id) {
+    return descriptions[toIndex(id)];
+  }
+
+  @Override
+  public String getPrice(int id) {
+    return prices[toIndex(id)];
+  }
+
+  @Override
+  public int getNumPages(int id) {
+    return numPages[toIndex(id)];
+  }
+
+  @Override
+  public ImmutableList<String> getGenres(int id) {
+    return internedGenres.get(genresIndices[toIndex(id)]);
+  }
+
+  @Override
+  public String getSeriesName(int id) {
+    return seriesNames[toIndex(id)];
+  }
+
+  @Override
+  public int getSeriesUnitIndex(int id) {
+    return seriesUnitIndices[toIndex(id)];
+  }
+
+  private int toIndex(int id) {
+    if (id <= 0 || id > names.length) {
+      throw new IllegalArgumentException("Ebook with id " + id + " is not in the catalog.");
+    }
+    return id - 1;
+  }
+
+  /** Appends ebooks to a catalog in id order, the first added ebook receiving id 1. */
+  public static final class Builder {
+
+    private int size;
+    private String[] names;
+    private long[] publishDates;
+    private String[] descriptions;
+    private String[] prices;
+    private int[] numPages;
+    private String[] seriesNames;
+    private int[] seriesUnitIndices;
+    private int[] authorsIndices;
+    private int[] genresIndices;
+    private final List<ImmutableList<String>> internedAuthors = new ArrayList<>();
+    private final List<ImmutableList<String>> internedGenres = new ArrayList<>();
+    private final Map<ImmutableList<String>, Integer> authorsToIndex = new HashMap<>();
+    private final Map<ImmutableList<String>, Integer> genresToIndex = new HashMap<>();
+
+    public Builder(int expectedSize) {
+      int capacity = Math.max(1, expectedSize);
+      names = new String[capacity];
+      publishDates = new long[capacity];
+      descriptions = new String[capacity];
+      prices = new String[capacity];
+      numPages = new int[capacity];
+      seriesNames = new String[capacity];
+      seriesUnitIndices = new int[capacity];
+      authorsIndices = new int[capacity];
+      genresIndices = new int[capacity];
+    }
+
+    /** Adds an ebook and returns the id it was assigned. */
+    public int add(
+        String name,
+        ImmutableList<String> authors,
+        long publishDate,
+        String description,
+        String price,
+        int pageCount,
+        ImmutableList<String> genres,
+        String seriesName,
+        int seriesUnitIndex) {
+      if (pageCount <= 0) {
+        throw new IllegalArgumentException("Ebook must have a positive number of pages.");
+      }
+      ensureCapacity(size + 1);
+      names[size] = name;
+      publishDates[size] = publishDate;
+      descriptions[size] = description;
+      prices[size] = price;
+      numPages[size] = pageCount;
+      seriesNames[size] = seriesName;
+      seriesUnitIndices[size] = seriesUnitIndex;
+      authorsIndices[size] = intern(authors, internedAuthors, authorsToIndex);
+      genresIndices[size] = intern(genres, internedGenres, genresToIndex);
+      size++;
+      return size;
+    }
+
+    public ColumnarEbookCatalog build() {
+      return new ColumnarEbookCatalog(this);
+    }
+
+    private static int intern(
+        ImmutableList<String> list,
+        List<ImmutableList<String>> interned,
+        Map<ImmutableList<String>, Integer> listToIndex) {
+      Integer index = listToIndex.get(list);
+      if (index == null) {
+        index = interned.size();
+        interned.add(list);
+        listToIndex.put(list, index);
+      }
+      return index;
+    }
+
+    private void ensureCapacity(int minCapacity) {
+      if (minCapacity <= names.length) {
+        return;
+      }
+      int capacity = Math.max(minCapacity, names.length * 2);
+      names = Arrays.copyOf(names, capacity);
+      publishDates = Arrays.copyOf(publishDates, capacity);
+      descriptions = Arrays.copyOf(descriptions, capacity);
+      prices = Arrays.copyOf(prices, capacity);
+      numPages = Arrays.copyOf(numPages, capacity);
+      seriesNames = Arrays.copyOf(seriesNames, capacity);
+      seriesUnitIndices = Arrays.copyOf(seriesUnitIndices, capacity);
+      authorsIndices = Arrays.copyOf(authorsIndices, capacity);
+      genresIndices = Arrays.copyOf(genresIndices, capacity);
+    }
+  }
+}
@@ -15,19 +15,28 @@
 package com.google.samples.quickstart.engagesdksamples.read.model;
 
 import com.google.common.collect.ImmutableList;
-import com.google.samples.quickstart.engagesdksamples.read.R;
 
-/** Represents an Ebook. */
+/**
+ * Represents an Ebook. An Ebook holds no data of its own; it is a lightweight view of one entry in
+ * an {@link EbookCatalog}.
+ */
 public final class Ebook {
 
-  private static final int MINIMUM_NUM_PAGES = 10;
-
+  private final EbookCatalog catalog;
   private final int id;
 
+  /** Creates a view of the ebook with the given id in the installed catalog. */
   public Ebook(int id) {
+    this(EbookCatalogs.get(), id);
+  }
+
+  public Ebook(EbookCatalog catalog, int id) {
     if (id <= 0) {
       throw new IllegalArgumentException("Ebook id must be positive.");
+    } else if (id > catalog.size()) {
+      throw new IllegalArgumentException("Ebook with id " + id + " is not in the catalog.");
     }
+    this.catalog = catalog;
     this.id = id;
   }
 
@@ -36,48 +45,47 @@ public final class Ebook {
   }
 
   public String getName() {
-    return "Ebook_Name_" + id;
+    return catalog.getName(id);
   }
 
   public int getSquareImageResourceId() {
-    return R.drawable.blue_square;
+    return catalog.getSquareImageResourceId(id);
   }
 
   public ImmutableList<String> getAuthors() {
     // Subject to change: May return multiple authors
-    return new ImmutableList.Builder<String>().add("Author_1").build();
+    return catalog.getAuthors(id);
   }
 
   /**
    * In epoch milliseconds
    */
   public long getPublishDate() {
-    return id;
+    return catalog.getPublishDate(id);
   }
 
   public String getDescription() {
-    return "Description_" + id;
+    return catalog.getDescription(id);
   }
 
   public String getPrice() {
-    return "$" + id + ".00";
+    return catalog.getPrice(id);
   }
 
   public int getNumPages() {
-    // Want a minimum number of pages so all books may be in progress.
-    return Math.max(MINIMUM_NUM_PAGES, id);
+    return catalog.getNumPages(id);
   }
 
   public ImmutableList<String> getGenres() {
-    return new ImmutableList.Builder<String>().add("Genre_1").build();
+    return catalog.getGenres(id);
   }
 
   public String getSeriesName() {
-    return "Series_" + id;
+    return catalog.getSeriesName(id);
   }
 
   public int getSeriesUnitIndex() {
-    return id;
+    return catalog.getSeriesUnitIndex(id);
   }
 
 }
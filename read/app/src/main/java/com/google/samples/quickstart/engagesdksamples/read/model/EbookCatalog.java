@@ -0,0 +1,50 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.model;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Read-only store of ebook data addressed by ebook id. Valid ids run from 1 to {@link #size()}
+ * inclusive. Implementations must be safe to read from multiple threads.
+ */
+public interface EbookCatalog {
+
+  /** Returns the number of ebooks in the catalog. */
+  int size();
+
+  String getName(int id);
+
+  int getSquareImageResourceId(int id);
+
+  ImmutableList<String> getAuthors(int id);
+
+  /**
+   * In epoch milliseconds
+   */
+  long getPublishDate(int id);
+
+  String getDescription(int id);
+
+  String getPrice(int id);
+
+  int getNumPages(int id);
+
+  ImmutableList<String> getGenres(int id);
+
+  String getSeriesName(int id);
+
+  int getSeriesUnitIndex(int id);
+}
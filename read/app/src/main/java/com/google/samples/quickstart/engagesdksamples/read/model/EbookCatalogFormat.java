@@ -0,0 +1,63 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.model;
+
+/**
+ * Layout of the binary ebook catalog file read by {@link MappedEbookCatalog} and written by {@link
+ * EbookCatalogWriter}.
+ *
+ * <p>The file is a fixed-size header, followed by one fixed-width record per ebook in id order,
+ * followed by a heap of UTF-8 encoded strings. All numbers are big-endian.
+ *
+ * <pre>
+ * Header (16 bytes): int magic, int version, int ebook count, int reserved
+ * Record (64 bytes): six string references (int heap offset, int byte length) for the name,
+ *                    description, price, series name, authors and genres, then int page count,
+ *                    int series unit index and long publish date
+ * </pre>
+ *
+ * Authors and genres are each stored as one string with entries joined by LIST_SEPARATOR.
+ * Identical strings are written to the heap once and shared between records.
+ */
+final class EbookCatalogFormat {
+
+  static final int MAGIC = 0x45424B43; // "EBKC"
+  static final int VERSION = 1;
+
+  static final int HEADER_SIZE = 16;
+  static final int HEADER_MAGIC_OFFSET = 0;
+  static final int HEADER_VERSION_OFFSET = 4;
+  static final int HEADER_COUNT_OFFSET = 8;
+
+  static final int RECORD_SIZE = 64;
+  static final int NAME_OFFSET = 0;
+  static final int DESCRIPTION_OFFSET = 8;
+  static final int PRICE_OFFSET = 16;
+  static final int SERIES_NAME_OFFSET = 24;
+  static final int AUTHORS_OFFSET = 32;
+  static final int GENRES_OFFSET = 40;
+  static final int NUM_PAGES_OFFSET = 48;
+  static final int SERIES_UNIT_INDEX_OFFSET = 52;
+  static final int PUBLISH_DATE_OFFSET = 56;
+
+  static final char LIST_SEPARATOR = '\u001F';
+
+  /** Returns the file offset of the first byte of the string heap. */
+  static long heapStart(int count) {
+    return HEADER_SIZE + (long) count * RECORD_SIZE;
+  }
+
+  private EbookCatalogFormat() {}
+}
@@ -0,0 +1,104 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.model;
+
+import android.content.Context;
+import android.util.Log;
+import androidx.annotation.VisibleForTesting;
+import com.google.common.base.Optional;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Handles locating, installing and opening the binary ebook catalog file in app-specific internal
+ * storage.
+ */
+public final class EbookCatalogIOManager {
+
+  private static final String TAG = EbookCatalogIOManager.class.getSimpleName();
+  static final String CATALOG_FILE_NAME = "ebook_catalog.bin";
+
+  /**
+   * Opens the catalog file in internal storage, installing it first if needed. A catalog shipped in
+   * the app's assets under CATALOG_FILE_NAME is copied into place; otherwise a synthetic catalog of
+   * EbookCatalogs.DEFAULT_CATALOG_SIZE ebooks is written. A downloaded catalog can be installed
+   * with {@link #installCatalog(Context, InputStream)}.
+   *
+   * @param appContext Application's context
+   * @return The opened catalog. Returns Optional.absent() if no catalog could be opened.
+   */
+  public static Optional<EbookCatalog> loadCatalog(Context appContext) {
+    return loadCatalog(appContext, CATALOG_FILE_NAME);
+  }
+
+  @VisibleForTesting
+  static Optional<EbookCatalog> loadCatalog(Context appContext, String fileName) {
+    File file = new File(appContext.getFilesDir(), fileName);
+    try {
+      if (!file.exists()) {
+        createCatalog(appContext, file);
+      }
+      return Optional.of(MappedEbookCatalog.open(file));
+    } catch (IOException exception) {
+      Log.e(TAG, "load: ", exception);
+      // A stale or corrupt file is replaced on the next load.
+      file.delete();
+      return Optional.absent();
+    }
+  }
+
+  /**
+   * Replaces the catalog file in internal storage with the catalog read from inputStream, for
+   * example a downloaded catalog. Takes effect the next time the catalog is loaded.
+   *
+   * @param appContext Application's context
+   * @param inputStream Catalog file contents. Not closed by this method.
+   */
+  public static void installCatalog(Context appContext, InputStream inputStream)
+      throws IOException {
+    copyIntoPlace(inputStream, new File(appContext.getFilesDir(), CATALOG_FILE_NAME));
+  }
+
+  private static void createCatalog(Context appContext, File file) throws IOException {
+    try (InputStream assetStream = appContext.getAssets().open(CATALOG_FILE_NAME)) {
+      copyIntoPlace(assetStream, file);
+    } catch (FileNotFoundException exception) {
+      Log.d(TAG, "No catalog in assets, writing synthetic catalog");
+      EbookCatalogWriter.write(
+          ColumnarEbookCatalog.createSynthetic(EbookCatalogs.DEFAULT_CATALOG_SIZE), file);
+    }
+  }
+
+  private static void copyIntoPlace(InputStream inputStream, File file) throws IOException {
+    File tempFile = new File(file.getPath() + ".tmp");
+    try (OutputStream outputStream = new FileOutputStream(tempFile)) {
+      byte[] chunk = new byte[8192];
+      int read;
+      while ((read = inputStream.read(chunk)) != -1) {
+        outputStream.write(chunk, 0, read);
+      }
+    }
+    if (!tempFile.renameTo(file)) {
+      tempFile.delete();
+      throw new IOException("Could not move catalog into place at " + file);
+    }
+  }
+
+  private EbookCatalogIOManager() {}
+}
@@ -0,0 +1,113 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.model;
+
+import static com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalogFormat.LIST_SEPARATOR;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+/** Writes an {@link EbookCatalog} in the format described by {@link EbookCatalogFormat}. */
+public final class EbookCatalogWriter {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final Joiner LIST_JOINER = Joiner.on(LIST_SEPARATOR);
+
+  /**
+   * Writes catalog to file. The catalog is written to a temporary file first and renamed over file
+   * once complete, so readers never observe a partially written catalog.
+   */
+  public static void write(EbookCatalog catalog, File file) throws IOException {
+    File tempFile = new File(file.getPath() + ".tmp");
+    try (OutputStream outputStream = new FileOutputStream(tempFile)) {
+      write(catalog, outputStream);
+    }
+    if (!tempFile.renameTo(file)) {
+      tempFile.delete();
+      throw new IOException("Could not move catalog into place at " + file);
+    }
+  }
+
+  /** Writes catalog to outputStream. Does not close outputStream. */
+  public static void write(EbookCatalog catalog, OutputStream outputStream) throws IOException {
+    int count = catalog.size();
+    StringHeap heap = new StringHeap();
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+
+    out.writeInt(EbookCatalogFormat.MAGIC);
+    out.writeInt(EbookCatalogFormat.VERSION);
+    out.writeInt(count);
+    out.writeInt(/* reserved= */ 0);
+
+    for (int id = 1; id <= count; id++) {
+      writeStringReference(out, heap.add(catalog.getName(id)));
+      writeStringReference(out, heap.add(catalog.getDescription(id)));
+      writeStringReference(out, heap.add(catalog.getPrice(id)));
+      writeStringReference(out, heap.add(catalog.getSeriesName(id)));
+      writeStringReference(out, heap.add(joinList(catalog.getAuthors(id))));
+      writeStringReference(out, heap.add(joinList(catalog.getGenres(id))));
+      out.writeInt(catalog.getNumPages(id));
+      out.writeInt(catalog.getSeriesUnitIndex(id));
+      out.writeLong(catalog.getPublishDate(id));
+    }
+    heap.bytes.writeTo(out);
+    out.flush();
+  }
+
+  private static String joinList(ImmutableList<String> list) {
+    for (String entry : list) {
+      if (entry.indexOf(LIST_SEPARATOR) >= 0) {
+        throw new IllegalArgumentException("Catalog list entry contains the list separator.");
+      }
+    }
+    return LIST_JOINER.join(list);
+  }
+
+  private static void writeStringReference(DataOutputStream out, long reference)
+      throws IOException {
+    out.writeInt((int) (reference >>> 32));
+    out.writeInt((int) reference);
+  }
+
+  /** Accumulates distinct strings, returning each as a packed (offset, length) reference. */
+  private static final class StringHeap {
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final Map<String, Long> stringToReference = new HashMap<>();
+
+    long add(String string) {
+      Long reference = stringToReference.get(string);
+      if (reference == null) {
+        byte[] encoded = string.getBytes(UTF_8);
+        reference = ((long) bytes.size() << 32) | encoded.length;
+        bytes.write(encoded, 0, encoded.length);
+        stringToReference.put(string, reference);
+      }
+      return reference;
+    }
+  }
+
+  private EbookCatalogWriter() {}
+}
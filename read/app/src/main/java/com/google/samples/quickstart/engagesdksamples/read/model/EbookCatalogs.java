@@ -0,0 +1,108 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.model;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.google.common.base.Optional;
+
+/**
+ * Holds the process-wide {@link EbookCatalog} the app reads ebook data from. Once {@link
+ * #initialize(Context)} has been called, the catalog is opened from app-specific internal storage
+ * the first time it is requested.
+ */
+public final class EbookCatalogs {
+
+  /** Number of ebooks in the catalog used when no other catalog has been installed. */
+  public static final int DEFAULT_CATALOG_SIZE = 999;
+
+  private static volatile EbookCatalog catalog;
+  @Nullable private static volatile Context appContext;
+
+  /**
+   * Lets {@link #get()} open the catalog file in internal storage. Only stores the context, so it is
+   * cheap enough to call before any component that may read the catalog, such as a fragment being
+   * restored, is created.
+   *
+   * @param context Any context of the app; only its application context is kept
+   */
+  public static void initialize(@NonNull Context context) {
+    appContext = context.getApplicationContext();
+  }
+
+  /**
+   * Returns the installed catalog. If none has been installed, opens the catalog file in internal
+   * storage, installing the file first if needed, and falls back to a synthetic catalog of
+   * DEFAULT_CATALOG_SIZE ebooks if the file cannot be opened or {@link #initialize(Context)} has not
+   * been called. Concurrent callers wait for the one opening the catalog. UI code should not call
+   * this until {@link #loadInBackground(Context, Runnable)} reports the catalog is loaded, as
+   * opening it blocks.
+   */
+  @NonNull
+  public static EbookCatalog get() {
+    EbookCatalog current = catalog;
+    if (current == null) {
+      synchronized (EbookCatalogs.class) {
+        current = catalog;
+        if (current == null) {
+          current = open();
+          catalog = current;
+        }
+      }
+    }
+    return current;
+  }
+
+  /**
+   * Calls {@link #get()} on a background thread, then runs onLoaded on the main thread. On first
+   * launch the catalog file is written in full before it is opened, which must not block the main
+   * thread.
+   *
+   * @param context Any context of the app
+   * @param onLoaded Run on the main thread once the catalog is installed
+   */
+  public static void loadInBackground(@NonNull Context context, @NonNull Runnable onLoaded) {
+    initialize(context);
+    Handler mainHandler = new Handler(Looper.getMainLooper());
+    new Thread(
+            () -> {
+              get();
+              mainHandler.post(onLoaded);
+            },
+            "EbookCatalogLoader")
+        .start();
+  }
+
+  /** Replaces the catalog returned by {@link #get()}. */
+  public static void install(@NonNull EbookCatalog newCatalog) {
+    catalog = newCatalog;
+  }
+
+  private static EbookCatalog open() {
+    Context context = appContext;
+    if (context != null) {
+      Optional<EbookCatalog> loaded = EbookCatalogIOManager.loadCatalog(context);
+      if (loaded.isPresent()) {
+        return loaded.get();
+      }
+    }
+    return ColumnarEbookCatalog.createSynthetic(DEFAULT_CATALOG_SIZE);
+  }
+
+  private EbookCatalogs() {}
+}
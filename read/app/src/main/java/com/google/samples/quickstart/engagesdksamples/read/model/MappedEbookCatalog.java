@@ -0,0 +1,205 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.model;
+
+import static com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalogFormat.AUTHORS_OFFSET;
+import static com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalogFormat.DESCRIPTION_OFFSET;
+import static com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalogFormat.GENRES_OFFSET;
+import static com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalogFormat.HEADER_COUNT_OFFSET;
+import static com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalogFormat.HEADER_MAGIC_OFFSET;
+import static com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalogFormat.HEADER_SIZE;
+import static com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalogFormat.HEADER_VERSION_OFFSET;
+import static com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalogFormat.LIST_SEPARATOR;
+import static com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalogFormat.NAME_OFFSET;
+import static com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalogFormat.NUM_PAGES_OFFSET;
+import static com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalogFormat.PRICE_OFFSET;
+import static com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalogFormat.PUBLISH_DATE_OFFSET;
+import static com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalogFormat.RECORD_SIZE;
+import static com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalogFormat.SERIES_NAME_OFFSET;
+import static com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalogFormat.SERIES_UNIT_INDEX_OFFSET;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.samples.quickstart.engagesdksamples.read.R;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link EbookCatalog} read lazily from a memory-mapped catalog file in the format described by
+ * {@link EbookCatalogFormat}. Opening the catalog only validates the header; records and strings
+ * are read from the mapping when they are requested, so large catalogs are never parsed into heap.
+ */
+public final class MappedEbookCatalog implements EbookCatalog {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final Splitter LIST_SPLITTER = Splitter.on(LIST_SEPARATOR);
+  /** Author and genre lists are heavily shared, so a small cache covers most lookups. */
+  private static final int MAX_CACHED_LISTS = 256;
+
+  private final ByteBuffer buffer;
+  private final int count;
+  private final int heapStart;
+  private final Map<Long, ImmutableList<String>> listCache =
+      new LinkedHashMap<Long, ImmutableList<String>>(16, 0.75f, /* accessOrder= */ true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, ImmutableList<String>> eldest) {
+          return size() > MAX_CACHED_LISTS;
+        }
+      };
+
+  private MappedEbookCatalog(ByteBuffer buffer, int count) {
+    this.buffer = buffer;
+    this.count = count;
+    this.heapStart = (int) EbookCatalogFormat.heapStart(count);
+  }
+
+  /**
+   * Maps file and returns a catalog reading from it.
+   *
+   * @throws IOException if file cannot be read or is not a catalog of the supported version
+   */
+  public static MappedEbookCatalog open(File file) throws IOException {
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        FileChannel channel = randomAccessFile.getChannel()) {
+      // The mapping stays valid after the channel is closed.
+      MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      return wrap(mapped);
+    }
+  }
+
+  /**
+   * Returns a catalog reading from buffer, which must hold a complete catalog starting at index 0.
+   *
+   * @throws IOException if buffer is not a catalog of the supported version
+   */
+  public static MappedEbookCatalog wrap(ByteBuffer buffer) throws IOException {
+    if (buffer.capacity() < HEADER_SIZE
+        || buffer.getInt(HEADER_MAGIC_OFFSET) != EbookCatalogFormat.MAGIC) {
+      throw new IOException("Not an ebook catalog file.");
+    }
+    int version = buffer.getInt(HEADER_VERSION_OFFSET);
+    if (version != EbookCatalogFormat.VERSION) {
+      throw new IOException("Unsupported ebook catalog version " + version + ".");
+    }
+    int count = buffer.getInt(HEADER_COUNT_OFFSET);
+    if (count < 0 || EbookCatalogFormat.heapStart(count) > buffer.capacity()) {
+      throw new IOException("Ebook catalog is truncated.");
+    }
+    return new MappedEbookCatalog(buffer, count);
+  }
+
+  @Override
+  public int size() {
+    return count;
+  }
+
+  @Override
+  public String getName(int id) {
+    return readString(recordStart(id) + NAME_OFFSET);
+  }
+
+  @Override
+  public int getSquareImageResourceId(int id) {
+    recordStart(id);
+    // Resource ids are assigned per build, so they are not stored in the catalog file.
+    return R.drawable.blue_square;
+  }
+
+  @Override
+  public ImmutableList<String> getAuthors(int id) {
+    return readList(recordStart(id) + AUTHORS_OFFSET);
+  }
+
+  @Override
+  public long getPublishDate(int id) {
+    return buffer.getLong(recordStart(id) + PUBLISH_DATE_OFFSET);
+  }
+
+  @Override
+  public String getDescription(int id) {
+    return readString(recordStart(id) + DESCRIPTION_OFFSET);
+  }
+
+  @Override
+  public String getPrice(int id) {
+    return readString(recordStart(id) + PRICE_OFFSET);
+  }
+
+  @Override
+  public int getNumPages(int id) {
+    return buffer.getInt(recordStart(id) + NUM_PAGES_OFFSET);
+  }
+
+  @Override
+  public ImmutableList<String> getGenres(int id) {
+    return readList(recordStart(id) + GENRES_OFFSET);
+  }
+
+  @Override
+  public String getSeriesName(int id) {
+    return readString(recordStart(id) + SERIES_NAME_OFFSET);
+  }
+
+  @Override
+  public int getSeriesUnitIndex(int id) {
+    return buffer.getInt(recordStart(id) + SERIES_UNIT_INDEX_OFFSET);
+  }
+
+  private int recordStart(int id) {
+    if (id <= 0 || id > count) {
+      throw new IllegalArgumentException("Ebook with id " + id + " is not in the catalog.");
+    }
+    return HEADER_SIZE + (id - 1) * RECORD_SIZE;
+  }
+
+  private String readString(int referencePosition) {
+    int offset = buffer.getInt(referencePosition);
+    int length = buffer.getInt(referencePosition + 4);
+    byte[] bytes = new byte[length];
+    int start = heapStart + offset;
+    // Absolute reads only, so the shared buffer's position is never touched and reads from
+    // multiple threads do not interfere.
+    for (int i = 0; i < length; i++) {
+      bytes[i] = buffer.get(start + i);
+    }
+    return new String(bytes, UTF_8);
+  }
+
+  private ImmutableList<String> readList(int referencePosition) {
+    // The packed (offset, length) reference identifies the list, since identical lists share heap
+    // storage. The offset alone does not: an empty list has the offset of the next string written.
+    long key = buffer.getLong(referencePosition);
+    synchronized (listCache) {
+      ImmutableList<String> cached = listCache.get(key);
+      if (cached != null) {
+        return cached;
+      }
+    }
+    String joined = readString(referencePosition);
+    ImmutableList<String> list =
+        joined.isEmpty() ? ImmutableList.of() : ImmutableList.copyOf(LIST_SPLITTER.split(joined));
+    synchronized (listCache) {
+      listCache.put(key, list);
+    }
+    return list;
+  }
+}
@@ -0,0 +1,109 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.model;
+
+import com.google.common.collect.ImmutableList;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Generates catalogs of any size for tests and benchmarks. Titles, authors, genres, page counts,
+ * prices, publish dates and series are drawn from a seeded random source, so the same seed and
+ * parameters always produce the same catalog.
+ */
+public final class SyntheticCatalogGenerator {
+
+  /** Catalog sizes performance changes are measured at. */
+  public static final ImmutableList<Integer> BENCHMARK_CATALOG_SIZES =
+      ImmutableList.of(10, 1_000, 100_000, 1_000_000);
+
+  private static final int MINIMUM_NUM_PAGES = 10;
+  private static final int MAXIMUM_NUM_PAGES = 1_000;
+  private static final int MAXIMUM_AUTHORS_PER_EBOOK = 2;
+  private static final int MAXIMUM_GENRES_PER_EBOOK = 3;
+  private static final int MAXIMUM_SERIES_LENGTH = 7;
+  // Publish dates fall between 2000-01-01 and 2022-01-01.
+  private static final long EARLIEST_PUBLISH_DATE = 946_684_800_000L;
+  private static final long LATEST_PUBLISH_DATE = 1_640_995_200_000L;
+
+  private final int numAuthors;
+  private final int numGenres;
+  private final long seed;
+
+  /**
+   * @param numAuthors Number of distinct authors ebooks are attributed to
+   * @param numGenres Number of distinct genres ebooks are filed under
+   * @param seed Seed of the random source
+   */
+  public SyntheticCatalogGenerator(int numAuthors, int numGenres, long seed) {
+    if (numAuthors <= 0 || numGenres <= 0) {
+      throw new IllegalArgumentException("There must be at least one author and one genre.");
+    }
+    this.numAuthors = numAuthors;
+    this.numGenres = numGenres;
+    this.seed = seed;
+  }
+
+  /** Returns a catalog of numEbooks ebooks. */
+  public ColumnarEbookCatalog generate(int numEbooks) {
+    if (numEbooks < 0) {
+      throw new IllegalArgumentException("Number of ebooks must not be negative.");
+    }
+    Random random = new Random(seed);
+    ColumnarEbookCatalog.Builder builder = new ColumnarEbookCatalog.Builder(numEbooks);
+    int seriesNumber = 0;
+    int seriesRemaining = 0;
+    int seriesUnitIndex = 0;
+    for (int id = 1; id <= numEbooks; id++) {
+      if (seriesRemaining == 0) {
+        seriesNumber++;
+        seriesRemaining = 1 + random.nextInt(MAXIMUM_SERIES_LENGTH);
+        seriesUnitIndex = 0;
+      }
+      seriesRemaining--;
+      seriesUnitIndex++;
+      builder.add(
+          "Title_" + id,
+          pick(random, "Author_", numAuthors, MAXIMUM_AUTHORS_PER_EBOOK),
+          EARLIEST_PUBLISH_DATE
+              + (long) (random.nextDouble() * (LATEST_PUBLISH_DATE - EARLIEST_PUBLISH_DATE)),
+          "Description_" + id,
+          "$" + (1 + random.nextInt(30)) + ".99",
+          MINIMUM_NUM_PAGES + random.nextInt(MAXIMUM_NUM_PAGES - MINIMUM_NUM_PAGES + 1),
+          pick(random, "Genre_", numGenres, MAXIMUM_GENRES_PER_EBOOK),
+          "Series_" + seriesNumber,
+          seriesUnitIndex);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Returns between one and maxCount distinct names out of poolSize, in ascending order so equal
+   * selections produce equal lists.
+   */
+  private static ImmutableList<String> pick(
+      Random random, String prefix, int poolSize, int maxCount) {
+    int count = 1 + random.nextInt(Math.min(maxCount, poolSize));
+    TreeSet<Integer> indices = new TreeSet<>();
+    while (indices.size() < count) {
+      indices.add(random.nextInt(poolSize));
+    }
+    ImmutableList.Builder<String> names = ImmutableList.builder();
+    for (int index : indices) {
+      names.add(prefix + (index + 1));
+    }
+    return names.build();
+  }
+}
@@ -0,0 +1,242 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.publish;
+
+import androidx.annotation.NonNull;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.samples.quickstart.engagesdksamples.read.login.Account;
+import com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalog;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ranks catalog ebooks by how closely their genres, authors and series match the ebooks in an
+ * account's history. Ebooks the account has already started are never ranked.
+ * <p>
+ * Ranking is a single pass over the catalog that keeps the best ebooks so far in a bounded heap, so
+ * it takes O(n log k) time and O(k) memory rather than sorting the whole catalog. The pass stops
+ * early once its time budget is spent, returning the best ebooks among those scored.
+ */
+final class AffinityRanker {
+
+  /**
+   * Time budget of a ranking pass. Scoring a 100k ebook in-memory catalog takes around a fifth of
+   * this, so the budget only cuts short passes over much larger or slower, file-backed catalogs.
+   */
+  static final long DEFAULT_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+  private static final double GENRE_WEIGHT = 1.0;
+  private static final double AUTHOR_WEIGHT = 2.0;
+  private static final double SERIES_WEIGHT = 4.0;
+
+  /** Number of ebooks scored between checks of the time budget. */
+  private static final int BUDGET_CHECK_INTERVAL = 1024;
+
+  private final EbookCatalog catalog;
+  /** Ids of the ebooks the account has started, which are not ranked. */
+  private final BitSet startedEbookIds = new BitSet();
+  private final Map<String, Double> genreAffinities = new HashMap<>();
+  private final Map<String, Double> authorAffinities = new HashMap<>();
+  private final Map<String, Double> seriesAffinities = new HashMap<>();
+  // Catalogs intern their author and genre lists, so most ebooks hit these caches by identity.
+  private final Map<ImmutableList<String>, Double> genresScores = new IdentityHashMap<>();
+  private final Map<ImmutableList<String>, Double> authorsScores = new IdentityHashMap<>();
+
+  private AffinityRanker(EbookCatalog catalog, Account account) {
+    this.catalog = catalog;
+    for (int ebookId : account.getInProgressEbookIds()) {
+      startedEbookIds.set(ebookId);
+      if (ebookId > catalog.size()) {
+        // The ebook is no longer in the catalog.
+        continue;
+      }
+      // Every ebook the account started counts, and ebooks read further count up to twice as much.
+      double weight =
+          1.0
+              + (double) account.getCurrentPageOfInProgressEbook(ebookId)
+                  / catalog.getNumPages(ebookId);
+      for (String genre : catalog.getGenres(ebookId)) {
+        addAffinity(genreAffinities, genre, weight);
+      }
+      for (String author : catalog.getAuthors(ebookId)) {
+        addAffinity(authorAffinities, author, weight);
+      }
+      addAffinity(seriesAffinities, catalog.getSeriesName(ebookId), weight);
+    }
+  }
+
+  /**
+   * Returns the ids of up to k ebooks from catalog that account has not started, highest affinity
+   * first, within DEFAULT_BUDGET_NANOS. Ties, including every ebook for an account with no
+   * history, are broken by lowest id.
+   */
+  @NonNull
+  static int[] rankTopK(@NonNull EbookCatalog catalog, @NonNull Account account, int k) {
+    return rankTopK(catalog, account, k, Ticker.systemTicker(), DEFAULT_BUDGET_NANOS);
+  }
+
+  /**
+   * Returns the ids of up to k ebooks from catalog that account has not started, highest affinity
+   * first. Scoring stops once budgetNanos, as read from ticker, have passed; ebooks not yet scored
+   * by then are not ranked.
+   */
+  @NonNull
+  static int[] rankTopK(
+      @NonNull EbookCatalog catalog,
+      @NonNull Account account,
+      int k,
+      @NonNull Ticker ticker,
+      long budgetNanos) {
+    if (k <= 0) {
+      throw new IllegalArgumentException("k must be positive. k is " + k);
+    }
+    long deadline = ticker.read() + budgetNanos;
+    AffinityRanker ranker = new AffinityRanker(catalog, account);
+    TopK topK = new TopK(k);
+    int size = catalog.size();
+    for (int id = 1; id <= size; id++) {
+      if (id % BUDGET_CHECK_INTERVAL == 0 && ticker.read() - deadline > 0) {
+        break;
+      }
+      if (!ranker.startedEbookIds.get(id)) {
+        topK.offer(id, ranker.score(id));
+      }
+    }
+    return topK.drainBestFirst();
+  }
+
+  private double score(int id) {
+    double score = GENRE_WEIGHT * listScore(catalog.getGenres(id), genreAffinities, genresScores);
+    score += AUTHOR_WEIGHT * listScore(catalog.getAuthors(id), authorAffinities, authorsScores);
+    if (!seriesAffinities.isEmpty()) {
+      Double seriesAffinity = seriesAffinities.get(catalog.getSeriesName(id));
+      if (seriesAffinity != null) {
+        score += SERIES_WEIGHT * seriesAffinity;
+      }
+    }
+    return score;
+  }
+
+  private static double listScore(
+      ImmutableList<String> list,
+      Map<String, Double> affinities,
+      Map<ImmutableList<String>, Double> cache) {
+    Double cached = cache.get(list);
+    if (cached != null) {
+      return cached;
+    }
+    double score = 0;
+    for (String value : list) {
+      Double affinity = affinities.get(value);
+      if (affinity != null) {
+        score += affinity;
+      }
+    }
+    cache.put(list, score);
+    return score;
+  }
+
+  private static void addAffinity(Map<String, Double> affinities, String key, double weight) {
+    Double current = affinities.get(key);
+    affinities.put(key, current == null ? weight : current + weight);
+  }
+
+  /**
+   * Min-heap of the k best ebooks offered so far, backed by primitive arrays so offering an ebook
+   * never allocates. The root is the worst kept ebook, the one a better ebook replaces.
+   */
+  private static final class TopK {
+
+    private final int[] ids;
+    private final double[] scores;
+    private int size;
+
+    TopK(int capacity) {
+      ids = new int[capacity];
+      scores = new double[capacity];
+    }
+
+    void offer(int id, double score) {
+      if (size < ids.length) {
+        ids[size] = id;
+        scores[size] = score;
+        siftUp(size++);
+      } else if (isBetter(id, score, ids[0], scores[0])) {
+        ids[0] = id;
+        scores[0] = score;
+        siftDown(0);
+      }
+    }
+
+    /** Empties the heap, returning its ids best first. */
+    int[] drainBestFirst() {
+      int[] best = new int[size];
+      for (int i = size - 1; i >= 0; i--) {
+        best[i] = ids[0];
+        size--;
+        ids[0] = ids[size];
+        scores[0] = scores[size];
+        siftDown(0);
+      }
+      return best;
+    }
+
+    private void siftUp(int index) {
+      while (index > 0) {
+        int parent = (index - 1) / 2;
+        if (!isBetter(ids[parent], scores[parent], ids[index], scores[index])) {
+          return;
+        }
+        swap(index, parent);
+        index = parent;
+      }
+    }
+
+    private void siftDown(int index) {
+      while (true) {
+        int worst = index;
+        for (int child = 2 * index + 1; child <= 2 * index + 2 && child < size; child++) {
+          if (isBetter(ids[worst], scores[worst], ids[child], scores[child])) {
+            worst = child;
+          }
+        }
+        if (worst == index) {
+          return;
+        }
+        swap(index, worst);
+        index = worst;
+      }
+    }
+
+    private void swap(int first, int second) {
+      int id = ids[first];
+      ids[first] = ids[second];
+      ids[second] = id;
+      double score = scores[first];
+      scores[first] = scores[second];
+      scores[second] = score;
+    }
+
+    /** Higher scores are better, and among equal scores lower ids are. */
+    private static boolean isBetter(int id, double score, int otherId, double otherScore) {
+      int byScore = Double.compare(score, otherScore);
+      return byScore != 0 ? byScore > 0 : id < otherId;
+    }
+  }
+}
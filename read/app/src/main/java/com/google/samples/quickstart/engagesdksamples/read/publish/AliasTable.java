@@ -0,0 +1,98 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.publish;
+
+import androidx.annotation.NonNull;
+import java.util.Random;
+
+/**
+ * Walker alias table over a fixed list of weights. Building the table takes O(n) time; afterwards
+ * each sample takes O(1) time, drawing index i with probability weights[i] / sum(weights).
+ */
+final class AliasTable {
+
+  /** Chance of keeping each column's own index rather than taking its alias. */
+  private final double[] probabilities;
+  private final int[] aliases;
+
+  /**
+   * Builds the table using Vose's method.
+   *
+   * @throws IllegalArgumentException if weights is empty, has a negative or non-finite weight, or
+   *     sums to zero.
+   */
+  AliasTable(@NonNull double[] weights) {
+    int size = weights.length;
+    if (size == 0) {
+      throw new IllegalArgumentException("There must be at least one weight.");
+    }
+    double sum = 0;
+    for (double weight : weights) {
+      if (!(weight >= 0) || Double.isInfinite(weight)) {
+        throw new IllegalArgumentException("Weights must be finite and non-negative.");
+      }
+      sum += weight;
+    }
+    if (sum <= 0) {
+      throw new IllegalArgumentException("Weights must not all be zero.");
+    }
+    probabilities = new double[size];
+    aliases = new int[size];
+    // Scale so the average column holds exactly 1, then pair each underfull column with an
+    // overfull one that tops it up.
+    double[] scaled = new double[size];
+    int[] small = new int[size];
+    int[] large = new int[size];
+    int numSmall = 0;
+    int numLarge = 0;
+    for (int i = 0; i < size; i++) {
+      scaled[i] = weights[i] * size / sum;
+      if (scaled[i] < 1) {
+        small[numSmall++] = i;
+      } else {
+        large[numLarge++] = i;
+      }
+    }
+    while (numSmall > 0 && numLarge > 0) {
+      int less = small[--numSmall];
+      int more = large[--numLarge];
+      probabilities[less] = scaled[less];
+      aliases[less] = more;
+      scaled[more] = scaled[more] + scaled[less] - 1;
+      if (scaled[more] < 1) {
+        small[numSmall++] = more;
+      } else {
+        large[numLarge++] = more;
+      }
+    }
+    // Whatever is left is full up to rounding error.
+    while (numLarge > 0) {
+      probabilities[large[--numLarge]] = 1;
+    }
+    while (numSmall > 0) {
+      probabilities[small[--numSmall]] = 1;
+    }
+  }
+
+  int size() {
+    return probabilities.length;
+  }
+
+  /** Returns an index drawn with probability proportional to its weight. */
+  int sample(@NonNull Random random) {
+    int column = random.nextInt(probabilities.length);
+    return random.nextDouble() < probabilities[column] ? column : aliases[column];
+  }
+}
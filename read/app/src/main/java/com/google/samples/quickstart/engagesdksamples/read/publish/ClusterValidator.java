@@ -0,0 +1,180 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.publish;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.google.android.engage.books.datamodel.EbookEntity;
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+
+/**
+ * Checks clusters against Engage's per-cluster and per-entity constraints before they are
+ * published. Engage rejects a request that breaks any of them with SERVICE_CALL_INVALID_ARGUMENT,
+ * which costs a binder round trip and can never succeed on retry, so such requests are stopped
+ * before they leave the process.
+ */
+final class ClusterValidator {
+
+  static final int MAX_RECOMMENDATION_CLUSTERS = 5;
+  static final int MAX_RECOMMENDATION_ENTITIES = 25;
+  static final int MAX_FEATURED_ENTITIES = 10;
+  static final int MAX_CONTINUATION_ENTITIES = 10;
+
+  /** A way in which a cluster breaks Engage's publishing constraints. */
+  static final class Violation {
+
+    /** Value of entityIndex when the violation concerns the cluster as a whole. */
+    static final int CLUSTER = -1;
+
+    private final String stateToSet;
+    private final int entityIndex;
+    private final String message;
+
+    Violation(String stateToSet, int entityIndex, String message) {
+      this.stateToSet = stateToSet;
+      this.entityIndex = entityIndex;
+      this.message = message;
+    }
+
+    /** Returns the SET_ value in {@link Constants} of the cluster that broke the constraint. */
+    String getStateToSet() {
+      return stateToSet;
+    }
+
+    /** Returns the position of the offending entity in its cluster, or CLUSTER. */
+    int getEntityIndex() {
+      return entityIndex;
+    }
+
+    String getMessage() {
+      return message;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+      if (entityIndex == CLUSTER) {
+        return stateToSet + ": " + message;
+      }
+      return stateToSet + " entity " + entityIndex + ": " + message;
+    }
+  }
+
+  /** Returns the violations of a recommendation cluster titled title holding entities. */
+  static ImmutableList<Violation> validateRecommendationCluster(
+      @Nullable String title, @NonNull List<EbookEntity> entities) {
+    ImmutableList.Builder<Violation> violations = ImmutableList.builder();
+    if (title == null || title.trim().isEmpty()) {
+      violations.add(
+          new Violation(
+              Constants.SET_RECOMMENDATIONS,
+              Violation.CLUSTER,
+              "Recommendation clusters need a title."));
+    }
+    validateEntities(Constants.SET_RECOMMENDATIONS, entities, MAX_RECOMMENDATION_ENTITIES,
+        violations);
+    return violations.build();
+  }
+
+  /** Returns the violations of a recommendation request publishing numClusters clusters. */
+  static ImmutableList<Violation> validateRecommendationClusterCount(int numClusters) {
+    if (numClusters >= 1 && numClusters <= MAX_RECOMMENDATION_CLUSTERS) {
+      return ImmutableList.of();
+    }
+    return ImmutableList.of(
+        new Violation(
+            Constants.SET_RECOMMENDATIONS,
+            Violation.CLUSTER,
+            "A request needs 1 to "
+                + MAX_RECOMMENDATION_CLUSTERS
+                + " clusters, not "
+                + numClusters
+                + "."));
+  }
+
+  /** Returns the violations of a featured cluster holding entities. */
+  static ImmutableList<Violation> validateFeaturedCluster(@NonNull List<EbookEntity> entities) {
+    ImmutableList.Builder<Violation> violations = ImmutableList.builder();
+    validateEntities(Constants.SET_FEATURED, entities, MAX_FEATURED_ENTITIES, violations);
+    return violations.build();
+  }
+
+  /**
+   * Returns the violations of a continuation cluster holding entities. Besides the checks every
+   * cluster gets, continuation entities must say when they were last read and how far through they
+   * are, which must be less than 100%.
+   */
+  static ImmutableList<Violation> validateContinuationCluster(
+      @NonNull List<EbookEntity> entities) {
+    ImmutableList.Builder<Violation> violations = ImmutableList.builder();
+    validateEntities(Constants.SET_CONTINUATION, entities, MAX_CONTINUATION_ENTITIES, violations);
+    for (int i = 0; i < entities.size(); i++) {
+      EbookEntity entity = entities.get(i);
+      if (!entity.getLastEngagementTimeMillis().isPresent()) {
+        violations.add(
+            new Violation(Constants.SET_CONTINUATION, i, "Missing last engagement time."));
+      }
+      if (!entity.getProgressPercentComplete().isPresent()) {
+        violations.add(
+            new Violation(Constants.SET_CONTINUATION, i, "Missing progress percent complete."));
+      } else if (entity.getProgressPercentComplete().get() >= 100) {
+        violations.add(
+            new Violation(Constants.SET_CONTINUATION, i, "Completed ebooks cannot be continued."));
+      }
+    }
+    return violations.build();
+  }
+
+  /** Throws an InvalidClusterException listing violations unless there are none. */
+  static void requireValid(@NonNull ImmutableList<Violation> violations) {
+    if (!violations.isEmpty()) {
+      throw new InvalidClusterException(violations);
+    }
+  }
+
+  private static void validateEntities(
+      String stateToSet,
+      List<EbookEntity> entities,
+      int maxEntities,
+      ImmutableList.Builder<Violation> violations) {
+    if (entities.isEmpty()) {
+      violations.add(new Violation(stateToSet, Violation.CLUSTER, "Clusters cannot be empty."));
+    } else if (entities.size() > maxEntities) {
+      violations.add(
+          new Violation(
+              stateToSet,
+              Violation.CLUSTER,
+              "At most " + maxEntities + " entities are allowed, not " + entities.size() + "."));
+    }
+    for (int i = 0; i < entities.size(); i++) {
+      EbookEntity entity = entities.get(i);
+      if (entity.getName() == null || entity.getName().trim().isEmpty()) {
+        violations.add(new Violation(stateToSet, i, "Missing name."));
+      }
+      if (entity.getPosterImages().isEmpty()) {
+        violations.add(new Violation(stateToSet, i, "Missing poster image."));
+      }
+      if (entity.getAuthors().isEmpty()) {
+        violations.add(new Violation(stateToSet, i, "Missing author."));
+      }
+      if (entity.getActionLinkUri() == null) {
+        violations.add(new Violation(stateToSet, i, "Missing action link URI."));
+      }
+    }
+  }
+
+  private ClusterValidator() {}
+}
@@ -18,12 +18,17 @@ class Constants {
 
   static final int MAX_SET_STATE_RETRIES = 3;
 
-  static final String SET_RECOMMENDATIONS_ONE_TIME_WORK_NAME = "SET_RECOMMENDATIONS_WORK_NAME";
+  // An outbox entry whose delivery failed this many times is dropped rather than retried forever.
+  static final int MAX_OUTBOX_FAILED_ATTEMPTS = 10;
 
-  static final String SET_FEATURED_ONE_TIME_WORK_NAME = "SET_FEATURED_WORK_NAME";
+  static final String SET_OUTBOX_ONE_TIME_WORK_NAME = "SET_OUTBOX_WORK_NAME";
 
-  static final String SET_CONTINUATION_ONE_TIME_WORK_NAME = "SET_CONTINUATION_WORK_NAME";
+  static final String SET_ACCOUNT_TRANSITION_ONE_TIME_WORK_NAME =
+      "SET_ACCOUNT_TRANSITION_WORK_NAME";
 
+  static final String SET_OUTBOX_PERIODICALLY_WORK_NAME = "SET_OUTBOX_PERIODICALLY_WORK_NAME";
+
+  // Periodic work scheduled by earlier versions of the app, cancelled in favour of the outbox.
   static final String SET_RECOMMENDATIONS_PERIODICALLY_WORK_NAME
       = "SET_RECOMMENDATIONS_ONE_TIME_WORK_NAME";
 
@@ -37,6 +42,9 @@ class Constants {
 
   static final String SET_STATE_KEY = "SET_STATE_KEY";
 
+  /** Input of an outbox delivery that first records every cluster in the outbox. */
+  static final String OUTBOX_RECORD_ALL_KEY = "OUTBOX_RECORD_ALL_KEY";
+
   static final String SET_RECOMMENDATIONS = "SET_RECOMMENDATIONS";
 
   static final String SET_FEATURED = "SET_FEATURED";
@@ -45,5 +53,9 @@ class Constants {
 
   static final String SET_USER_MANAGEMENT = "SET_USER_MANAGEMENT";
 
+  static final String SET_ACCOUNT_TRANSITION = "SET_ACCOUNT_TRANSITION";
+
+  static final String SET_OUTBOX = "SET_OUTBOX";
+
   private Constants() {}
 }
@@ -23,6 +23,8 @@ import android.content.Context;
 import android.content.Intent;
 import android.util.Log;
 import com.google.android.engage.service.Intents;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 
 public class EngageServiceBroadcastReceiver extends BroadcastReceiver {
 
@@ -31,18 +33,23 @@ public class EngageServiceBroadcastReceiver extends BroadcastReceiver {
   @Override
   public void onReceive(Context context, Intent intent) {
     Log.d(TAG, "onReceive: Broadcast received. Intent is " + intent);
+    ListenableFuture<?> recording;
     switch (intent.getAction()) {
       case (Intents.ACTION_PUBLISH_RECOMMENDATION):
-        setRecommendationClusters(context);
+        recording = setRecommendationClusters(context);
         break;
       case (Intents.ACTION_PUBLISH_FEATURED):
-        setFeaturedCluster(context);
+        recording = setFeaturedCluster(context);
         break;
       case (Intents.ACTION_PUBLISH_CONTINUATION):
-        setContinuationCluster(context);
+        recording = setContinuationCluster(context);
         break;
       default:
         Log.e(TAG, "onReceive: Received unrecognized intent: " + intent);
+        return;
     }
+    // Keeps the process alive until the request has been recorded in the outbox.
+    PendingResult pendingResult = goAsync();
+    recording.addListener(pendingResult::finish, MoreExecutors.directExecutor());
   }
 }
@@ -14,8 +14,11 @@
  */
 package com.google.samples.quickstart.engagesdksamples.read.publish;
 
+import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.OUTBOX_RECORD_ALL_KEY;
+import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_ACCOUNT_TRANSITION;
 import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_CONTINUATION;
 import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_FEATURED;
+import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_OUTBOX;
 import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_RECOMMENDATIONS;
 import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_STATE_KEY;
 import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_USER_MANAGEMENT;
@@ -26,11 +29,17 @@ import static com.google.samples.quickstart.engagesdksamples.read.publish.GetSig
 import static com.google.samples.quickstart.engagesdksamples.read.publish.SetEngageState.isErrorRecoverable;
 import static com.google.samples.quickstart.engagesdksamples.read.publish.SetEngageState.logPublishingError;
 
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
 import android.content.Context;
+import android.os.Build;
 import android.util.Log;
 import androidx.annotation.NonNull;
 import androidx.annotation.VisibleForTesting;
 import androidx.concurrent.futures.CallbackToFutureAdapter;
+import androidx.core.app.NotificationCompat;
+import androidx.work.ForegroundInfo;
 import androidx.work.ListenableWorker;
 import androidx.work.WorkerParameters;
 import com.google.android.engage.common.datamodel.ContinuationCluster;
@@ -44,12 +53,21 @@ import com.google.android.engage.service.PublishRecommendationClustersRequest;
 import com.google.android.engage.service.PublishStatusRequest;
 import com.google.android.engage.service.PublishUserAccountManagementRequest;
 import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.samples.quickstart.engagesdksamples.read.R;
 import com.google.samples.quickstart.engagesdksamples.read.login.Account;
 import com.google.samples.quickstart.engagesdksamples.read.login.AccountIOManager;
+import com.google.samples.quickstart.engagesdksamples.read.model.CoReadingIOManager;
+import com.google.samples.quickstart.engagesdksamples.read.model.CoReadingModel;
+import com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalogs;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Worker that sets one of the recommendation clusters, featured cluster, continuation cluster, user
@@ -64,8 +82,13 @@ public class EngageServiceWorker extends ListenableWorker {
 
   private static final String TAG = EngageServiceWorker.class.getSimpleName();
 
+  private static final String NOTIFICATION_CHANNEL_ID = "publishing";
+  private static final int NOTIFICATION_ID = 1;
+
   private final AppEngagePublishClient client;
   private final Optional<Account> loggedInAccount;
+  private final Optional<CoReadingModel> coReadingModel;
+  private final PublishOutbox outbox;
 
   EngageServiceWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
     this(
@@ -73,6 +96,9 @@ public class EngageServiceWorker extends ListenableWorker {
         workerParams,
         new AppEngagePublishClient(context),
         AccountIOManager.loadAccount(context));
+    // The worker may run without the app's activity having started, so make sure clusters are
+    // built from the same catalog the app displays.
+    EbookCatalogs.initialize(context);
   }
 
   @VisibleForTesting
@@ -84,6 +110,8 @@ public class EngageServiceWorker extends ListenableWorker {
     super(context, workerParams);
     this.client = client;
     this.loggedInAccount = loggedInAccount;
+    coReadingModel = CoReadingIOManager.loadModel(context.getApplicationContext());
+    outbox = new PublishOutbox(context.getApplicationContext());
   }
 
   /**
@@ -131,7 +159,10 @@ public class EngageServiceWorker extends ListenableWorker {
     ListenableFuture<Result> resultFuture =
         CallbackToFutureAdapter.getFuture(
             completer -> {
+              // Clusters are built and outbox entries written on the worker's background executor,
+              // never on the main thread the Engage tasks complete on by default.
               isAvailable.addOnSuccessListener(
+                  getBackgroundExecutor(),
                   result -> {
                     // If the service is available, publish
                     if (result) {
@@ -149,26 +180,32 @@ public class EngageServiceWorker extends ListenableWorker {
     return resultFuture;
   }
 
+  /** Returns the publish status matching whether an account is logged in. */
+  private int getPublishStatusCode() {
+    if (loggedInAccount.isPresent()) {
+      // If an account is logged in, we are definitely publishing content.
+      return AppEngagePublishStatusCode.PUBLISHED;
+    }
+    // Choosing to not publish any content in the absence of account info is not recommended. We
+    // do so here purely to demonstrate the updatePublishStatus API. Best practice is to publish
+    // non-personalized featured and recommendation clusters (and continuation clusters
+    // personalized to guest sessions if applicable). Guidelines for publishing non-personalized
+    // featured and recommendation clusters can be found here:
+    // https://developer.android.com/guide/playcore/engage/publish#rec-signed-out
+    return AppEngagePublishStatusCode.NOT_PUBLISHED_REQUIRES_SIGN_IN;
+  }
+
   private void publishAndSetResult(
       CallbackToFutureAdapter.Completer<Result> resultFutureCompleter, String stateToSet) {
     Task<Void> setStateTask;
-    // stateToSet defines which cluster to set and must be one of these predefined values.
-    switch (stateToSet) {
-      case SET_RECOMMENDATIONS:
-        setStateTask = setRecommendations(client, loggedInAccount);
-        break;
-      case SET_FEATURED:
-        setStateTask = setFeatured(client, loggedInAccount);
-        break;
-      case SET_CONTINUATION:
-        setStateTask = setContinuation(client, loggedInAccount);
-        break;
-      case SET_USER_MANAGEMENT:
-        setStateTask = setUserManagementCluster(client, loggedInAccount);
-        break;
-      default:
-        throw new IllegalStateException(
-            "Cluster to Publish string invalid. String is: " + stateToSet);
+    try {
+      setStateTask = setState(stateToSet);
+    } catch (InvalidClusterException invalidCluster) {
+      // Engage would reject the cluster with SERVICE_CALL_INVALID_ARGUMENT on every attempt, so
+      // neither publish it nor retry.
+      Log.e(TAG, "Not publishing " + stateToSet, invalidCluster);
+      resultFutureCompleter.set(Result.failure());
+      return;
     }
     // setStateTask is now a publish or delete task for one of the cluster
     setStateTask
@@ -177,25 +214,23 @@ public class EngageServiceWorker extends ListenableWorker {
             // or deleted the cluster. See the comment below for what status to set when and why.
             unused -> {
               resultFutureCompleter.set(Result.success());
-              int publishStatusCode;
-              if (loggedInAccount.isPresent()) {
-                // If an account is logged in, we are definitely publishing content.
-                publishStatusCode = AppEngagePublishStatusCode.PUBLISHED;
-              } else {
-                // Choosing to not publish any content in the absence of account info is not
-                // recommended. We do so here purely to demonstrate the updatePublishStatus API.
-                // Best practice is to publish non-personalized featured and recommendation clusters
-                // (and continuation clusters personalized to guest sessions if applicable).
-                // Guidelines for publishing non-personalized featured and recommendation clusters
-                // can be found here:
-                // https://developer.android.com/guide/playcore/engage/publish#rec-signed-out
-                publishStatusCode = AppEngagePublishStatusCode.NOT_PUBLISHED_REQUIRES_SIGN_IN;
-              }
-              setPublishStatus(client, publishStatusCode);
+              setPublishStatus(client, getPublishStatusCode());
             })
         .addOnFailureListener(
             // We received some error while publishing
             publishException -> {
+              if (SET_ACCOUNT_TRANSITION.equals(stateToSet)) {
+                // Every step of the transition has run, so the status follows the account even if
+                // a cluster failed.
+                setPublishStatus(client, getPublishStatusCode());
+              }
+              if (!(publishException instanceof AppEngageException)) {
+                // A later step of an account transition or outbox delivery failed to build its
+                // cluster.
+                Log.e(TAG, "Not publishing " + stateToSet, publishException);
+                resultFutureCompleter.set(Result.failure());
+                return;
+              }
               logPublishingError((AppEngageException) publishException);
               // Some errors are recoverable, such as a threading issue, some are unrecoverable
               // such as a cluster not containing all necessary fields.
@@ -211,6 +246,102 @@ public class EngageServiceWorker extends ListenableWorker {
             });
   }
 
+  private Task<Void> setState(String stateToSet) {
+    // stateToSet defines which cluster to set and must be one of these predefined values.
+    switch (stateToSet) {
+      case SET_RECOMMENDATIONS:
+        return setRecommendations(client, loggedInAccount, coReadingModel);
+      case SET_FEATURED:
+        return setFeatured(client, loggedInAccount);
+      case SET_CONTINUATION:
+        return setContinuation(client, loggedInAccount);
+      case SET_USER_MANAGEMENT:
+        return setUserManagementCluster(client, loggedInAccount);
+      case SET_ACCOUNT_TRANSITION:
+        return setAccountTransition(
+            getBackgroundExecutor(), client, loggedInAccount, coReadingModel);
+      case SET_OUTBOX:
+        return deliverOutbox();
+      default:
+        throw new IllegalStateException(
+            "Cluster to Publish string invalid. String is: " + stateToSet);
+    }
+  }
+
+  /**
+   * Sets every cluster with a pending entry in the publish outbox, one after another in
+   * PublishOutbox.DELIVERY_ORDER. An entry is removed once its cluster is set, once Engage rejects
+   * it for good, or once its delivery has failed MAX_OUTBOX_FAILED_ATTEMPTS times. A rejected
+   * cluster does not stop the clusters after it; the task fails with its error once they have all
+   * been set. A recoverable error fails the task right away, and the entries of the remaining
+   * clusters stay pending for the retry or the next delivery.
+   *
+   * @return Task that completes once every pending cluster has been set.
+   */
+  private Task<Void> deliverOutbox() {
+    if (getInputData().getBoolean(OUTBOX_RECORD_ALL_KEY, false)) {
+      for (String stateToSet : PublishOutbox.DELIVERY_ORDER) {
+        outbox.record(stateToSet);
+      }
+    }
+    ImmutableMap<String, Long> pending = outbox.loadPending();
+    AtomicReference<Exception> firstRejection = new AtomicReference<>();
+    Task<Void> delivery = Tasks.forResult(null);
+    for (Map.Entry<String, Long> entry : pending.entrySet()) {
+      String stateToSet = entry.getKey();
+      long sequence = entry.getValue();
+      delivery =
+          delivery.onSuccessTask(
+              getBackgroundExecutor(),
+              unused -> deliverOutboxEntry(stateToSet, sequence, firstRejection));
+    }
+    return delivery.onSuccessTask(
+        getBackgroundExecutor(),
+        unused -> {
+          Exception rejection = firstRejection.get();
+          return rejection == null ? Tasks.forResult(null) : Tasks.forException(rejection);
+        });
+  }
+
+  /**
+   * Sets the cluster of one outbox entry. The returned task fails only if the cluster should be set
+   * again by a retry; a rejected cluster is stored in firstRejection unless one was stored already.
+   */
+  private Task<Void> deliverOutboxEntry(
+      String stateToSet, long sequence, AtomicReference<Exception> firstRejection) {
+    Task<Void> setStateTask;
+    try {
+      setStateTask = setState(stateToSet);
+    } catch (InvalidClusterException invalidCluster) {
+      // Engage would reject the cluster on every attempt.
+      Log.e(TAG, "Not publishing " + stateToSet, invalidCluster);
+      outbox.markDelivered(stateToSet, sequence);
+      firstRejection.compareAndSet(null, invalidCluster);
+      return Tasks.forResult(null);
+    }
+    return setStateTask.continueWithTask(
+        getBackgroundExecutor(),
+        setStateResult -> {
+          Exception exception = setStateResult.getException();
+          if (exception == null) {
+            outbox.markDelivered(stateToSet, sequence);
+            return setStateResult;
+          }
+          if (exception instanceof AppEngageException
+              && !isErrorRecoverable((AppEngageException) exception)) {
+            logPublishingError((AppEngageException) exception);
+            outbox.markDelivered(stateToSet, sequence);
+            firstRejection.compareAndSet(null, exception);
+            return Tasks.forResult(null);
+          }
+          if (outbox.recordFailedAttempt(stateToSet, sequence)) {
+            Log.e(TAG, "Dropped " + stateToSet + " from the outbox after repeated failures");
+            return Tasks.forResult(null);
+          }
+          return setStateResult;
+        });
+  }
+
   static boolean isValidSetStateValue(String setStateValue) {
     if (setStateValue == null) {
       return false;
@@ -220,12 +351,160 @@ public class EngageServiceWorker extends ListenableWorker {
       case (SET_FEATURED):
       case (SET_CONTINUATION):
       case (SET_USER_MANAGEMENT):
+      case (SET_ACCOUNT_TRANSITION):
+      case (SET_OUTBOX):
         return true;
       default:
         return false;
     }
   }
 
+  /**
+   * Expedited work runs in a foreground service on devices below API 31, which must show this
+   * notification while the account transition is published.
+   */
+  @NonNull
+  @Override
+  public ListenableFuture<ForegroundInfo> getForegroundInfoAsync() {
+    Context context = getApplicationContext();
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+      NotificationChannel channel =
+          new NotificationChannel(
+              NOTIFICATION_CHANNEL_ID,
+              context.getString(R.string.publishNotificationChannelName),
+              NotificationManager.IMPORTANCE_MIN);
+      context.getSystemService(NotificationManager.class).createNotificationChannel(channel);
+    }
+    Notification notification =
+        new NotificationCompat.Builder(context, NOTIFICATION_CHANNEL_ID)
+            .setSmallIcon(R.mipmap.ic_launcher)
+            .setContentTitle(context.getString(R.string.publishNotificationTitle))
+            .setPriority(NotificationCompat.PRIORITY_MIN)
+            .build();
+    return Futures.immediateFuture(new ForegroundInfo(NOTIFICATION_ID, notification));
+  }
+
+  /**
+   * Sets every cluster and the user management cluster for the current account state, one after
+   * another, so that the Engage surface never shows content for one state alongside the card for
+   * the other. Signing in publishes content before removing the sign in card, and deletes any
+   * content cluster Engage would reject, such as an empty one, instead of publishing it. Signing
+   * out deletes content before publishing the sign in card. A failing step does not stop the steps
+   * after it, so the user management cluster always follows the account; the task then fails with
+   * the error of a failing step, preferring a recoverable one so that a retry runs the whole
+   * transition again.
+   *
+   * @param executor Runs every step, which builds its cluster when it runs
+   * @return Task that completes once every step has completed.
+   */
+  private static Task<Void> setAccountTransition(
+      Executor executor,
+      AppEngagePublishClient client,
+      Optional<Account> loggedInAccount,
+      Optional<CoReadingModel> coReadingModel) {
+    ImmutableList<TransitionStep> steps;
+    if (loggedInAccount.isPresent()) {
+      steps =
+          ImmutableList.of(
+              () ->
+                  setOrDelete(
+                      SET_CONTINUATION,
+                      () -> setContinuation(client, loggedInAccount),
+                      client::deleteContinuationCluster),
+              () ->
+                  setOrDelete(
+                      SET_FEATURED,
+                      () -> setFeatured(client, loggedInAccount),
+                      client::deleteFeaturedCluster),
+              () ->
+                  setOrDelete(
+                      SET_RECOMMENDATIONS,
+                      () -> setRecommendations(client, loggedInAccount, coReadingModel),
+                      client::deleteRecommendationsClusters),
+              () -> setUserManagementCluster(client, loggedInAccount));
+    } else {
+      steps =
+          ImmutableList.of(
+              () -> setRecommendations(client, loggedInAccount, coReadingModel),
+              () -> setFeatured(client, loggedInAccount),
+              () -> setContinuation(client, loggedInAccount),
+              () -> setUserManagementCluster(client, loggedInAccount));
+    }
+    AtomicReference<Exception> failure = new AtomicReference<>();
+    Task<Void> transition = Tasks.forResult(null);
+    for (TransitionStep step : steps) {
+      transition =
+          transition.continueWithTask(executor, unused -> runTransitionStep(step, failure));
+    }
+    return transition.onSuccessTask(
+        executor,
+        unused -> {
+          Exception stepFailure = failure.get();
+          return stepFailure == null ? Tasks.forResult(null) : Tasks.forException(stepFailure);
+        });
+  }
+
+  /** One step of an account transition, which sets or deletes a single cluster. */
+  private interface TransitionStep {
+    Task<Void> run();
+  }
+
+  /**
+   * Returns the task of set, or, if the cluster of stateToSet would be rejected by Engage, logs why
+   * and returns the task of delete instead, so that the cluster does not keep content that no
+   * longer applies.
+   */
+  private static Task<Void> setOrDelete(
+      String stateToSet, TransitionStep set, TransitionStep delete) {
+    try {
+      return set.run();
+    } catch (InvalidClusterException invalidCluster) {
+      Log.w(TAG, "Deleting " + stateToSet + " instead of setting it", invalidCluster);
+      return delete.run();
+    }
+  }
+
+  /**
+   * Runs step and returns a task that always succeeds once it has completed. If the step fails,
+   * its error is stored in failure, replacing a stored error only if it is recoverable and the
+   * stored one is not.
+   */
+  private static Task<Void> runTransitionStep(
+      TransitionStep step, AtomicReference<Exception> failure) {
+    Task<Void> stepTask;
+    try {
+      stepTask = step.run();
+    } catch (InvalidClusterException invalidCluster) {
+      Log.e(TAG, "Not publishing a cluster of the account transition", invalidCluster);
+      recordTransitionFailure(failure, invalidCluster);
+      return Tasks.forResult(null);
+    }
+    return stepTask.continueWith(
+        stepResult -> {
+          Exception exception = stepResult.getException();
+          if (exception != null) {
+            if (exception instanceof AppEngageException) {
+              logPublishingError((AppEngageException) exception);
+            }
+            recordTransitionFailure(failure, exception);
+          }
+          return null;
+        });
+  }
+
+  private static void recordTransitionFailure(
+      AtomicReference<Exception> failure, Exception exception) {
+    Exception stored = failure.get();
+    if (stored == null || (isRecoverable(exception) && !isRecoverable(stored))) {
+      failure.set(exception);
+    }
+  }
+
+  private static boolean isRecoverable(Exception exception) {
+    return exception instanceof AppEngageException
+        && isErrorRecoverable((AppEngageException) exception);
+  }
+
   /**
    * If a logged in account is present, publishes the clusters constructed from
    * getRecommendationClusters(). If no logged in account is present, delete the cluster to emulate
@@ -238,8 +517,10 @@ public class EngageServiceWorker extends ListenableWorker {
    *
    * @return Publish task or delete clusters task depending on account status.
    */
-  private static Task<Void> setRecommendations(AppEngagePublishClient client,
-      Optional<Account> loggedInAccount) {
+  private static Task<Void> setRecommendations(
+      AppEngagePublishClient client,
+      Optional<Account> loggedInAccount,
+      Optional<CoReadingModel> coReadingModel) {
     if (!loggedInAccount.isPresent()) {
       // Deleting the clusters in the absence of account info is not recommended. We do so here
       // purely to demonstrate the updatePublishStatus API. Best practice is to publish
@@ -248,8 +529,9 @@ public class EngageServiceWorker extends ListenableWorker {
       // https://developer.android.com/guide/playcore/engage/publish#rec-signed-out
       return client.deleteRecommendationsClusters();
     }
-    // Assumes all recommendation clusters are non-empty and there is at least one cluster
-    ImmutableList<RecommendationCluster> clusters = getRecommendationClusters();
+    // Throws an InvalidClusterException rather than build a request Engage would reject.
+    ImmutableList<RecommendationCluster> clusters =
+        getRecommendationClusters(loggedInAccount.get(), coReadingModel);
     PublishRecommendationClustersRequest.Builder publishRequestBuilder =
         new PublishRecommendationClustersRequest.Builder();
     for (RecommendationCluster cluster : clusters) {
@@ -280,10 +562,10 @@ public class EngageServiceWorker extends ListenableWorker {
       // https://developer.android.com/guide/playcore/engage/publish#rec-signed-out
       return client.deleteFeaturedCluster();
     }
-    // Assumes a non-empty featured cluster from getFeaturedCluster()
+    // Throws an InvalidClusterException rather than build a request Engage would reject.
     PublishFeaturedClusterRequest publishRequest =
         new PublishFeaturedClusterRequest.Builder()
-            .setFeaturedCluster(getFeaturedCluster())
+            .setFeaturedCluster(getFeaturedCluster(loggedInAccount.get()))
             .build();
     return client.publishFeaturedCluster(publishRequest);
   }
@@ -0,0 +1,129 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.publish;
+
+import androidx.annotation.NonNull;
+import com.google.samples.quickstart.engagesdksamples.read.login.Account;
+import com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalog;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Picks the featured ebooks for a period by sampling the catalog in proportion to editorial
+ * weights. The same seed always picks the same ebooks, and seeding with the day rotates the picks
+ * daily.
+ * <p>
+ * Sampling uses an {@link AliasTable} that is built once per catalog, so a selection takes O(k)
+ * expected time rather than a pass over the catalog. Only when most of the catalog is excluded does
+ * it fall back to scanning for the remaining picks.
+ */
+final class FeaturedRotation {
+
+  /** Draws per pick before falling back to a scan. */
+  private static final int DRAWS_PER_PICK = 8;
+
+  private static EbookCatalog tableCatalog;
+  private static AliasTable table;
+
+  /** Returns the seed that rotates the featured ebooks once per UTC day. */
+  static long seedForDay(long timeMillis) {
+    return TimeUnit.MILLISECONDS.toDays(timeMillis);
+  }
+
+  /**
+   * Returns the ids of up to k distinct ebooks from catalog that account has not started, drawn
+   * with probability proportional to their editorial weight using seed. Fewer are returned only if
+   * fewer ebooks are eligible.
+   */
+  @NonNull
+  static int[] selectFeatured(
+      @NonNull EbookCatalog catalog, @NonNull Account account, int k, long seed) {
+    if (k <= 0) {
+      throw new IllegalArgumentException("k must be positive. k is " + k);
+    }
+    AliasTable aliasTable = getTable(catalog);
+    int size = aliasTable.size();
+    // Indices are ebook ids minus one.
+    BitSet unavailable = new BitSet(size);
+    for (int ebookId : account.getInProgressEbookIds()) {
+      if (ebookId <= size) {
+        unavailable.set(ebookId - 1);
+      }
+    }
+    Random random = new Random(seed);
+    int[] picked = new int[k];
+    int numPicked = 0;
+    for (int draw = 0; draw < k * DRAWS_PER_PICK && numPicked < k; draw++) {
+      int index = aliasTable.sample(random);
+      if (!unavailable.get(index)) {
+        unavailable.set(index);
+        picked[numPicked++] = index + 1;
+      }
+    }
+    if (numPicked < k) {
+      // Too many draws hit started or already picked ebooks. Take the next available ones after a
+      // random start instead.
+      int index = unavailable.nextClearBit(random.nextInt(size));
+      for (int scanned = 0; scanned < size && numPicked < k; scanned++) {
+        if (index >= size) {
+          index = unavailable.nextClearBit(0);
+          if (index >= size) {
+            break;
+          }
+        }
+        unavailable.set(index);
+        picked[numPicked++] = index + 1;
+        index = unavailable.nextClearBit(index + 1);
+      }
+    }
+    return Arrays.copyOf(picked, numPicked);
+  }
+
+  /**
+   * Returns the editorial weight of each ebook, indexed by id minus one. This sample has no
+   * editorial data, so it promotes newer ebooks: the newest is twice as likely to be featured as
+   * the oldest.
+   */
+  @NonNull
+  static double[] editorialWeights(@NonNull EbookCatalog catalog) {
+    int size = catalog.size();
+    long oldest = Long.MAX_VALUE;
+    long newest = Long.MIN_VALUE;
+    for (int id = 1; id <= size; id++) {
+      long publishDate = catalog.getPublishDate(id);
+      oldest = Math.min(oldest, publishDate);
+      newest = Math.max(newest, publishDate);
+    }
+    double[] weights = new double[size];
+    double range = Math.max(1, newest - oldest);
+    for (int id = 1; id <= size; id++) {
+      weights[id - 1] = 1 + (catalog.getPublishDate(id) - oldest) / range;
+    }
+    return weights;
+  }
+
+  /** Returns the alias table of catalog, building it only when the catalog has changed. */
+  private static synchronized AliasTable getTable(EbookCatalog catalog) {
+    if (catalog != tableCatalog) {
+      table = new AliasTable(editorialWeights(catalog));
+      tableCatalog = catalog;
+    }
+    return table;
+  }
+
+  private FeaturedRotation() {}
+}
@@ -0,0 +1,256 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.publish;
+
+import static com.google.samples.quickstart.engagesdksamples.read.publish.GetContinuationCluster.getContinuationCluster;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.ProcessLifecycleOwner;
+import com.google.android.engage.common.datamodel.ContinuationCluster;
+import com.google.android.engage.service.AppEngageException;
+import com.google.android.engage.service.AppEngagePublishClient;
+import com.google.android.engage.service.PublishContinuationClusterRequest;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.samples.quickstart.engagesdksamples.read.login.Account;
+import com.google.samples.quickstart.engagesdksamples.read.login.AccountIOManager;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Publishes the continuation cluster straight from the app process while the app is visible, so a
+ * marked page reaches Engage within a second rather than after WorkManager dispatches an
+ * {@link EngageServiceWorker}.
+ * <p>
+ * Only the latest cluster is kept, and at most one publish is made every MIN_INTERVAL_MILLIS, so a
+ * burst of marked pages costs one call. A publish that fails, or that is still waiting when the app
+ * leaves the foreground, is handed off to the worker once the app has stopped. The worker reads
+ * the account from storage, which the activity saves when it stops.
+ * <p>
+ * Nothing is published for an account that has since been deleted: {@link
+ * #cancelPendingPublish()} drops the cluster waiting to be published, and the saved account is
+ * checked again right before each publish.
+ */
+public final class ForegroundPublisher {
+
+  private static final String TAG = ForegroundPublisher.class.getSimpleName();
+
+  /** Keeps well clear of the rate at which Engage throttles a caller. */
+  private static final long MIN_INTERVAL_MILLIS = 1000;
+
+  private static final long PUBLISH_TIMEOUT_SECONDS = 10;
+
+  private static volatile ForegroundPublisher instance;
+
+  private final Context appContext;
+  private final AppEngagePublishClient client;
+  private final ScheduledExecutorService publishExecutor =
+      Executors.newSingleThreadScheduledExecutor();
+  private final AtomicReference<ContinuationCluster> pendingCluster = new AtomicReference<>();
+  private final AtomicBoolean drainScheduled = new AtomicBoolean();
+  private final AtomicBoolean handOffOnStop = new AtomicBoolean();
+
+  /**
+   * Mirrors whether the process lifecycle is started, so the publish executor can read it. Cleared
+   * before a stop hands off, so a publish that fails after that sees the app has stopped.
+   */
+  private final AtomicBoolean appVisible = new AtomicBoolean();
+
+  /** Only read and written on the publish executor. */
+  private long nextPublishAtMillis;
+
+  private ForegroundPublisher(Context appContext) {
+    this(
+        appContext,
+        new AppEngagePublishClient(appContext),
+        ProcessLifecycleOwner.get().getLifecycle());
+  }
+
+  @VisibleForTesting
+  ForegroundPublisher(
+      Context appContext, AppEngagePublishClient client, Lifecycle processLifecycle) {
+    this.appContext = appContext;
+    this.client = client;
+    appVisible.set(processLifecycle.getCurrentState().isAtLeast(Lifecycle.State.STARTED));
+    processLifecycle.addObserver(
+        (LifecycleEventObserver)
+            (source, event) -> {
+              if (event == Lifecycle.Event.ON_START) {
+                appVisible.set(true);
+              } else if (event == Lifecycle.Event.ON_STOP) {
+                onAppStopped();
+              }
+            });
+  }
+
+  /** Must first be called on the main thread, where it starts observing the app's visibility. */
+  @NonNull
+  @MainThread
+  public static ForegroundPublisher getInstance(@NonNull Context context) {
+    ForegroundPublisher current = instance;
+    if (current == null) {
+      synchronized (ForegroundPublisher.class) {
+        current = instance;
+        if (current == null) {
+          current = new ForegroundPublisher(context.getApplicationContext());
+          instance = current;
+        }
+      }
+    }
+    return current;
+  }
+
+  /**
+   * Publishes the account's continuation cluster. The cluster is built on the calling thread, since
+   * the account is not thread safe, and published on a background thread.
+   *
+   * @param account The logged in account, after its progress has changed
+   */
+  @MainThread
+  public void publishContinuation(@NonNull Account account) {
+    ContinuationCluster cluster;
+    try {
+      cluster = getContinuationCluster(account);
+    } catch (InvalidClusterException invalidCluster) {
+      // Engage would reject the cluster from a worker too.
+      Log.e(TAG, "Not publishing continuation", invalidCluster);
+      return;
+    }
+    pendingCluster.set(cluster);
+    if (drainScheduled.compareAndSet(false, true)) {
+      publishExecutor.execute(this::drain);
+    }
+  }
+
+  /**
+   * Drops the cluster waiting to be published, and any publish waiting to be handed off to a
+   * worker. Call when the logged in account changes, as they were built from the previous account.
+   */
+  @MainThread
+  public void cancelPendingPublish() {
+    pendingCluster.set(null);
+    handOffOnStop.set(false);
+  }
+
+  /**
+   * Blocks until every cluster set so far has been published, handed off or dropped, including
+   * those waiting out the interval between publishes.
+   */
+  @VisibleForTesting
+  void awaitIdle() throws ExecutionException, InterruptedException {
+    boolean drainWasScheduled;
+    do {
+      drainWasScheduled = drainScheduled.get();
+      // Runs after any drain that has started, as the executor is single threaded.
+      publishExecutor.submit(() -> {}).get();
+      if (drainWasScheduled) {
+        Thread.sleep(MIN_INTERVAL_MILLIS / 10);
+      }
+    } while (drainWasScheduled);
+  }
+
+  @WorkerThread
+  private void drain() {
+    long waitMillis = nextPublishAtMillis - SystemClock.elapsedRealtime();
+    if (waitMillis > 0) {
+      // Clusters set meanwhile replace this one and are published together once the interval ends.
+      publishExecutor.schedule(this::drain, waitMillis, TimeUnit.MILLISECONDS);
+      return;
+    }
+    drainScheduled.set(false);
+    ContinuationCluster cluster = pendingCluster.getAndSet(null);
+    if (cluster == null) {
+      return;
+    }
+    if (!appVisible.get()) {
+      // The app has stopped, so the account it was built from has been saved.
+      SetEngageState.setContinuationCluster(appContext);
+      return;
+    }
+    nextPublishAtMillis = SystemClock.elapsedRealtime() + MIN_INTERVAL_MILLIS;
+    if (!publishNow(cluster)) {
+      handOffOnStop.set(true);
+      // If the app stopped while publishing, onAppStopped() may already have looked for a hand
+      // off. Whichever of the two clears the flag hands off.
+      if (!appVisible.get() && handOffOnStop.getAndSet(false)) {
+        SetEngageState.setContinuationCluster(appContext);
+      }
+    }
+  }
+
+  /** Returns false if the publish failed and should be retried by a worker. */
+  @WorkerThread
+  private boolean publishNow(ContinuationCluster cluster) {
+    try {
+      if (!Tasks.await(
+          client.isServiceAvailable(), PUBLISH_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+        // A worker would not publish either.
+        return true;
+      }
+      if (!AccountIOManager.hasSavedAccount(appContext)) {
+        // The account was deleted after the cluster was built. Its account transition removes the
+        // continuation cluster.
+        return true;
+      }
+      Task<Void> publishTask;
+      if (cluster.getEntities().isEmpty()) {
+        publishTask = client.deleteContinuationCluster();
+      } else {
+        publishTask =
+            client.publishContinuationCluster(
+                new PublishContinuationClusterRequest.Builder()
+                    .setContinuationCluster(cluster)
+                    .build());
+      }
+      Tasks.await(publishTask, PUBLISH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      return true;
+    } catch (ExecutionException publishException) {
+      if (publishException.getCause() instanceof AppEngageException) {
+        SetEngageState.logPublishingError((AppEngageException) publishException.getCause());
+      } else {
+        Log.e(TAG, "Failed to publish continuation", publishException);
+      }
+      return false;
+    } catch (TimeoutException timeout) {
+      Log.e(TAG, "Timed out publishing continuation", timeout);
+      return false;
+    } catch (InterruptedException interrupted) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  @MainThread
+  private void onAppStopped() {
+    appVisible.set(false);
+    boolean waiting = pendingCluster.getAndSet(null) != null;
+    if (handOffOnStop.getAndSet(false) || waiting) {
+      SetEngageState.setContinuationCluster(appContext);
+    }
+  }
+}
@@ -21,51 +21,45 @@ import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
 import com.google.samples.quickstart.engagesdksamples.read.converters.EbookToEntityConverter;
 import com.google.samples.quickstart.engagesdksamples.read.login.Account;
-import com.google.samples.quickstart.engagesdksamples.read.model.Ebook;
+import com.google.samples.quickstart.engagesdksamples.read.login.ContinuationEbook;
+import java.util.ArrayList;
+import java.util.List;
 
 final class GetContinuationCluster {
 
-  /** Maximum amount of entities allowed in a continuation cluster */
-  private static final int MAX_ENTITIES = 10;
-
   /**
    * Constructs and returns the continuation cluster with the given account information. Returns a
-   * cluster with at most MAX_ENTITIES of the account's in progress Ebooks.
+   * cluster with at most Account.MAX_CONTINUATION_EBOOKS of the account's most recently engaged,
+   * incomplete Ebooks. The account keeps these up to date as pages are marked, so this only
+   * converts them.
+   *
+   * @throws InvalidClusterException if the cluster is non-empty but would be rejected by Engage.
+   *     An empty cluster is returned as is; it is deleted rather than published.
    */
   static ContinuationCluster getContinuationCluster(@NonNull Account account) {
-    ImmutableList<Integer> ebookIds = getContinuationEbookIds(account);
-    ContinuationCluster.Builder clusterBuilder = new ContinuationCluster.Builder();
-    for (int id : ebookIds) {
+    List<EbookEntity> entities = new ArrayList<>();
+    for (ContinuationEbook continuationEbook : account.getContinuationEbooks()) {
       // A continuation cluster expects the following values to show progress through an ebook to
-      // the user.
-      // Only previously read books will be in the continuation cluster, so these are safe calls.
-      Integer progressPercentComplete =
-          account.getCurrentPageOfInProgressEbook(id) * 100 / (new Ebook(id).getNumPages());
-      // For Engage, only entities with less than 100% completion may be in the continuation cluster
-      if (progressPercentComplete < 100) {
-        Long lastEngagementTimeMillis = account.getLastEngagementTimeOfInProgressEbook(id);
-        EbookEntity entity =
-            EbookToEntityConverter.convert(
-                id, Optional.of(lastEngagementTimeMillis), Optional.of(progressPercentComplete));
-        clusterBuilder.addEntity(entity);
-      }
+      // the user. For Engage, only entities with less than 100% completion may be in the
+      // continuation cluster, which the account guarantees.
+      EbookEntity entity =
+          EbookToEntityConverter.convert(
+              continuationEbook.getEbookId(),
+              Optional.of(continuationEbook.getLastEngagementTime()),
+              Optional.of(continuationEbook.getProgressPercentComplete()));
+      entities.add(entity);
     }
-    return clusterBuilder.build();
-  }
-
-  private static ImmutableList<Integer> getContinuationEbookIds(@NonNull Account account) {
-    ImmutableList.Builder<Integer> ebookIdsBuilder = new ImmutableList.Builder<>();
-
-    int numAdded = 0;
-    for (int ebookId : account.getInProgressEbookIds()) {
-      if (numAdded >= MAX_ENTITIES) {
-        break;
-      }
-      ebookIdsBuilder.add(ebookId);
-      numAdded++;
+    PlannedEntities<EbookEntity> planned = new PayloadBudget().plan(entities);
+    PayloadMetrics.record(Constants.SET_CONTINUATION, planned);
+    ImmutableList<EbookEntity> fitted = planned.getEntities();
+    if (!fitted.isEmpty()) {
+      ClusterValidator.requireValid(ClusterValidator.validateContinuationCluster(fitted));
     }
-
-    return ebookIdsBuilder.build();
+    ContinuationCluster.Builder clusterBuilder = new ContinuationCluster.Builder();
+    for (EbookEntity entity : fitted) {
+      clusterBuilder.addEntity(entity);
+    }
+    return clusterBuilder.build();
   }
 
   private GetContinuationCluster() {}
@@ -14,29 +14,50 @@
  */
 package com.google.samples.quickstart.engagesdksamples.read.publish;
 
+import androidx.annotation.NonNull;
 import com.google.android.engage.books.datamodel.EbookEntity;
 import com.google.android.engage.common.datamodel.FeaturedCluster;
 import com.google.common.collect.ImmutableList;
 import com.google.samples.quickstart.engagesdksamples.read.converters.EbookToEntityConverter;
+import com.google.samples.quickstart.engagesdksamples.read.login.Account;
+import com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalogs;
 
 final class GetFeaturedCluster {
 
+  /** Number of ebooks featured each day. */
+  static final int NUM_FEATURED_EBOOKS = 5;
+
   /**
-   * Constructs and returns the possibly empty featured cluster for publishing. Handling an empty
-   * returned cluster must be handled elsewhere as empty clusters cannot be published.
+   * Constructs and returns the featured cluster for publishing, made of the day's featured ebooks
+   * that account has not started.
+   *
+   * @throws InvalidClusterException if the cluster would be rejected by Engage, for example because
+   *     it is empty.
    */
-  static FeaturedCluster getFeaturedCluster() {
-    ImmutableList<Integer> ebookIds = getFeaturedEbookIds();
+  static FeaturedCluster getFeaturedCluster(@NonNull Account account) {
+    int[] ebookIds = getFeaturedEbookIds(account);
     FeaturedCluster.Builder clusterBuilder = new FeaturedCluster.Builder();
-    for (int id : ebookIds) {
-      EbookEntity entity = EbookToEntityConverter.convert(id);
+    PlannedEntities<EbookEntity> planned =
+        new PayloadBudget().plan(EbookToEntityConverter.convertAll(ebookIds));
+    PayloadMetrics.record(Constants.SET_FEATURED, planned);
+    ImmutableList<EbookEntity> entities = planned.getEntities();
+    ClusterValidator.requireValid(ClusterValidator.validateFeaturedCluster(entities));
+    for (EbookEntity entity : entities) {
       clusterBuilder.addEntity(entity);
     }
     return clusterBuilder.build();
   }
 
-  private static ImmutableList<Integer> getFeaturedEbookIds() {
-    return ImmutableList.of(1, 2, 3);
+  /**
+   * Returns the ids of the day's featured ebooks for account, sampled by editorial weight. Every
+   * call on the same day returns the same ids as long as account starts no new ebook.
+   */
+  static int[] getFeaturedEbookIds(@NonNull Account account) {
+    return FeaturedRotation.selectFeatured(
+        EbookCatalogs.get(),
+        account,
+        NUM_FEATURED_EBOOKS,
+        FeaturedRotation.seedForDay(System.currentTimeMillis()));
   }
 
   private GetFeaturedCluster() {}
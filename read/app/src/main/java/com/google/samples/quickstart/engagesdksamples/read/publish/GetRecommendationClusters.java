@@ -14,36 +14,117 @@
  */
 package com.google.samples.quickstart.engagesdksamples.read.publish;
 
+import androidx.annotation.NonNull;
 import com.google.android.engage.books.datamodel.EbookEntity;
 import com.google.android.engage.common.datamodel.RecommendationCluster;
+import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
 import com.google.samples.quickstart.engagesdksamples.read.converters.EbookToEntityConverter;
+import com.google.samples.quickstart.engagesdksamples.read.login.Account;
+import com.google.samples.quickstart.engagesdksamples.read.login.ContinuationEbook;
+import com.google.samples.quickstart.engagesdksamples.read.model.CoReadingModel;
+import com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalog;
+import com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalogs;
+import java.util.Arrays;
 
 final class GetRecommendationClusters {
 
+  private static final String FOR_YOU_TITLE = "For You";
+  private static final String READERS_ALSO_READ_TITLE = "Readers Also Read";
+
+  /** Number of ebooks in the For You cluster. */
+  private static final int NUM_FOR_YOU_EBOOKS = 10;
+
   /**
-   * Constructs and returns a list of recommendation clusters for publishing. It is possible that
-   * some clusters may be empty, or no clusters may be present at all. These cases must be handled
-   * elsewhere, as empty clusters cannot be published and a publish request must have at least one
-   * cluster.
+   * Constructs and returns a list of recommendation clusters for publishing, personalized to
+   * account. If coReadingModel relates the ebook the account read most recently to ebooks the
+   * account has not started, these are published in a second cluster. Both clusters share one
+   * {@link PayloadBudget}, since they are published in the same request.
+   *
+   * @throws InvalidClusterException if any cluster, or the number of clusters, would be rejected by
+   *     Engage, for example because a cluster is empty.
    */
-  static ImmutableList<RecommendationCluster> getRecommendationClusters() {
-    return ImmutableList.of(getForYouRecommendationCluster());
+  static ImmutableList<RecommendationCluster> getRecommendationClusters(
+      @NonNull Account account, @NonNull Optional<CoReadingModel> coReadingModel) {
+    PayloadBudget budget = new PayloadBudget();
+    PlannedEntities<EbookEntity> forYou =
+        budget.plan(EbookToEntityConverter.convertAll(getForYouRecommendationEbookIds(account)));
+    PlannedEntities<EbookEntity> alsoRead =
+        budget.planAfter(
+            EbookToEntityConverter.convertAll(getReadersAlsoReadEbookIds(account, coReadingModel)),
+            forYou);
+    PayloadMetrics.record(Constants.SET_RECOMMENDATIONS, forYou, alsoRead);
+
+    ImmutableList.Builder<RecommendationCluster> clustersBuilder = ImmutableList.builder();
+    clustersBuilder.add(getRecommendationCluster(FOR_YOU_TITLE, forYou.getEntities()));
+    if (!alsoRead.getEntities().isEmpty()) {
+      clustersBuilder.add(
+          getRecommendationCluster(READERS_ALSO_READ_TITLE, alsoRead.getEntities()));
+    }
+    ImmutableList<RecommendationCluster> clusters = clustersBuilder.build();
+    ClusterValidator.requireValid(
+        ClusterValidator.validateRecommendationClusterCount(clusters.size()));
+    return clusters;
   }
 
-  private static RecommendationCluster getForYouRecommendationCluster() {
-    ImmutableList<Integer> ebookIds = getForYouRecommendationEbookIds();
+  private static RecommendationCluster getRecommendationCluster(
+      String title, ImmutableList<EbookEntity> entities) {
+    ClusterValidator.requireValid(ClusterValidator.validateRecommendationCluster(title, entities));
     RecommendationCluster.Builder clusterBuilder = new RecommendationCluster.Builder();
-    clusterBuilder.setTitle("For You");
-    for (int id : ebookIds) {
-      EbookEntity entity = EbookToEntityConverter.convert(id);
+    clusterBuilder.setTitle(title);
+    for (EbookEntity entity : entities) {
       clusterBuilder.addEntity(entity);
     }
     return clusterBuilder.build();
   }
 
-  private static ImmutableList<Integer> getForYouRecommendationEbookIds() {
-    return ImmutableList.of(1, 2, 3);
+  /**
+   * Returns the account's highest affinity ebooks, leaving out the day's featured ebooks so the two
+   * clusters do not show the same ebooks.
+   */
+  private static int[] getForYouRecommendationEbookIds(Account account) {
+    int[] featured = GetFeaturedCluster.getFeaturedEbookIds(account);
+    int[] ranked =
+        AffinityRanker.rankTopK(
+            EbookCatalogs.get(), account, featured.length + NUM_FOR_YOU_EBOOKS);
+    int numKept = 0;
+    for (int ebookId : ranked) {
+      if (numKept < NUM_FOR_YOU_EBOOKS && !contains(featured, ebookId)) {
+        ranked[numKept++] = ebookId;
+      }
+    }
+    return Arrays.copyOf(ranked, numKept);
+  }
+
+  private static boolean contains(int[] ebookIds, int ebookId) {
+    for (int id : ebookIds) {
+      if (id == ebookId) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the ebooks most often read in the same session as the account's most recently engaged
+   * continuation ebook, leaving out ebooks the account has started. Empty if there is no model.
+   * Takes time linear in the number of neighbors the model keeps per ebook.
+   */
+  private static int[] getReadersAlsoReadEbookIds(
+      Account account, Optional<CoReadingModel> coReadingModel) {
+    ImmutableList<ContinuationEbook> continuationEbooks = account.getContinuationEbooks();
+    if (!coReadingModel.isPresent() || continuationEbooks.isEmpty()) {
+      return new int[0];
+    }
+    EbookCatalog catalog = EbookCatalogs.get();
+    int[] neighbors = coReadingModel.get().getNeighbors(continuationEbooks.get(0).getEbookId());
+    int numKept = 0;
+    for (int neighbor : neighbors) {
+      if (neighbor <= catalog.size() && !account.isEbookInProgress(neighbor)) {
+        neighbors[numKept++] = neighbor;
+      }
+    }
+    return Arrays.copyOf(neighbors, numKept);
   }
 
   private GetRecommendationClusters() {}
@@ -0,0 +1,34 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.publish;
+
+import androidx.annotation.NonNull;
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+
+/** Thrown instead of publishing a cluster that Engage would reject as an invalid argument. */
+final class InvalidClusterException extends IllegalArgumentException {
+
+  private final transient ImmutableList<ClusterValidator.Violation> violations;
+
+  InvalidClusterException(@NonNull ImmutableList<ClusterValidator.Violation> violations) {
+    super("Invalid cluster:\n" + Joiner.on('\n').join(violations));
+    this.violations = violations;
+  }
+
+  ImmutableList<ClusterValidator.Violation> getViolations() {
+    return violations;
+  }
+}
@@ -0,0 +1,35 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.publish;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+import androidx.annotation.NonNull;
+
+/** Measures how many bytes an object takes once marshalled for a binder call. */
+final class ParcelSizeEstimator {
+
+  static int sizeOf(@NonNull Parcelable parcelable) {
+    Parcel parcel = Parcel.obtain();
+    try {
+      parcelable.writeToParcel(parcel, /* flags= */ 0);
+      return parcel.dataSize();
+    } finally {
+      parcel.recycle();
+    }
+  }
+
+  private ParcelSizeEstimator() {}
+}
@@ -0,0 +1,83 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.publish;
+
+import android.os.Parcelable;
+import androidx.annotation.NonNull;
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+
+/**
+ * Keeps publish requests under a byte budget. A request crosses the binder in a single transaction,
+ * whose buffer is shared by the whole process and is about 1MB, so requests larger than that fail
+ * with a TransactionTooLargeException and large ones are slow to marshal.
+ */
+final class PayloadBudget {
+
+  /** A quarter of the binder transaction buffer, leaving room for other calls in flight. */
+  static final int DEFAULT_BUDGET_BYTES = 256 * 1024;
+
+  private final int budgetBytes;
+
+  PayloadBudget() {
+    this(DEFAULT_BUDGET_BYTES);
+  }
+
+  PayloadBudget(int budgetBytes) {
+    if (budgetBytes <= 0) {
+      throw new IllegalArgumentException("Budget must be positive. Budget is " + budgetBytes);
+    }
+    this.budgetBytes = budgetBytes;
+  }
+
+  /**
+   * Returns the entities whose combined marshalled size fits the budget, in their original order.
+   * Entities should be ordered most important first. An entity that does not fit in what is left of
+   * the budget is dropped on its own, so a single oversized entity does not empty the cluster.
+   */
+  <T extends Parcelable> PlannedEntities<T> plan(@NonNull List<T> entities) {
+    return plan(entities, /* usedBytes= */ 0);
+  }
+
+  /**
+   * Plans entities as {@link #plan(List)} does, for a cluster published in the same request as
+   * earlierClusters, so that the budget covers the whole request rather than each cluster. The
+   * returned payload bytes only count the entities kept for this cluster.
+   */
+  <T extends Parcelable> PlannedEntities<T> planAfter(
+      @NonNull List<T> entities, @NonNull PlannedEntities<?>... earlierClusters) {
+    int usedBytes = 0;
+    for (PlannedEntities<?> cluster : earlierClusters) {
+      usedBytes += cluster.getPayloadBytes();
+    }
+    return plan(entities, usedBytes);
+  }
+
+  private <T extends Parcelable> PlannedEntities<T> plan(List<T> entities, int usedBytes) {
+    ImmutableList.Builder<T> kept = ImmutableList.builder();
+    int payloadBytes = 0;
+    int droppedEntities = 0;
+    for (T entity : entities) {
+      int entityBytes = ParcelSizeEstimator.sizeOf(entity);
+      if (usedBytes + payloadBytes + entityBytes > budgetBytes) {
+        droppedEntities++;
+        continue;
+      }
+      payloadBytes += entityBytes;
+      kept.add(entity);
+    }
+    return new PlannedEntities<>(kept.build(), payloadBytes, droppedEntities);
+  }
+}
@@ -0,0 +1,63 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.publish;
+
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** The estimated size of the last request published for each state. */
+final class PayloadMetrics {
+
+  private static final String TAG = PayloadMetrics.class.getSimpleName();
+
+  private static final Map<String, Integer> lastPayloadBytes = new ConcurrentHashMap<>();
+
+  /** Records and logs the size of a request to set stateToSet, made of the planned clusters. */
+  static void record(@NonNull String stateToSet, @NonNull PlannedEntities<?>... planned) {
+    int payloadBytes = 0;
+    int keptEntities = 0;
+    int droppedEntities = 0;
+    for (PlannedEntities<?> cluster : planned) {
+      payloadBytes += cluster.getPayloadBytes();
+      keptEntities += cluster.getEntities().size();
+      droppedEntities += cluster.getDroppedEntities();
+    }
+    lastPayloadBytes.put(stateToSet, payloadBytes);
+    Log.i(
+        TAG,
+        stateToSet
+            + ": "
+            + keptEntities
+            + " entities, "
+            + payloadBytes
+            + " bytes, "
+            + droppedEntities
+            + " dropped over budget");
+  }
+
+  /**
+   * Returns the size, in bytes, of the entities last published for stateToSet, or null if nothing
+   * has been published for it yet.
+   */
+  @Nullable
+  static Integer getLastPayloadBytes(@NonNull String stateToSet) {
+    return lastPayloadBytes.get(stateToSet);
+  }
+
+  private PayloadMetrics() {}
+}
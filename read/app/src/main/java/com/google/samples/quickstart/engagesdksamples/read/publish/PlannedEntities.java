@@ -0,0 +1,45 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.publish;
+
+import androidx.annotation.NonNull;
+import com.google.common.collect.ImmutableList;
+
+/** The entities of a cluster that fit a {@link PayloadBudget}, and their marshalled size. */
+final class PlannedEntities<T> {
+
+  private final ImmutableList<T> entities;
+  private final int payloadBytes;
+  private final int droppedEntities;
+
+  PlannedEntities(@NonNull ImmutableList<T> entities, int payloadBytes, int droppedEntities) {
+    this.entities = entities;
+    this.payloadBytes = payloadBytes;
+    this.droppedEntities = droppedEntities;
+  }
+
+  @NonNull
+  ImmutableList<T> getEntities() {
+    return entities;
+  }
+
+  int getPayloadBytes() {
+    return payloadBytes;
+  }
+
+  int getDroppedEntities() {
+    return droppedEntities;
+  }
+}
@@ -0,0 +1,126 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.publish;
+
+import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.MAX_OUTBOX_FAILED_ATTEMPTS;
+import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_CONTINUATION;
+import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_FEATURED;
+import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_RECOMMENDATIONS;
+import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_USER_MANAGEMENT;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import androidx.annotation.WorkerThread;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Records which clusters should be delivered to Engage, in SharedPreferences so that they survive
+ * the process. Each cluster has at most one pending entry: recording a cluster again supersedes its
+ * entry, as the cluster is built from the current account when it is delivered anyway.
+ * <p>
+ * Entries carry an increasing sequence number. An entry is removed only if it has not been
+ * superseded since its delivery started, so a cluster recorded during a delivery is delivered
+ * again and every entry is delivered at least once. The one exception is an entry whose delivery
+ * has failed MAX_OUTBOX_FAILED_ATTEMPTS times, which is dropped.
+ * <p>
+ * Every change is committed before returning, so an entry recorded before its delivery is queued
+ * is still there if the process dies first. Writes block the calling thread, so the outbox must
+ * only be used off the main thread.
+ */
+@WorkerThread
+final class PublishOutbox {
+
+  /** The order in which clusters are delivered, matching an account transition. */
+  static final ImmutableList<String> DELIVERY_ORDER =
+      ImmutableList.of(SET_CONTINUATION, SET_FEATURED, SET_RECOMMENDATIONS, SET_USER_MANAGEMENT);
+
+  private static final String PREFERENCES_NAME = "publish_outbox";
+  private static final String NEXT_SEQUENCE_KEY = "next_sequence";
+  private static final String PENDING_SEQUENCE_KEY_PREFIX = "pending_sequence_";
+  private static final String FAILED_ATTEMPTS_KEY_PREFIX = "failed_attempts_";
+
+  /** The same instance is returned for a name throughout the process, so it also serves as lock. */
+  private final SharedPreferences preferences;
+
+  PublishOutbox(Context appContext) {
+    preferences = appContext.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+  }
+
+  /**
+   * Records that stateToSet should be delivered, superseding its pending entry if any. The new
+   * entry starts with no failed deliveries.
+   */
+  void record(String stateToSet) {
+    synchronized (preferences) {
+      long sequence = preferences.getLong(NEXT_SEQUENCE_KEY, 1);
+      preferences
+          .edit()
+          .putLong(NEXT_SEQUENCE_KEY, sequence + 1)
+          .putLong(PENDING_SEQUENCE_KEY_PREFIX + stateToSet, sequence)
+          .remove(FAILED_ATTEMPTS_KEY_PREFIX + stateToSet)
+          .commit();
+    }
+  }
+
+  /** Returns the sequence number of each pending entry, keyed by state in DELIVERY_ORDER. */
+  ImmutableMap<String, Long> loadPending() {
+    ImmutableMap.Builder<String, Long> pending = ImmutableMap.builder();
+    synchronized (preferences) {
+      for (String stateToSet : DELIVERY_ORDER) {
+        String key = PENDING_SEQUENCE_KEY_PREFIX + stateToSet;
+        if (preferences.contains(key)) {
+          pending.put(stateToSet, preferences.getLong(key, 0));
+        }
+      }
+    }
+    return pending.build();
+  }
+
+  /** Removes the entry of stateToSet once delivered, unless it was superseded meanwhile. */
+  void markDelivered(String stateToSet, long sequence) {
+    synchronized (preferences) {
+      if (preferences.getLong(PENDING_SEQUENCE_KEY_PREFIX + stateToSet, 0) == sequence) {
+        preferences
+            .edit()
+            .remove(PENDING_SEQUENCE_KEY_PREFIX + stateToSet)
+            .remove(FAILED_ATTEMPTS_KEY_PREFIX + stateToSet)
+            .commit();
+      }
+    }
+  }
+
+  /**
+   * Counts a failed delivery of the entry of stateToSet, unless it was superseded meanwhile. The
+   * entry stays pending until it has failed MAX_OUTBOX_FAILED_ATTEMPTS times, when it is dropped.
+   *
+   * @return Whether the entry was dropped
+   */
+  boolean recordFailedAttempt(String stateToSet, long sequence) {
+    synchronized (preferences) {
+      if (preferences.getLong(PENDING_SEQUENCE_KEY_PREFIX + stateToSet, 0) != sequence) {
+        return false;
+      }
+      String key = FAILED_ATTEMPTS_KEY_PREFIX + stateToSet;
+      int failedAttempts = preferences.getInt(key, 0) + 1;
+      if (failedAttempts < MAX_OUTBOX_FAILED_ATTEMPTS) {
+        preferences.edit().putInt(key, failedAttempts).commit();
+        return false;
+      }
+      preferences.edit().remove(PENDING_SEQUENCE_KEY_PREFIX + stateToSet).remove(key).commit();
+      return true;
+    }
+  }
+}
@@ -14,30 +14,40 @@
  */
 package com.google.samples.quickstart.engagesdksamples.read.publish;
 
+import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.OUTBOX_RECORD_ALL_KEY;
+import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_ACCOUNT_TRANSITION;
+import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_ACCOUNT_TRANSITION_ONE_TIME_WORK_NAME;
 import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_CONTINUATION;
-import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_CONTINUATION_ONE_TIME_WORK_NAME;
 import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_CONTINUATION_PERIODICALLY_WORK_NAME;
 import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_FEATURED;
-import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_FEATURED_ONE_TIME_WORK_NAME;
 import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_FEATURED_PERIODICALLY_WORK_NAME;
+import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_OUTBOX;
+import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_OUTBOX_ONE_TIME_WORK_NAME;
+import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_OUTBOX_PERIODICALLY_WORK_NAME;
 import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_RECOMMENDATIONS;
-import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_RECOMMENDATIONS_ONE_TIME_WORK_NAME;
 import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_RECOMMENDATIONS_PERIODICALLY_WORK_NAME;
 import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_STATE_KEY;
-import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_USER_MANAGEMENT;
 import static com.google.samples.quickstart.engagesdksamples.read.publish.Constants.SET_USER_MANAGEMENT_PERIODICALLY_WORK_NAME;
 
 import android.annotation.SuppressLint;
 import android.content.Context;
 import android.util.Log;
+import androidx.annotation.VisibleForTesting;
 import androidx.work.Data;
 import androidx.work.ExistingPeriodicWorkPolicy;
 import androidx.work.ExistingWorkPolicy;
 import androidx.work.OneTimeWorkRequest;
+import androidx.work.OutOfQuotaPolicy;
 import androidx.work.PeriodicWorkRequest;
 import androidx.work.WorkManager;
 import com.google.android.engage.service.AppEngageErrorCode;
 import com.google.android.engage.service.AppEngageException;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -48,11 +58,34 @@ public final class SetEngageState {
 
   private static final String TAG = SetEngageState.class.getSimpleName();
 
+  /** Records outbox entries one at a time, in the order they were requested. */
+  private static final ListeningExecutorService OUTBOX_EXECUTOR =
+      MoreExecutors.listeningDecorator(Executors.newSingleThreadExecutor());
+
+  private static final ImmutableList<String> LEGACY_PERIODIC_WORK_NAMES =
+      ImmutableList.of(
+          SET_RECOMMENDATIONS_PERIODICALLY_WORK_NAME,
+          SET_FEATURED_PERIODICALLY_WORK_NAME,
+          SET_CONTINUATION_PERIODICALLY_WORK_NAME,
+          SET_USER_MANAGEMENT_PERIODICALLY_WORK_NAME);
+
+  /**
+   * Work that publishes for whichever account state it reads, so is stale after a transition.
+   * Entries left in the outbox by a cancelled delivery are delivered by the one the transition
+   * queues in its place.
+   */
+  private static final ImmutableList<String> STALE_ON_ACCOUNT_TRANSITION =
+      ImmutableList.<String>builder()
+          .add(SET_OUTBOX_ONE_TIME_WORK_NAME, SET_OUTBOX_PERIODICALLY_WORK_NAME)
+          .addAll(LEGACY_PERIODIC_WORK_NAMES)
+          .build();
+
   /**
    * Sets recommendation clusters, featured cluster, continuation cluster, and user management
    * cluster to the appropriate state by publishing or deleting the clusters based on whether a
    * saved account is present. While doing so, also sets publish status to the appropriate state.
-   * This occurs immediately then once every 24 hours.
+   * This occurs immediately then once every 24 hours, by recording every cluster in the publish
+   * outbox and delivering it.
    * <p>
    * The appropriate state is that if a saved account is present, we publish the recommendation,
    * featured, and continuation clusters, delete the sign-in card if present, and set the publish
@@ -71,81 +104,125 @@ public final class SetEngageState {
    *
    * @param appContext Application's context.
    */
+  @SuppressLint("RestrictedApi")
   public static void setAllEngageStatePeriodically(Context appContext) {
-    queuePeriodicSetEngageStateWorker(
-        appContext, SET_RECOMMENDATIONS_PERIODICALLY_WORK_NAME, SET_RECOMMENDATIONS);
-    queuePeriodicSetEngageStateWorker(
-        appContext, SET_FEATURED_PERIODICALLY_WORK_NAME, SET_FEATURED);
-    queuePeriodicSetEngageStateWorker(
-        appContext, SET_CONTINUATION_PERIODICALLY_WORK_NAME, SET_CONTINUATION);
-    queuePeriodicSetEngageStateWorker(
-        appContext, SET_USER_MANAGEMENT_PERIODICALLY_WORK_NAME, SET_USER_MANAGEMENT);
+    WorkManager workManager = WorkManager.getInstance(appContext);
+    for (String workName : LEGACY_PERIODIC_WORK_NAMES) {
+      workManager.cancelUniqueWork(workName);
+    }
+    Data deliverAllData =
+        new Data.Builder().put(SET_STATE_KEY, SET_OUTBOX).put(OUTBOX_RECORD_ALL_KEY, true).build();
+    PeriodicWorkRequest deliverRequest =
+        new PeriodicWorkRequest.Builder(
+                EngageServiceWorker.class, /* repeatInterval= */ 24, TimeUnit.HOURS)
+            .setInputData(deliverAllData)
+            .build();
+    workManager.enqueueUniquePeriodicWork(
+        SET_OUTBOX_PERIODICALLY_WORK_NAME,
+        ExistingPeriodicWorkPolicy.CANCEL_AND_REENQUEUE,
+        deliverRequest);
   }
 
   /**
-   * Sets recommendation clusters and publish status to the appropriate state using WorkManager.
-   * More detail on what the appropriate state is described in
+   * Sets recommendation clusters and publish status to the appropriate state through the publish
+   * outbox. More detail on what the appropriate state is described in
    * {@link
    * com.google.samples.quickstart.engagesdksamples.read.publish.SetEngageState#setAllEngageStatePeriodically(Context)}.
    *
    * @param appContext Application's context
+   * @return Future that completes once the clusters have been recorded in the outbox
    */
-  public static void setRecommendationClusters(Context appContext) {
-    queueOneTimeSetEngageStateWorker(
-        appContext, SET_RECOMMENDATIONS_ONE_TIME_WORK_NAME, SET_RECOMMENDATIONS);
+  public static ListenableFuture<?> setRecommendationClusters(Context appContext) {
+    return recordInOutbox(appContext, SET_RECOMMENDATIONS);
   }
 
   /**
-   * Sets featured cluster and publish status to the appropriate state using WorkManager. More
-   * detail on what the appropriate state is described in
+   * Sets featured cluster and publish status to the appropriate state through the publish outbox.
+   * More detail on what the appropriate state is described in
    * {@link
    * com.google.samples.quickstart.engagesdksamples.read.publish.SetEngageState#setAllEngageStatePeriodically(Context)}
    *
    * @param appContext Application's context
+   * @return Future that completes once the cluster has been recorded in the outbox
    */
-  public static void setFeaturedCluster(Context appContext) {
-    queueOneTimeSetEngageStateWorker(appContext, SET_FEATURED_ONE_TIME_WORK_NAME, SET_FEATURED);
+  public static ListenableFuture<?> setFeaturedCluster(Context appContext) {
+    return recordInOutbox(appContext, SET_FEATURED);
   }
 
   /**
-   * Sets continuation cluster and publish status to the appropriate state using WorkManager. More
-   * detail on what the appropriate state is described in
+   * Sets continuation cluster and publish status to the appropriate state through the publish
+   * outbox. More detail on what the appropriate state is described in
    * {@link
    * com.google.samples.quickstart.engagesdksamples.read.publish.SetEngageState#setAllEngageStatePeriodically(Context)}
    *
    * @param appContext Application's context
+   * @return Future that completes once the cluster has been recorded in the outbox
    */
-  public static void setContinuationCluster(Context appContext) {
-    queueOneTimeSetEngageStateWorker(
-        appContext, SET_CONTINUATION_ONE_TIME_WORK_NAME, SET_CONTINUATION);
+  public static ListenableFuture<?> setContinuationCluster(Context appContext) {
+    return recordInOutbox(appContext, SET_CONTINUATION);
   }
 
+  /**
+   * Sets all clusters and the publish status to the appropriate state for the saved account, as a
+   * single expedited work request, so that signing in or out shows on the Engage surface within
+   * seconds. Work queued or running for the previous account state is cancelled first so it cannot
+   * overwrite the transition, and a new delivery of the outbox is queued so entries recorded before
+   * the transition are still delivered, for the new account state. Periodic work resumes the next
+   * time {@link #setAllEngageStatePeriodically(Context)} is called.
+   * <p>
+   * Call after the account has been saved or deleted, as the worker reads it from storage.
+   *
+   * @param appContext Application's context
+   */
   @SuppressLint("RestrictedApi")
-  private static void queueOneTimeSetEngageStateWorker(Context appContext,
-      String publishWorkName, String clusterToPublish) {
-    Data clusterToPublishData =
-        new Data.Builder().put(SET_STATE_KEY, clusterToPublish).build();
+  public static void setAccountTransition(Context appContext) {
     WorkManager workManager = WorkManager.getInstance(appContext);
-    OneTimeWorkRequest publishRequest =
+    for (String workName : STALE_ON_ACCOUNT_TRANSITION) {
+      workManager.cancelUniqueWork(workName);
+    }
+    Data transitionData = new Data.Builder().put(SET_STATE_KEY, SET_ACCOUNT_TRANSITION).build();
+    OneTimeWorkRequest transitionRequest =
         new OneTimeWorkRequest.Builder(EngageServiceWorker.class)
-            .setInputData(clusterToPublishData)
+            .setExpedited(OutOfQuotaPolicy.RUN_AS_NON_EXPEDITED_WORK_REQUEST)
+            .setInputData(transitionData)
             .build();
-    workManager.enqueueUniqueWork(publishWorkName, ExistingWorkPolicy.REPLACE, publishRequest);
+    workManager.enqueueUniqueWork(
+        SET_ACCOUNT_TRANSITION_ONE_TIME_WORK_NAME, ExistingWorkPolicy.REPLACE, transitionRequest);
+    enqueueOutboxDelivery(workManager);
+  }
+
+  /**
+   * Records stateToSet in the publish outbox, then makes sure a delivery of the outbox is queued.
+   * Both happen on OUTBOX_EXECUTOR, as callers are often on the main thread and the outbox commits
+   * to disk. A delivery is appended after any delivery already queued or running, so an entry
+   * recorded while the outbox is being delivered is picked up by the next delivery.
+   */
+  private static ListenableFuture<?> recordInOutbox(Context appContext, String stateToSet) {
+    Context context = appContext.getApplicationContext();
+    return OUTBOX_EXECUTOR.submit(
+        () -> {
+          new PublishOutbox(context).record(stateToSet);
+          enqueueOutboxDelivery(WorkManager.getInstance(context));
+        });
   }
 
+  /**
+   * Queues a delivery of the outbox after any delivery already queued or running. A delivery that
+   * was cancelled is replaced instead.
+   */
   @SuppressLint("RestrictedApi")
-  private static void queuePeriodicSetEngageStateWorker(Context appContext, String publishWorkName,
-      String clusterToPublish) {
-    Data clusterToPublishData =
-        new Data.Builder().put(SET_STATE_KEY, clusterToPublish).build();
-    WorkManager workManager = WorkManager.getInstance(appContext);
-    PeriodicWorkRequest publishRequest =
-        new PeriodicWorkRequest.Builder(
-                EngageServiceWorker.class, /* repeatInterval= */ 24, TimeUnit.HOURS)
-            .setInputData(clusterToPublishData)
-            .build();
-    workManager.enqueueUniquePeriodicWork(
-        publishWorkName, ExistingPeriodicWorkPolicy.CANCEL_AND_REENQUEUE, publishRequest);
+  private static void enqueueOutboxDelivery(WorkManager workManager) {
+    Data deliverData = new Data.Builder().put(SET_STATE_KEY, SET_OUTBOX).build();
+    OneTimeWorkRequest deliverRequest =
+        new OneTimeWorkRequest.Builder(EngageServiceWorker.class).setInputData(deliverData).build();
+    workManager.enqueueUniqueWork(
+        SET_OUTBOX_ONE_TIME_WORK_NAME, ExistingWorkPolicy.APPEND_OR_REPLACE, deliverRequest);
+  }
+
+  /** Waits until every outbox entry requested so far has been recorded and its delivery queued. */
+  @VisibleForTesting
+  static void awaitOutboxRecorded() throws ExecutionException, InterruptedException {
+    OUTBOX_EXECUTOR.submit(() -> {}).get();
   }
 
   /**
@@ -0,0 +1,67 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read;
+
+import static org.junit.Assert.assertEquals;
+
+import com.google.common.base.Optional;
+import com.google.samples.quickstart.engagesdksamples.read.login.Account;
+import com.google.samples.quickstart.engagesdksamples.read.model.ColumnarEbookCatalog;
+import com.google.samples.quickstart.engagesdksamples.read.model.Ebook;
+import com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalog;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class EbookListItemsTest {
+
+  private final EbookCatalog catalog = ColumnarEbookCatalog.createSynthetic(/* numEbooks= */ 10);
+
+  @Test
+  public void progressIsReadFromAccountTest() {
+    Account account = new Account();
+    EbookListItems items = EbookListItems.of(catalog, Optional.of(account));
+    assertEquals(catalog.size(), items.size());
+    assertEquals(/* expected= */ 3, items.getEbookId(/* position= */ 2));
+    assertEquals(EbookListItems.NO_PROGRESS, items.getProgressPercentComplete(/* position= */ 2));
+
+    Ebook ebook = new Ebook(catalog, /* id= */ 3);
+    account.markInProgressPageInEbook(ebook, ebook.getNumPages() / 2, /* engagementTime= */ 1L);
+
+    assertEquals(
+        ebook.getNumPages() / 2 * 100 / ebook.getNumPages(),
+        items.getProgressPercentComplete(/* position= */ 2));
+    assertEquals(
+        EbookListItems.NO_PROGRESS,
+        EbookListItems.of(catalog, Optional.absent()).getProgressPercentComplete(/* position= */ 2));
+  }
+
+  @Test
+  public void onlyChangedPositionTest() {
+    EbookListItems items = EbookListItems.of(catalog, Optional.absent());
+    EbookListItems progressChanged = items.withProgressChanged(/* ebookId= */ 5);
+    assertEquals(/* expected= */ 4, progressChanged.getOnlyChangedPosition(items));
+
+    EbookListItems accountChanged = progressChanged.withAccount(Optional.of(new Account()));
+    assertEquals(/* expected= */ -1, accountChanged.getOnlyChangedPosition(progressChanged));
+
+    // An update was skipped, so the previous items may differ in more than the last change.
+    EbookListItems skipped = accountChanged.withProgressChanged(/* ebookId= */ 2);
+    EbookListItems latest = skipped.withProgressChanged(/* ebookId= */ 3);
+    assertEquals(/* expected= */ -1, latest.getOnlyChangedPosition(accountChanged));
+    assertEquals(/* expected= */ 2, latest.getOnlyChangedPosition(skipped));
+  }
+}
@@ -0,0 +1,81 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.converters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.collect.ImmutableList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class BulkConverterTest {
+
+  @Test
+  public void preservesOrderOfLargeInputTest() {
+    int[] ids = new int[BulkConverter.PARALLEL_THRESHOLD * 10];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = ids.length - i;
+    }
+
+    ImmutableList<String> converted = BulkConverter.convertAll(ids, id -> "Ebook_" + id);
+
+    assertEquals(ids.length, converted.size());
+    for (int i = 0; i < ids.length; i++) {
+      assertEquals("Ebook_" + ids[i], converted.get(i));
+    }
+  }
+
+  @Test
+  public void convertsSmallInputOnCallingThreadTest() {
+    Set<Thread> threads = Collections.synchronizedSet(new HashSet<>());
+
+    ImmutableList<Integer> converted =
+        BulkConverter.convertAll(
+            new int[] {3, 1, 2},
+            id -> {
+              threads.add(Thread.currentThread());
+              return id * 10;
+            });
+
+    assertEquals(ImmutableList.of(30, 10, 20), converted);
+    assertEquals(Collections.singleton(Thread.currentThread()), threads);
+  }
+
+  @Test
+  public void rethrowsConversionFailureTest() {
+    int[] ids = new int[BulkConverter.PARALLEL_THRESHOLD * 2];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = i + 1;
+    }
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            BulkConverter.convertAll(
+                ids,
+                id -> {
+                  if (id == ids.length) {
+                    throw new IllegalArgumentException("Ebook " + id + " is not in the catalog.");
+                  }
+                  return id;
+                }));
+  }
+}
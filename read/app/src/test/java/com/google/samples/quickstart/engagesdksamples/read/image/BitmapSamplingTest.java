@@ -0,0 +1,50 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.image;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class BitmapSamplingTest {
+
+  @Test
+  public void smallerImageIsNotSampledTest() {
+    assertEquals(1, BitmapSampling.calculateInSampleSize(100, 100, 120, 120));
+    assertEquals(1, BitmapSampling.calculateInSampleSize(120, 120, 120, 120));
+  }
+
+  @Test
+  public void sampledImageStaysAtLeastRequestedSizeTest() {
+    assertEquals(2, BitmapSampling.calculateInSampleSize(768, 768, 360, 360));
+    assertEquals(4, BitmapSampling.calculateInSampleSize(768, 768, 120, 120));
+    assertEquals(2, BitmapSampling.calculateInSampleSize(768, 768, 384, 384));
+  }
+
+  @Test
+  public void smallerDimensionLimitsSamplingTest() {
+    assertEquals(2, BitmapSampling.calculateInSampleSize(1024, 256, 100, 100));
+  }
+
+  @Test
+  public void nonPositiveRequestedSizeThrowsTest() {
+    assertThrows(
+        IllegalArgumentException.class, () -> BitmapSampling.calculateInSampleSize(10, 10, 0, 10));
+  }
+}
@@ -19,6 +19,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 
+import com.google.common.collect.ImmutableList;
 import com.google.samples.quickstart.engagesdksamples.read.model.Ebook;
 import org.junit.Before;
 import org.junit.Test;
@@ -68,4 +69,49 @@ public class AccountTest {
         () -> account.markInProgressPageInEbook(ebook, ebook.getNumPages() + 1,
             /*engagementTime= */ 100L));
   }
+
+  @Test
+  public void continuationEbooksTest() {
+    Ebook otherEbook = new Ebook(/* id= */ 2);
+    account.markInProgressPageInEbook(ebook, /* page= */ 1, /* engagementTime= */ 100L);
+    account.markInProgressPageInEbook(otherEbook, /* page= */ 1, /* engagementTime= */ 200L);
+
+    ImmutableList<ContinuationEbook> continuationEbooks = account.getContinuationEbooks();
+    assertEquals(2, continuationEbooks.size());
+    assertEquals(otherEbook.getId(), continuationEbooks.get(0).getEbookId());
+    assertEquals(200L, continuationEbooks.get(0).getLastEngagementTime());
+    assertEquals(100 / otherEbook.getNumPages(),
+        continuationEbooks.get(0).getProgressPercentComplete());
+    assertEquals(ebook.getId(), continuationEbooks.get(1).getEbookId());
+
+    // Completing an ebook removes it from the continuation ebooks.
+    account.markInProgressPageInEbook(otherEbook, otherEbook.getNumPages(), 300L);
+    continuationEbooks = account.getContinuationEbooks();
+    assertEquals(1, continuationEbooks.size());
+    assertEquals(ebook.getId(), continuationEbooks.get(0).getEbookId());
+  }
+
+  @Test
+  public void continuationEbooksBoundedTest() {
+    int numEbooks = Account.MAX_CONTINUATION_EBOOKS + 2;
+    for (int id = 1; id <= numEbooks; id++) {
+      account.markInProgressPageInEbook(new Ebook(id), /* page= */ 1, /* engagementTime= */ id);
+    }
+    // Build the continuation ebooks so later marks update them incrementally.
+    assertEquals(Account.MAX_CONTINUATION_EBOOKS, account.getContinuationEbooks().size());
+
+    // The oldest ebook is the one most recently read again.
+    account.markInProgressPageInEbook(new Ebook(/* id= */ 1), /* page= */ 2, 1000L);
+    ImmutableList<ContinuationEbook> continuationEbooks = account.getContinuationEbooks();
+    assertEquals(Account.MAX_CONTINUATION_EBOOKS, continuationEbooks.size());
+    assertEquals(1, continuationEbooks.get(0).getEbookId());
+    assertEquals(numEbooks, continuationEbooks.get(1).getEbookId());
+
+    // Completing an ebook lets the most recent ebook that was evicted back in.
+    Ebook completedEbook = new Ebook(numEbooks);
+    account.markInProgressPageInEbook(completedEbook, completedEbook.getNumPages(), 2000L);
+    continuationEbooks = account.getContinuationEbooks();
+    assertEquals(Account.MAX_CONTINUATION_EBOOKS, continuationEbooks.size());
+    assertEquals(3, continuationEbooks.get(continuationEbooks.size() - 1).getEbookId());
+  }
 }
@@ -0,0 +1,92 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.login;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalog;
+import com.google.samples.quickstart.engagesdksamples.read.model.EbookCatalogs;
+import com.google.samples.quickstart.engagesdksamples.read.model.SyntheticCatalogGenerator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class SyntheticHistoryGeneratorTest {
+
+  private static final long LATEST_ENGAGEMENT_TIME = 1_650_000_000_000L;
+
+  private EbookCatalog previousCatalog;
+  private EbookCatalog catalog;
+
+  @Before
+  public void setUp() {
+    catalog =
+        new SyntheticCatalogGenerator(/* numAuthors= */ 10, /* numGenres= */ 5, /* seed= */ 3)
+            .generate(/* numEbooks= */ 200);
+    // Accounts read page counts from the installed catalog.
+    previousCatalog = EbookCatalogs.get();
+    EbookCatalogs.install(catalog);
+  }
+
+  @After
+  public void tearDown() {
+    EbookCatalogs.install(previousCatalog);
+  }
+
+  @Test
+  public void generatesRequestedNumberInProgressTest() {
+    Account account =
+        new SyntheticHistoryGenerator(catalog, /* seed= */ 11)
+            .generate(/* numInProgress= */ 50, LATEST_ENGAGEMENT_TIME);
+
+    assertEquals(50, account.getInProgressEbookIds().size());
+    assertEquals(Account.MAX_CONTINUATION_EBOOKS, account.getContinuationEbooks().size());
+    assertEquals(
+        LATEST_ENGAGEMENT_TIME,
+        account.getContinuationEbooks().get(0).getLastEngagementTime());
+    for (int ebookId : account.getInProgressEbookIds()) {
+      assertTrue(
+          account.getCurrentPageOfInProgressEbook(ebookId) < catalog.getNumPages(ebookId));
+    }
+  }
+
+  @Test
+  public void sameSeedGeneratesSameHistoryTest() {
+    Account first = new SyntheticHistoryGenerator(catalog, 5).generate(20, LATEST_ENGAGEMENT_TIME);
+    Account second = new SyntheticHistoryGenerator(catalog, 5).generate(20, LATEST_ENGAGEMENT_TIME);
+
+    assertEquals(first.getInProgressEbookIds(), second.getInProgressEbookIds());
+    for (int ebookId : first.getInProgressEbookIds()) {
+      assertEquals(
+          first.getCurrentPageOfInProgressEbook(ebookId),
+          second.getCurrentPageOfInProgressEbook(ebookId));
+      assertEquals(
+          first.getLastEngagementTimeOfInProgressEbook(ebookId),
+          second.getLastEngagementTimeOfInProgressEbook(ebookId));
+    }
+  }
+
+  @Test
+  public void tooManyInProgressThrowsTest() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new SyntheticHistoryGenerator(catalog, 1).generate(201, LATEST_ENGAGEMENT_TIME));
+  }
+}
@@ -0,0 +1,126 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.model;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class CoReadingModelTest {
+
+  private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+  private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+  private CoReadingModel model;
+
+  @Before
+  public void setUp() {
+    model = new CoReadingModel(/* neighborsPerEbook= */ 3);
+  }
+
+  @Test
+  public void sameSessionEbooksAreNeighborsTest() {
+    model.recordEngagement(/* ebookId= */ 1, /* engagementTime= */ 0);
+    model.recordEngagement(/* ebookId= */ 2, /* engagementTime= */ MINUTE);
+    model.recordEngagement(/* ebookId= */ 3, /* engagementTime= */ 2 * MINUTE);
+
+    assertArrayEquals(new int[] {2, 3}, model.getNeighbors(1));
+    assertArrayEquals(new int[] {1, 3}, model.getNeighbors(2));
+    assertArrayEquals(new int[] {1, 2}, model.getNeighbors(3));
+  }
+
+  @Test
+  public void separateSessionsAreNotNeighborsTest() {
+    model.recordEngagement(/* ebookId= */ 1, /* engagementTime= */ 0);
+    model.recordEngagement(/* ebookId= */ 2, /* engagementTime= */ DAY);
+
+    assertArrayEquals(new int[0], model.getNeighbors(1));
+    assertArrayEquals(new int[0], model.getNeighbors(2));
+  }
+
+  @Test
+  public void neighborsAreOrderedByFrequencyTest() {
+    // Ebook 3 is read with ebook 1 in one session, ebook 2 in two sessions. Pages marked again
+    // within a session do not count again.
+    model.recordEngagement(/* ebookId= */ 1, /* engagementTime= */ 0);
+    model.recordEngagement(/* ebookId= */ 3, /* engagementTime= */ MINUTE);
+    model.recordEngagement(/* ebookId= */ 1, /* engagementTime= */ 2 * MINUTE);
+    model.recordEngagement(/* ebookId= */ 2, /* engagementTime= */ DAY);
+    model.recordEngagement(/* ebookId= */ 3, /* engagementTime= */ DAY + MINUTE);
+    model.recordEngagement(/* ebookId= */ 2, /* engagementTime= */ 2 * DAY);
+    model.recordEngagement(/* ebookId= */ 3, /* engagementTime= */ 2 * DAY + MINUTE);
+
+    assertArrayEquals(new int[] {2, 1}, model.getNeighbors(3));
+  }
+
+  @Test
+  public void neighborsAreBoundedTest() {
+    model.recordEngagement(/* ebookId= */ 1, /* engagementTime= */ 0);
+    for (int ebookId = 2; ebookId <= 5; ebookId++) {
+      model.recordEngagement(ebookId, ebookId * MINUTE);
+    }
+    // Ebook 5 replaces ebook 4, the last of ebook 1's equally frequent neighbors. It inherits the
+    // count of ebook 4 on top of its own, so it moves ahead of the others.
+    assertArrayEquals(new int[] {5, 2, 3}, model.getNeighbors(1));
+  }
+
+  @Test
+  public void compactDecaysAndDropsRemovedEbooksTest() {
+    for (int session = 0; session < 2; session++) {
+      model.recordEngagement(/* ebookId= */ 1, session * DAY);
+      model.recordEngagement(/* ebookId= */ 2, session * DAY + MINUTE);
+      model.recordEngagement(/* ebookId= */ 9, session * DAY + 2 * MINUTE);
+    }
+    model.recordEngagement(/* ebookId= */ 3, /* engagementTime= */ DAY + 3 * MINUTE);
+
+    model.compact(/* catalogSize= */ 5);
+
+    // Ebook 3 was read alongside ebook 1 only once, and ebook 9 is no longer in the catalog.
+    assertArrayEquals(new int[] {2}, model.getNeighbors(1));
+    assertArrayEquals(new int[0], model.getNeighbors(3));
+    assertArrayEquals(new int[0], model.getNeighbors(9));
+  }
+
+  @Test
+  public void serializationPreservesNeighborsTest() throws Exception {
+    model.recordEngagement(/* ebookId= */ 1, /* engagementTime= */ 0);
+    model.recordEngagement(/* ebookId= */ 2, /* engagementTime= */ MINUTE);
+    model.recordEngagement(/* ebookId= */ 3, /* engagementTime= */ 2 * MINUTE);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(model);
+    }
+    CoReadingModel loaded;
+    try (ObjectInputStream in =
+        new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      loaded = (CoReadingModel) in.readObject();
+    }
+
+    assertArrayEquals(new int[] {2, 3}, loaded.getNeighbors(1));
+    // The session carries over, so an ebook read next is paired with the earlier ones.
+    loaded.recordEngagement(/* ebookId= */ 4, /* engagementTime= */ 3 * MINUTE);
+    assertArrayEquals(new int[] {1, 2, 3}, loaded.getNeighbors(4));
+  }
+}
@@ -0,0 +1,72 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ColumnarEbookCatalogTest {
+
+  @Test
+  public void syntheticCatalogTest() {
+    ColumnarEbookCatalog catalog = ColumnarEbookCatalog.createSynthetic(/* numEbooks= */ 20);
+    Ebook ebook = new Ebook(catalog, /* id= */ 12);
+
+    assertEquals(20, catalog.size());
+    assertEquals("Ebook_Name_12", ebook.getName());
+    assertEquals(ImmutableList.of("Author_1"), ebook.getAuthors());
+    assertEquals(12L, ebook.getPublishDate());
+    assertEquals("Description_12", ebook.getDescription());
+    assertEquals("$12.00", ebook.getPrice());
+    assertEquals(12, ebook.getNumPages());
+    assertEquals(ImmutableList.of("Genre_1"), ebook.getGenres());
+    assertEquals("Series_12", ebook.getSeriesName());
+    assertEquals(12, ebook.getSeriesUnitIndex());
+    // Short books are padded to a minimum page count.
+    assertEquals(10, catalog.getNumPages(/* id= */ 1));
+  }
+
+  @Test
+  public void sharedListsAreInternedTest() {
+    ColumnarEbookCatalog.Builder builder = new ColumnarEbookCatalog.Builder(/* expectedSize= */ 1);
+    int firstId = builder.add("First", ImmutableList.of("Author"), 1L, "", "$1.00", 10,
+        ImmutableList.of("Genre"), "Series", 1);
+    int secondId = builder.add("Second", ImmutableList.of("Author"), 2L, "", "$2.00", 10,
+        ImmutableList.of("Genre"), "Series", 2);
+    ColumnarEbookCatalog catalog = builder.build();
+
+    assertEquals(2, catalog.size());
+    assertSame(catalog.getAuthors(firstId), catalog.getAuthors(secondId));
+    assertSame(catalog.getGenres(firstId), catalog.getGenres(secondId));
+  }
+
+  @Test
+  public void outOfRangeIdExceptionsTest() {
+    ColumnarEbookCatalog catalog = ColumnarEbookCatalog.createSynthetic(/* numEbooks= */ 5);
+    assertThrows("No exception thrown reading id 0",
+        IllegalArgumentException.class, () -> catalog.getName(/* id= */ 0));
+    assertThrows("No exception thrown reading id past the end of the catalog",
+        IllegalArgumentException.class, () -> catalog.getName(/* id= */ 6));
+    assertThrows("No exception thrown creating an ebook not in the catalog",
+        IllegalArgumentException.class, () -> new Ebook(catalog, /* id= */ 6));
+  }
+}
@@ -0,0 +1,92 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.collect.ImmutableList;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class MappedEbookCatalogTest {
+
+  @Test
+  public void roundTripTest() throws IOException {
+    ColumnarEbookCatalog.Builder builder = new ColumnarEbookCatalog.Builder(/* expectedSize= */ 3);
+    builder.add("Première", ImmutableList.of("Author_1", "Author_2"), 1L, "Description", "$1.00",
+        120, ImmutableList.of("Genre_1"), "Series", 1);
+    builder.add("Second", ImmutableList.of("Author_1", "Author_2"), 2L, "Description", "$2.00",
+        80, ImmutableList.of(), "Series", 2);
+    builder.add("Third", ImmutableList.of("Author_3"), Long.MAX_VALUE, "", "$3.00", 10,
+        ImmutableList.of("Genre_1", "Genre_2"), "Other series", 1);
+    ColumnarEbookCatalog expected = builder.build();
+
+    MappedEbookCatalog actual = MappedEbookCatalog.wrap(ByteBuffer.wrap(write(expected)));
+
+    assertEquals(expected.size(), actual.size());
+    for (int id = 1; id <= expected.size(); id++) {
+      assertEquals(expected.getName(id), actual.getName(id));
+      assertEquals(expected.getAuthors(id), actual.getAuthors(id));
+      assertEquals(expected.getPublishDate(id), actual.getPublishDate(id));
+      assertEquals(expected.getDescription(id), actual.getDescription(id));
+      assertEquals(expected.getPrice(id), actual.getPrice(id));
+      assertEquals(expected.getNumPages(id), actual.getNumPages(id));
+      assertEquals(expected.getGenres(id), actual.getGenres(id));
+      assertEquals(expected.getSeriesName(id), actual.getSeriesName(id));
+      assertEquals(expected.getSeriesUnitIndex(id), actual.getSeriesUnitIndex(id));
+    }
+  }
+
+  @Test
+  public void emptyListDoesNotShadowNextListTest() throws IOException {
+    // The empty authors list is written at the same heap offset as the genres that follow it.
+    ColumnarEbookCatalog.Builder builder = new ColumnarEbookCatalog.Builder(/* expectedSize= */ 1);
+    builder.add("Anonymous", ImmutableList.of(), 1L, "Description", "$1.00", 120,
+        ImmutableList.of("Genre_1", "Genre_2"), "Series", 1);
+    MappedEbookCatalog catalog = MappedEbookCatalog.wrap(ByteBuffer.wrap(write(builder.build())));
+
+    assertEquals(ImmutableList.of(), catalog.getAuthors(/* id= */ 1));
+    assertEquals(ImmutableList.of("Genre_1", "Genre_2"), catalog.getGenres(/* id= */ 1));
+  }
+
+  @Test
+  public void invalidCatalogExceptionsTest() throws IOException {
+    byte[] catalogBytes = write(ColumnarEbookCatalog.createSynthetic(/* numEbooks= */ 5));
+    MappedEbookCatalog catalog = MappedEbookCatalog.wrap(ByteBuffer.wrap(catalogBytes));
+    assertThrows("No exception thrown reading id past the end of the catalog",
+        IllegalArgumentException.class, () -> catalog.getName(/* id= */ 6));
+
+    byte[] truncated = new byte[EbookCatalogFormat.HEADER_SIZE + 1];
+    System.arraycopy(catalogBytes, 0, truncated, 0, truncated.length);
+    assertThrows("No exception thrown opening a truncated catalog",
+        IOException.class, () -> MappedEbookCatalog.wrap(ByteBuffer.wrap(truncated)));
+
+    byte[] notACatalog = new byte[EbookCatalogFormat.HEADER_SIZE];
+    assertThrows("No exception thrown opening a file that is not a catalog",
+        IOException.class, () -> MappedEbookCatalog.wrap(ByteBuffer.wrap(notACatalog)));
+  }
+
+  private static byte[] write(EbookCatalog catalog) throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    EbookCatalogWriter.write(catalog, outputStream);
+    return outputStream.toByteArray();
+  }
+}
@@ -0,0 +1,91 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableList;
+import java.util.TreeSet;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class SyntheticCatalogGeneratorTest {
+
+  @Test
+  public void sameSeedGeneratesSameCatalogTest() {
+    EbookCatalog first =
+        new SyntheticCatalogGenerator(/* numAuthors= */ 5, /* numGenres= */ 3, /* seed= */ 42)
+            .generate(/* numEbooks= */ 100);
+    EbookCatalog second =
+        new SyntheticCatalogGenerator(/* numAuthors= */ 5, /* numGenres= */ 3, /* seed= */ 42)
+            .generate(/* numEbooks= */ 100);
+
+    assertEquals(100, first.size());
+    for (int id = 1; id <= first.size(); id++) {
+      assertEquals(first.getName(id), second.getName(id));
+      assertEquals(first.getAuthors(id), second.getAuthors(id));
+      assertEquals(first.getGenres(id), second.getGenres(id));
+      assertEquals(first.getNumPages(id), second.getNumPages(id));
+      assertEquals(first.getPublishDate(id), second.getPublishDate(id));
+      assertEquals(first.getPrice(id), second.getPrice(id));
+      assertEquals(first.getSeriesName(id), second.getSeriesName(id));
+      assertEquals(first.getSeriesUnitIndex(id), second.getSeriesUnitIndex(id));
+    }
+  }
+
+  @Test
+  public void differentSeedGeneratesDifferentCatalogTest() {
+    EbookCatalog first = new SyntheticCatalogGenerator(50, 20, /* seed= */ 1).generate(100);
+    EbookCatalog second = new SyntheticCatalogGenerator(50, 20, /* seed= */ 2).generate(100);
+
+    boolean anyDifferent = false;
+    for (int id = 1; id <= first.size(); id++) {
+      anyDifferent |= first.getNumPages(id) != second.getNumPages(id);
+    }
+    assertTrue(anyDifferent);
+  }
+
+  @Test
+  public void valuesStayWithinConfiguredPoolsTest() {
+    EbookCatalog catalog = new SyntheticCatalogGenerator(4, 2, /* seed= */ 7).generate(500);
+
+    for (int id = 1; id <= catalog.size(); id++) {
+      assertTrue(catalog.getNumPages(id) >= 10);
+      assertTrue(catalog.getSeriesUnitIndex(id) >= 1);
+      ImmutableList<String> authors = catalog.getAuthors(id);
+      assertTrue(!authors.isEmpty() && authors.size() <= 2);
+      for (String author : authors) {
+        assertTrue(ImmutableList.of("Author_1", "Author_2", "Author_3", "Author_4")
+            .contains(author));
+      }
+      ImmutableList<String> genres = catalog.getGenres(id);
+      assertTrue(!genres.isEmpty() && genres.size() <= 2);
+      assertEquals(ImmutableList.copyOf(new TreeSet<>(genres)), genres);
+    }
+    assertNotEquals(catalog.getSeriesName(1), catalog.getSeriesName(catalog.size()));
+  }
+
+  @Test
+  public void invalidParametersThrowTest() {
+    assertThrows(IllegalArgumentException.class, () -> new SyntheticCatalogGenerator(0, 1, 1));
+    assertThrows(
+        IllegalArgumentException.class, () -> new SyntheticCatalogGenerator(1, 1, 1).generate(-1));
+  }
+}
@@ -0,0 +1,117 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.publish;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.samples.quickstart.engagesdksamples.read.login.Account;
+import com.google.samples.quickstart.engagesdksamples.read.model.ColumnarEbookCatalog;
+import com.google.samples.quickstart.engagesdksamples.read.model.Ebook;
+import java.util.Arrays;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class AffinityRankerTest {
+
+  private static final int NUM_PAGES = 10;
+
+  private ColumnarEbookCatalog catalog;
+  private Account account;
+
+  @Before
+  public void setUp() {
+    // Ebook i has genre i % 4, author i % 5 and series i % 10.
+    ColumnarEbookCatalog.Builder builder =
+        new ColumnarEbookCatalog.Builder(/* expectedSize= */ 100);
+    for (int id = 1; id <= 100; id++) {
+      builder.add("Ebook_" + id, ImmutableList.of("Author_" + id % 5), id, "", "$1.00", NUM_PAGES,
+          ImmutableList.of("Genre_" + id % 4), "Series_" + id % 10, id);
+    }
+    catalog = builder.build();
+    account = new Account();
+  }
+
+  @Test
+  public void noHistoryRanksLowestIdsFirstTest() {
+    assertArrayEquals(new int[] {1, 2, 3}, AffinityRanker.rankTopK(catalog, account, 3));
+  }
+
+  @Test
+  public void ranksSharedSeriesAuthorAndGenreFirstTest() {
+    account.markInProgressPageInEbook(new Ebook(catalog, 4), NUM_PAGES, /* engagementTime= */ 1L);
+
+    // Ebooks sharing the series, author and genre of ebook 4, then those sharing only the series
+    // and author. Ebook 4 itself is excluded.
+    assertArrayEquals(
+        new int[] {24, 44, 64, 84, 14, 34, 54, 74, 94},
+        AffinityRanker.rankTopK(catalog, account, 9));
+  }
+
+  @Test
+  public void topKMatchesFullRankingTest() {
+    account.markInProgressPageInEbook(new Ebook(catalog, 3), 2, /* engagementTime= */ 1L);
+    account.markInProgressPageInEbook(new Ebook(catalog, 17), NUM_PAGES, /* engagementTime= */ 2L);
+    account.markInProgressPageInEbook(new Ebook(catalog, 50), 5, /* engagementTime= */ 3L);
+
+    int[] fullRanking = AffinityRanker.rankTopK(catalog, account, catalog.size());
+    assertEquals(catalog.size() - 3, fullRanking.length);
+    for (int k = 1; k <= 20; k++) {
+      assertArrayEquals(
+          Arrays.copyOf(fullRanking, k), AffinityRanker.rankTopK(catalog, account, k));
+    }
+  }
+
+  @Test
+  public void stopsScoringOnceBudgetIsSpentTest() {
+    ColumnarEbookCatalog.Builder builder =
+        new ColumnarEbookCatalog.Builder(/* expectedSize= */ 2048);
+    for (int id = 1; id <= 2048; id++) {
+      String genre = id == 1 || id == 2000 ? "Rare" : "Common";
+      builder.add("Ebook_" + id, ImmutableList.of("Author"), id, "", "$1.00", NUM_PAGES,
+          ImmutableList.of(genre), "Series_" + id, id);
+    }
+    ColumnarEbookCatalog largeCatalog = builder.build();
+    account.markInProgressPageInEbook(new Ebook(largeCatalog, 1), 1, /* engagementTime= */ 1L);
+
+    assertEquals(2000, AffinityRanker.rankTopK(largeCatalog, account, 1)[0]);
+    // With no budget, scoring stops at the first check, before reaching ebook 2000.
+    assertEquals(
+        2, AffinityRanker.rankTopK(largeCatalog, account, 1, new SteppingTicker(), 0L)[0]);
+  }
+
+  @Test
+  public void nonPositiveKThrowsTest() {
+    assertThrows(
+        IllegalArgumentException.class, () -> AffinityRanker.rankTopK(catalog, account, 0));
+  }
+
+  /** Advances one nanosecond on every read. */
+  private static final class SteppingTicker extends Ticker {
+
+    private long nanos;
+
+    @Override
+    public long read() {
+      return nanos++;
+    }
+  }
+}
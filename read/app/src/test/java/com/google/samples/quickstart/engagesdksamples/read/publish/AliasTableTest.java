@@ -0,0 +1,63 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.publish;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.util.Random;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class AliasTableTest {
+
+  @Test
+  public void samplesInProportionToWeightsTest() {
+    double[] weights = {1, 2, 0, 5};
+    AliasTable table = new AliasTable(weights);
+    Random random = new Random(/* seed= */ 42);
+    int numSamples = 80_000;
+    int[] counts = new int[weights.length];
+    for (int i = 0; i < numSamples; i++) {
+      counts[table.sample(random)]++;
+    }
+
+    assertEquals(numSamples / 8.0, counts[0], numSamples * 0.01);
+    assertEquals(numSamples * 2 / 8.0, counts[1], numSamples * 0.01);
+    assertEquals(0, counts[2]);
+    assertEquals(numSamples * 5 / 8.0, counts[3], numSamples * 0.01);
+  }
+
+  @Test
+  public void sameSeedSamplesSameIndicesTest() {
+    AliasTable table = new AliasTable(new double[] {3, 1, 4, 1, 5, 9, 2, 6});
+    Random first = new Random(/* seed= */ 7);
+    Random second = new Random(/* seed= */ 7);
+    for (int i = 0; i < 100; i++) {
+      assertEquals(table.sample(first), table.sample(second));
+    }
+  }
+
+  @Test
+  public void invalidWeightsThrowTest() {
+    assertThrows(IllegalArgumentException.class, () -> new AliasTable(new double[0]));
+    assertThrows(IllegalArgumentException.class, () -> new AliasTable(new double[] {0, 0}));
+    assertThrows(IllegalArgumentException.class, () -> new AliasTable(new double[] {1, -1}));
+    assertThrows(
+        IllegalArgumentException.class, () -> new AliasTable(new double[] {1, Double.NaN}));
+  }
+}
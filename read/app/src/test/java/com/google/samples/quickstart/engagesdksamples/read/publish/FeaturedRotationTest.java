@@ -0,0 +1,101 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.read.publish;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import com.google.samples.quickstart.engagesdksamples.read.login.Account;
+import com.google.samples.quickstart.engagesdksamples.read.model.ColumnarEbookCatalog;
+import com.google.samples.quickstart.engagesdksamples.read.model.Ebook;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class FeaturedRotationTest {
+
+  private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+  private ColumnarEbookCatalog catalog;
+  private Account account;
+
+  @Before
+  public void setUp() {
+    catalog = ColumnarEbookCatalog.createSynthetic(/* numEbooks= */ 100);
+    account = new Account();
+  }
+
+  @Test
+  public void sameSeedSelectsSameEbooksTest() {
+    int[] first = FeaturedRotation.selectFeatured(catalog, account, 5, /* seed= */ 1);
+    int[] second = FeaturedRotation.selectFeatured(catalog, account, 5, /* seed= */ 1);
+
+    assertEquals(5, first.length);
+    assertArrayEquals(first, second);
+    assertEquals(5, toSet(first).size());
+  }
+
+  @Test
+  public void selectionRotatesDailyTest() {
+    long today = FeaturedRotation.seedForDay(/* timeMillis= */ 100 * DAY_MILLIS);
+    long laterToday = FeaturedRotation.seedForDay(/* timeMillis= */ 100 * DAY_MILLIS + 1000);
+    long tomorrow = FeaturedRotation.seedForDay(/* timeMillis= */ 101 * DAY_MILLIS);
+
+    assertEquals(today, laterToday);
+    assertFalse(
+        Arrays.equals(
+            FeaturedRotation.selectFeatured(catalog, account, 5, today),
+            FeaturedRotation.selectFeatured(catalog, account, 5, tomorrow)));
+  }
+
+  @Test
+  public void startedEbooksAreNotFeaturedTest() {
+    for (int id = 1; id <= 90; id++) {
+      account.markInProgressPageInEbook(new Ebook(catalog, id), 1, /* engagementTime= */ id);
+    }
+
+    // Few ebooks are left to draw, so the selection falls back to the ten that were not started.
+    int[] featured = FeaturedRotation.selectFeatured(catalog, account, 20, /* seed= */ 3);
+
+    assertEquals(10, featured.length);
+    for (int id : featured) {
+      assertFalse(account.isEbookInProgress(id));
+    }
+    assertEquals(10, toSet(featured).size());
+  }
+
+  @Test
+  public void newerEbooksWeighMoreTest() {
+    double[] weights = FeaturedRotation.editorialWeights(catalog);
+
+    // The synthetic catalog publishes ebooks in id order.
+    assertEquals(1.0, weights[0], 1e-9);
+    assertEquals(2.0, weights[99], 1e-9);
+  }
+
+  private static Set<Integer> toSet(int[] ids) {
+    Set<Integer> set = new HashSet<>();
+    for (int id : ids) {
+      set.add(id);
+    }
+    return set;
+  }
+}
@@ -0,0 +1,76 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.watch.data.converters
+
+import android.os.Bundle
+import android.os.Debug
+import android.util.Log
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.MovieItem
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.SyntheticMovieGenerator
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Counts the objects allocated converting a generated catalog, with and without reusing entity
+ * parts. Each converter converts the catalog once to warm up, as the app does on its first publish,
+ * and is measured on the next pass. Results are logged and sent as instrumentation status.
+ */
+@RunWith(AndroidJUnit4::class)
+class ItemToEntityConverterAllocationTest {
+
+  @Test
+  fun reusingPartsAllocatesLessTest() {
+    val movies = SyntheticMovieGenerator(NUM_GENRES, SEED).generate(NUM_MOVIES, NUM_IN_PROGRESS)
+
+    val uncachedAllocations = countAllocations(movies, EntityPartCache(maxEntries = 0))
+    val cachedAllocations = countAllocations(movies, EntityPartCache(maxEntries = NUM_MOVIES))
+
+    val results = Bundle()
+    results.putInt("movies", NUM_MOVIES)
+    results.putInt("uncached_allocations", uncachedAllocations)
+    results.putInt("cached_allocations", cachedAllocations)
+    Log.i(TAG, "reusingPartsAllocatesLessTest: $results")
+    InstrumentationRegistry.getInstrumentation().sendStatus(/* resultCode= */ 0, results)
+
+    assertTrue(cachedAllocations < uncachedAllocations)
+  }
+
+  @Suppress("DEPRECATION") // Allocation counting is deprecated but still supported by ART.
+  private fun countAllocations(movies: List<MovieItem>, parts: EntityPartCache): Int {
+    movies.forEach { ItemToEntityConverter.convertMovie(it, parts) }
+
+    Debug.resetThreadAllocCount()
+    Debug.startAllocCounting()
+    try {
+      for (movie in movies) {
+        ItemToEntityConverter.convertMovie(movie, parts)
+      }
+    } finally {
+      Debug.stopAllocCounting()
+    }
+    return Debug.getThreadAllocCount()
+  }
+
+  companion object {
+    private val TAG = ItemToEntityConverterAllocationTest::class.java.simpleName
+    private const val NUM_MOVIES = 10_000
+    private const val NUM_IN_PROGRESS = 1_000
+    private const val NUM_GENRES = 20
+    private const val SEED = 1L
+  }
+}
@@ -38,10 +38,6 @@ class ItemToEntityConverterTest {
 
   @Test
   fun convertsInProgressMovieItemTest() {
-    inProgressMovieItem.currentlyWatching = true
-    inProgressMovieItem.lastEngagementTimeMillis = 234567891L
-    inProgressMovieItem.lastPlaybackTimeMillis = 123456789L
-    inProgressMovieItem.watchNextType = 1
     val inProgressMovieEntity = ItemToEntityConverter.convertMovie(inProgressMovieItem)
 
     assert(inProgressMovieEntity.availability == inProgressMovieItem.availability)
@@ -93,7 +89,11 @@ class ItemToEntityConverterTest {
         durationMillis = 234567891L,
         genre = "comedy",
         contentRating = "R",
-        contentRatingAgency = "ContentRatingAgency"
+        contentRatingAgency = "ContentRatingAgency",
+        currentlyWatching = true,
+        lastEngagementTimeMillis = 234567891L,
+        lastPlaybackTimeMillis = 123456789L,
+        watchNextType = 1
       )
   }
 }
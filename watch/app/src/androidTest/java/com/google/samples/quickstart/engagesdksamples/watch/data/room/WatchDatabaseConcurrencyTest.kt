@@ -0,0 +1,142 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.watch.data.room
+
+import android.content.Context
+import android.os.Bundle
+import android.util.Log
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import com.google.android.engage.video.datamodel.WatchNextType
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.SyntheticMovieGenerator
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.WatchProgress
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.cancelAndJoin
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.isActive
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.runBlocking
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Compares how long the home screen's query takes while publishing workers read the movie table and
+ * progress updates are written, with [DatabaseTuning.LEGACY] and [DatabaseTuning.DEFAULT]. Results
+ * are logged and sent as instrumentation status; run on a physical device for meaningful numbers.
+ *
+ * Catalogs of 10 and 1000 movies are measured by default. Pass the instrumentation argument
+ * `catalogSizes`, for example `10,1000,100000,1000000`, to measure others.
+ */
+@RunWith(AndroidJUnit4::class)
+class WatchDatabaseConcurrencyTest {
+
+  private val context: Context = ApplicationProvider.getApplicationContext()
+
+  @Test
+  fun uiReadLatencyDuringPublishesTest() {
+    val catalogSizes =
+      InstrumentationRegistry.getArguments()
+        .getString(CATALOG_SIZES_ARGUMENT, DEFAULT_CATALOG_SIZES)
+        .split(",")
+        .map { it.trim().toInt() }
+    val tunings = listOf("legacy" to DatabaseTuning.LEGACY, "tuned" to DatabaseTuning.DEFAULT)
+    val results = Bundle()
+    for (catalogSize in catalogSizes) {
+      for ((label, tuning) in tunings) {
+        val latenciesNanos =
+          measureReadLatencies(tuning, catalogSize, "benchmark_${label}_$catalogSize.db")
+        val prefix = "${label}_${catalogSize}"
+        results.putDouble("${prefix}_p50_read_ms", percentileMillis(latenciesNanos, 50))
+        results.putDouble("${prefix}_p90_read_ms", percentileMillis(latenciesNanos, 90))
+        results.putDouble("${prefix}_p99_read_ms", percentileMillis(latenciesNanos, 99))
+      }
+    }
+    Log.i(TAG, "uiReadLatencyDuringPublishesTest: $results")
+    InstrumentationRegistry.getInstrumentation().sendStatus(/* resultCode= */ 0, results)
+  }
+
+  private fun measureReadLatencies(
+    tuning: DatabaseTuning,
+    catalogSize: Int,
+    name: String
+  ): List<Long> =
+    runBlocking {
+      context.deleteDatabase(name)
+      val movies =
+        SyntheticMovieGenerator(NUM_GENRES, SEED)
+          .generate(catalogSize, numInProgress = catalogSize / IN_PROGRESS_DIVISOR)
+      val db = WatchDatabase.buildDatabase(context, name, tuning) { movies }.build()
+      // Larger catalogs take longer to read, so they are read fewer times.
+      val numReads = (READ_BUDGET_ROWS / maxOf(1, catalogSize)).coerceIn(MIN_READS, MAX_READS)
+      try {
+        val movieDao = db.movieDao()
+
+        val background =
+          launch(Dispatchers.Default) {
+            var step = 0
+            while (isActive) {
+              // What a publishing worker reads, followed by a tap on one of the cards.
+              movieDao.loadMovieIsCurrentlyWatching(true)
+              movieDao.loadMovieIsCurrentlyWatching(false)
+              val movie = movies[step % movies.size]
+              movieDao.updateWatchProgress(
+                listOf(
+                  WatchProgress(
+                    movieId = movie.id,
+                    currentlyWatching = step % 2 == 0,
+                    watchNextType = WatchNextType.TYPE_CONTINUE,
+                    lastEngagementTimeMillis = step.toLong(),
+                    playbackAdvanceMillis = step.toLong()
+                  )
+                )
+              )
+              step++
+            }
+          }
+
+        val latenciesNanos = ArrayList<Long>(numReads)
+        repeat(numReads) {
+          val start = System.nanoTime()
+          movieDao.loadAllMovieItems().first()
+          latenciesNanos.add(System.nanoTime() - start)
+        }
+        background.cancelAndJoin()
+        assertEquals(numReads, latenciesNanos.size)
+        latenciesNanos.sorted()
+      } finally {
+        db.close()
+        context.deleteDatabase(name)
+      }
+    }
+
+  private fun percentileMillis(sortedNanos: List<Long>, percentile: Int): Double {
+    val index = minOf(sortedNanos.size - 1, sortedNanos.size * percentile / 100)
+    return sortedNanos[index] / 1_000_000.0
+  }
+
+  companion object {
+    private val TAG = WatchDatabaseConcurrencyTest::class.java.simpleName
+    private const val CATALOG_SIZES_ARGUMENT = "catalogSizes"
+    private const val DEFAULT_CATALOG_SIZES = "10,1000"
+    private const val NUM_GENRES = 20
+    private const val SEED = 1L
+    private const val IN_PROGRESS_DIVISOR = 10
+    private const val READ_BUDGET_ROWS = 500_000
+    private const val MIN_READS = 10
+    private const val MAX_READS = 500
+  }
+}
@@ -0,0 +1,77 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.watch.data.room
+
+import android.content.Context
+import androidx.room.testing.MigrationTestHelper
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.Account
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.MovieItem
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.OutboxEntry
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.TestData
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.runBlocking
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/** Migrates databases created from the schemas exported to `schemas/`, one test per migration. */
+@RunWith(AndroidJUnit4::class)
+class WatchDatabaseMigrationTest {
+
+  private val context: Context = ApplicationProvider.getApplicationContext()
+
+  @get:Rule
+  val helper =
+    MigrationTestHelper(InstrumentationRegistry.getInstrumentation(), WatchDatabase::class.java)
+
+  @Test
+  fun migrate1To2KeepsMoviesAndAddsOutboxTest() {
+    val movies = TestData().getTestData()
+    helper.createDatabase(TEST_DB, 1).use { db ->
+      DatabaseSeeder.seed(db, movies, Account(id = "1", signedIn = true))
+    }
+
+    helper.runMigrationsAndValidate(TEST_DB, 2, true, WatchDatabase.MIGRATION_1_2).use { db ->
+      db.query("SELECT COUNT(*) FROM ${MovieItem.TABLE_NAME}").use { cursor ->
+        cursor.moveToFirst()
+        assertEquals(movies.size, cursor.getInt(0))
+      }
+    }
+
+    // Opening the migrated file with Room also checks it against the schema Room was compiled with.
+    val watchDatabase =
+      WatchDatabase.buildDatabase(context, TEST_DB, DatabaseTuning.DEFAULT).build()
+    helper.closeWhenFinished(watchDatabase)
+    runBlocking {
+      assertEquals(movies.size, watchDatabase.movieDao().loadAllMovieItems().first().size)
+      assertTrue(watchDatabase.accountDao().isAccountSignedIn())
+      watchDatabase
+        .outboxDao()
+        .insertEntry(OutboxEntry(publishType = "publish_type", recordedAtMillis = 1L))
+      val entries = watchDatabase.outboxDao().loadPendingEntries()
+      assertEquals(listOf("publish_type"), entries.map { it.publishType })
+      assertEquals(0, entries.single().failedAttempts)
+    }
+  }
+
+  companion object {
+    private const val TEST_DB = "migration_test.db"
+  }
+}
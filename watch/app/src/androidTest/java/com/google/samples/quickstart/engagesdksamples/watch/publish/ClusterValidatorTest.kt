@@ -0,0 +1,109 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.watch.publish
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.google.samples.quickstart.engagesdksamples.watch.data.converters.ItemToEntityConverter
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.SyntheticMovieGenerator
+import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.PUBLISH_TYPE_CONTINUATION
+import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.PUBLISH_TYPE_FEATURED
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+class ClusterValidatorTest {
+
+  private val movies =
+    SyntheticMovieGenerator(NUM_GENRES, SEED).generate(NUM_MOVIES, numInProgress = NUM_MOVIES / 2)
+  private val inProgressEntities =
+    movies.filter { it.currentlyWatching }.map { ItemToEntityConverter.convertMovie(it) }
+  private val notStartedEntities =
+    movies.filter { !it.currentlyWatching }.map { ItemToEntityConverter.convertMovie(it) }
+
+  @Test
+  fun validClustersHaveNoViolationsTest() {
+    assertTrue(
+      ClusterValidator.validateRecommendationCluster("Title", notStartedEntities).isEmpty()
+    )
+    assertTrue(ClusterValidator.validateFeaturedCluster(notStartedEntities).isEmpty())
+    assertTrue(ClusterValidator.validateContinuationCluster(inProgressEntities).isEmpty())
+    assertTrue(ClusterValidator.validateRecommendationClusterCount(1).isEmpty())
+  }
+
+  @Test
+  fun emptyClusterIsInvalidTest() {
+    val violations = ClusterValidator.validateFeaturedCluster(listOf())
+
+    assertEquals(
+      listOf(ClusterViolation(PUBLISH_TYPE_FEATURED, null, "Clusters cannot be empty.")),
+      violations
+    )
+  }
+
+  @Test
+  fun recommendationClusterWithoutTitleIsInvalidTest() {
+    val violations = ClusterValidator.validateRecommendationCluster(" ", notStartedEntities)
+
+    assertEquals(1, violations.size)
+    assertEquals(null, violations[0].entityIndex)
+  }
+
+  @Test
+  fun tooManyEntitiesIsInvalidTest() {
+    val entities = List(ClusterValidator.MAX_FEATURED_ENTITIES + 1) { notStartedEntities[0] }
+
+    val violations = ClusterValidator.validateFeaturedCluster(entities)
+
+    assertEquals(1, violations.size)
+    assertEquals(null, violations[0].entityIndex)
+  }
+
+  @Test
+  fun notStartedMovieInContinuationClusterIsInvalidTest() {
+    val entities = listOf(inProgressEntities[0], notStartedEntities[0])
+
+    val violations = ClusterValidator.validateContinuationCluster(entities)
+
+    assertTrue(violations.isNotEmpty())
+    assertTrue(
+      violations.all { it.publishType == PUBLISH_TYPE_CONTINUATION && it.entityIndex == 1 }
+    )
+  }
+
+  @Test
+  fun tooManyRecommendationClustersIsInvalidTest() {
+    assertEquals(1, ClusterValidator.validateRecommendationClusterCount(0).size)
+    assertEquals(
+      1,
+      ClusterValidator.validateRecommendationClusterCount(
+          ClusterValidator.MAX_RECOMMENDATION_CLUSTERS + 1
+        )
+        .size
+    )
+  }
+
+  @Test(expected = InvalidClusterException::class)
+  fun requireValidThrowsOnViolationsTest() {
+    ClusterValidator.requireValid(ClusterValidator.validateFeaturedCluster(listOf()))
+  }
+
+  companion object {
+    private const val NUM_GENRES = 3
+    private const val NUM_MOVIES = 8
+    private const val SEED = 11L
+  }
+}
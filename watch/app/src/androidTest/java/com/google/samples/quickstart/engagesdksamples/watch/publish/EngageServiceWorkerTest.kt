@@ -31,18 +31,27 @@ import com.google.android.engage.video.datamodel.WatchNextType
 import com.google.android.gms.tasks.Task
 import com.google.android.gms.tasks.Tasks
 import com.google.samples.quickstart.engagesdksamples.watch.data.model.MovieItem
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.OutboxEntry
 import com.google.samples.quickstart.engagesdksamples.watch.data.room.AccountDao
 import com.google.samples.quickstart.engagesdksamples.watch.data.room.MovieDao
+import com.google.samples.quickstart.engagesdksamples.watch.data.room.OutboxDao
 import com.google.samples.quickstart.engagesdksamples.watch.data.room.WatchDatabase
+import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.MAX_OUTBOX_FAILED_ATTEMPTS
 import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.MAX_PUBLISHING_ATTEMPTS
 import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.PUBLISH_TYPE
+import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.PUBLISH_TYPE_ACCOUNT_TRANSITION
 import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.PUBLISH_TYPE_CONTINUATION
 import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.PUBLISH_TYPE_FEATURED
+import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.PUBLISH_TYPE_OUTBOX
 import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.PUBLISH_TYPE_RECOMMENDATIONS
 import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.PUBLISH_TYPE_USER_ACCOUNT_MANAGEMENT
 import io.mockk.Called
+import io.mockk.Runs
+import io.mockk.clearMocks
 import io.mockk.coEvery
+import io.mockk.coVerify
 import io.mockk.every
+import io.mockk.just
 import io.mockk.mockk
 import io.mockk.verify
 import kotlinx.coroutines.runBlocking
@@ -72,14 +81,16 @@ class EngageServiceWorkerTest {
           durationMillis = 1L,
           genre = "Test",
           contentRatingAgency = "ContentRatingAgency",
-          contentRating = "Test"
-        )
-        .apply {
-          currentlyWatching = true
-          watchNextType = WatchNextType.TYPE_CONTINUE
-          lastEngagementTimeMillis = 9078563412L
+          contentRating = "Test",
+          currentlyWatching = true,
+          watchNextType = WatchNextType.TYPE_CONTINUE,
+          lastEngagementTimeMillis = 9078563412L,
           lastPlaybackTimeMillis = 123456789L
-        }
+        )
+    coEvery { mockedDao.loadMovieIsCurrentlyWatching(currentlyWatching = false) } returns
+      listOf(inProgressMovieItem.copy(id = "2", currentlyWatching = false))
+    coEvery { mockedDao.loadMovieItemsOrderedById() } returns
+      listOf(inProgressMovieItem, inProgressMovieItem.copy(id = "2", currentlyWatching = false))
   }
 
   @Test
@@ -270,6 +281,29 @@ class EngageServiceWorkerTest {
     }
   }
 
+  @Test
+  fun publishFeaturedWithAccountAndInvalidClusterFailsWithoutPublishingTest() {
+    val mockedAvailability = Tasks.forResult(true)
+    every { mockedClient.isServiceAvailable } returns mockedAvailability
+
+    coEvery { mockedAccountDao.isAccountSignedIn() } returns true
+    // Every movie is being watched. An empty featured cluster is rejected by Engage, so it must
+    // not be sent.
+    coEvery { mockedDao.loadMovieItemsOrderedById() } returns listOf(inProgressMovieItem)
+
+    val worker = createEngageServiceWorker(mockedContext, PUBLISH_TYPE_FEATURED, runAttempts = 0)
+
+    runBlocking {
+      val actualResult = worker.doWork()
+      assertEquals(Result.failure(), actualResult)
+      verify {
+        mockedClient.publishFeaturedCluster(any()) wasNot Called
+        mockedClient.deleteFeaturedCluster() wasNot Called
+        mockedClient.updatePublishStatus(any()) wasNot Called
+      }
+    }
+  }
+
   @Test
   fun publishFeaturedWithoutAccountSucceedsAndDeletesAndSetsStatusTest() {
     val mockedAvailability = Tasks.forResult(true)
@@ -792,6 +826,164 @@ class EngageServiceWorkerTest {
     }
   }
 
+  @Test
+  fun accountTransitionWithEveryMovieWatchedDeletesEmptyClustersAndSignInCardTest() {
+    // The mocks are shared between tests, so calls made by other tests must not be counted.
+    clearMocks(mockedClient)
+    every { mockedClient.isServiceAvailable } returns Tasks.forResult(true)
+    coEvery { mockedAccountDao.isAccountSignedIn() } returns true
+    // Every movie is being watched, so the featured and recommendation clusters are empty.
+    coEvery { mockedDao.loadMovieIsCurrentlyWatching(currentlyWatching = true) } returns
+      listOf(inProgressMovieItem)
+    coEvery { mockedDao.loadMovieIsCurrentlyWatching(currentlyWatching = false) } returns listOf()
+    coEvery { mockedDao.loadMovieItemsOrderedById() } returns listOf(inProgressMovieItem)
+    val resultingTask: Task<Void> = Tasks.forResult(null)
+    every { mockedClient.publishContinuationCluster(any()) } returns resultingTask
+    every { mockedClient.deleteFeaturedCluster() } returns resultingTask
+    every { mockedClient.deleteRecommendationsClusters() } returns resultingTask
+    every { mockedClient.deleteUserManagementCluster() } returns resultingTask
+    every { mockedClient.updatePublishStatus(any()) } returns resultingTask
+
+    val worker =
+      createEngageServiceWorker(mockedContext, PUBLISH_TYPE_ACCOUNT_TRANSITION, runAttempts = 0)
+
+    runBlocking {
+      assertEquals(Result.success(), worker.doWork())
+      val expectedStatusCode = AppEngagePublishStatusCode.PUBLISHED
+      verify {
+        mockedClient.publishContinuationCluster(any())
+        mockedClient.publishFeaturedCluster(any()) wasNot Called
+        mockedClient.deleteFeaturedCluster()
+        mockedClient.publishRecommendationClusters(any()) wasNot Called
+        mockedClient.deleteRecommendationsClusters()
+        mockedClient.deleteUserManagementCluster()
+        mockedClient.updatePublishStatus(
+          withArg { assertTrue(it.statusCode == expectedStatusCode) }
+        )
+      }
+    }
+  }
+
+  @Test
+  fun accountTransitionRunsEveryStepWhenOneFailsTest() {
+    clearMocks(mockedClient)
+    every { mockedClient.isServiceAvailable } returns Tasks.forResult(true)
+    coEvery { mockedAccountDao.isAccountSignedIn() } returns true
+    coEvery { mockedDao.loadMovieIsCurrentlyWatching(currentlyWatching = true) } returns listOf()
+    val resultingTask: Task<Void> = Tasks.forResult(null)
+    every { mockedClient.deleteContinuationCluster() } returns resultingTask
+    every { mockedClient.publishFeaturedCluster(any()) } returns
+      Tasks.forException(AppEngageException(AppEngageErrorCode.SERVICE_CALL_INTERNAL))
+    every { mockedClient.publishRecommendationClusters(any()) } returns resultingTask
+    every { mockedClient.deleteUserManagementCluster() } returns resultingTask
+    every { mockedClient.updatePublishStatus(any()) } returns resultingTask
+
+    val worker =
+      createEngageServiceWorker(mockedContext, PUBLISH_TYPE_ACCOUNT_TRANSITION, runAttempts = 0)
+
+    runBlocking {
+      // The featured cluster is retried, but the sign-in card is still deleted.
+      assertEquals(Result.retry(), worker.doWork())
+      verify {
+        mockedClient.publishRecommendationClusters(any())
+        mockedClient.deleteUserManagementCluster()
+        mockedClient.updatePublishStatus(any())
+      }
+    }
+  }
+
+  @Test
+  fun deliverOutboxPublishesEachClusterOnceTest() {
+    // The mocks are shared between tests, so calls made by other tests must not be counted.
+    clearMocks(mockedClient, mockedOutboxDao)
+    every { mockedClient.isServiceAvailable } returns Tasks.forResult(true)
+    coEvery { mockedAccountDao.isAccountSignedIn() } returns true
+    coEvery { mockedDao.loadMovieIsCurrentlyWatching(currentlyWatching = true) } returns
+      listOf(inProgressMovieItem)
+    every { mockedClient.publishContinuationCluster(any()) } returns Tasks.forResult(null)
+    every { mockedClient.publishFeaturedCluster(any()) } returns Tasks.forResult(null)
+    every { mockedClient.updatePublishStatus(any()) } returns Tasks.forResult(null)
+    stubOutbox(
+      outboxEntry(id = 1, PUBLISH_TYPE_CONTINUATION),
+      outboxEntry(id = 2, PUBLISH_TYPE_FEATURED),
+      outboxEntry(id = 3, PUBLISH_TYPE_CONTINUATION)
+    )
+
+    val worker = createEngageServiceWorker(mockedContext, PUBLISH_TYPE_OUTBOX, runAttempts = 0)
+
+    runBlocking {
+      assertEquals(Result.success(), worker.doWork())
+      verify(exactly = 1) { mockedClient.publishContinuationCluster(any()) }
+      verify(exactly = 1) { mockedClient.publishFeaturedCluster(any()) }
+      verify(exactly = 0) { mockedClient.publishRecommendationClusters(any()) }
+      coVerify { mockedOutboxDao.deleteDeliveredEntries(PUBLISH_TYPE_CONTINUATION, 3) }
+      coVerify { mockedOutboxDao.deleteDeliveredEntries(PUBLISH_TYPE_FEATURED, 2) }
+    }
+  }
+
+  @Test
+  fun deliverOutboxKeepsEntriesOnRecoverableErrorTest() {
+    clearMocks(mockedClient, mockedOutboxDao)
+    every { mockedClient.isServiceAvailable } returns Tasks.forResult(true)
+    coEvery { mockedAccountDao.isAccountSignedIn() } returns true
+    coEvery { mockedDao.loadMovieIsCurrentlyWatching(currentlyWatching = true) } returns
+      listOf(inProgressMovieItem)
+    every { mockedClient.publishContinuationCluster(any()) } returns
+      Tasks.forException(AppEngageException(AppEngageErrorCode.SERVICE_CALL_INTERNAL))
+    every { mockedClient.updatePublishStatus(any()) } returns Tasks.forResult(null)
+    stubOutbox(
+      outboxEntry(id = 1, PUBLISH_TYPE_CONTINUATION),
+      outboxEntry(id = 2, PUBLISH_TYPE_FEATURED)
+    )
+
+    val worker = createEngageServiceWorker(mockedContext, PUBLISH_TYPE_OUTBOX, runAttempts = 0)
+
+    runBlocking {
+      assertEquals(Result.retry(), worker.doWork())
+      verify(exactly = 0) { mockedClient.publishFeaturedCluster(any()) }
+      coVerify { mockedOutboxDao.recordFailedAttempt(PUBLISH_TYPE_CONTINUATION, 1) }
+      coVerify(exactly = 0) { mockedOutboxDao.deleteDeliveredEntries(any(), any()) }
+    }
+  }
+
+  @Test
+  fun deliverOutboxDropsEntryAfterMaxFailedAttemptsTest() {
+    clearMocks(mockedClient, mockedOutboxDao)
+    every { mockedClient.isServiceAvailable } returns Tasks.forResult(true)
+    coEvery { mockedAccountDao.isAccountSignedIn() } returns true
+    coEvery { mockedDao.loadMovieIsCurrentlyWatching(currentlyWatching = true) } returns
+      listOf(inProgressMovieItem)
+    every { mockedClient.publishContinuationCluster(any()) } returns
+      Tasks.forException(AppEngageException(AppEngageErrorCode.SERVICE_CALL_INTERNAL))
+    every { mockedClient.publishFeaturedCluster(any()) } returns Tasks.forResult(null)
+    every { mockedClient.updatePublishStatus(any()) } returns Tasks.forResult(null)
+    stubOutbox(
+      outboxEntry(id = 1, PUBLISH_TYPE_CONTINUATION)
+        .copy(failedAttempts = MAX_OUTBOX_FAILED_ATTEMPTS - 1),
+      outboxEntry(id = 2, PUBLISH_TYPE_FEATURED)
+    )
+
+    val worker = createEngageServiceWorker(mockedContext, PUBLISH_TYPE_OUTBOX, runAttempts = 0)
+
+    runBlocking {
+      assertEquals(Result.success(), worker.doWork())
+      verify(exactly = 1) { mockedClient.publishFeaturedCluster(any()) }
+      coVerify { mockedOutboxDao.deleteDeliveredEntries(PUBLISH_TYPE_CONTINUATION, 1) }
+      coVerify { mockedOutboxDao.deleteDeliveredEntries(PUBLISH_TYPE_FEATURED, 2) }
+      coVerify(exactly = 0) { mockedOutboxDao.recordFailedAttempt(any(), any()) }
+    }
+  }
+
+  private fun stubOutbox(vararg entries: OutboxEntry) {
+    every { mockedDb.outboxDao() } returns mockedOutboxDao
+    coEvery { mockedOutboxDao.loadPendingEntries() } returns entries.toList()
+    coEvery { mockedOutboxDao.deleteDeliveredEntries(any(), any()) } just Runs
+    coEvery { mockedOutboxDao.recordFailedAttempt(any(), any()) } just Runs
+  }
+
+  private fun outboxEntry(id: Long, publishType: String): OutboxEntry =
+    OutboxEntry(id = id, publishType = publishType, recordedAtMillis = id)
+
   private fun verifyPublishRecommendationsWithErrorReturnsResultHelper(
     errorCode: Int,
     expectedResult: Result
@@ -923,5 +1115,6 @@ class EngageServiceWorkerTest {
     private val mockedDb = mockk<WatchDatabase>()
     private val mockedDao = mockk<MovieDao>()
     private val mockedAccountDao = mockk<AccountDao>()
+    private val mockedOutboxDao = mockk<OutboxDao>()
   }
 }
@@ -0,0 +1,122 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.watch.publish
+
+import android.app.Service
+import android.content.ComponentName
+import android.content.Context
+import android.content.Intent
+import android.content.ServiceConnection
+import android.os.Binder
+import android.os.IBinder
+import android.os.Parcel
+import android.os.Parcelable
+import android.os.SystemClock
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+/**
+ * Bound service in a separate process of the test APK that receives publish payloads the way the
+ * Engage service does, over a binder transaction. It only acknowledges each payload, so the time
+ * a call takes is the cost of marshalling, copying and delivering the payload across processes.
+ *
+ * The payload is not unmarshalled: the service process loads only the test APK, which does not
+ * contain the Engage SDK classes, and unmarshalling is the cost of the receiving service anyway.
+ */
+class FakeEngageService : Service() {
+
+  private val binder =
+    object : Binder() {
+      override fun onTransact(code: Int, data: Parcel, reply: Parcel?, flags: Int): Boolean {
+        if (code != TRANSACTION_PUBLISH) {
+          return super.onTransact(code, data, reply, flags)
+        }
+        reply?.writeInt(data.dataSize())
+        return true
+      }
+    }
+
+  override fun onBind(intent: Intent): IBinder = binder
+
+  /** A connection to a [FakeEngageService], from the process that publishes. */
+  class Connection private constructor(
+    private val context: Context,
+    private val serviceConnection: ServiceConnection,
+    private val binder: IBinder
+  ) : AutoCloseable {
+
+    /**
+     * Sends [entities] to the service in one transaction, as a publish request would, and returns
+     * the time the call took in nanoseconds. Marshalling the entities is included in that time.
+     */
+    fun publish(entities: List<Parcelable>): Long {
+      val data = Parcel.obtain()
+      val reply = Parcel.obtain()
+      try {
+        val startNanos = SystemClock.elapsedRealtimeNanos()
+        data.writeInt(entities.size)
+        for (entity in entities) {
+          entity.writeToParcel(data, /* flags= */ 0)
+        }
+        binder.transact(TRANSACTION_PUBLISH, data, reply, /* flags= */ 0)
+        val receivedBytes = reply.readInt()
+        val elapsedNanos = SystemClock.elapsedRealtimeNanos() - startNanos
+        check(receivedBytes == data.dataSize()) { "The service received a partial payload." }
+        return elapsedNanos
+      } finally {
+        reply.recycle()
+        data.recycle()
+      }
+    }
+
+    override fun close() {
+      context.unbindService(serviceConnection)
+    }
+
+    companion object {
+      /** Binds to the [FakeEngageService] declared by [context]'s package, starting its process. */
+      fun bind(context: Context, timeoutMillis: Long = 10_000L): Connection {
+        val connected = CountDownLatch(1)
+        var binder: IBinder? = null
+        val serviceConnection =
+          object : ServiceConnection {
+            override fun onServiceConnected(name: ComponentName, service: IBinder) {
+              binder = service
+              connected.countDown()
+            }
+
+            override fun onServiceDisconnected(name: ComponentName) {}
+          }
+        check(
+          context.bindService(
+            Intent(context, FakeEngageService::class.java),
+            serviceConnection,
+            Context.BIND_AUTO_CREATE
+          )
+        ) {
+          "FakeEngageService could not be bound."
+        }
+        check(connected.await(timeoutMillis, TimeUnit.MILLISECONDS)) {
+          "FakeEngageService did not connect within $timeoutMillis ms."
+        }
+        return Connection(context, serviceConnection, checkNotNull(binder))
+      }
+    }
+  }
+
+  companion object {
+    private const val TRANSACTION_PUBLISH = IBinder.FIRST_CALL_TRANSACTION
+  }
+}
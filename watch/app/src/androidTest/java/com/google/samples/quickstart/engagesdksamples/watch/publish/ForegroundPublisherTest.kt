@@ -0,0 +1,210 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.watch.publish
+
+import android.content.Context
+import androidx.test.core.app.ApplicationProvider
+import com.google.android.engage.common.datamodel.PlatformType
+import com.google.android.engage.service.AppEngageErrorCode
+import com.google.android.engage.service.AppEngageException
+import com.google.android.engage.service.AppEngagePublishClient
+import com.google.android.engage.video.datamodel.WatchNextType
+import com.google.android.gms.tasks.TaskCompletionSource
+import com.google.android.gms.tasks.Tasks
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.MovieItem
+import com.google.samples.quickstart.engagesdksamples.watch.data.room.AccountDao
+import com.google.samples.quickstart.engagesdksamples.watch.data.room.MovieDao
+import com.google.samples.quickstart.engagesdksamples.watch.data.room.WatchDatabase
+import io.mockk.coEvery
+import io.mockk.every
+import io.mockk.mockk
+import io.mockk.verify
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.cancel
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+
+class ForegroundPublisherTest {
+
+  private lateinit var context: Context
+  private lateinit var scope: CoroutineScope
+  private val client = mockk<AppEngagePublishClient>()
+  private val db = mockk<WatchDatabase>()
+  private val movieDao = mockk<MovieDao>()
+  private val accountDao = mockk<AccountDao>()
+  private val appVisible = AtomicBoolean(true)
+  private val handOffs = AtomicInteger()
+  private val handedOff = CountDownLatch(1)
+
+  @Before
+  fun setUp() {
+    context = ApplicationProvider.getApplicationContext()
+    scope = CoroutineScope(Job() + Dispatchers.Default)
+    every { db.movieDao() } returns movieDao
+    every { db.accountDao() } returns accountDao
+    every { client.isServiceAvailable } returns Tasks.forResult(true)
+    coEvery { accountDao.isAccountSignedIn() } returns true
+    coEvery { movieDao.loadMovieIsCurrentlyWatching(currentlyWatching = true) } returns
+      listOf(inProgressMovieItem)
+  }
+
+  @After
+  fun tearDown() {
+    scope.cancel()
+  }
+
+  @Test
+  fun publishesContinuationWhileVisible() {
+    every { client.publishContinuationCluster(any()) } returns Tasks.forResult(null)
+
+    createPublisher().publishContinuation()
+
+    verify(timeout = TIMEOUT_MILLIS) { client.publishContinuationCluster(any()) }
+    assertEquals(0, handOffs.get())
+  }
+
+  @Test
+  fun deletesContinuationWhenNothingIsInProgress() {
+    coEvery { movieDao.loadMovieIsCurrentlyWatching(currentlyWatching = true) } returns listOf()
+    every { client.deleteContinuationCluster() } returns Tasks.forResult(null)
+
+    createPublisher().publishContinuation()
+
+    verify(timeout = TIMEOUT_MILLIS) { client.deleteContinuationCluster() }
+  }
+
+  @Test
+  fun handsOffWhenNotVisible() {
+    appVisible.set(false)
+
+    createPublisher().publishContinuation()
+
+    assertTrue(handedOff.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS))
+    verify(exactly = 0) { client.publishContinuationCluster(any()) }
+  }
+
+  @Test
+  fun handsOffWhenPublishFails() {
+    every { client.publishContinuationCluster(any()) } returns
+      Tasks.forException(AppEngageException(AppEngageErrorCode.SERVICE_CALL_INTERNAL))
+
+    createPublisher().publishContinuation()
+
+    assertTrue(handedOff.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS))
+  }
+
+  @Test
+  fun handsOffAndKeepsPublishingWhenPublishThrows() {
+    every { client.publishContinuationCluster(any()) } returns
+      Tasks.forException(SecurityException("Caller not allowed")) andThen
+      Tasks.forResult(null)
+    val publisher = createPublisher()
+
+    publisher.publishContinuation()
+    assertTrue(handedOff.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS))
+    publisher.publishContinuation()
+
+    verify(exactly = 2, timeout = TIMEOUT_MILLIS) { client.publishContinuationCluster(any()) }
+    assertEquals(1, handOffs.get())
+  }
+
+  @Test
+  fun handsOffWhenPublishTimesOut() {
+    every { client.publishContinuationCluster(any()) } returns TaskCompletionSource<Void>().task
+
+    createPublisher(publishTimeoutMillis = 100L).publishContinuation()
+
+    assertTrue(handedOff.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS))
+  }
+
+  @Test
+  fun conflatesRequestsWithinInterval() {
+    every { client.publishContinuationCluster(any()) } returns Tasks.forResult(null)
+    val publisher = createPublisher(minIntervalMillis = 500L)
+
+    repeat(10) { publisher.publishContinuation() }
+
+    // The first request is published at once, the other nine together once the interval ends.
+    verify(exactly = 2, timeout = TIMEOUT_MILLIS) { client.publishContinuationCluster(any()) }
+    Thread.sleep(1000L)
+    verify(exactly = 2) { client.publishContinuationCluster(any()) }
+  }
+
+  @Test
+  fun handsOffPendingRequestWhenBackgrounded() {
+    every { client.publishContinuationCluster(any()) } returns Tasks.forResult(null)
+    val publisher = createPublisher(minIntervalMillis = TIMEOUT_MILLIS)
+    publisher.publishContinuation()
+    verify(timeout = TIMEOUT_MILLIS) { client.publishContinuationCluster(any()) }
+
+    // Waits for the interval to end, so is handed off when the app leaves the foreground.
+    publisher.publishContinuation()
+    publisher.onAppBackgrounded()
+
+    assertEquals(1, handOffs.get())
+    verify(exactly = 1) { client.publishContinuationCluster(any()) }
+  }
+
+  private fun createPublisher(
+    minIntervalMillis: Long = 0L,
+    publishTimeoutMillis: Long = ForegroundPublisher.PUBLISH_TIMEOUT_MILLIS
+  ): ForegroundPublisher =
+    ForegroundPublisher(
+      client = client,
+      db = db,
+      clusterRequestFactory = ClusterRequestFactory(context, db),
+      scope = scope,
+      isAppVisible = { appVisible.get() },
+      handOff = {
+        handOffs.incrementAndGet()
+        handedOff.countDown()
+      },
+      minIntervalMillis = minIntervalMillis,
+      publishTimeoutMillis = publishTimeoutMillis
+    )
+
+  companion object {
+    private const val TIMEOUT_MILLIS = 5000L
+
+    private val inProgressMovieItem =
+      MovieItem(
+        id = "1",
+        movieName = "Test",
+        landscapePoster = 1,
+        playbackUri = "Test",
+        platformSpecificPlaybackUri = "Test",
+        platformType = PlatformType.TYPE_ANDROID_TV,
+        releaseDate = 1L,
+        availability = 1,
+        durationMillis = 1L,
+        genre = "Test",
+        contentRatingAgency = "ContentRatingAgency",
+        contentRating = "Test",
+        currentlyWatching = true,
+        watchNextType = WatchNextType.TYPE_CONTINUE,
+        lastEngagementTimeMillis = 9078563412L,
+        lastPlaybackTimeMillis = 123456789L
+      )
+  }
+}
@@ -0,0 +1,85 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.watch.publish
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.google.samples.quickstart.engagesdksamples.watch.data.converters.ItemToEntityConverter
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.SyntheticMovieGenerator
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+class PayloadBudgetTest {
+
+  private val movies =
+    SyntheticMovieGenerator(NUM_GENRES, SEED).generate(NUM_MOVIES, NUM_IN_PROGRESS)
+  private val entities = movies.map { ItemToEntityConverter.convertMovie(it) }
+
+  @Test
+  fun plan_withinBudget_keepsAllEntitiesTest() {
+    val planned = PayloadBudget().plan(entities)
+
+    assertEquals(entities, planned.entities)
+    assertEquals(0, planned.droppedEntities)
+    assertEquals(entities.sumOf { ParcelSizeEstimator.sizeOf(it) }, planned.payloadBytes)
+  }
+
+  @Test
+  fun plan_overBudget_keepsEntitiesThatFitInOrderTest() {
+    val budgetBytes = ParcelSizeEstimator.sizeOf(entities[0]) * 5 / 2
+
+    val planned = PayloadBudget(budgetBytes).plan(entities)
+
+    assertTrue(planned.entities.isNotEmpty())
+    assertEquals(entities.size, planned.entities.size + planned.droppedEntities)
+    assertEquals(planned.entities.sumOf { ParcelSizeEstimator.sizeOf(it) }, planned.payloadBytes)
+    assertTrue(planned.payloadBytes <= budgetBytes)
+    // Kept entities keep their order, and each dropped entity did not fit when it was reached.
+    var keptIndex = 0
+    var payloadBytes = 0
+    for (entity in entities) {
+      if (keptIndex < planned.entities.size && planned.entities[keptIndex] === entity) {
+        payloadBytes += ParcelSizeEstimator.sizeOf(entity)
+        keptIndex++
+      } else {
+        assertTrue(payloadBytes + ParcelSizeEstimator.sizeOf(entity) > budgetBytes)
+      }
+    }
+    assertEquals(planned.entities.size, keptIndex)
+  }
+
+  @Test
+  fun plan_oversizedEntity_dropsOnlyThatEntityTest() {
+    val budgetBytes = ParcelSizeEstimator.sizeOf(entities[0]) * 2
+    val oversized =
+      ItemToEntityConverter.convertMovie(
+        movies[0].copy(id = "oversized", movieName = "x".repeat(budgetBytes))
+      )
+
+    val planned = PayloadBudget(budgetBytes).plan(listOf(oversized, entities[0]))
+
+    assertEquals(listOf(entities[0]), planned.entities)
+    assertEquals(1, planned.droppedEntities)
+  }
+
+  companion object {
+    private const val NUM_GENRES = 4
+    private const val NUM_MOVIES = 20
+    private const val NUM_IN_PROGRESS = 5
+    private const val SEED = 7L
+  }
+}
@@ -0,0 +1,133 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.watch.publish
+
+import android.os.Bundle
+import android.util.Log
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import com.google.android.engage.video.datamodel.MovieEntity
+import com.google.samples.quickstart.engagesdksamples.watch.data.converters.EntityPartCache
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.MovieItem
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.SyntheticMovieGenerator
+import org.junit.After
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Measures what publishing costs in binder IPC by sending clusters of generated movies to a
+ * [FakeEngageService] in another process. Each combination of entity count and poster count per
+ * entity is sent [ITERATIONS] times after [WARMUP_ITERATIONS] unmeasured sends. The median and 90th
+ * percentile latency, payload size and throughput of each combination are logged and sent as
+ * instrumentation status, so clusters can be sized from them.
+ *
+ * The counts can be overridden with the comma separated instrumentation arguments entityCounts and
+ * imageCounts.
+ */
+@RunWith(AndroidJUnit4::class)
+class PublishIpcBenchmarkTest {
+
+  private lateinit var connection: FakeEngageService.Connection
+
+  @Before
+  fun setUp() {
+    // The test APK's context, which declares the service.
+    connection =
+      FakeEngageService.Connection.bind(InstrumentationRegistry.getInstrumentation().context)
+  }
+
+  @After
+  fun tearDown() {
+    connection.close()
+  }
+
+  @Test
+  fun publishLatencyByEntityAndImageCountTest() {
+    val arguments = InstrumentationRegistry.getArguments()
+    val entityCounts = parseCounts(arguments.getString("entityCounts"), DEFAULT_ENTITY_COUNTS)
+    val imageCounts = parseCounts(arguments.getString("imageCounts"), DEFAULT_IMAGE_COUNTS)
+    val movies =
+      SyntheticMovieGenerator(NUM_GENRES, SEED).generate(entityCounts.maxOrNull() ?: 0)
+
+    for (imageCount in imageCounts) {
+      val parts = EntityPartCache()
+      val entities = movies.map { convertWithPosters(it, imageCount, parts) }
+      for (entityCount in entityCounts) {
+        val cluster = entities.subList(0, entityCount)
+        repeat(WARMUP_ITERATIONS) { connection.publish(cluster) }
+        val latenciesNanos = LongArray(ITERATIONS) { connection.publish(cluster) }.sorted()
+
+        val medianNanos = latenciesNanos[ITERATIONS / 2]
+        val payloadBytes = cluster.sumOf { ParcelSizeEstimator.sizeOf(it) }
+        val results = Bundle()
+        results.putInt("entities", entityCount)
+        results.putInt("images_per_entity", imageCount)
+        results.putInt("payload_bytes", payloadBytes)
+        results.putLong("median_micros", medianNanos / 1_000L)
+        results.putLong("p90_micros", latenciesNanos[ITERATIONS * 9 / 10] / 1_000L)
+        results.putLong("calls_per_second", 1_000_000_000L / maxOf(1L, medianNanos))
+        results.putLong("bytes_per_second", payloadBytes * 1_000_000_000L / maxOf(1L, medianNanos))
+        Log.i(TAG, "publishLatencyByEntityAndImageCountTest: $results")
+        InstrumentationRegistry.getInstrumentation().sendStatus(/* resultCode= */ 0, results)
+
+        assertTrue(medianNanos > 0)
+      }
+    }
+  }
+
+  /**
+   * Converts [movie] as ItemToEntityConverter does, but with [imageCount] distinct posters instead
+   * of one.
+   */
+  private fun convertWithPosters(
+    movie: MovieItem,
+    imageCount: Int,
+    parts: EntityPartCache
+  ): MovieEntity {
+    val builder =
+      MovieEntity.Builder()
+        .setName(movie.movieName)
+        .setEntityId(movie.id)
+        .setPlayBackUri(parts.uri(movie.playbackUri))
+        .addPlatformSpecificPlaybackUri(
+          parts.platformSpecificUri(movie.platformSpecificPlaybackUri, movie.platformType)
+        )
+        .setReleaseDateEpochMillis(movie.releaseDate)
+        .setAvailability(movie.availability)
+        .setDurationMillis(movie.durationMillis)
+        .addGenre(movie.genre)
+        .addContentRating(parts.rating(movie.contentRatingAgency, movie.contentRating))
+    for (i in 0 until imageCount) {
+      // Offset resource ids give each poster its own URI.
+      builder.addPosterImage(parts.posterImage(movie.landscapePoster + i))
+    }
+    return builder.build()
+  }
+
+  private fun parseCounts(argument: String?, default: List<Int>): List<Int> =
+    argument?.split(',')?.map { it.trim().toInt() } ?: default
+
+  companion object {
+    private val TAG = PublishIpcBenchmarkTest::class.java.simpleName
+    private val DEFAULT_ENTITY_COUNTS = listOf(1, 5, 10, 25, 50, 100)
+    private val DEFAULT_IMAGE_COUNTS = listOf(1, 2, 4)
+    private const val WARMUP_ITERATIONS = 20
+    private const val ITERATIONS = 200
+    private const val NUM_GENRES = 5
+    private const val SEED = 3L
+  }
+}
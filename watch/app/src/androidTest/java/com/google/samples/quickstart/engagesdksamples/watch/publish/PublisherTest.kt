@@ -18,20 +18,24 @@ import android.content.Context
 import androidx.test.core.app.ApplicationProvider
 import androidx.test.ext.junit.runners.AndroidJUnit4
 import androidx.work.Configuration
+import androidx.work.ExistingPeriodicWorkPolicy
+import androidx.work.PeriodicWorkRequestBuilder
+import androidx.work.WorkInfo
 import androidx.work.WorkManager
 import androidx.work.testing.SynchronousExecutor
 import androidx.work.testing.WorkManagerTestInitHelper
-import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.PERIODIC_WORKER_NAME_CONTINUATION
-import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.PERIODIC_WORKER_NAME_FEATURED
+import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.PERIODIC_WORKER_NAME_OUTBOX
 import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.PERIODIC_WORKER_NAME_RECOMMENDATIONS
-import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.PERIODIC_WORKER_NAME_USER_ACCOUNT_MANAGEMENT
-import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.WORKER_NAME_CONTINUATION
-import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.WORKER_NAME_FEATURED
-import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.WORKER_NAME_RECOMMENDATIONS
+import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.WORKER_NAME_ACCOUNT_TRANSITION
+import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.WORKER_NAME_OUTBOX
+import com.google.samples.quickstart.engagesdksamples.watch.publish.Publisher.publishAccountTransition
 import com.google.samples.quickstart.engagesdksamples.watch.publish.Publisher.publishContinuationClusters
 import com.google.samples.quickstart.engagesdksamples.watch.publish.Publisher.publishFeaturedClusters
 import com.google.samples.quickstart.engagesdksamples.watch.publish.Publisher.publishPeriodically
 import com.google.samples.quickstart.engagesdksamples.watch.publish.Publisher.publishRecommendationClusters
+import java.util.concurrent.TimeUnit
+import kotlinx.coroutines.runBlocking
+import org.junit.Assert.assertEquals
 import org.junit.Assert.assertTrue
 import org.junit.Before
 import org.junit.Test
@@ -54,29 +58,57 @@ class PublisherTest {
 
   @Test
   fun publishRecommendationsStartsWorkTest() {
-    publishRecommendationClusters(context)
-    assertSetStateWorkIsQueuedHelper(WORKER_NAME_RECOMMENDATIONS)
+    runBlocking { publishRecommendationClusters(context).join() }
+    assertSetStateWorkIsQueuedHelper(WORKER_NAME_OUTBOX)
   }
 
   @Test
   fun publishFeaturedStartsWorkTest() {
-    publishFeaturedClusters(context)
-    assertSetStateWorkIsQueuedHelper(WORKER_NAME_FEATURED)
+    runBlocking { publishFeaturedClusters(context).join() }
+    assertSetStateWorkIsQueuedHelper(WORKER_NAME_OUTBOX)
   }
 
   @Test
   fun publishContinuationStartsWorkTest() {
-    publishContinuationClusters(context)
-    assertSetStateWorkIsQueuedHelper(WORKER_NAME_CONTINUATION)
+    runBlocking { publishContinuationClusters(context).join() }
+    assertSetStateWorkIsQueuedHelper(WORKER_NAME_OUTBOX)
   }
 
   @Test
   fun publishPeriodicWorkersTest() {
     publishPeriodically(context)
-    assertSetStateWorkIsQueuedHelper(PERIODIC_WORKER_NAME_RECOMMENDATIONS)
-    assertSetStateWorkIsQueuedHelper(PERIODIC_WORKER_NAME_FEATURED)
-    assertSetStateWorkIsQueuedHelper(PERIODIC_WORKER_NAME_CONTINUATION)
-    assertSetStateWorkIsQueuedHelper(PERIODIC_WORKER_NAME_USER_ACCOUNT_MANAGEMENT)
+    assertSetStateWorkIsQueuedHelper(PERIODIC_WORKER_NAME_OUTBOX)
+  }
+
+  @Test
+  fun publishPeriodicallyCancelsLegacyPeriodicWorkTest() {
+    val legacyRequest =
+      PeriodicWorkRequestBuilder<EngageServiceWorker>(24, TimeUnit.HOURS).build()
+    workManager
+      .enqueueUniquePeriodicWork(
+        PERIODIC_WORKER_NAME_RECOMMENDATIONS,
+        ExistingPeriodicWorkPolicy.KEEP,
+        legacyRequest
+      )
+      .result
+      .get()
+
+    publishPeriodically(context)
+
+    val workInfo = workManager.getWorkInfosForUniqueWork(PERIODIC_WORKER_NAME_RECOMMENDATIONS).get()
+    assertEquals(WorkInfo.State.CANCELLED, workInfo.single().state)
+  }
+
+  @Test
+  fun publishAccountTransitionQueuesOutboxDeliveryTest() {
+    runBlocking { publishContinuationClusters(context).join() }
+
+    publishAccountTransition(context)
+
+    // The delivery cancelled by the transition is replaced, so the entry is still delivered.
+    val workInfo = workManager.getWorkInfosForUniqueWork(WORKER_NAME_OUTBOX).get()
+    assertTrue(workInfo.any { it.state != WorkInfo.State.CANCELLED })
+    assertSetStateWorkIsQueuedHelper(WORKER_NAME_ACCOUNT_TRANSITION)
   }
 
   private fun assertSetStateWorkIsQueuedHelper(workName: String) {
@@ -0,0 +1,110 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.watch.ui.containers
+
+import android.os.Bundle
+import androidx.compose.foundation.lazy.LazyRow
+import androidx.compose.runtime.Composable
+import androidx.compose.runtime.SideEffect
+import androidx.compose.runtime.getValue
+import androidx.compose.runtime.mutableStateOf
+import androidx.compose.runtime.setValue
+import androidx.compose.ui.test.junit4.createComposeRule
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.MovieItem
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.TestData
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Counts card compositions while a carousel's movies change, and reports the counts as
+ * instrumentation status. Only the cards of changed movies should be recomposed. The cards are
+ * added with the carousels' own [movieCards], wrapped in [CountedMovieCard] to count them.
+ */
+@RunWith(AndroidJUnit4::class)
+class CarouselRecompositionTest {
+
+  @get:Rule val composeTestRule = createComposeRule()
+
+  private val compositionCounts = mutableMapOf<String, Int>()
+  private val countCompositions: (String) -> Unit = { movieId ->
+    compositionCounts[movieId] = (compositionCounts[movieId] ?: 0) + 1
+  }
+  private val onWatch: (MovieItem) -> Unit = {}
+
+  @Test
+  fun updatingOneMovieRecomposesOnlyItsCardTest() {
+    var movies by mutableStateOf(TestData().getTestData())
+    composeTestRule.setContent { CountedMovieCarousel(movies) }
+    composeTestRule.waitForIdle()
+    val initialCompositions = compositionCounts.values.sum()
+    assertTrue(initialCompositions > 0)
+
+    compositionCounts.clear()
+    val changedMovie = movies[0].copy(currentlyWatching = true, lastPlaybackTimeMillis = 1L)
+    movies = movies.map { movie -> if (movie.id == changedMovie.id) changedMovie else movie }
+    composeTestRule.waitForIdle()
+
+    reportCompositions(initialCompositions, compositionCounts.values.sum())
+    assertEquals(mapOf(changedMovie.id to 1), compositionCounts.toMap())
+  }
+
+  @Test
+  fun reorderingMoviesRecomposesNoCardsTest() {
+    var movies by mutableStateOf(TestData().getTestData())
+    composeTestRule.setContent { CountedMovieCarousel(movies) }
+    composeTestRule.waitForIdle()
+
+    compositionCounts.clear()
+    // Swapping two cards moves them, keyed by id, without recomposing them.
+    movies = listOf(movies[1], movies[0]) + movies.drop(2)
+    composeTestRule.waitForIdle()
+
+    assertEquals(emptyMap<String, Int>(), compositionCounts.toMap())
+  }
+
+  @Composable
+  private fun CountedMovieCarousel(movieList: List<MovieItem>) {
+    LazyRow {
+      movieCards(movieList, MOVIE_CARD_CONTENT_TYPE) { movie ->
+        CountedMovieCard(movie, onWatch, countCompositions)
+      }
+    }
+  }
+
+  private fun reportCompositions(initialCompositions: Int, updateCompositions: Int) {
+    val results =
+      Bundle().apply {
+        putInt("initial_card_compositions", initialCompositions)
+        putInt("update_card_compositions", updateCompositions)
+      }
+    InstrumentationRegistry.getInstrumentation().sendStatus(/* resultCode= */ 0, results)
+  }
+}
+
+/** Calls onComposed with the movie's id each time the card is composed rather than skipped. */
+@Composable
+private fun CountedMovieCard(
+  movieItem: MovieItem,
+  onWatch: (MovieItem) -> Unit,
+  onComposed: (String) -> Unit
+) {
+  SideEffect { onComposed(movieItem.id) }
+  MovieCard(movieItem = movieItem, onWatch = onWatch)
+}
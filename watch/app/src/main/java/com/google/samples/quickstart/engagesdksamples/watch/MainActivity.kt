@@ -23,7 +23,7 @@ import androidx.compose.material3.Surface
 import androidx.compose.ui.Modifier
 import com.google.android.gms.oss.licenses.OssLicensesMenuActivity
 import com.google.samples.quickstart.engagesdksamples.watch.publish.Publisher
-import com.google.samples.quickstart.engagesdksamples.watch.ui.home.HomeScreen
+import com.google.samples.quickstart.engagesdksamples.watch.ui.home.HomeRoute
 import com.google.samples.quickstart.engagesdksamples.watch.ui.theme.EngageWatchSampleApplicationTheme
 
 class MainActivity : ComponentActivity() {
@@ -31,11 +31,11 @@ class MainActivity : ComponentActivity() {
   override fun onCreate(savedInstanceState: Bundle?) {
     super.onCreate(savedInstanceState)
     val viewModel: MainActivityViewModel by viewModels()
+    val showOssLicense = { showOssLicenses() }
     setContent {
       EngageWatchSampleApplicationTheme {
         Surface(modifier = Modifier) {
-          HomeScreen(context = applicationContext, showOssLicense = { showOssLicenses() })
-            .Home(viewModel)
+          HomeRoute(viewModel = viewModel, showOssLicense = showOssLicense)
         }
       }
     }
@@ -17,25 +17,103 @@ package com.google.samples.quickstart.engagesdksamples.watch
 import android.app.Application
 import androidx.lifecycle.AndroidViewModel
 import androidx.lifecycle.viewModelScope
+import com.google.android.engage.video.datamodel.WatchNextType
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.HomeFeed
 import com.google.samples.quickstart.engagesdksamples.watch.data.model.MovieItem
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.WatchProgress
 import com.google.samples.quickstart.engagesdksamples.watch.data.room.WatchDataRepo
 import com.google.samples.quickstart.engagesdksamples.watch.data.room.WatchDatabase
+import com.google.samples.quickstart.engagesdksamples.watch.publish.ForegroundPublisher
+import com.google.samples.quickstart.engagesdksamples.watch.publish.Publisher
+import com.google.samples.quickstart.engagesdksamples.watch.ui.home.DrawerState
+import com.google.samples.quickstart.engagesdksamples.watch.ui.home.SignInState
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.SharingStarted
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.flow.stateIn
+import kotlinx.coroutines.flow.update
 import kotlinx.coroutines.launch
 
 class MainActivityViewModel(application: Application) : AndroidViewModel(application) {
-  private val movieRepo = WatchDataRepo(WatchDatabase.getDatabase(application, viewModelScope))
-  val movies = movieRepo.allMovies
-  val currentlyWatchingMovies = movieRepo.allCurrentlyWatchingMovies
+  private val foregroundPublisher = ForegroundPublisher.getInstance(application)
 
-  fun updateMovieItem(movieItem: MovieItem) {
-    viewModelScope.launch { movieRepo.updateMovieItem(movieItem) }
+  // Progress changes are published as soon as they are written, rather than at the next periodic
+  // publish.
+  private val movieRepo =
+    WatchDataRepo(
+      WatchDatabase.getDatabase(application),
+      viewModelScope,
+      onWatchProgressWritten = foregroundPublisher::publishContinuation
+    )
+
+  // Shared while the UI collects them, and kept alive briefly after it stops so a configuration
+  // change does not restart the queries.
+  val homeFeed: StateFlow<HomeFeed> =
+    movieRepo.homeFeed.stateIn(viewModelScope, whileSubscribed, HomeFeed.EMPTY)
+
+  /** Backed by the account stored in the database, so it survives process restarts. */
+  val signInState: StateFlow<SignInState> =
+    movieRepo.accountSignedIn
+      .map { signedIn -> if (signedIn) SignInState.SIGNED_IN else SignInState.SIGNED_OFF }
+      .stateIn(viewModelScope, whileSubscribed, SignInState.SIGNED_OFF)
+
+  private val mutableDrawerState = MutableStateFlow(DrawerState.CLOSED)
+  val drawerState: StateFlow<DrawerState> = mutableDrawerState.asStateFlow()
+
+  fun toggleDrawer() {
+    mutableDrawerState.update { drawerState ->
+      if (drawerState == DrawerState.OPEN) DrawerState.CLOSED else DrawerState.OPEN
+    }
+  }
+
+  /** Starts or resumes watching [movieItem], adding it to the continue watching carousel. */
+  fun watchMovie(movieItem: MovieItem) {
+    movieRepo.updateWatchProgress(
+      WatchProgress(
+        movieId = movieItem.id,
+        currentlyWatching = true,
+        watchNextType = WatchNextType.TYPE_CONTINUE,
+        lastEngagementTimeMillis = SAMPLE_ENGAGEMENT_TIME_MILLIS,
+        playbackAdvanceMillis = PLAYBACK_STEP_MILLIS
+      )
+    )
+  }
+
+  /** Removes [movieItem] from the continue watching carousel. */
+  fun removeFromContinueWatching(movieItem: MovieItem) {
+    movieRepo.updateWatchProgress(
+      WatchProgress(
+        movieId = movieItem.id,
+        currentlyWatching = false,
+        watchNextType = WatchNextType.TYPE_UNKNOWN,
+        lastEngagementTimeMillis = SAMPLE_ENGAGEMENT_TIME_MILLIS,
+        playbackAdvanceMillis = PLAYBACK_STEP_MILLIS
+      )
+    )
   }
 
   fun signIn() {
-    viewModelScope.launch { movieRepo.signIntoAccount() }
+    viewModelScope.launch {
+      movieRepo.signIntoAccount()
+      Publisher.publishAccountTransition(getApplication())
+    }
   }
 
   fun signOut() {
-    viewModelScope.launch { movieRepo.signOutOfAccount() }
+    viewModelScope.launch {
+      movieRepo.signOutOfAccount()
+      Publisher.publishAccountTransition(getApplication())
+    }
+  }
+
+  companion object {
+    private const val STOP_TIMEOUT_MILLIS = 5000L
+    private val whileSubscribed = SharingStarted.WhileSubscribed(STOP_TIMEOUT_MILLIS)
+
+    // The sample has no player, so each play action advances playback by a fixed amount.
+    private const val PLAYBACK_STEP_MILLIS = 60000000L
+    private const val SAMPLE_ENGAGEMENT_TIME_MILLIS = 60000000L
   }
 }
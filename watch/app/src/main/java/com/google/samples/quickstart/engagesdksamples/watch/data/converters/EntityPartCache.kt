@@ -0,0 +1,94 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.watch.data.converters
+
+import android.net.Uri
+import android.util.LruCache
+import com.google.android.engage.common.datamodel.DisplayTimeWindow
+import com.google.android.engage.common.datamodel.Image
+import com.google.android.engage.common.datamodel.ImageTheme
+import com.google.android.engage.common.datamodel.PlatformSpecificUri
+import com.google.android.engage.common.datamodel.RatingSystem
+
+/**
+ * Reuses the immutable parts Engage entities are built from. Posters, ratings and availability
+ * windows are shared by many movies, and a movie's URIs are the same every time it is published,
+ * so each part is built once per distinct input and then looked up.
+ *
+ * Each kind of part keeps up to [maxEntries] entries. With [maxEntries] of 0, nothing is cached and
+ * every part is built anew. Safe to use from multiple threads.
+ */
+class EntityPartCache(maxEntries: Int = DEFAULT_MAX_ENTRIES) {
+
+  init {
+    require(maxEntries >= 0) { "maxEntries must not be negative." }
+  }
+
+  private val posterImages = newCache<Int, Image>(maxEntries)
+  private val uris = newCache<String, Uri>(maxEntries)
+  private val platformSpecificUris = newCache<Pair<String, Int>, PlatformSpecificUri>(maxEntries)
+  private val timeWindows = newCache<Pair<Long, Long>, DisplayTimeWindow>(maxEntries)
+  private val ratings = newCache<Pair<String, String>, RatingSystem>(maxEntries)
+
+  fun posterImage(resourceId: Int): Image =
+    posterImages.getOrPut(resourceId) {
+      Image.Builder()
+        .setImageUri(Uri.parse("android.resource://" + PACKAGE_NAME + "/" + resourceId))
+        .setImageWidthInPixel(POSTER_WIDTH_PX)
+        .setImageHeightInPixel(POSTER_HEIGHT_PX)
+        .setImageTheme(ImageTheme.IMAGE_THEME_LIGHT)
+        .build()
+    }
+
+  fun uri(uriString: String): Uri = uris.getOrPut(uriString) { Uri.parse(uriString) }
+
+  fun platformSpecificUri(uriString: String, platformType: Int): PlatformSpecificUri =
+    platformSpecificUris.getOrPut(uriString to platformType) {
+      PlatformSpecificUri.Builder()
+        .setActionUri(uri(uriString))
+        .setPlatformType(platformType)
+        .build()
+    }
+
+  fun timeWindow(startTimestampMillis: Long, endTimestampMillis: Long): DisplayTimeWindow =
+    timeWindows.getOrPut(startTimestampMillis to endTimestampMillis) {
+      DisplayTimeWindow.Builder()
+        .setStartTimestampMillis(startTimestampMillis)
+        .setEndTimestampMillis(endTimestampMillis)
+        .build()
+    }
+
+  fun rating(agencyName: String, rating: String): RatingSystem =
+    ratings.getOrPut(agencyName to rating) {
+      RatingSystem.Builder().setAgencyName(agencyName).setRating(rating).build()
+    }
+
+  companion object {
+    const val DEFAULT_MAX_ENTRIES = 1024
+    private const val POSTER_WIDTH_PX = 408
+    private const val POSTER_HEIGHT_PX = 960
+
+    private fun <K : Any, V : Any> newCache(maxEntries: Int): LruCache<K, V>? =
+      if (maxEntries > 0) LruCache(maxEntries) else null
+
+    private inline fun <K : Any, V : Any> LruCache<K, V>?.getOrPut(key: K, create: () -> V): V {
+      if (this == null) {
+        return create()
+      }
+      // Two threads may both build a missing part; either result is equivalent.
+      return get(key) ?: create().also { put(key, it) }
+    }
+  }
+}
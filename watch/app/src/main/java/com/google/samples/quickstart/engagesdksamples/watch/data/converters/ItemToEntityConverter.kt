@@ -14,60 +14,50 @@
  */
 package com.google.samples.quickstart.engagesdksamples.watch.data.converters
 
-import android.net.Uri
-import com.google.android.engage.common.datamodel.Image
 import com.google.android.engage.video.datamodel.MovieEntity
 import com.google.samples.quickstart.engagesdksamples.watch.data.model.MovieItem
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.coroutineScope
 
 const val PACKAGE_NAME: String = "com.google.samples.quickstart.engagesdksamples.watch"
 
 /** Converts Room Entities to Engage Entitis */
 object ItemToEntityConverter {
+  /** Lists smaller than this are converted sequentially by [convertAll]. */
+  const val PARALLEL_THRESHOLD = 64
+
+  private val sharedParts = EntityPartCache()
+
   /**
    * Converts a [MovieItem] instance into a [MovieEntity] instance that can be used to construct
    * clusters for publishing
    *
    * @param movie - [MovieItem] instance that will be converted to a [MovieEntity]
+   * @param parts - Supplies the images, URIs, ratings and time windows of the entity. Parts are
+   *   reused across calls unless an uncaching [EntityPartCache] is passed.
    * @return Returns a [MovieEntity] instance from a given [MovieItem]
    */
-   fun convertMovie(movie: MovieItem): MovieEntity {
+  fun convertMovie(movie: MovieItem, parts: EntityPartCache = sharedParts): MovieEntity {
     val movieBuilder: MovieEntity.Builder =
       MovieEntity.Builder()
         .setName(movie.movieName)
         .setEntityId(movie.id)
-        .addPosterImage(
-          Image.Builder()
-            .setImageUri(
-              Uri.parse("android.resource://" + PACKAGE_NAME + "/" + movie.landscapePoster)
-            )
-            .setImageWidthInPixel(408)
-            .setImageHeightInPixel(960)
-            .setImageTheme(ImageTheme.IMAGE_THEME_LIGHT)
-            .build()
-        )
-        .setPlayBackUri(Uri.parse(movie.playbackUri))
+        .addPosterImage(parts.posterImage(movie.landscapePoster))
+        .setPlayBackUri(parts.uri(movie.playbackUri))
         .addPlatformSpecificPlaybackUri(
-          PlatformSpecificUri.Builder()
-            .setActionUri(Uri.parse(movie.platformSpecificPlaybackUri))
-            .setPlatformType(movie.platformType)
-            .build()
+          parts.platformSpecificUri(movie.platformSpecificPlaybackUri, movie.platformType)
         )
         .setReleaseDateEpochMillis(movie.releaseDate)
         .setAvailability(movie.availability)
         .setDurationMillis(movie.durationMillis)
         .addGenre(movie.genre)
         .addAvailabilityTimeWindow(
-          DisplayTimeWindow.Builder()
-            .setStartTimestampMillis(movie.availabilityStartTimeMillis)
-            .setEndTimestampMillis(movie.availabilityEndTimeMillis)
-            .build()
-        )
-        .addContentRating(
-          RatingSystem.Builder()
-            .setAgencyName(movie.contentRatingAgency)
-            .setRating(movie.contentRating)
-            .build()
+          parts.timeWindow(movie.availabilityStartTimeMillis, movie.availabilityEndTimeMillis)
         )
+        .addContentRating(parts.rating(movie.contentRatingAgency, movie.contentRating))
     if (movie.currentlyWatching) {
       movieBuilder
         .setWatchNextType(movie.watchNextType)
@@ -76,4 +66,28 @@ object ItemToEntityConverter {
     }
     return movieBuilder.build()
   }
+
+  /**
+   * Converts [movies] as [convertMovie] does and returns the entities in the same order. Lists of
+   * at least [PARALLEL_THRESHOLD] movies are split into one contiguous chunk per processor and
+   * converted concurrently on [dispatcher]; shorter lists are converted in the calling coroutine.
+   */
+  suspend fun convertAll(
+    movies: List<MovieItem>,
+    parts: EntityPartCache = sharedParts,
+    dispatcher: CoroutineDispatcher = Dispatchers.Default
+  ): List<MovieEntity> {
+    val numChunks = Runtime.getRuntime().availableProcessors()
+    if (movies.size < PARALLEL_THRESHOLD || numChunks == 1) {
+      return movies.map { movie -> convertMovie(movie, parts) }
+    }
+    val chunkSize = (movies.size + numChunks - 1) / numChunks
+    return coroutineScope {
+      movies
+        .chunked(chunkSize)
+        .map { chunk -> async(dispatcher) { chunk.map { movie -> convertMovie(movie, parts) } } }
+        .awaitAll()
+        .flatten()
+    }
+  }
 }
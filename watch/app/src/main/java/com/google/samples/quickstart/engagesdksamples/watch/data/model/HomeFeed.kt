@@ -0,0 +1,42 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.watch.data.model
+
+/**
+ * The movies shown on the home screen, split into the shelves they appear on. Movies being watched
+ * only appear in [continueWatching]; every other movie is offered in [featured] and [recommended].
+ * The featured cluster published to Engage is a daily selection from these movies rather than all
+ * of them, see FeaturedRotation.
+ */
+data class HomeFeed(
+  val continueWatching: List<MovieItem> = emptyList(),
+  val featured: List<MovieItem> = emptyList(),
+  val recommended: List<MovieItem> = emptyList()
+) {
+  companion object {
+    val EMPTY = HomeFeed()
+
+    /** Partitions [movies] into shelves in a single pass, keeping their relative order. */
+    fun fromMovies(movies: List<MovieItem>): HomeFeed {
+      val (continueWatching, notWatching) = movies.partition { movie -> movie.currentlyWatching }
+      // Featured and recommended hold the same movies, so they share one list.
+      return HomeFeed(
+        continueWatching = continueWatching,
+        featured = notWatching,
+        recommended = notWatching
+      )
+    }
+  }
+}
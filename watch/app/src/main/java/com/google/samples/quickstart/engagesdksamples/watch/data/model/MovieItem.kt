@@ -19,11 +19,15 @@ import androidx.room.Entity
 import androidx.room.PrimaryKey
 import com.google.android.engage.video.datamodel.WatchNextType
 
+/**
+ * A movie and the user's engagement with it. Instances are immutable; to change a movie, store a
+ * [copy] of it. Being immutable lets Compose skip cards whose movie has not changed.
+ */
 @Entity(tableName = MovieItem.TABLE_NAME)
 data class MovieItem(
   @PrimaryKey @ColumnInfo(name = ID) val id: String,
   @ColumnInfo(name = MOVIE_NAME) val movieName: String,
-  @ColumnInfo(name = LANDSCAPE_POSTER) var landscapePoster: Int, // Resource ID
+  @ColumnInfo(name = LANDSCAPE_POSTER) val landscapePoster: Int, // Resource ID
   @ColumnInfo(name = PLATFORM_TYPE) val platformType: Int,
   @ColumnInfo(name = PLATFORM_SPECIFIC_PLAYBACK_URI) val platformSpecificPlaybackUri: String,
   @ColumnInfo(name = PLAYBACK_URI) val playbackUri: String,
@@ -32,18 +36,17 @@ data class MovieItem(
   @ColumnInfo(name = DURATION_MILLIS) val durationMillis: Long, // Epoch ms
   @ColumnInfo(name = GENRE) val genre: String,
   @ColumnInfo(name = CONTENT_RATING_AGENCY) val contentRatingAgency: String,
-  @ColumnInfo(name = CONTENT_RATING) val contentRating: String
-) {
-  @ColumnInfo(name = CURRENTLY_WATCHING) var currentlyWatching: Boolean = false
-  @ColumnInfo(name = WATCH_NEXT_TYPE) var watchNextType: Int = WatchNextType.TYPE_UNKNOWN
+  @ColumnInfo(name = CONTENT_RATING) val contentRating: String,
+  @ColumnInfo(name = CURRENTLY_WATCHING) val currentlyWatching: Boolean = false,
+  @ColumnInfo(name = WATCH_NEXT_TYPE) val watchNextType: Int = WatchNextType.TYPE_UNKNOWN,
   @ColumnInfo(name = LAST_ENGAGEMENT_TIME_MILLIS)
-  var lastEngagementTimeMillis: Long = 0L // Epoch ms
-  var startTimestampMillis: Long = 0L
-  var endTimestampMillis: Long = 0L
-  var availabilityStartTimeMillis: Long = 0L
-  var availabilityEndTimeMillis: Long = 0L
-  @ColumnInfo(name = LAST_PLAYBACK_TIME_MILLIS) var lastPlaybackTimeMillis: Long = 0L // Epoch ms
-
+  val lastEngagementTimeMillis: Long = 0L, // Epoch ms
+  val startTimestampMillis: Long = 0L,
+  val endTimestampMillis: Long = 0L,
+  val availabilityStartTimeMillis: Long = 0L,
+  val availabilityEndTimeMillis: Long = 0L,
+  @ColumnInfo(name = LAST_PLAYBACK_TIME_MILLIS) val lastPlaybackTimeMillis: Long = 0L // Epoch ms
+) {
   companion object {
     const val TABLE_NAME = "movie_table"
     const val ID = "id"
@@ -0,0 +1,41 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.watch.data.model
+
+import androidx.room.ColumnInfo
+import androidx.room.Entity
+import androidx.room.PrimaryKey
+
+/**
+ * Records that the cluster of [publishType] should be delivered to Engage. Entries do not hold the
+ * cluster itself, which is built from the database when it is delivered, so delivering the latest
+ * entry of a cluster also delivers every earlier one.
+ */
+@Entity(tableName = OutboxEntry.TABLE_NAME)
+data class OutboxEntry(
+  @PrimaryKey(autoGenerate = true) @ColumnInfo(name = ID) val id: Long = 0,
+  @ColumnInfo(name = PUBLISH_TYPE) val publishType: String,
+  @ColumnInfo(name = RECORDED_AT_MILLIS) val recordedAtMillis: Long,
+  /** Number of deliveries that failed and were retried. */
+  @ColumnInfo(name = FAILED_ATTEMPTS) val failedAttempts: Int = 0
+) {
+  companion object {
+    const val TABLE_NAME = "publish_outbox"
+    const val ID = "id"
+    const val PUBLISH_TYPE = "publish_type"
+    const val RECORDED_AT_MILLIS = "recorded_at_millis"
+    const val FAILED_ATTEMPTS = "failed_attempts"
+  }
+}
@@ -0,0 +1,102 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.watch.data.model
+
+import com.google.android.engage.common.datamodel.PlatformType
+import com.google.android.engage.video.datamodel.WatchNextType
+import com.google.samples.quickstart.engagesdksamples.watch.R
+import kotlin.random.Random
+
+/**
+ * Generates movie catalogs and viewing histories of any size for tests and benchmarks. Names,
+ * posters, genres, ratings, release dates and durations are drawn from a random source seeded with
+ * [seed], so the same parameters always produce the same movies.
+ */
+class SyntheticMovieGenerator(private val numGenres: Int, private val seed: Long) {
+
+  init {
+    require(numGenres > 0) { "There must be at least one genre." }
+  }
+
+  /**
+   * Returns [numMovies] movies, [numInProgress] of which are being watched. The movies being watched
+   * were engaged with at [latestEngagementTimeMillis] and at up to a day before each other.
+   */
+  fun generate(
+    numMovies: Int,
+    numInProgress: Int = 0,
+    latestEngagementTimeMillis: Long = LATEST_ENGAGEMENT_TIME_MILLIS
+  ): List<MovieItem> {
+    require(numMovies >= 0) { "Number of movies must not be negative." }
+    require(numInProgress in 0..numMovies) {
+      "Cannot mark $numInProgress of $numMovies movies in progress."
+    }
+    val random = Random(seed)
+    val movies =
+      MutableList(numMovies) { index ->
+        MovieItem(
+          id = "$index",
+          movieName = "Title $index",
+          landscapePoster = POSTERS[random.nextInt(POSTERS.size)],
+          platformType = PlatformType.TYPE_ANDROID_TV,
+          platformSpecificPlaybackUri = "https://tv.com/playback/$index",
+          playbackUri = "https://tv.com/playback/$index",
+          releaseDate = random.nextLong(EARLIEST_RELEASE_DATE_MILLIS, LATEST_RELEASE_DATE_MILLIS),
+          availability = AVAILABILITY_AVAILABLE,
+          durationMillis = random.nextLong(MIN_DURATION_MILLIS, MAX_DURATION_MILLIS),
+          genre = "genre_${random.nextInt(numGenres) + 1}",
+          contentRatingAgency = "ContentRatingAgency",
+          contentRating = CONTENT_RATINGS[random.nextInt(CONTENT_RATINGS.size)]
+        )
+      }
+
+    // Partial Fisher-Yates shuffle of the indices picks which movies are being watched.
+    val indices = IntArray(numMovies) { it }
+    var engagementTimeMillis = latestEngagementTimeMillis
+    for (i in 0 until numInProgress) {
+      val swap = i + random.nextInt(numMovies - i)
+      val index = indices[swap]
+      indices[swap] = indices[i]
+      indices[i] = index
+
+      val movie = movies[index]
+      movies[index] =
+        movie.copy(
+          currentlyWatching = true,
+          watchNextType = WatchNextType.TYPE_CONTINUE,
+          lastEngagementTimeMillis = engagementTimeMillis,
+          lastPlaybackTimeMillis = random.nextLong(movie.durationMillis)
+        )
+      engagementTimeMillis -= 1 + random.nextLong(MAX_ENGAGEMENT_GAP_MILLIS)
+    }
+    return movies
+  }
+
+  companion object {
+    /** Catalog sizes performance changes are measured at. */
+    val BENCHMARK_CATALOG_SIZES = listOf(10, 1_000, 100_000, 1_000_000)
+
+    private val POSTERS = intArrayOf(R.drawable.red, R.drawable.yellow, R.drawable.blue)
+    private val CONTENT_RATINGS = listOf("G", "PG", "PG-13", "R")
+    private const val AVAILABILITY_AVAILABLE = 1
+    // Release dates fall between 1970 and 2022.
+    private const val EARLIEST_RELEASE_DATE_MILLIS = 0L
+    private const val LATEST_RELEASE_DATE_MILLIS = 1_640_995_200_000L
+    private const val MIN_DURATION_MILLIS = 60 * 60 * 1000L
+    private const val MAX_DURATION_MILLIS = 3 * 60 * 60 * 1000L
+    private const val MAX_ENGAGEMENT_GAP_MILLIS = 24 * 60 * 60 * 1000L
+    private const val LATEST_ENGAGEMENT_TIME_MILLIS = 1_650_000_000_000L
+  }
+}
@@ -0,0 +1,37 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.watch.data.model
+
+/**
+ * A change to the playback state of the movie [movieId]. Written on its own, without rewriting the
+ * rest of the [MovieItem] row.
+ *
+ * Playback is recorded as [playbackAdvanceMillis] to add to the stored playback time, rather than
+ * as an absolute time computed from a possibly stale [MovieItem], so updates queued before earlier
+ * ones are written still add up.
+ */
+data class WatchProgress(
+  val movieId: String,
+  val currentlyWatching: Boolean,
+  val watchNextType: Int,
+  val lastEngagementTimeMillis: Long, // Epoch ms
+  val playbackAdvanceMillis: Long
+) {
+  /** Returns the single update equivalent to applying this update and then [later]. */
+  fun then(later: WatchProgress): WatchProgress {
+    require(later.movieId == movieId) { "Cannot merge progress of different movies" }
+    return later.copy(playbackAdvanceMillis = playbackAdvanceMillis + later.playbackAdvanceMillis)
+  }
+}
@@ -22,6 +22,7 @@ import com.google.samples.quickstart.engagesdksamples.watch.data.model.Account
 import com.google.samples.quickstart.engagesdksamples.watch.data.model.Account.Companion.ID
 import com.google.samples.quickstart.engagesdksamples.watch.data.model.Account.Companion.SIGNED_IN
 import com.google.samples.quickstart.engagesdksamples.watch.data.model.Account.Companion.TABLE_NAME
+import kotlinx.coroutines.flow.Flow
 
 @Dao
 abstract class AccountDao {
@@ -36,4 +37,8 @@ abstract class AccountDao {
 
   @Query("SELECT $SIGNED_IN FROM $TABLE_NAME WHERE $ID IS '1'")
   abstract suspend fun isAccountSignedIn(): Boolean
+
+  /** Emits whether the account is signed in, and again each time that changes. */
+  @Query("SELECT $SIGNED_IN FROM $TABLE_NAME WHERE $ID IS '1'")
+  abstract fun observeAccountSignedIn(): Flow<Boolean?>
 }
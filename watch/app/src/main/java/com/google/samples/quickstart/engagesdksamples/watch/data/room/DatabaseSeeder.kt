@@ -0,0 +1,91 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.watch.data.room
+
+import androidx.sqlite.db.SupportSQLiteDatabase
+import androidx.sqlite.db.SupportSQLiteStatement
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.Account
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.MovieItem
+
+/**
+ * Writes the initial contents of a newly created [WatchDatabase]. Rows are inserted through one
+ * compiled statement per table inside a single transaction, so seeding a large catalog costs one
+ * commit rather than one per row.
+ *
+ * A prepackaged database file is not used because movie rows store drawable resource ids, which are
+ * only known once the app is built.
+ */
+internal object DatabaseSeeder {
+
+  private const val INSERT_MOVIE =
+    "INSERT OR REPLACE INTO ${MovieItem.TABLE_NAME} (" +
+      "${MovieItem.ID}, ${MovieItem.MOVIE_NAME}, ${MovieItem.LANDSCAPE_POSTER}, " +
+      "${MovieItem.PLATFORM_TYPE}, ${MovieItem.PLATFORM_SPECIFIC_PLAYBACK_URI}, " +
+      "${MovieItem.PLAYBACK_URI}, ${MovieItem.RELEASE_DATE}, ${MovieItem.AVAILABILITY}, " +
+      "${MovieItem.DURATION_MILLIS}, ${MovieItem.GENRE}, ${MovieItem.CONTENT_RATING_AGENCY}, " +
+      "${MovieItem.CONTENT_RATING}, ${MovieItem.CURRENTLY_WATCHING}, " +
+      "${MovieItem.WATCH_NEXT_TYPE}, ${MovieItem.LAST_ENGAGEMENT_TIME_MILLIS}, " +
+      "startTimestampMillis, endTimestampMillis, availabilityStartTimeMillis, " +
+      "availabilityEndTimeMillis, ${MovieItem.LAST_PLAYBACK_TIME_MILLIS}) " +
+      "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)"
+
+  private const val INSERT_ACCOUNT =
+    "INSERT OR REPLACE INTO ${Account.TABLE_NAME} (${Account.ID}, ${Account.SIGNED_IN}) " +
+      "VALUES (?, ?)"
+
+  /** Inserts [movies] and [account] into [db] in one transaction. */
+  fun seed(db: SupportSQLiteDatabase, movies: List<MovieItem>, account: Account) {
+    db.beginTransaction()
+    try {
+      db.compileStatement(INSERT_MOVIE).use { statement ->
+        for (movie in movies) {
+          bindMovie(statement, movie)
+          statement.executeInsert()
+        }
+      }
+      db.compileStatement(INSERT_ACCOUNT).use { statement ->
+        statement.bindString(1, account.id)
+        statement.bindLong(2, if (account.signedIn) 1L else 0L)
+        statement.executeInsert()
+      }
+      db.setTransactionSuccessful()
+    } finally {
+      db.endTransaction()
+    }
+  }
+
+  private fun bindMovie(statement: SupportSQLiteStatement, movie: MovieItem) {
+    statement.bindString(1, movie.id)
+    statement.bindString(2, movie.movieName)
+    statement.bindLong(3, movie.landscapePoster.toLong())
+    statement.bindLong(4, movie.platformType.toLong())
+    statement.bindString(5, movie.platformSpecificPlaybackUri)
+    statement.bindString(6, movie.playbackUri)
+    statement.bindLong(7, movie.releaseDate)
+    statement.bindLong(8, movie.availability.toLong())
+    statement.bindLong(9, movie.durationMillis)
+    statement.bindString(10, movie.genre)
+    statement.bindString(11, movie.contentRatingAgency)
+    statement.bindString(12, movie.contentRating)
+    statement.bindLong(13, if (movie.currentlyWatching) 1L else 0L)
+    statement.bindLong(14, movie.watchNextType.toLong())
+    statement.bindLong(15, movie.lastEngagementTimeMillis)
+    statement.bindLong(16, movie.startTimestampMillis)
+    statement.bindLong(17, movie.endTimestampMillis)
+    statement.bindLong(18, movie.availabilityStartTimeMillis)
+    statement.bindLong(19, movie.availabilityEndTimeMillis)
+    statement.bindLong(20, movie.lastPlaybackTimeMillis)
+  }
+}
@@ -0,0 +1,54 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.watch.data.room
+
+import androidx.room.RoomDatabase
+
+/**
+ * How [WatchDatabase] configures SQLite. The defaults favour the app's workload: the UI reads the
+ * movie table while publishing workers read it in the background and taps write small updates.
+ */
+data class DatabaseTuning(
+  /**
+   * With write-ahead logging, readers see the last committed state while a write is in progress
+   * instead of waiting for it.
+   */
+  val journalMode: RoomDatabase.JournalMode = RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING,
+  /** Threads running queries, matching the number of connections Android pools for reads. */
+  val queryThreads: Int = QUERY_THREADS,
+  /** Compiled statements kept per connection. SQLite on Android allows at most 100. */
+  val statementCacheSize: Int = STATEMENT_CACHE_SIZE,
+  /** Logs every statement Room runs, with its arguments. For profiling only. */
+  val logQueries: Boolean = false
+) {
+  init {
+    require(queryThreads > 0) { "queryThreads must be positive." }
+    require(statementCacheSize in 1..MAX_STATEMENT_CACHE_SIZE) {
+      "statementCacheSize must be between 1 and $MAX_STATEMENT_CACHE_SIZE."
+    }
+  }
+
+  companion object {
+    private const val QUERY_THREADS = 4
+    // Comfortably holds every statement the DAOs prepare.
+    private const val STATEMENT_CACHE_SIZE = 32
+    private const val MAX_STATEMENT_CACHE_SIZE = 100
+
+    val DEFAULT = DatabaseTuning()
+
+    /** Room's behaviour before tuning, for comparison. */
+    val LEGACY = DatabaseTuning(journalMode = RoomDatabase.JournalMode.TRUNCATE)
+  }
+}
@@ -18,11 +18,15 @@ import androidx.room.Dao
 import androidx.room.Insert
 import androidx.room.OnConflictStrategy
 import androidx.room.Query
-import androidx.room.Update
+import androidx.room.Transaction
 import com.google.samples.quickstart.engagesdksamples.watch.data.model.MovieItem
 import com.google.samples.quickstart.engagesdksamples.watch.data.model.MovieItem.Companion.CURRENTLY_WATCHING
 import com.google.samples.quickstart.engagesdksamples.watch.data.model.MovieItem.Companion.ID
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.MovieItem.Companion.LAST_ENGAGEMENT_TIME_MILLIS
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.MovieItem.Companion.LAST_PLAYBACK_TIME_MILLIS
 import com.google.samples.quickstart.engagesdksamples.watch.data.model.MovieItem.Companion.TABLE_NAME
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.MovieItem.Companion.WATCH_NEXT_TYPE
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.WatchProgress
 import kotlinx.coroutines.flow.Flow
 
 /** Data access object for entities table. */
@@ -40,14 +44,41 @@ abstract class MovieDao {
   @Query("SELECT * FROM $TABLE_NAME WHERE $CURRENTLY_WATCHING IS :currentlyWatching")
   abstract suspend fun loadMovieIsCurrentlyWatching(currentlyWatching: Boolean): List<MovieItem>
 
+  /** Loads all [MovieItem] instances, ordered by id so every load lists them in the same order */
+  @Query("SELECT * FROM $TABLE_NAME ORDER BY $ID")
+  abstract suspend fun loadMovieItemsOrderedById(): List<MovieItem>
+
   /** Loads all [MovieItem] instances */
   @Query("SELECT * FROM $TABLE_NAME")
   abstract fun loadAllMovieItems(): Flow<List<MovieItem>>
 
-  /** Loads all currently watching [MovieItem] instances, to be used for the UI */
-  @Query("SELECT * FROM $TABLE_NAME WHERE $CURRENTLY_WATCHING = 1")
-  abstract fun loadAllCurrentlyWatchingMovies(): Flow<List<MovieItem>>
+  /** Updates only the playback columns of the movie [id], advancing its playback time */
+  @Query(
+    "UPDATE $TABLE_NAME SET $CURRENTLY_WATCHING = :currentlyWatching, " +
+      "$WATCH_NEXT_TYPE = :watchNextType, " +
+      "$LAST_ENGAGEMENT_TIME_MILLIS = :lastEngagementTimeMillis, " +
+      "$LAST_PLAYBACK_TIME_MILLIS = $LAST_PLAYBACK_TIME_MILLIS + :playbackAdvanceMillis " +
+      "WHERE $ID IS :id"
+  )
+  abstract suspend fun updateWatchProgress(
+    id: String,
+    currentlyWatching: Boolean,
+    watchNextType: Int,
+    lastEngagementTimeMillis: Long,
+    playbackAdvanceMillis: Long
+  )
 
-  /** Updates the [MovieItem] instance */
-  @Update abstract suspend fun updateMovieItem(movieItem: MovieItem)
+  /** Writes a batch of [WatchProgress] updates in a single transaction */
+  @Transaction
+  open suspend fun updateWatchProgress(updates: List<WatchProgress>) {
+    for (progress in updates) {
+      updateWatchProgress(
+        progress.movieId,
+        progress.currentlyWatching,
+        progress.watchNextType,
+        progress.lastEngagementTimeMillis,
+        progress.playbackAdvanceMillis
+      )
+    }
+  }
 }
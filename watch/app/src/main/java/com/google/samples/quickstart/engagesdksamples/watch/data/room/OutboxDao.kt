@@ -0,0 +1,44 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.watch.data.room
+
+import androidx.room.Dao
+import androidx.room.Insert
+import androidx.room.Query
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.OutboxEntry
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.OutboxEntry.Companion.FAILED_ATTEMPTS
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.OutboxEntry.Companion.ID
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.OutboxEntry.Companion.PUBLISH_TYPE
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.OutboxEntry.Companion.TABLE_NAME
+
+@Dao
+abstract class OutboxDao {
+  @Insert abstract suspend fun insertEntry(entry: OutboxEntry): Long
+
+  /** Returns every entry not yet delivered, oldest first. */
+  @Query("SELECT * FROM $TABLE_NAME ORDER BY $ID")
+  abstract suspend fun loadPendingEntries(): List<OutboxEntry>
+
+  /** Removes the entries of [publishType] up to and including [upToId], once delivered. */
+  @Query("DELETE FROM $TABLE_NAME WHERE $PUBLISH_TYPE = :publishType AND $ID <= :upToId")
+  abstract suspend fun deleteDeliveredEntries(publishType: String, upToId: Long)
+
+  /** Counts a failed delivery of the entries of [publishType] up to and including [upToId]. */
+  @Query(
+    "UPDATE $TABLE_NAME SET $FAILED_ATTEMPTS = $FAILED_ATTEMPTS + 1 " +
+      "WHERE $PUBLISH_TYPE = :publishType AND $ID <= :upToId"
+  )
+  abstract suspend fun recordFailedAttempt(publishType: String, upToId: Long)
+}
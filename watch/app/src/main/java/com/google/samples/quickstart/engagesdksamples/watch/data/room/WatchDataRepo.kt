@@ -14,18 +14,51 @@
  */
 package com.google.samples.quickstart.engagesdksamples.watch.data.room
 
-import com.google.samples.quickstart.engagesdksamples.watch.data.model.MovieItem
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.HomeFeed
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.WatchProgress
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.conflate
+import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.flow.flowOn
+import kotlinx.coroutines.flow.map
 
-/** Repository class to access to database data.*/
-class WatchDataRepo(private val db: WatchDatabase) {
-  val allMovies: Flow<List<MovieItem>> = db.movieDao().loadAllMovieItems()
+/**
+ * Repository class to access to database data. [onWatchProgressWritten] is called each time
+ * updates from [updateWatchProgress] have been written.
+ */
+class WatchDataRepo(
+  private val db: WatchDatabase,
+  writeScope: CoroutineScope,
+  defaultDispatcher: CoroutineDispatcher = Dispatchers.Default,
+  onWatchProgressWritten: () -> Unit = {}
+) {
+  /**
+   * The home screen shelves, built from a single query over the movie table. Room re-runs the query
+   * on every write to the table, so unchanged results are dropped before reaching the UI, and a slow
+   * collector only ever sees the latest feed.
+   */
+  val homeFeed: Flow<HomeFeed> =
+    db.movieDao()
+      .loadAllMovieItems()
+      .distinctUntilChanged()
+      .map { movies -> HomeFeed.fromMovies(movies) }
+      .flowOn(defaultDispatcher)
+      .conflate()
+
+  /** Whether the account is signed in. The account row is absent until the database is seeded. */
+  val accountSignedIn: Flow<Boolean> =
+    db.accountDao().observeAccountSignedIn().map { signedIn -> signedIn == true }
+      .distinctUntilChanged()
 
-  val allCurrentlyWatchingMovies: Flow<List<MovieItem>> =
-    db.movieDao().loadAllCurrentlyWatchingMovies()
+  private val watchProgressWriter =
+    WatchProgressWriter(db.movieDao(), writeScope, onBatchWritten = onWatchProgressWritten)
 
-  suspend fun updateMovieItem(movieItem: MovieItem) {
-    db.movieDao().updateMovieItem(movieItem)
+  /** Records [progress]. Rapid updates are coalesced and written together shortly afterwards. */
+  fun updateWatchProgress(progress: WatchProgress) {
+    watchProgressWriter.submit(progress)
   }
 
   suspend fun signIntoAccount() {
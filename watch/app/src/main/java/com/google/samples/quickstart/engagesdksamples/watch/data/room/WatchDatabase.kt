@@ -15,20 +15,24 @@
 package com.google.samples.quickstart.engagesdksamples.watch.data.room
 
 import android.content.Context
+import android.util.Log
+import androidx.annotation.VisibleForTesting
 import androidx.room.Database
 import androidx.room.Room
 import androidx.room.RoomDatabase
+import androidx.room.migration.Migration
 import androidx.sqlite.db.SupportSQLiteDatabase
 import com.google.samples.quickstart.engagesdksamples.watch.data.model.Account
 import com.google.samples.quickstart.engagesdksamples.watch.data.model.MovieItem
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.OutboxEntry
 import com.google.samples.quickstart.engagesdksamples.watch.data.model.TestData
-import kotlinx.coroutines.CoroutineScope
-import kotlinx.coroutines.launch
+import java.util.concurrent.Executor
+import java.util.concurrent.Executors
 
 /** Room database for Engage SDK Watch Sample App */
 @Database(
-  entities = [MovieItem::class, Account::class],
-  version = 1,
+  entities = [MovieItem::class, Account::class, OutboxEntry::class],
+  version = 2,
   exportSchema = true,
 )
 abstract class WatchDatabase : RoomDatabase() {
@@ -37,41 +41,96 @@ abstract class WatchDatabase : RoomDatabase() {
 
   abstract fun accountDao(): AccountDao
 
-  private class WatchDatabaseCallback(private val scope: CoroutineScope) : RoomDatabase.Callback() {
+  abstract fun outboxDao(): OutboxDao
+
+  /**
+   * Seeds a newly created database with [initialMovies]. Room calls [onCreate] while opening the
+   * database, before any query runs, so neither the UI nor the publishing workers can observe the
+   * tables empty.
+   */
+  private class WatchDatabaseCallback(private val initialMovies: () -> List<MovieItem>) :
+    RoomDatabase.Callback() {
     override fun onCreate(db: SupportSQLiteDatabase) {
       super.onCreate(db)
-      databaseInstance?.let { database ->
-        scope.launch { populateInitialData(database.movieDao(), database.accountDao()) }
-      }
+      DatabaseSeeder.seed(db, initialMovies(), Account(id = "1"))
     }
+  }
 
-    suspend fun populateInitialData(movieDao: MovieDao, accountDao: AccountDao) {
-      movieDao.insertMovieItems(TestData().getTestData())
-      accountDao.insertAccount(Account(id = "1"))
+  /** Applies the connection settings of [tuning] each time the database is opened. */
+  private class TuningCallback(private val tuning: DatabaseTuning) : RoomDatabase.Callback() {
+    override fun onOpen(db: SupportSQLiteDatabase) {
+      super.onOpen(db)
+      db.setMaxSqlCacheSize(tuning.statementCacheSize)
     }
   }
 
   companion object {
+    private val TAG = WatchDatabase::class.java.simpleName
     private const val DATABASE_NAME = "watch_database.db"
     /** Singleton instance of [WatchDatabase] */
     @Volatile private var databaseInstance: WatchDatabase? = null
 
+    /** Adds the publish outbox. */
+    @VisibleForTesting
+    internal val MIGRATION_1_2 =
+      object : Migration(1, 2) {
+        override fun migrate(database: SupportSQLiteDatabase) {
+          database.execSQL(
+            "CREATE TABLE IF NOT EXISTS `${OutboxEntry.TABLE_NAME}` (" +
+              "`${OutboxEntry.ID}` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, " +
+              "`${OutboxEntry.PUBLISH_TYPE}` TEXT NOT NULL, " +
+              "`${OutboxEntry.RECORDED_AT_MILLIS}` INTEGER NOT NULL, " +
+              "`${OutboxEntry.FAILED_ATTEMPTS}` INTEGER NOT NULL)"
+          )
+        }
+      }
+
     @JvmStatic
     /** Retrieves the single [WatchDatabase] instance */
-    fun getDatabase(context: Context, scope: CoroutineScope): WatchDatabase {
+    fun getDatabase(
+      context: Context,
+      tuning: DatabaseTuning = DatabaseTuning.DEFAULT
+    ): WatchDatabase {
       return databaseInstance
         ?: synchronized(this) {
-          val instance =
-            Room.databaseBuilder(
-                context.applicationContext,
-                WatchDatabase::class.java,
-                DATABASE_NAME
-              )
-              .addCallback(WatchDatabaseCallback(scope))
+          // Another caller may have built the database while this one waited for the lock.
+          databaseInstance
+            ?: buildDatabase(context, DATABASE_NAME, tuning) { TestData().getTestData() }
               .build()
-          databaseInstance = instance
-          instance
+              .also { instance -> databaseInstance = instance }
         }
     }
+
+    /**
+     * Returns a builder for the database file [name], configured according to [tuning]. If the file
+     * is created, it is seeded with [initialMovies], when given.
+     */
+    @VisibleForTesting
+    internal fun buildDatabase(
+      context: Context,
+      name: String,
+      tuning: DatabaseTuning,
+      initialMovies: (() -> List<MovieItem>)? = null
+    ): RoomDatabase.Builder<WatchDatabase> {
+      val builder =
+        Room.databaseBuilder(context.applicationContext, WatchDatabase::class.java, name)
+          .setJournalMode(tuning.journalMode)
+          .setQueryExecutor(Executors.newFixedThreadPool(tuning.queryThreads))
+          // SQLite allows one writer at a time, so transactions get a thread of their own rather
+          // than queueing behind reads.
+          .setTransactionExecutor(Executors.newSingleThreadExecutor())
+          .addCallback(TuningCallback(tuning))
+          .addMigrations(MIGRATION_1_2)
+      if (initialMovies != null) {
+        builder.addCallback(WatchDatabaseCallback(initialMovies))
+      }
+      if (tuning.logQueries) {
+        builder.setQueryCallback(
+          { sqlQuery, bindArgs -> Log.d(TAG, "query: $sqlQuery args: $bindArgs") },
+          Executor { command -> command.run() }
+        )
+      }
+      return builder
+    }
   }
 }
@@ -0,0 +1,103 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.watch.data.room
+
+import android.util.Log
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.WatchProgress
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.NonCancellable
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
+
+/**
+ * Buffers [WatchProgress] updates and writes them in batches. Updates arriving within
+ * [flushWindowMillis] of each other are written in a single transaction, merging the updates of
+ * each movie into one, so a burst of taps costs one write and one re-emission of the movie flows.
+ *
+ * Batches are written in [scope]. When it is cancelled, updates still buffered are written before
+ * the writer stops. [onBatchWritten] is called after each batch written while the scope is active.
+ * A batch that fails to write is logged and dropped, and later batches are still written.
+ */
+class WatchProgressWriter(
+  private val movieDao: MovieDao,
+  scope: CoroutineScope,
+  private val flushWindowMillis: Long = FLUSH_WINDOW_MILLIS,
+  private val onBatchWritten: () -> Unit = {}
+) {
+  private val pending = Channel<WatchProgress>(Channel.UNLIMITED)
+
+  init {
+    scope.launch { writeBatches() }
+  }
+
+  /** Queues [progress] to be written with the next batch. Never suspends. */
+  fun submit(progress: WatchProgress) {
+    pending.trySend(progress)
+  }
+
+  private suspend fun writeBatches() {
+    // Keyed by movie id, so later updates of a movie are merged into the earlier one.
+    val batch = LinkedHashMap<String, WatchProgress>()
+    try {
+      while (true) {
+        addTo(batch, pending.receive())
+        delay(flushWindowMillis)
+        drainInto(batch)
+        if (write(batch)) {
+          onBatchWritten()
+        }
+      }
+    } finally {
+      drainInto(batch)
+      if (batch.isNotEmpty()) {
+        withContext(NonCancellable) { write(batch) }
+      }
+    }
+  }
+
+  /** Writes and clears [batch], returning whether it was written. */
+  private suspend fun write(batch: MutableMap<String, WatchProgress>): Boolean {
+    val updates = batch.values.toList()
+    batch.clear()
+    return try {
+      movieDao.updateWatchProgress(updates)
+      true
+    } catch (cancellation: CancellationException) {
+      throw cancellation
+    } catch (exception: Exception) {
+      Log.e(TAG, "Dropping ${updates.size} watch progress updates", exception)
+      false
+    }
+  }
+
+  private fun drainInto(batch: MutableMap<String, WatchProgress>) {
+    while (true) {
+      addTo(batch, pending.tryReceive().getOrNull() ?: return)
+    }
+  }
+
+  private fun addTo(batch: MutableMap<String, WatchProgress>, progress: WatchProgress) {
+    batch[progress.movieId] = batch[progress.movieId]?.let { earlier -> earlier.then(progress) }
+      ?: progress
+  }
+
+  companion object {
+    const val FLUSH_WINDOW_MILLIS = 250L
+    private const val TAG = "WATCH_PROGRESS_WRITER"
+  }
+}
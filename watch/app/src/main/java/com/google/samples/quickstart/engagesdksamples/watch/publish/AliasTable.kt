@@ -0,0 +1,77 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.watch.publish
+
+import kotlin.random.Random
+
+/**
+ * Walker alias table over a fixed list of [weights]. Building the table takes O(n) time; afterwards
+ * each [sample] takes O(1) time, drawing index i with probability weights[i] / sum(weights).
+ */
+class AliasTable(weights: DoubleArray) {
+
+  /** Chance of keeping each column's own index rather than taking its alias. */
+  private val probabilities = DoubleArray(weights.size)
+  private val aliases = IntArray(weights.size)
+
+  val size: Int
+    get() = probabilities.size
+
+  init {
+    require(weights.isNotEmpty()) { "There must be at least one weight." }
+    require(weights.all { it >= 0 && it.isFinite() }) { "Weights must be finite and non-negative." }
+    val sum = weights.sum()
+    require(sum > 0) { "Weights must not all be zero." }
+    // Vose's method: scale so the average column holds exactly 1, then pair each underfull column
+    // with an overfull one that tops it up.
+    val scaled = DoubleArray(weights.size) { weights[it] * weights.size / sum }
+    val small = IntArray(weights.size)
+    val large = IntArray(weights.size)
+    var numSmall = 0
+    var numLarge = 0
+    for (i in scaled.indices) {
+      if (scaled[i] < 1) {
+        small[numSmall++] = i
+      } else {
+        large[numLarge++] = i
+      }
+    }
+    while (numSmall > 0 && numLarge > 0) {
+      val less = small[--numSmall]
+      val more = large[--numLarge]
+      probabilities[less] = scaled[less]
+      aliases[less] = more
+      scaled[more] = scaled[more] + scaled[less] - 1
+      if (scaled[more] < 1) {
+        small[numSmall++] = more
+      } else {
+        large[numLarge++] = more
+      }
+    }
+    // Whatever is left is full up to rounding error.
+    while (numLarge > 0) {
+      probabilities[large[--numLarge]] = 1.0
+    }
+    while (numSmall > 0) {
+      probabilities[small[--numSmall]] = 1.0
+    }
+  }
+
+  /** Returns an index drawn with probability proportional to its weight. */
+  fun sample(random: Random): Int {
+    val column = random.nextInt(probabilities.size)
+    return if (random.nextDouble() < probabilities[column]) column else aliases[column]
+  }
+}
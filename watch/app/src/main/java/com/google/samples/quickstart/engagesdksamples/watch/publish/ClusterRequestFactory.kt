@@ -25,20 +25,26 @@ import com.google.android.engage.service.PublishContinuationClusterRequest
 import com.google.android.engage.service.PublishFeaturedClusterRequest
 import com.google.android.engage.service.PublishRecommendationClustersRequest
 import com.google.android.engage.service.PublishUserAccountManagementRequest
+import com.google.android.engage.video.datamodel.MovieEntity
 import com.google.samples.quickstart.engagesdksamples.watch.R
 import com.google.samples.quickstart.engagesdksamples.watch.data.converters.ItemToEntityConverter
 import com.google.samples.quickstart.engagesdksamples.watch.data.converters.PACKAGE_NAME
 import com.google.samples.quickstart.engagesdksamples.watch.data.room.WatchDatabase
-import kotlinx.coroutines.CoroutineScope
-import kotlinx.coroutines.SupervisorJob
+import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.PUBLISH_TYPE_CONTINUATION
+import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.PUBLISH_TYPE_FEATURED
+import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.PUBLISH_TYPE_RECOMMENDATIONS
 
 /**
  * Class in charge of constructing the publishing requests and sending them to their respective
  * publishers
  */
-class ClusterRequestFactory(context: Context) {
+class ClusterRequestFactory(
+  context: Context,
+  db: WatchDatabase = WatchDatabase.getDatabase(context),
+  private val payloadBudget: PayloadBudget = PayloadBudget(),
+  private val featuredRotation: FeaturedRotation = FeaturedRotation.shared
+) {
 
-  private val db = WatchDatabase.getDatabase(context, CoroutineScope(SupervisorJob()))
   private val movieDao = db.movieDao()
   private val recommendationClusterTitle =
     context.resources.getString(R.string.recommendation_cluster_title)
@@ -58,15 +64,26 @@ class ClusterRequestFactory(context: Context) {
 
   /**
    * [constructFeaturedClusterRequest] returns a [PublishFeaturedClusterRequest] to be used by the
-   * [EngageServiceWorker] to publish Featured clusters
+   * [EngageServiceWorker] to publish Featured clusters. The cluster holds the day's
+   * [FEATURED_MOVIES_PER_DAY] featured movies among those not being watched.
    *
    * @return PublishFeaturedClusterRequest.Builder
+   * @throws InvalidClusterException if the cluster would be rejected by Engage
    */
   suspend fun constructFeaturedClusterRequest(): PublishFeaturedClusterRequest {
-    val featuredList = movieDao.loadMovieIsCurrentlyWatching(false)
+    val featuredList =
+      featuredRotation.select(
+        movies = movieDao.loadMovieItemsOrderedById(),
+        count = FEATURED_MOVIES_PER_DAY,
+        seed = FeaturedRotation.seedForDay(System.currentTimeMillis())
+      )
     val featuredCluster = FeaturedCluster.Builder()
-    for (item in featuredList) {
-      featuredCluster.addEntity(ItemToEntityConverter.convertMovie(item))
+    val entities = ItemToEntityConverter.convertAll(featuredList)
+    val planned =
+      planEntities(PUBLISH_TYPE_FEATURED, entities, ClusterValidator.MAX_FEATURED_ENTITIES)
+    ClusterValidator.requireValid(ClusterValidator.validateFeaturedCluster(planned.entities))
+    for (entity in planned.entities) {
+      featuredCluster.addEntity(entity)
     }
     return PublishFeaturedClusterRequest.Builder()
       .setFeaturedCluster(featuredCluster.build())
@@ -78,16 +95,33 @@ class ClusterRequestFactory(context: Context) {
    * used by the [EngageServiceWorker] to publish Recommendations clusters
    *
    * @return PublishRecommendationClustersRequest
+   * @throws InvalidClusterException if the cluster would be rejected by Engage
    */
   suspend fun constructRecommendationClustersRequest(): PublishRecommendationClustersRequest {
     val recommendationsList = movieDao.loadMovieIsCurrentlyWatching(false)
     val recommendationCluster = RecommendationCluster.Builder()
-    for (item in recommendationsList) {
-      recommendationCluster.addEntity(ItemToEntityConverter.convertMovie(item))
+    val entities = ItemToEntityConverter.convertAll(recommendationsList)
+    val planned =
+      planEntities(
+        PUBLISH_TYPE_RECOMMENDATIONS,
+        entities,
+        ClusterValidator.MAX_RECOMMENDATION_ENTITIES
+      )
+    ClusterValidator.requireValid(
+      ClusterValidator.validateRecommendationCluster(recommendationClusterTitle, planned.entities)
+    )
+    for (entity in planned.entities) {
+      recommendationCluster.addEntity(entity)
     }
-    return PublishRecommendationClustersRequest.Builder()
-      .addRecommendationCluster(recommendationCluster.setTitle(recommendationClusterTitle).build())
-      .build()
+    val clusters = listOf(recommendationCluster.setTitle(recommendationClusterTitle).build())
+    ClusterValidator.requireValid(
+      ClusterValidator.validateRecommendationClusterCount(clusters.size)
+    )
+    val request = PublishRecommendationClustersRequest.Builder()
+    for (cluster in clusters) {
+      request.addRecommendationCluster(cluster)
+    }
+    return request.build()
   }
 
   /**
@@ -95,12 +129,17 @@ class ClusterRequestFactory(context: Context) {
    * by the [EngageServiceWorker] to publish Continuations clusters
    *
    * @return PublishContinuationClusterRequest
+   * @throws InvalidClusterException if the cluster would be rejected by Engage
    */
   suspend fun constructContinuationClusterRequest(): PublishContinuationClusterRequest {
     val continuationList = movieDao.loadMovieIsCurrentlyWatching(true)
     val continuationCluster = ContinuationCluster.Builder()
-    for (item in continuationList) {
-      continuationCluster.addEntity(ItemToEntityConverter.convertMovie(item))
+    val entities = ItemToEntityConverter.convertAll(continuationList)
+    val planned =
+      planEntities(PUBLISH_TYPE_CONTINUATION, entities, ClusterValidator.MAX_CONTINUATION_ENTITIES)
+    ClusterValidator.requireValid(ClusterValidator.validateContinuationCluster(planned.entities))
+    for (entity in planned.entities) {
+      continuationCluster.addEntity(entity)
     }
     return PublishContinuationClusterRequest.Builder()
       .setContinuationCluster(continuationCluster.build())
@@ -115,4 +154,23 @@ class ClusterRequestFactory(context: Context) {
    */
   fun constructUserAccountManagementClusterRequest(): PublishUserAccountManagementRequest =
     PublishUserAccountManagementRequest.Builder().setSignInCardEntity(signInCard).build()
+
+  /**
+   * Trims [entities] to at most [maxEntities] and then to the payload budget, recording and logging
+   * the resulting size.
+   */
+  private fun planEntities(
+    publishType: String,
+    entities: List<MovieEntity>,
+    maxEntities: Int
+  ): PlannedEntities<MovieEntity> {
+    val planned = payloadBudget.plan(entities.take(maxEntities))
+    PayloadMetrics.record(publishType, planned)
+    return planned
+  }
+
+  companion object {
+    /** Number of movies featured each day. */
+    const val FEATURED_MOVIES_PER_DAY = 5
+  }
 }
@@ -0,0 +1,140 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.watch.publish
+
+import com.google.android.engage.video.datamodel.MovieEntity
+
+/**
+ * A way in which a cluster breaks Engage's publishing constraints.
+ *
+ * @param publishType The publish type of the cluster, one of the PUBLISH_TYPE values in [Constants]
+ * @param entityIndex Position of the offending entity in the cluster, or null if the violation
+ *   concerns the cluster as a whole
+ * @param message Description of the violated constraint
+ */
+data class ClusterViolation(val publishType: String, val entityIndex: Int?, val message: String) {
+  override fun toString(): String =
+    if (entityIndex == null) "$publishType: $message"
+    else "$publishType entity $entityIndex: $message"
+}
+
+/** Thrown instead of publishing a cluster that Engage would reject as an invalid argument. */
+class InvalidClusterException(val violations: List<ClusterViolation>) :
+  IllegalArgumentException("Invalid cluster:\n" + violations.joinToString("\n"))
+
+/**
+ * Checks clusters against Engage's per-cluster and per-entity constraints before they are
+ * published. Engage rejects a request that breaks any of them with SERVICE_CALL_INVALID_ARGUMENT,
+ * which costs a binder round trip and can never succeed on retry, so such requests are stopped
+ * before they leave the process.
+ */
+object ClusterValidator {
+  const val MAX_RECOMMENDATION_CLUSTERS = 5
+  const val MAX_RECOMMENDATION_ENTITIES = 25
+  const val MAX_FEATURED_ENTITIES = 10
+  const val MAX_CONTINUATION_ENTITIES = 10
+
+  /** Returns the violations of a recommendation cluster titled [title] holding [entities]. */
+  fun validateRecommendationCluster(
+    title: String?,
+    entities: List<MovieEntity>
+  ): List<ClusterViolation> {
+    val violations = mutableListOf<ClusterViolation>()
+    if (title.isNullOrBlank()) {
+      violations += ClusterViolation(PUBLISH_TYPE, null, "Recommendation clusters need a title.")
+    }
+    validateEntities(PUBLISH_TYPE, entities, MAX_RECOMMENDATION_ENTITIES, violations)
+    return violations
+  }
+
+  /** Returns the violations of a recommendation request publishing [numClusters] clusters. */
+  fun validateRecommendationClusterCount(numClusters: Int): List<ClusterViolation> =
+    if (numClusters in 1..MAX_RECOMMENDATION_CLUSTERS) emptyList()
+    else
+      listOf(
+        ClusterViolation(
+          PUBLISH_TYPE,
+          null,
+          "A request needs 1 to $MAX_RECOMMENDATION_CLUSTERS clusters, not $numClusters."
+        )
+      )
+
+  /** Returns the violations of a featured cluster holding [entities]. */
+  fun validateFeaturedCluster(entities: List<MovieEntity>): List<ClusterViolation> {
+    val violations = mutableListOf<ClusterViolation>()
+    validateEntities(Constants.PUBLISH_TYPE_FEATURED, entities, MAX_FEATURED_ENTITIES, violations)
+    return violations
+  }
+
+  /**
+   * Returns the violations of a continuation cluster holding [entities]. Besides the checks every
+   * cluster gets, continuation entities must say when they were last watched and how to continue.
+   */
+  fun validateContinuationCluster(entities: List<MovieEntity>): List<ClusterViolation> {
+    val publishType = Constants.PUBLISH_TYPE_CONTINUATION
+    val violations = mutableListOf<ClusterViolation>()
+    validateEntities(publishType, entities, MAX_CONTINUATION_ENTITIES, violations)
+    entities.forEachIndexed { index, entity ->
+      if (!entity.lastEngagementTimeMillis.isPresent) {
+        violations += ClusterViolation(publishType, index, "Missing last engagement time.")
+      }
+      if (!entity.watchNextType.isPresent) {
+        violations += ClusterViolation(publishType, index, "Missing watch next type.")
+      }
+    }
+    return violations
+  }
+
+  /** Throws an [InvalidClusterException] listing [violations] unless there are none. */
+  fun requireValid(violations: List<ClusterViolation>) {
+    if (violations.isNotEmpty()) {
+      throw InvalidClusterException(violations)
+    }
+  }
+
+  private fun validateEntities(
+    publishType: String,
+    entities: List<MovieEntity>,
+    maxEntities: Int,
+    violations: MutableList<ClusterViolation>
+  ) {
+    if (entities.isEmpty()) {
+      violations += ClusterViolation(publishType, null, "Clusters cannot be empty.")
+    } else if (entities.size > maxEntities) {
+      violations +=
+        ClusterViolation(
+          publishType,
+          null,
+          "At most $maxEntities entities are allowed, not ${entities.size}."
+        )
+    }
+    entities.forEachIndexed { index, entity ->
+      if (entity.name.isNullOrBlank()) {
+        violations += ClusterViolation(publishType, index, "Missing name.")
+      }
+      if (entity.posterImages.isEmpty()) {
+        violations += ClusterViolation(publishType, index, "Missing poster image.")
+      }
+      if (entity.playBackUri == null) {
+        violations += ClusterViolation(publishType, index, "Missing playback URI.")
+      }
+      if (entity.durationMillis <= 0) {
+        violations += ClusterViolation(publishType, index, "Duration must be positive.")
+      }
+    }
+  }
+
+  private const val PUBLISH_TYPE = Constants.PUBLISH_TYPE_RECOMMENDATIONS
+}
@@ -18,10 +18,15 @@ package com.google.samples.quickstart.engagesdksamples.watch.publish
 object Constants {
   const val MAX_PUBLISHING_ATTEMPTS: Int = 5
 
-  const val WORKER_NAME_RECOMMENDATIONS: String = "Upload Recommendations"
-  const val WORKER_NAME_CONTINUATION: String = "Upload Continuation"
-  const val WORKER_NAME_FEATURED: String = "Upload Featured"
+  // An outbox entry whose delivery failed this many times is dropped rather than retried forever.
+  const val MAX_OUTBOX_FAILED_ATTEMPTS: Int = 10
 
+  const val WORKER_NAME_OUTBOX: String = "Deliver Publish Outbox"
+  const val WORKER_NAME_ACCOUNT_TRANSITION: String = "Upload Account Transition"
+
+  const val PERIODIC_WORKER_NAME_OUTBOX: String = "Periodically Deliver Publish Outbox"
+
+  // Periodic work scheduled by earlier versions of the app, cancelled in favour of the outbox.
   const val PERIODIC_WORKER_NAME_RECOMMENDATIONS: String = "Periodically Upload Recommendations"
   const val PERIODIC_WORKER_NAME_CONTINUATION: String = "Periodically Upload Continuation"
   const val PERIODIC_WORKER_NAME_FEATURED: String = "Periodically Upload Featured"
@@ -33,4 +38,9 @@ object Constants {
   const val PUBLISH_TYPE_CONTINUATION = "PUBLISH_CONTINUATION"
   const val PUBLISH_TYPE_FEATURED = "PUBLISH_FEATURED"
   const val PUBLISH_TYPE_USER_ACCOUNT_MANAGEMENT = "PUBLISH_USER_ACCOUNT_MANAGEMENT"
+  const val PUBLISH_TYPE_ACCOUNT_TRANSITION = "PUBLISH_ACCOUNT_TRANSITION"
+  const val PUBLISH_TYPE_OUTBOX = "PUBLISH_OUTBOX"
+
+  /** Input of an outbox delivery that first records every cluster in the outbox. */
+  const val OUTBOX_RECORD_ALL: String = "OUTBOX_RECORD_ALL"
 }
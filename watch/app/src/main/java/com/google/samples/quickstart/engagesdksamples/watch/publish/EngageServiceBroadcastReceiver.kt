@@ -32,12 +32,19 @@ class EngageServiceBroadcastReceiver : BroadcastReceiver() {
     if (intent == null || context == null) {
       return
     }
-    when (intent.action) {
-      ACTION_PUBLISH_RECOMMENDATION -> publishRecommendationClusters(context)
-      ACTION_PUBLISH_FEATURED -> publishFeaturedClusters(context)
-      ACTION_PUBLISH_CONTINUATION -> publishContinuationClusters(context)
-      else -> Log.e(TAG, "onReceive: Received unrecognized intent: $intent")
-    }
+    val recording =
+      when (intent.action) {
+        ACTION_PUBLISH_RECOMMENDATION -> publishRecommendationClusters(context)
+        ACTION_PUBLISH_FEATURED -> publishFeaturedClusters(context)
+        ACTION_PUBLISH_CONTINUATION -> publishContinuationClusters(context)
+        else -> {
+          Log.e(TAG, "onReceive: Received unrecognized intent: $intent")
+          return
+        }
+      }
+    // Keeps the process alive until the request has been recorded in the outbox.
+    val pendingResult = goAsync()
+    recording.invokeOnCompletion { pendingResult.finish() }
   }
 
   private companion object {
@@ -14,9 +14,14 @@
  */
 package com.google.samples.quickstart.engagesdksamples.watch.publish
 
+import android.app.NotificationChannel
+import android.app.NotificationManager
 import android.content.Context
+import android.os.Build
 import android.util.Log
+import androidx.core.app.NotificationCompat
 import androidx.work.CoroutineWorker
+import androidx.work.ForegroundInfo
 import androidx.work.WorkerParameters
 import com.google.android.engage.service.AppEngageException
 import com.google.android.engage.service.AppEngagePublishClient
@@ -24,14 +29,19 @@ import com.google.android.engage.service.AppEngagePublishStatusCode
 import com.google.android.engage.service.PublishStatusRequest
 import com.google.android.gms.tasks.Task
 import com.google.common.annotations.VisibleForTesting
+import com.google.samples.quickstart.engagesdksamples.watch.R
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.OutboxEntry
 import com.google.samples.quickstart.engagesdksamples.watch.data.room.WatchDatabase
+import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.MAX_OUTBOX_FAILED_ATTEMPTS
+import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.OUTBOX_RECORD_ALL
 import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.PUBLISH_TYPE
+import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.PUBLISH_TYPE_ACCOUNT_TRANSITION
 import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.PUBLISH_TYPE_CONTINUATION
 import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.PUBLISH_TYPE_FEATURED
+import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.PUBLISH_TYPE_OUTBOX
 import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.PUBLISH_TYPE_RECOMMENDATIONS
 import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.PUBLISH_TYPE_USER_ACCOUNT_MANAGEMENT
-import kotlinx.coroutines.CoroutineScope
-import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.CancellationException
 import kotlinx.coroutines.tasks.await
 
 /**
@@ -56,8 +66,9 @@ class EngageServiceWorker(
 
   val TAG = "ENGAGE_SERVICE_WORKER"
   private var client = AppEngagePublishClient(context)
-  private val clusterRequestFactory = ClusterRequestFactory(context)
-  private var db = WatchDatabase.getDatabase(context, CoroutineScope(SupervisorJob()))
+  private var db = WatchDatabase.getDatabase(context)
+  // Lazy so that requests are built from the database passed to the testing constructor.
+  private val clusterRequestFactory by lazy { ClusterRequestFactory(applicationContext, db) }
 
   /**
    * [doWork] is the entry point for the [EngageServiceWorker], and differentiates between
@@ -80,13 +91,77 @@ class EngageServiceWorker(
     // of using one worker with flags to determine what cluster to publish, you may also choose to
     // your separate workers to publish different clusters; use whichever approach better fits your
     // app architecture.
-    return when (inputData.getString(PUBLISH_TYPE)) {
-      PUBLISH_TYPE_RECOMMENDATIONS -> publishRecommendations()
-      PUBLISH_TYPE_CONTINUATION -> publishContinuation()
-      PUBLISH_TYPE_FEATURED -> publishFeatured()
-      PUBLISH_TYPE_USER_ACCOUNT_MANAGEMENT -> publishUserAccountManagement()
-      else -> throw IllegalArgumentException("Bad publish type")
+    val publishType = inputData.getString(PUBLISH_TYPE)
+    if (publishType == PUBLISH_TYPE_OUTBOX) {
+      return deliverOutbox()
     }
+    return publish(publishType)
+  }
+
+  private suspend fun publish(publishType: String?): Result {
+    return try {
+      when (publishType) {
+        PUBLISH_TYPE_RECOMMENDATIONS -> publishRecommendations()
+        PUBLISH_TYPE_CONTINUATION -> publishContinuation()
+        PUBLISH_TYPE_FEATURED -> publishFeatured()
+        PUBLISH_TYPE_USER_ACCOUNT_MANAGEMENT -> publishUserAccountManagement()
+        PUBLISH_TYPE_ACCOUNT_TRANSITION -> publishAccountTransition()
+        else -> throw IllegalArgumentException("Bad publish type")
+      }
+    } catch (invalidCluster: InvalidClusterException) {
+      // Engage would reject the cluster with SERVICE_CALL_INVALID_ARGUMENT on every attempt, so
+      // neither publish it nor retry.
+      Log.e(TAG, "Not publishing $publishType", invalidCluster)
+      Result.failure()
+    }
+  }
+
+  /**
+   * [deliverOutbox] publishes every cluster with entries in the publish outbox, in
+   * [OUTBOX_DELIVERY_ORDER]. The entries of a cluster are collapsed into a single publish of its
+   * current state, and are removed only once that publish has succeeded or failed for good, so each
+   * entry is delivered at least once. Entries recorded during the delivery are left for the next
+   * one. A cluster whose latest entry has failed [MAX_OUTBOX_FAILED_ATTEMPTS] times is dropped
+   * instead of retried again.
+   *
+   * @return result Retry if a cluster should be published again, failure if one was rejected
+   */
+  private suspend fun deliverOutbox(): Result {
+    val outboxDao = db.outboxDao()
+    if (inputData.getBoolean(OUTBOX_RECORD_ALL, false)) {
+      val recordedAtMillis = System.currentTimeMillis()
+      for (publishType in OUTBOX_DELIVERY_ORDER) {
+        outboxDao.insertEntry(
+          OutboxEntry(publishType = publishType, recordedAtMillis = recordedAtMillis)
+        )
+      }
+    }
+    val latestEntries = HashMap<String, OutboxEntry>()
+    for (entry in outboxDao.loadPendingEntries()) {
+      // Entries are loaded oldest first, so the last entry of each cluster supersedes the others.
+      latestEntries[entry.publishType] = entry
+    }
+    var deliveryResult = Result.success()
+    for (publishType in OUTBOX_DELIVERY_ORDER) {
+      val latestEntry = latestEntries[publishType] ?: continue
+      val upToId = latestEntry.id
+      val result = publish(publishType)
+      if (result is Result.Retry) {
+        if (latestEntry.failedAttempts + 1 < MAX_OUTBOX_FAILED_ATTEMPTS) {
+          // The remaining clusters keep their entries and are delivered by the retry.
+          outboxDao.recordFailedAttempt(publishType, upToId)
+          return result
+        }
+        Log.e(TAG, "Dropped $publishType from the outbox after repeated failures")
+        outboxDao.deleteDeliveredEntries(publishType, upToId)
+        continue
+      }
+      outboxDao.deleteDeliveredEntries(publishType, upToId)
+      if (result is Result.Failure) {
+        deliveryResult = result
+      }
+    }
+    return deliveryResult
   }
 
   /**
@@ -213,6 +288,141 @@ class EngageServiceWorker(
     return publishAndProvideResult(publishTask, statusCode)
   }
 
+  /**
+   * [publishAccountTransition] moves every cluster and the publish status to the state matching
+   * whether the user is signed in, one call at a time, and returns the worst result of the calls:
+   * retry if any call should be retried, failure if any failed for good.
+   *
+   * On sign in, content is published before the sign-in card is deleted, so the surface is never
+   * left empty. A content cluster Engage would reject, such as an empty featured cluster once every
+   * movie is being watched, is deleted instead. On sign out, the signed out user's content is
+   * deleted before anything else. A failed call does not stop the calls after it, so the user
+   * management cluster and the publish status always follow the account.
+   *
+   * @return result Result of the transition
+   */
+  private suspend fun publishAccountTransition(): Result {
+    val steps: List<suspend () -> Task<Void>>
+    val statusCode: Int
+    if (db.accountDao().isAccountSignedIn()) {
+      steps =
+        listOf(
+          {
+            if (db.movieDao().loadMovieIsCurrentlyWatching(currentlyWatching = true).isEmpty()) {
+              client.deleteContinuationCluster()
+            } else {
+              publishOrDelete(
+                PUBLISH_TYPE_CONTINUATION,
+                publish = {
+                  client.publishContinuationCluster(
+                    clusterRequestFactory.constructContinuationClusterRequest()
+                  )
+                },
+                delete = { client.deleteContinuationCluster() }
+              )
+            }
+          },
+          {
+            publishOrDelete(
+              PUBLISH_TYPE_FEATURED,
+              publish = {
+                client.publishFeaturedCluster(
+                  clusterRequestFactory.constructFeaturedClusterRequest()
+                )
+              },
+              delete = { client.deleteFeaturedCluster() }
+            )
+          },
+          {
+            publishOrDelete(
+              PUBLISH_TYPE_RECOMMENDATIONS,
+              publish = {
+                client.publishRecommendationClusters(
+                  clusterRequestFactory.constructRecommendationClustersRequest()
+                )
+              },
+              delete = { client.deleteRecommendationsClusters() }
+            )
+          },
+          { client.deleteUserManagementCluster() }
+        )
+      statusCode = AppEngagePublishStatusCode.PUBLISHED
+    } else {
+      steps =
+        listOf(
+          { client.deleteRecommendationsClusters() },
+          { client.deleteFeaturedCluster() },
+          { client.deleteContinuationCluster() },
+          {
+            client.publishUserAccountManagementRequest(
+              clusterRequestFactory.constructUserAccountManagementClusterRequest()
+            )
+          }
+        )
+      statusCode = AppEngagePublishStatusCode.NOT_PUBLISHED_REQUIRES_SIGN_IN
+    }
+    var transitionResult = Result.success()
+    for (step in steps) {
+      val result =
+        try {
+          awaitPublishTask(step())
+        } catch (invalidCluster: InvalidClusterException) {
+          Log.e(TAG, "Not publishing a cluster of the account transition", invalidCluster)
+          Result.failure()
+        }
+      // Every step is idempotent, so a retry runs the whole transition again.
+      if (result is Result.Retry || transitionResult is Result.Retry) {
+        transitionResult = Result.retry()
+      } else if (result is Result.Failure) {
+        transitionResult = result
+      }
+    }
+    setPublishStatusCode(statusCode)
+    return transitionResult
+  }
+
+  /**
+   * [publishOrDelete] returns the task of [publish], or, if the cluster of [publishType] would be
+   * rejected by Engage, logs why and returns the task of [delete] instead, so that the cluster does
+   * not keep content that no longer applies.
+   */
+  private inline fun publishOrDelete(
+    publishType: String,
+    publish: () -> Task<Void>,
+    delete: () -> Task<Void>
+  ): Task<Void> {
+    return try {
+      publish()
+    } catch (invalidCluster: InvalidClusterException) {
+      Log.w(TAG, "Deleting $publishType instead of publishing it", invalidCluster)
+      delete()
+    }
+  }
+
+  /**
+   * Runs as a foreground service when expedited work is requested on API levels below 31, where
+   * expedited work is backed by one.
+   */
+  override suspend fun getForegroundInfo(): ForegroundInfo {
+    val context = applicationContext
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+      val channel =
+        NotificationChannel(
+          NOTIFICATION_CHANNEL_ID,
+          context.getString(R.string.publish_notification_channel_name),
+          NotificationManager.IMPORTANCE_LOW
+        )
+      context.getSystemService(NotificationManager::class.java).createNotificationChannel(channel)
+    }
+    val notification =
+      NotificationCompat.Builder(context, NOTIFICATION_CHANNEL_ID)
+        .setSmallIcon(R.mipmap.ic_launcher)
+        .setContentTitle(context.getString(R.string.publish_notification_title))
+        .setPriority(NotificationCompat.PRIORITY_LOW)
+        .build()
+    return ForegroundInfo(NOTIFICATION_ID, notification)
+  }
+
   /**
    * [publishAndProvideResult] is a method that is in charge of publishing a given task
    *
@@ -225,13 +435,25 @@ class EngageServiceWorker(
     publishStatusCode: Int
   ): Result {
     setPublishStatusCode(publishStatusCode)
+    return awaitPublishTask(publishTask)
+  }
 
+  /**
+   * [awaitPublishTask] waits for [publishTask] and maps its outcome to a worker result.
+   *
+   * @param publishTask A task to publish some cluster or delete some cluster
+   * @return publishResult Result of [publishTask]
+   */
+  private suspend fun awaitPublishTask(publishTask: Task<Void>): Result {
     // Result initialized to success, it is changed to retry or failure if an exception occurs.
     var result: Result = Result.success()
     try {
       // An AppEngageException may occur while publishing, so we may not be able to await the
       // result.
       publishTask.await()
+    } catch (cancellation: CancellationException) {
+      // The work was cancelled, for example by an account transition replacing it.
+      throw cancellation
     } catch (publishException: Exception) {
       Publisher.logPublishing(publishException as AppEngageException)
       // Some errors are recoverable, such as a threading issue, some are unrecoverable
@@ -261,4 +483,18 @@ class EngageServiceWorker(
         Log.e(TAG, "Failed to update publish status code to $statusCode\n${exception.stackTrace}")
       }
   }
+
+  companion object {
+    /** The order in which the outbox delivers clusters, matching an account transition. */
+    private val OUTBOX_DELIVERY_ORDER =
+      listOf(
+        PUBLISH_TYPE_CONTINUATION,
+        PUBLISH_TYPE_FEATURED,
+        PUBLISH_TYPE_RECOMMENDATIONS,
+        PUBLISH_TYPE_USER_ACCOUNT_MANAGEMENT
+      )
+
+    private const val NOTIFICATION_CHANNEL_ID = "publishing"
+    private const val NOTIFICATION_ID = 1
+  }
 }
@@ -0,0 +1,109 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.watch.publish
+
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.MovieItem
+import java.util.concurrent.TimeUnit
+import kotlin.random.Random
+
+/**
+ * Picks the featured movies for a period by sampling every movie in proportion to editorial
+ * weights. The same seed always picks the same movies, and seeding with [seedForDay] rotates the
+ * picks daily.
+ *
+ * The [AliasTable] is built over every movie and rebuilt only when the editorial weights change,
+ * so watching a movie neither rebuilds it nor reshuffles the rest of the day's picks. Movies being
+ * watched are skipped as they are drawn, so a selection takes O(k) expected draws. Only when most
+ * movies are being watched does it fall back to scanning for the remaining picks.
+ */
+class FeaturedRotation {
+
+  private var tableWeights: DoubleArray? = null
+  private var table: AliasTable? = null
+
+  /**
+   * Returns up to [count] distinct movies from [movies] that are not being watched, drawn with
+   * probability proportional to their editorial weight using [seed]. Fewer are returned only if
+   * fewer movies are not being watched. [movies] must be in the same order on every call, such as
+   * ordered by id, for the same seed to pick the same movies.
+   */
+  @Synchronized
+  fun select(movies: List<MovieItem>, count: Int, seed: Long): List<MovieItem> {
+    require(count > 0) { "count must be positive." }
+    if (movies.isEmpty()) {
+      return emptyList()
+    }
+    val aliasTable = tableFor(editorialWeights(movies))
+    // Movies being watched are published in the continuation cluster instead.
+    val unavailable = BooleanArray(movies.size) { movies[it].currentlyWatching }
+    val wanted = minOf(count, unavailable.count { !it })
+    val random = Random(seed)
+    val selection = ArrayList<MovieItem>(wanted)
+    var draws = 0
+    while (selection.size < wanted && draws < wanted * DRAWS_PER_PICK) {
+      val index = aliasTable.sample(random)
+      if (!unavailable[index]) {
+        unavailable[index] = true
+        selection.add(movies[index])
+      }
+      draws++
+    }
+    // Too many draws hit watched or already picked movies. Take the next available ones after a
+    // random start instead.
+    var index = random.nextInt(movies.size)
+    while (selection.size < wanted) {
+      if (!unavailable[index]) {
+        unavailable[index] = true
+        selection.add(movies[index])
+      }
+      index = (index + 1) % movies.size
+    }
+    return selection
+  }
+
+  /** Returns the alias table of [weights], building it only when the weights have changed. */
+  private fun tableFor(weights: DoubleArray): AliasTable {
+    val current = table
+    if (current != null && weights.contentEquals(tableWeights)) {
+      return current
+    }
+    return AliasTable(weights).also { rebuilt ->
+      table = rebuilt
+      tableWeights = weights
+    }
+  }
+
+  companion object {
+    /** Draws per pick before falling back to a scan. */
+    private const val DRAWS_PER_PICK = 8
+
+    /** Shared so the alias table outlives each worker's [ClusterRequestFactory]. */
+    val shared = FeaturedRotation()
+
+    /** Returns the seed that rotates the featured movies once per UTC day. */
+    fun seedForDay(timeMillis: Long): Long = TimeUnit.MILLISECONDS.toDays(timeMillis)
+
+    /**
+     * Returns the editorial weight of each of [movies]. This sample has no editorial data, so it
+     * promotes newer releases: the newest is twice as likely to be featured as the oldest.
+     */
+    fun editorialWeights(movies: List<MovieItem>): DoubleArray {
+      val oldest = movies.minOf { it.releaseDate }
+      val newest = movies.maxOf { it.releaseDate }
+      val range = maxOf(1L, newest - oldest).toDouble()
+      return DoubleArray(movies.size) { 1 + (movies[it].releaseDate - oldest) / range }
+    }
+  }
+}
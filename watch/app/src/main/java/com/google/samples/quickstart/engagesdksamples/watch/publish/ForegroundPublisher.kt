@@ -0,0 +1,187 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.watch.publish
+
+import android.content.Context
+import android.util.Log
+import androidx.lifecycle.Lifecycle
+import androidx.lifecycle.LifecycleEventObserver
+import androidx.lifecycle.ProcessLifecycleOwner
+import com.google.android.engage.service.AppEngageException
+import com.google.android.engage.service.AppEngagePublishClient
+import com.google.samples.quickstart.engagesdksamples.watch.data.room.WatchDatabase
+import java.util.concurrent.atomic.AtomicBoolean
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.TimeoutCancellationException
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.tasks.await
+import kotlinx.coroutines.withTimeout
+
+/**
+ * Publishes the continuation cluster straight from the app process while the app is visible, so a
+ * change in watch progress reaches Engage within a second rather than after WorkManager dispatches
+ * a worker.
+ *
+ * Requests are conflated and at most one publish is made every [minIntervalMillis], which keeps a
+ * burst of progress changes from being throttled by Engage. The latest request is handed off to
+ * [EngageServiceWorker] through [handOff] when a publish fails or takes longer than
+ * [publishTimeoutMillis], or when the app is no longer visible once the request is due.
+ *
+ * Only the continuation cluster is published; the publish status and the other clusters are left
+ * to the workers, and nothing is published while the user is signed out.
+ */
+class ForegroundPublisher(
+  private val client: AppEngagePublishClient,
+  private val db: WatchDatabase,
+  private val clusterRequestFactory: ClusterRequestFactory,
+  scope: CoroutineScope,
+  private val isAppVisible: () -> Boolean,
+  private val handOff: () -> Unit,
+  private val minIntervalMillis: Long = MIN_INTERVAL_MILLIS,
+  private val publishTimeoutMillis: Long = PUBLISH_TIMEOUT_MILLIS
+) {
+  private val requests = Channel<Unit>(Channel.CONFLATED)
+
+  init {
+    scope.launch { publishRequests() }
+  }
+
+  /**
+   * Requests the continuation cluster be published. Call after the progress change has been
+   * written to the database. Never suspends.
+   */
+  fun publishContinuation() {
+    requests.trySend(Unit)
+  }
+
+  /**
+   * Hands off a request still waiting for its turn. Called when the app leaves the foreground, as
+   * the process may be frozen before the request is due.
+   */
+  fun onAppBackgrounded() {
+    if (requests.tryReceive().isSuccess) {
+      handOff()
+    }
+  }
+
+  private suspend fun publishRequests() {
+    for (request in requests) {
+      if (!isAppVisible()) {
+        handOff()
+        continue
+      }
+      if (!publishNow()) {
+        handOff()
+      }
+      // Requests arriving meanwhile are conflated into a single publish once the interval ends.
+      delay(minIntervalMillis)
+    }
+  }
+
+  /**
+   * Returns false if the publish failed and should be retried by a worker. Any failure other than
+   * an invalid cluster is handed off, so it cannot end [publishRequests].
+   */
+  private suspend fun publishNow(): Boolean {
+    return try {
+      withTimeout(publishTimeoutMillis) {
+        if (!client.isServiceAvailable.await() || !db.accountDao().isAccountSignedIn()) {
+          // A worker would not publish either.
+          return@withTimeout true
+        }
+        val publishTask =
+          if (db.movieDao().loadMovieIsCurrentlyWatching(currentlyWatching = true).isEmpty()) {
+            client.deleteContinuationCluster()
+          } else {
+            client.publishContinuationCluster(
+              clusterRequestFactory.constructContinuationClusterRequest()
+            )
+          }
+        publishTask.await()
+        true
+      }
+    } catch (invalidCluster: InvalidClusterException) {
+      // Engage would reject the cluster from a worker too.
+      Log.e(TAG, "Not publishing continuation", invalidCluster)
+      true
+    } catch (timeout: TimeoutCancellationException) {
+      Log.w(TAG, "Publishing continuation timed out", timeout)
+      false
+    } catch (cancellation: CancellationException) {
+      throw cancellation
+    } catch (publishException: AppEngageException) {
+      Publisher.logPublishing(publishException)
+      false
+    } catch (exception: Exception) {
+      Log.e(TAG, "Publishing continuation failed", exception)
+      false
+    }
+  }
+
+  companion object {
+    private const val TAG = "FOREGROUND_PUBLISHER"
+
+    /** Keeps well clear of the rate at which Engage throttles a caller. */
+    const val MIN_INTERVAL_MILLIS = 1000L
+
+    const val PUBLISH_TIMEOUT_MILLIS = 10_000L
+
+    @Volatile private var instance: ForegroundPublisher? = null
+
+    /**
+     * Returns the process-wide publisher, creating it on first use. Must first be called on the
+     * main thread, where it starts observing whether the app is visible.
+     */
+    fun getInstance(context: Context): ForegroundPublisher =
+      instance
+        ?: synchronized(this) {
+          instance
+            ?: create(context.applicationContext).also { publisher -> instance = publisher }
+        }
+
+    private fun create(appContext: Context): ForegroundPublisher {
+      val db = WatchDatabase.getDatabase(appContext)
+      val lifecycle = ProcessLifecycleOwner.get().lifecycle
+      // Mirrors whether the process lifecycle is started, as the lifecycle may only be read on the
+      // main thread. Cleared before a stop hands off, so a request after that is handed off too.
+      val appVisible = AtomicBoolean(lifecycle.currentState.isAtLeast(Lifecycle.State.STARTED))
+      val publisher =
+        ForegroundPublisher(
+          client = AppEngagePublishClient(appContext),
+          db = db,
+          clusterRequestFactory = ClusterRequestFactory(appContext, db),
+          scope = CoroutineScope(SupervisorJob() + Dispatchers.Default),
+          isAppVisible = { appVisible.get() },
+          handOff = { Publisher.publishContinuationClusters(appContext) }
+        )
+      lifecycle.addObserver(
+        LifecycleEventObserver { _, event ->
+          if (event == Lifecycle.Event.ON_START) {
+            appVisible.set(true)
+          } else if (event == Lifecycle.Event.ON_STOP) {
+            appVisible.set(false)
+            publisher.onAppBackgrounded()
+          }
+        }
+      )
+      return publisher
+    }
+  }
+}
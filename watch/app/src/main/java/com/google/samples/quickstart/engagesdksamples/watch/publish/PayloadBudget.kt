@@ -0,0 +1,97 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.watch.publish
+
+import android.os.Parcel
+import android.os.Parcelable
+import android.util.Log
+import java.util.concurrent.ConcurrentHashMap
+
+/** Measures how many bytes an object takes once marshalled for a binder call. */
+object ParcelSizeEstimator {
+  fun sizeOf(parcelable: Parcelable): Int {
+    val parcel = Parcel.obtain()
+    try {
+      parcelable.writeToParcel(parcel, /* flags= */ 0)
+      return parcel.dataSize()
+    } finally {
+      parcel.recycle()
+    }
+  }
+}
+
+/** The entities of a cluster that fit a [PayloadBudget], and their marshalled size. */
+data class PlannedEntities<T>(
+  val entities: List<T>,
+  val payloadBytes: Int,
+  val droppedEntities: Int
+)
+
+/**
+ * Keeps publish requests under [budgetBytes]. A request crosses the binder in a single transaction,
+ * whose buffer is shared by the whole process and is about 1MB, so requests larger than that fail
+ * with TransactionTooLargeException and large ones are slow to marshal.
+ */
+class PayloadBudget(private val budgetBytes: Int = DEFAULT_BUDGET_BYTES) {
+
+  init {
+    require(budgetBytes > 0) { "budgetBytes must be positive." }
+  }
+
+  /**
+   * Returns the [entities] whose combined marshalled size fits the budget, in their original order.
+   * Entities should be ordered most important first. An entity that does not fit in what is left of
+   * the budget is dropped on its own, so a single oversized entity does not empty the cluster.
+   */
+  fun <T : Parcelable> plan(entities: List<T>): PlannedEntities<T> {
+    val kept = ArrayList<T>(entities.size)
+    var payloadBytes = 0
+    for (entity in entities) {
+      val entityBytes = ParcelSizeEstimator.sizeOf(entity)
+      if (payloadBytes + entityBytes > budgetBytes) {
+        continue
+      }
+      payloadBytes += entityBytes
+      kept.add(entity)
+    }
+    return PlannedEntities(kept, payloadBytes, entities.size - kept.size)
+  }
+
+  companion object {
+    /** A quarter of the binder transaction buffer, leaving room for other calls in flight. */
+    const val DEFAULT_BUDGET_BYTES = 256 * 1024
+  }
+}
+
+/** The estimated size of the last request published for each publish type. */
+object PayloadMetrics {
+  private const val TAG = "PAYLOAD_METRICS"
+  private val lastPayloadBytes = ConcurrentHashMap<String, Int>()
+
+  /** Records and logs the size of a [publishType] request made of the [planned] clusters. */
+  fun record(publishType: String, vararg planned: PlannedEntities<*>) {
+    val payloadBytes = planned.sumOf { cluster -> cluster.payloadBytes }
+    lastPayloadBytes[publishType] = payloadBytes
+    Log.i(
+      TAG,
+      "$publishType: ${planned.sumOf { cluster -> cluster.entities.size }} entities, " +
+        "$payloadBytes bytes, ${planned.sumOf { cluster -> cluster.droppedEntities }} dropped " +
+        "over budget"
+    )
+  }
+
+  /** Returns the size, in bytes, of the entities last published for [publishType], if any. */
+  fun lastPayloadBytes(publishType: String): Int? = lastPayloadBytes[publishType]
+}
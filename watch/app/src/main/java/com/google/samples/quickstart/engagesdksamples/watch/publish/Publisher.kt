@@ -19,33 +19,46 @@ import android.util.Log
 import androidx.work.ExistingPeriodicWorkPolicy
 import androidx.work.ExistingWorkPolicy
 import androidx.work.OneTimeWorkRequestBuilder
+import androidx.work.OutOfQuotaPolicy
 import androidx.work.PeriodicWorkRequestBuilder
 import androidx.work.WorkManager
 import androidx.work.workDataOf
 import com.google.android.engage.service.AppEngageErrorCode
 import com.google.android.engage.service.AppEngageException
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.OutboxEntry
+import com.google.samples.quickstart.engagesdksamples.watch.data.room.WatchDatabase
+import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.OUTBOX_RECORD_ALL
 import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.PERIODIC_WORKER_NAME_CONTINUATION
 import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.PERIODIC_WORKER_NAME_FEATURED
+import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.PERIODIC_WORKER_NAME_OUTBOX
 import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.PERIODIC_WORKER_NAME_RECOMMENDATIONS
 import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.PERIODIC_WORKER_NAME_USER_ACCOUNT_MANAGEMENT
 import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.PUBLISH_TYPE
+import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.PUBLISH_TYPE_ACCOUNT_TRANSITION
 import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.PUBLISH_TYPE_CONTINUATION
 import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.PUBLISH_TYPE_FEATURED
+import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.PUBLISH_TYPE_OUTBOX
 import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.PUBLISH_TYPE_RECOMMENDATIONS
-import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.PUBLISH_TYPE_USER_ACCOUNT_MANAGEMENT
-import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.WORKER_NAME_CONTINUATION
-import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.WORKER_NAME_FEATURED
-import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.WORKER_NAME_RECOMMENDATIONS
+import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.WORKER_NAME_ACCOUNT_TRANSITION
+import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.WORKER_NAME_OUTBOX
 import java.util.concurrent.TimeUnit
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.launch
 
 object Publisher {
   private const val TAG = "PUBLISHER:"
 
+  private val outboxScope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+
   /**
    * Sets recommendation clusters, featured cluster, continuation cluster, and user management
    * cluster to the appropriate state by publishing or deleting the clusters based on whether a
    * saved account is present. While doing so, also sets publish status to the appropriate state.
-   * This occurs immediately then once every 24 hours.
+   * This occurs immediately then once every 24 hours, by recording every cluster in the publish
+   * outbox and delivering it.
    *
    * <p>
    * The appropriate state is that if a saved account is present, we publish the recommendation,
@@ -67,96 +80,131 @@ object Publisher {
    * @param context Application's context.
    */
   fun publishPeriodically(context: Context) {
-    periodicallyCallEngageServiceWorker(
-      PERIODIC_WORKER_NAME_RECOMMENDATIONS,
-      PUBLISH_TYPE_RECOMMENDATIONS,
-      context
-    )
-    periodicallyCallEngageServiceWorker(
-      PERIODIC_WORKER_NAME_CONTINUATION,
-      PUBLISH_TYPE_CONTINUATION,
-      context
-    )
-    periodicallyCallEngageServiceWorker(
-      PERIODIC_WORKER_NAME_FEATURED,
-      PUBLISH_TYPE_FEATURED,
-      context
-    )
-    periodicallyCallEngageServiceWorker(
-      PERIODIC_WORKER_NAME_USER_ACCOUNT_MANAGEMENT,
-      PUBLISH_TYPE_USER_ACCOUNT_MANAGEMENT,
-      context
+    val workManager = WorkManager.getInstance(context)
+    for (workerName in LEGACY_PERIODIC_WORKER_NAMES) {
+      workManager.cancelUniqueWork(workerName)
+    }
+    val workRequest =
+      PeriodicWorkRequestBuilder<EngageServiceWorker>(
+          repeatInterval = 24,
+          repeatIntervalTimeUnit = TimeUnit.HOURS
+        )
+        .setInputData(workDataOf(PUBLISH_TYPE to PUBLISH_TYPE_OUTBOX, OUTBOX_RECORD_ALL to true))
+        .build()
+    workManager.enqueueUniquePeriodicWork(
+      PERIODIC_WORKER_NAME_OUTBOX,
+      ExistingPeriodicWorkPolicy.CANCEL_AND_REENQUEUE,
+      workRequest
     )
   }
 
   /**
-   * Sets recommendation clusters and publish status to the appropriate state using WorkManager.
-   * More detail on what the appropriate state is described in {@link
+   * Sets recommendation clusters and publish status to the appropriate state through the publish
+   * outbox. More detail on what the appropriate state is described in {@link
    * com.google.samples.quickstart.engagesdksamples.watch.publish.Publisher#publishPeriodically(Context)}.
    *
    * @param context Application's context
+   * @return Job that completes once the clusters have been recorded in the outbox
    */
-  fun publishRecommendationClusters(context: Context) {
-    queueOneTimeEngageServiceWorker(
-      WORKER_NAME_RECOMMENDATIONS,
-      PUBLISH_TYPE_RECOMMENDATIONS,
-      context
-    )
-  }
+  fun publishRecommendationClusters(context: Context): Job =
+    recordInOutbox(context, PUBLISH_TYPE_RECOMMENDATIONS)
 
   /**
-   * Sets featured cluster and publish status to the appropriate state using WorkManager. More
-   * detail on what the appropriate state is described in {@link
+   * Sets featured cluster and publish status to the appropriate state through the publish outbox.
+   * More detail on what the appropriate state is described in {@link
    * com.google.samples.quickstart.engagesdksamples.watch.publish.Publisher#publishPeriodically(Context)}.
    *
    * @param context Application's context
+   * @return Job that completes once the cluster has been recorded in the outbox
    */
-  fun publishFeaturedClusters(context: Context) {
-    queueOneTimeEngageServiceWorker(WORKER_NAME_FEATURED, PUBLISH_TYPE_FEATURED, context)
-  }
+  fun publishFeaturedClusters(context: Context): Job =
+    recordInOutbox(context, PUBLISH_TYPE_FEATURED)
 
   /**
-   * Sets continuation cluster and publish status to the appropriate state using WorkManager. More
-   * detail on what the appropriate state is described in {@link
+   * Sets continuation cluster and publish status to the appropriate state through the publish
+   * outbox. More detail on what the appropriate state is described in {@link
    * com.google.samples.quickstart.engagesdksamples.watch.publish.Publisher#publishPeriodically(Context)}.
    *
    * @param context Application's context
+   * @return Job that completes once the cluster has been recorded in the outbox
    */
-  fun publishContinuationClusters(context: Context) {
-    queueOneTimeEngageServiceWorker(WORKER_NAME_CONTINUATION, PUBLISH_TYPE_CONTINUATION, context)
-  }
+  fun publishContinuationClusters(context: Context): Job =
+    recordInOutbox(context, PUBLISH_TYPE_CONTINUATION)
 
-  private fun periodicallyCallEngageServiceWorker(
-    workerName: String,
-    publishType: String,
-    context: Context
-  ) {
+  /**
+   * Moves all clusters and the publish status to the state matching whether the user is signed in,
+   * as a single expedited work request, so that a sign in or sign out shows on the Engage surface
+   * within seconds. Publishes queued or running for the previous account state are cancelled first,
+   * so they cannot overwrite the transition, and a new delivery of the outbox is queued so entries
+   * recorded before the transition are still delivered, for the new account state. Periodic
+   * publishing resumes the next time [publishPeriodically] is called.
+   *
+   * Call after the account change has been written to the database.
+   *
+   * @param context Application's context
+   */
+  fun publishAccountTransition(context: Context) {
+    val workManager = WorkManager.getInstance(context)
+    for (workerName in STALE_ON_ACCOUNT_TRANSITION) {
+      workManager.cancelUniqueWork(workerName)
+    }
     val workRequest =
-      PeriodicWorkRequestBuilder<EngageServiceWorker>(
-          repeatInterval = 24,
-          repeatIntervalTimeUnit = TimeUnit.HOURS
-        )
-        .setInputData(workDataOf(PUBLISH_TYPE to publishType))
+      OneTimeWorkRequestBuilder<EngageServiceWorker>()
+        .setExpedited(OutOfQuotaPolicy.RUN_AS_NON_EXPEDITED_WORK_REQUEST)
+        .setInputData(workDataOf(PUBLISH_TYPE to PUBLISH_TYPE_ACCOUNT_TRANSITION))
         .build()
-    WorkManager.getInstance(context)
-      .enqueueUniquePeriodicWork(
-        workerName,
-        ExistingPeriodicWorkPolicy.CANCEL_AND_REENQUEUE,
-        workRequest
-      )
+    workManager.enqueueUniqueWork(
+      WORKER_NAME_ACCOUNT_TRANSITION,
+      ExistingWorkPolicy.REPLACE,
+      workRequest
+    )
+    enqueueOutboxDelivery(workManager)
   }
 
-  private fun queueOneTimeEngageServiceWorker(
-    workerName: String,
-    publishType: String,
-    context: Context
-  ) {
+  private val LEGACY_PERIODIC_WORKER_NAMES =
+    listOf(
+      PERIODIC_WORKER_NAME_RECOMMENDATIONS,
+      PERIODIC_WORKER_NAME_CONTINUATION,
+      PERIODIC_WORKER_NAME_FEATURED,
+      PERIODIC_WORKER_NAME_USER_ACCOUNT_MANAGEMENT
+    )
+
+  // Entries left in the outbox by a cancelled delivery are delivered by the one the transition
+  // queues in its place.
+  private val STALE_ON_ACCOUNT_TRANSITION =
+    listOf(WORKER_NAME_OUTBOX, PERIODIC_WORKER_NAME_OUTBOX) + LEGACY_PERIODIC_WORKER_NAMES
+
+  /**
+   * Records [publishType] in the publish outbox, then makes sure a delivery of the outbox is
+   * queued. A delivery is appended after any delivery already queued or running, so an entry
+   * recorded while the outbox is being delivered is picked up by the next delivery.
+   */
+  private fun recordInOutbox(context: Context, publishType: String): Job {
+    val appContext = context.applicationContext
+    return outboxScope.launch {
+      WatchDatabase.getDatabase(appContext)
+        .outboxDao()
+        .insertEntry(
+          OutboxEntry(publishType = publishType, recordedAtMillis = System.currentTimeMillis())
+        )
+      enqueueOutboxDelivery(WorkManager.getInstance(appContext))
+    }
+  }
+
+  /**
+   * Queues a delivery of the outbox after any delivery already queued or running. A delivery that
+   * was cancelled is replaced instead.
+   */
+  private fun enqueueOutboxDelivery(workManager: WorkManager) {
     val workRequest =
       OneTimeWorkRequestBuilder<EngageServiceWorker>()
-        .setInputData(workDataOf(PUBLISH_TYPE to publishType))
+        .setInputData(workDataOf(PUBLISH_TYPE to PUBLISH_TYPE_OUTBOX))
         .build()
-    WorkManager.getInstance(context)
-      .enqueueUniqueWork(workerName, ExistingWorkPolicy.REPLACE, workRequest)
+    workManager.enqueueUniqueWork(
+      WORKER_NAME_OUTBOX,
+      ExistingWorkPolicy.APPEND_OR_REPLACE,
+      workRequest
+    )
   }
 
   fun logPublishing(publishingException: AppEngageException) {
@@ -0,0 +1,42 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.watch.ui
+
+import androidx.compose.runtime.Composable
+import androidx.compose.runtime.State
+import androidx.compose.runtime.collectAsState
+import androidx.compose.runtime.remember
+import androidx.compose.ui.platform.LocalLifecycleOwner
+import androidx.lifecycle.Lifecycle
+import androidx.lifecycle.flowWithLifecycle
+import kotlinx.coroutines.flow.StateFlow
+
+/**
+ * Collects this [StateFlow] into a Compose [State] only while the current lifecycle is at least
+ * [minActiveState]. Collection stops when the app goes to the background, so upstream work such as
+ * database queries stops too.
+ *
+ * Mirrors `collectAsStateWithLifecycle` from lifecycle-runtime-compose, which requires a newer
+ * Kotlin compiler than this project uses.
+ */
+@Composable
+fun <T> StateFlow<T>.collectAsStateWithLifecycle(
+  minActiveState: Lifecycle.State = Lifecycle.State.STARTED
+): State<T> {
+  val lifecycle = LocalLifecycleOwner.current.lifecycle
+  val lifecycleAwareFlow =
+    remember(this, lifecycle, minActiveState) { flowWithLifecycle(lifecycle, minActiveState) }
+  return lifecycleAwareFlow.collectAsState(initial = value)
+}
@@ -14,7 +14,6 @@
  */
 package com.google.samples.quickstart.engagesdksamples.watch.ui.containers
 
-import android.content.Context
 import androidx.compose.foundation.ExperimentalFoundationApi
 import androidx.compose.foundation.background
 import androidx.compose.foundation.gestures.snapping.rememberSnapFlingBehavior
@@ -23,6 +22,7 @@ import androidx.compose.foundation.layout.Column
 import androidx.compose.foundation.layout.fillMaxWidth
 import androidx.compose.foundation.layout.height
 import androidx.compose.foundation.layout.padding
+import androidx.compose.foundation.lazy.LazyListScope
 import androidx.compose.foundation.lazy.LazyRow
 import androidx.compose.foundation.lazy.items
 import androidx.compose.foundation.lazy.rememberLazyListState
@@ -37,83 +37,107 @@ import androidx.compose.ui.res.stringResource
 import androidx.compose.ui.text.font.FontWeight
 import androidx.compose.ui.unit.dp
 import androidx.compose.ui.unit.sp
-import com.google.samples.quickstart.engagesdksamples.watch.MainActivityViewModel
 import com.google.samples.quickstart.engagesdksamples.watch.R
 import com.google.samples.quickstart.engagesdksamples.watch.data.model.MovieItem
 
-class Carousels(context: Context) {
-  private val cards = MovieCards(context)
+/*
+ * Each carousel keys its cards by movie id, so a card keeps its state and is only recomposed when
+ * its own movie changes, even when movies are added, removed or reordered around it.
+ */
+internal const val MOVIE_CARD_CONTENT_TYPE = "MovieCard"
+internal const val FEATURED_CARD_CONTENT_TYPE = "FeaturedMovieCard"
+internal const val CONTINUE_CARD_CONTENT_TYPE = "ContinueCard"
 
-  @Composable
-  fun MovieCarousel(
-    clusterTitle: String,
-    movieList: List<MovieItem>,
-    viewModel: MainActivityViewModel
-  ) {
-    Column(modifier = Modifier.padding(15.dp)) {
-      Text(
-        text = clusterTitle,
-        fontSize = 18.sp,
-        fontWeight = FontWeight.Bold,
-        modifier = Modifier.padding(10.dp)
-      )
-      LazyRow(
-        modifier =
-          Modifier.clip(RoundedCornerShape(20.dp))
-            .background(MaterialTheme.colorScheme.tertiaryContainer)
-      ) {
-        items(movieList) { movie -> cards.MovieCard(movieItem = movie, viewModel) }
+/** Adds a card of [contentType] for each movie in [movieList], keyed by movie id. */
+internal fun LazyListScope.movieCards(
+  movieList: List<MovieItem>,
+  contentType: String,
+  card: @Composable (MovieItem) -> Unit
+) {
+  items(movieList, key = { movie -> movie.id }, contentType = { contentType }) { movie ->
+    card(movie)
+  }
+}
+
+@Composable
+fun MovieCarousel(
+  clusterTitle: String,
+  movieList: List<MovieItem>,
+  onWatch: (MovieItem) -> Unit
+) {
+  Column(modifier = Modifier.padding(15.dp)) {
+    Text(
+      text = clusterTitle,
+      fontSize = 18.sp,
+      fontWeight = FontWeight.Bold,
+      modifier = Modifier.padding(10.dp)
+    )
+    LazyRow(
+      modifier =
+        Modifier.clip(RoundedCornerShape(20.dp))
+          .background(MaterialTheme.colorScheme.tertiaryContainer)
+    ) {
+      movieCards(movieList, MOVIE_CARD_CONTENT_TYPE) { movie ->
+        MovieCard(movieItem = movie, onWatch = onWatch)
       }
     }
   }
+}
 
-  @OptIn(ExperimentalFoundationApi::class)
-  @Composable
-  fun FeaturedCarousel(
-    clusterTitle: String,
-    movieList: List<MovieItem>,
-    viewModel: MainActivityViewModel
-  ) {
-    val state = rememberLazyListState()
-    Column(modifier = Modifier.padding(20.dp)) {
-      Text(
-        text = clusterTitle,
-        fontSize = 18.sp,
-        fontWeight = FontWeight.Bold,
-        modifier = Modifier.padding(bottom = 5.dp, start = 10.dp, end = 10.dp)
-      )
-      LazyRow(
-        horizontalArrangement = Arrangement.SpaceAround,
-        modifier =
-          Modifier.height(175.dp)
-            .clip(RoundedCornerShape(20.dp))
-            .background(MaterialTheme.colorScheme.tertiaryContainer),
-        state = state,
-        flingBehavior = rememberSnapFlingBehavior(lazyListState = state),
-      ) {
-        items(movieList) { movie -> cards.FeaturedMovieCard(movieItem = movie, viewModel) }
+@OptIn(ExperimentalFoundationApi::class)
+@Composable
+fun FeaturedCarousel(
+  clusterTitle: String,
+  movieList: List<MovieItem>,
+  onWatch: (MovieItem) -> Unit
+) {
+  val state = rememberLazyListState()
+  Column(modifier = Modifier.padding(20.dp)) {
+    Text(
+      text = clusterTitle,
+      fontSize = 18.sp,
+      fontWeight = FontWeight.Bold,
+      modifier = Modifier.padding(bottom = 5.dp, start = 10.dp, end = 10.dp)
+    )
+    LazyRow(
+      horizontalArrangement = Arrangement.SpaceAround,
+      modifier =
+        Modifier.height(175.dp)
+          .clip(RoundedCornerShape(20.dp))
+          .background(MaterialTheme.colorScheme.tertiaryContainer),
+      state = state,
+      flingBehavior = rememberSnapFlingBehavior(lazyListState = state),
+    ) {
+      movieCards(movieList, FEATURED_CARD_CONTENT_TYPE) { movie ->
+        FeaturedMovieCard(movieItem = movie, onWatch = onWatch)
       }
     }
   }
+}
 
-  @Composable
-  fun ContinuationCarousel(movieList: List<MovieItem>, viewModel: MainActivityViewModel) {
-    Column(
-      horizontalAlignment = Alignment.CenterHorizontally,
-      modifier = Modifier.padding(15.dp).fillMaxWidth()
+@Composable
+fun ContinuationCarousel(
+  movieList: List<MovieItem>,
+  onResume: (MovieItem) -> Unit,
+  onRemove: (MovieItem) -> Unit
+) {
+  Column(
+    horizontalAlignment = Alignment.CenterHorizontally,
+    modifier = Modifier.padding(15.dp).fillMaxWidth()
+  ) {
+    Text(
+      text = stringResource(R.string.continue_watching_carousel),
+      fontSize = 18.sp,
+      fontWeight = FontWeight.Bold,
+      modifier = Modifier.padding(10.dp).fillMaxWidth()
+    )
+    LazyRow(
+      modifier =
+        Modifier.clip(RoundedCornerShape(20.dp))
+          .background(MaterialTheme.colorScheme.tertiaryContainer)
     ) {
-      Text(
-        text = stringResource(R.string.continue_watching_carousel),
-        fontSize = 18.sp,
-        fontWeight = FontWeight.Bold,
-        modifier = Modifier.padding(10.dp).fillMaxWidth()
-      )
-      LazyRow(
-        modifier =
-          Modifier.clip(RoundedCornerShape(20.dp))
-            .background(MaterialTheme.colorScheme.tertiaryContainer)
-      ) {
-        items(movieList) { movie -> cards.ContinueCard(movieItem = movie, viewModel) }
+      movieCards(movieList, CONTINUE_CARD_CONTENT_TYPE) { movie ->
+        ContinueCard(movieItem = movie, onResume = onResume, onRemove = onRemove)
       }
     }
   }
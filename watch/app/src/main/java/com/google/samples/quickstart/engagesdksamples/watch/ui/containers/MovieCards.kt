@@ -14,9 +14,6 @@
  */
 package com.google.samples.quickstart.engagesdksamples.watch.ui.containers
 
-import android.content.Context
-import android.widget.Toast
-import androidx.compose.foundation.Image
 import androidx.compose.foundation.layout.Arrangement
 import androidx.compose.foundation.layout.Box
 import androidx.compose.foundation.layout.Row
@@ -39,148 +36,91 @@ import androidx.compose.material3.Text
 import androidx.compose.runtime.Composable
 import androidx.compose.ui.Alignment
 import androidx.compose.ui.Modifier
-import androidx.compose.ui.draw.blur
-import androidx.compose.ui.res.painterResource
 import androidx.compose.ui.text.font.FontWeight
 import androidx.compose.ui.unit.dp
 import androidx.compose.ui.unit.sp
-import com.google.android.engage.video.datamodel.WatchNextType
-import com.google.samples.quickstart.engagesdksamples.watch.MainActivityViewModel
 import com.google.samples.quickstart.engagesdksamples.watch.data.model.MovieItem
+import com.google.samples.quickstart.engagesdksamples.watch.ui.images.PosterImage
 
-class MovieCards(val context: Context) {
-  @Composable
-  fun MovieCard(movieItem: MovieItem, viewModel: MainActivityViewModel) {
-    ElevatedCard(
-      modifier = Modifier.width(140.dp).height(180.dp).padding(10.dp),
-      shape = CardDefaults.outlinedShape,
-      colors = CardDefaults.cardColors(MaterialTheme.colorScheme.tertiary),
+/*
+ * Movie cards are stateless: they receive an immutable [MovieItem] and report clicks through
+ * callbacks. With only stable parameters, Compose skips a card whose movie and callbacks are
+ * unchanged, so a database update recomposes only the cards of the movies that changed.
+ */
+
+@Composable
+fun MovieCard(movieItem: MovieItem, onWatch: (MovieItem) -> Unit, modifier: Modifier = Modifier) {
+  ElevatedCard(
+    modifier = modifier.width(140.dp).height(180.dp).padding(10.dp),
+    shape = CardDefaults.outlinedShape,
+    colors = CardDefaults.cardColors(MaterialTheme.colorScheme.tertiary),
+  ) {
+    PosterImage(movieItem.landscapePoster, width = 130.dp, height = 100.dp, blurred = true)
+    Row(
+      horizontalArrangement = Arrangement.SpaceEvenly,
+      verticalAlignment = Alignment.CenterVertically,
+      modifier = Modifier.fillMaxWidth().fillMaxHeight()
     ) {
-      Image(
-        painter = painterResource(movieItem.landscapePoster),
-        contentDescription = null,
-        modifier = Modifier.width(130.dp).blur(130.dp).height(100.dp)
-      )
-      Row(
-        horizontalArrangement = Arrangement.SpaceEvenly,
-        verticalAlignment = Alignment.CenterVertically,
-        modifier = Modifier.fillMaxWidth().fillMaxHeight()
-      ) {
-        Text(movieItem.movieName, fontWeight = FontWeight.Bold)
-        IconButton(
-          onClick = {
-            viewModel.updateMovieItem(
-              movieItem.apply {
-                currentlyWatching = true
-                lastPlaybackTimeMillis += 60000000L
-                lastEngagementTimeMillis = 60000000L
-                watchNextType = WatchNextType.TYPE_CONTINUE
-              }
-            )
-            Toast.makeText(context, toastWatchMovieText, Toast.LENGTH_SHORT).show()
-          }
-        ) {
-          Icon(imageVector = Icons.Rounded.PlayArrow, contentDescription = null)
-        }
+      Text(movieItem.movieName, fontWeight = FontWeight.Bold)
+      IconButton(onClick = { onWatch(movieItem) }) {
+        Icon(imageVector = Icons.Rounded.PlayArrow, contentDescription = null)
       }
     }
   }
+}
 
-  @Composable
-  fun ContinueCard(movieItem: MovieItem, viewModel: MainActivityViewModel) {
-    ElevatedCard(
-      modifier = Modifier.width(140.dp).height(180.dp).padding(10.dp),
-      shape = CardDefaults.outlinedShape,
-      colors = CardDefaults.cardColors(MaterialTheme.colorScheme.tertiary),
-    ) {
-      Box(modifier = Modifier.width(140.dp)) {
-        Image(
-          painter = painterResource(movieItem.landscapePoster),
-          contentDescription = null,
-          modifier = Modifier.fillMaxWidth().height(100.dp).blur(130.dp)
-        )
-        IconButton(
-          onClick = {
-            viewModel.updateMovieItem(
-              movieItem.apply {
-                currentlyWatching = false
-                lastPlaybackTimeMillis += 60000000L
-                lastEngagementTimeMillis = 60000000L
-                watchNextType = WatchNextType.TYPE_UNKNOWN
-              }
-            )
-            Toast.makeText(context, toastRemoveFromContinueText, Toast.LENGTH_SHORT).show()
-          }
-        ) {
-          Icon(imageVector = Icons.Rounded.Close, contentDescription = null)
-        }
+@Composable
+fun ContinueCard(
+  movieItem: MovieItem,
+  onResume: (MovieItem) -> Unit,
+  onRemove: (MovieItem) -> Unit,
+  modifier: Modifier = Modifier
+) {
+  ElevatedCard(
+    modifier = modifier.width(140.dp).height(180.dp).padding(10.dp),
+    shape = CardDefaults.outlinedShape,
+    colors = CardDefaults.cardColors(MaterialTheme.colorScheme.tertiary),
+  ) {
+    Box(modifier = Modifier.width(140.dp)) {
+      PosterImage(movieItem.landscapePoster, width = 140.dp, height = 100.dp, blurred = true)
+      IconButton(onClick = { onRemove(movieItem) }) {
+        Icon(imageVector = Icons.Rounded.Close, contentDescription = null)
       }
-      Row(
-        horizontalArrangement = Arrangement.SpaceEvenly,
-        verticalAlignment = Alignment.CenterVertically,
-        modifier = Modifier.fillMaxWidth().fillMaxHeight()
-      ) {
-        Text(movieItem.movieName, fontWeight = FontWeight.Bold)
-        IconButton(
-          onClick = {
-            viewModel.updateMovieItem(
-              movieItem.apply {
-                currentlyWatching = true
-                lastPlaybackTimeMillis += 60000000L
-                lastEngagementTimeMillis = 60000000L
-                watchNextType = WatchNextType.TYPE_CONTINUE
-              }
-            )
-            Toast.makeText(context, toastInMovieText, Toast.LENGTH_SHORT).show()
-          }
-        ) {
-          Icon(imageVector = Icons.Rounded.PlayArrow, contentDescription = null)
-        }
+    }
+    Row(
+      horizontalArrangement = Arrangement.SpaceEvenly,
+      verticalAlignment = Alignment.CenterVertically,
+      modifier = Modifier.fillMaxWidth().fillMaxHeight()
+    ) {
+      Text(movieItem.movieName, fontWeight = FontWeight.Bold)
+      IconButton(onClick = { onResume(movieItem) }) {
+        Icon(imageVector = Icons.Rounded.PlayArrow, contentDescription = null)
       }
     }
   }
+}
 
-  @Composable
-  fun FeaturedMovieCard(movieItem: MovieItem, viewModel: MainActivityViewModel) {
-    Card(
-      modifier = Modifier.width(350.dp).padding(10.dp).fillMaxHeight(),
-      shape = RoundedCornerShape(15.dp),
-      colors = CardDefaults.cardColors(MaterialTheme.colorScheme.primary),
+@Composable
+fun FeaturedMovieCard(
+  movieItem: MovieItem,
+  onWatch: (MovieItem) -> Unit,
+  modifier: Modifier = Modifier
+) {
+  Card(
+    modifier = modifier.width(350.dp).padding(10.dp).fillMaxHeight(),
+    shape = RoundedCornerShape(15.dp),
+    colors = CardDefaults.cardColors(MaterialTheme.colorScheme.primary),
+  ) {
+    PosterImage(movieItem.landscapePoster, width = 350.dp, height = 100.dp, blurred = true)
+    Row(
+      horizontalArrangement = Arrangement.SpaceAround,
+      verticalAlignment = Alignment.CenterVertically,
+      modifier = Modifier.fillMaxWidth().fillMaxHeight()
     ) {
-      Image(
-        painter = painterResource(movieItem.landscapePoster),
-        contentDescription = null,
-        modifier = Modifier.width(350.dp).height(100.dp).blur(130.dp)
-      )
-      Row(
-        horizontalArrangement = Arrangement.SpaceAround,
-        verticalAlignment = Alignment.CenterVertically,
-        modifier = Modifier.fillMaxWidth().fillMaxHeight()
-      ) {
-        Text(movieItem.movieName, fontWeight = FontWeight.Bold, fontSize = 18.sp)
-        IconButton(
-          onClick = {
-            viewModel.updateMovieItem(
-              movieItem.apply {
-                currentlyWatching = true
-                lastPlaybackTimeMillis += 60000000L
-                lastEngagementTimeMillis = 60000000L
-                watchNextType = WatchNextType.TYPE_CONTINUE
-              }
-            )
-            Toast.makeText(context, toastWatchMovieText, Toast.LENGTH_SHORT).show()
-          }
-        ) {
-          Icon(imageVector = Icons.Rounded.PlayArrow, contentDescription = null)
-        }
+      Text(movieItem.movieName, fontWeight = FontWeight.Bold, fontSize = 18.sp)
+      IconButton(onClick = { onWatch(movieItem) }) {
+        Icon(imageVector = Icons.Rounded.PlayArrow, contentDescription = null)
       }
     }
   }
-
-  // Toast notification texts
-  companion object {
-    private const val toastWatchMovieText = "Added to Continue"
-    private const val toastInMovieText = "Watching"
-    private const val toastRemoveFromContinueText = "Removed from Continue"
-  }
 }
@@ -14,7 +14,6 @@
  */
 package com.google.samples.quickstart.engagesdksamples.watch.ui.home
 
-import android.content.Context
 import android.widget.Toast
 import androidx.compose.foundation.Image
 import androidx.compose.foundation.layout.Arrangement
@@ -40,14 +39,12 @@ import androidx.compose.material3.Text
 import androidx.compose.material3.TopAppBar
 import androidx.compose.material3.TopAppBarDefaults
 import androidx.compose.runtime.Composable
-import androidx.compose.runtime.MutableState
-import androidx.compose.runtime.collectAsState
 import androidx.compose.runtime.getValue
-import androidx.compose.runtime.mutableStateOf
 import androidx.compose.runtime.remember
 import androidx.compose.ui.Alignment
 import androidx.compose.ui.Modifier
 import androidx.compose.ui.draw.blur
+import androidx.compose.ui.platform.LocalContext
 import androidx.compose.ui.res.painterResource
 import androidx.compose.ui.res.stringResource
 import androidx.compose.ui.text.font.FontWeight
@@ -57,183 +54,211 @@ import androidx.compose.ui.unit.dp
 import androidx.compose.ui.unit.sp
 import com.google.samples.quickstart.engagesdksamples.watch.MainActivityViewModel
 import com.google.samples.quickstart.engagesdksamples.watch.R
-import com.google.samples.quickstart.engagesdksamples.watch.ui.containers.Carousels
-import kotlinx.coroutines.CoroutineScope
-import kotlinx.coroutines.Dispatchers
-import kotlinx.coroutines.launch
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.HomeFeed
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.MovieItem
+import com.google.samples.quickstart.engagesdksamples.watch.ui.collectAsStateWithLifecycle
+import com.google.samples.quickstart.engagesdksamples.watch.ui.containers.ContinuationCarousel
+import com.google.samples.quickstart.engagesdksamples.watch.ui.containers.FeaturedCarousel
+import com.google.samples.quickstart.engagesdksamples.watch.ui.containers.MovieCarousel
 
-class HomeScreen(val context: Context, val showOssLicense: () -> Unit) {
+enum class DrawerState {
+  OPEN,
+  CLOSED
+}
 
-  @OptIn(ExperimentalMaterial3Api::class)
-  @Composable
-  fun Home(viewModel: MainActivityViewModel) {
-    val movies by viewModel.movies.collectAsState(initial = emptyList())
-    val currentlyWatchingMovies by
-      viewModel.currentlyWatchingMovies.collectAsState(initial = emptyList())
+enum class SignInState {
+  SIGNED_IN,
+  SIGNED_OFF
+}
 
-    val drawerState = remember { mutableStateOf(DrawerState.CLOSED) }
-    val signedInState = remember { mutableStateOf(SignInState.SIGNED_OFF) }
-    val carousels = Carousels(context)
+/**
+ * Home screen backed by [viewModel]. State is collected only while the screen is at least started,
+ * so nothing is queried or recomposed while the app is in the background.
+ */
+@Composable
+fun HomeRoute(viewModel: MainActivityViewModel, showOssLicense: () -> Unit) {
+  val homeFeed by viewModel.homeFeed.collectAsStateWithLifecycle()
+  val signInState by viewModel.signInState.collectAsStateWithLifecycle()
+  val drawerState by viewModel.drawerState.collectAsStateWithLifecycle()
 
-    Scaffold(
-      topBar = {
-        TopAppBar(
-          title = {
-            Text(
-              stringResource(R.string.top_bar_title),
-              maxLines = 2,
-              overflow = TextOverflow.Ellipsis
+  // Remembered so the cards receive the same callbacks on every recomposition and can be skipped.
+  val context = LocalContext.current
+  val addedToContinueToast = stringResource(R.string.added_to_continue_toast)
+  val watchingToast = stringResource(R.string.watching_toast)
+  val removedFromContinueToast = stringResource(R.string.removed_from_continue_toast)
+  val signedInToast = stringResource(R.string.signed_in_toast)
+  val signedOutToast = stringResource(R.string.signed_out_toast)
+  val onWatch: (MovieItem) -> Unit =
+    remember(viewModel, addedToContinueToast) {
+      { movie ->
+        viewModel.watchMovie(movie)
+        Toast.makeText(context, addedToContinueToast, Toast.LENGTH_SHORT).show()
+      }
+    }
+  val onResume: (MovieItem) -> Unit =
+    remember(viewModel, watchingToast) {
+      { movie ->
+        viewModel.watchMovie(movie)
+        Toast.makeText(context, watchingToast, Toast.LENGTH_SHORT).show()
+      }
+    }
+  val onRemove: (MovieItem) -> Unit =
+    remember(viewModel, removedFromContinueToast) {
+      { movie ->
+        viewModel.removeFromContinueWatching(movie)
+        Toast.makeText(context, removedFromContinueToast, Toast.LENGTH_SHORT).show()
+      }
+    }
+  val onSignIn: () -> Unit =
+    remember(viewModel, signedInToast) {
+      {
+        Toast.makeText(context, signedInToast, Toast.LENGTH_SHORT).show()
+        viewModel.signIn()
+      }
+    }
+  val onSignOut: () -> Unit =
+    remember(viewModel, signedOutToast) {
+      {
+        Toast.makeText(context, signedOutToast, Toast.LENGTH_SHORT).show()
+        viewModel.signOut()
+      }
+    }
+  val onToggleDrawer: () -> Unit = remember(viewModel) { { viewModel.toggleDrawer() } }
+
+  HomeScreen(
+    homeFeed = homeFeed,
+    signInState = signInState,
+    drawerState = drawerState,
+    onToggleDrawer = onToggleDrawer,
+    onSignIn = onSignIn,
+    onSignOut = onSignOut,
+    onWatch = onWatch,
+    onResume = onResume,
+    onRemove = onRemove,
+    showOssLicense = showOssLicense
+  )
+}
+
+@OptIn(ExperimentalMaterial3Api::class)
+@Composable
+fun HomeScreen(
+  homeFeed: HomeFeed,
+  signInState: SignInState,
+  drawerState: DrawerState,
+  onToggleDrawer: () -> Unit,
+  onSignIn: () -> Unit,
+  onSignOut: () -> Unit,
+  onWatch: (MovieItem) -> Unit,
+  onResume: (MovieItem) -> Unit,
+  onRemove: (MovieItem) -> Unit,
+  showOssLicense: () -> Unit
+) {
+  Scaffold(
+    topBar = {
+      TopAppBar(
+        title = {
+          Text(
+            stringResource(R.string.top_bar_title),
+            maxLines = 2,
+            overflow = TextOverflow.Ellipsis
+          )
+        },
+        navigationIcon = {
+          IconButton(onClick = onToggleDrawer) {
+            Icon(imageVector = Icons.Outlined.Menu, contentDescription = null)
+          }
+        },
+        actions = {
+          IconButton(onClick = showOssLicense) {
+            Icon(
+              imageVector = Icons.Outlined.Info,
+              contentDescription = stringResource(R.string.oss_licenses)
             )
-          },
-          navigationIcon = {
-            IconButton(
-              onClick = {
-                drawerState.value =
-                  if (drawerState.value == DrawerState.OPEN) {
-                    DrawerState.CLOSED
-                  } else {
-                    DrawerState.OPEN
-                  }
-              }
-            ) {
-              Icon(imageVector = Icons.Outlined.Menu, contentDescription = null)
-            }
-          },
-          actions = {
-            IconButton(onClick = showOssLicense) {
-              Icon(
-                imageVector = Icons.Outlined.Info,
-                contentDescription = stringResource(R.string.oss_licenses)
-              )
-            }
-          },
-          colors =
-            TopAppBarDefaults.mediumTopAppBarColors(MaterialTheme.colorScheme.primaryContainer)
-        )
-      },
-      content = { paddingValues ->
-        Box(modifier = Modifier.padding(paddingValues).fillMaxHeight()) {
-          when (signedInState.value) {
-            SignInState.SIGNED_IN -> {
-              LazyColumn(horizontalAlignment = Alignment.CenterHorizontally) {
-                if (currentlyWatchingMovies.isNotEmpty()) {
-                  item() {
-                    carousels.ContinuationCarousel(
-                      movieList = currentlyWatchingMovies,
-                      viewModel = viewModel
-                    )
-                  }
-                }
-                item() {
-                  carousels.FeaturedCarousel(
-                    clusterTitle = stringResource(R.string.featured_carousel),
-                    movieList = movies,
-                    viewModel
-                  )
-                }
-                item() {
-                  carousels.MovieCarousel(
-                    clusterTitle = stringResource(R.string.recommended_carousel),
-                    movieList = movies,
-                    viewModel
-                  )
-                }
+          }
+        },
+        colors =
+          TopAppBarDefaults.mediumTopAppBarColors(MaterialTheme.colorScheme.primaryContainer)
+      )
+    },
+    content = { paddingValues ->
+      Box(modifier = Modifier.padding(paddingValues).fillMaxHeight()) {
+        when (signInState) {
+          SignInState.SIGNED_IN -> {
+            LazyColumn(horizontalAlignment = Alignment.CenterHorizontally) {
+              if (homeFeed.continueWatching.isNotEmpty()) {
                 item() {
-                  carousels.MovieCarousel(
-                    clusterTitle = stringResource(R.string.recommendation_cluster_title),
-                    movieList = movies,
-                    viewModel
+                  ContinuationCarousel(
+                    movieList = homeFeed.continueWatching,
+                    onResume = onResume,
+                    onRemove = onRemove
                   )
                 }
               }
-            }
-            else -> {
-              Text(
-                text = stringResource(R.string.sign_in_to_view_content),
-                textAlign = TextAlign.Center,
-                fontSize = 24.sp,
-                fontWeight = FontWeight.Bold,
-                modifier = Modifier.fillMaxWidth().fillMaxWidth().padding(18.dp)
-              )
+              item() {
+                FeaturedCarousel(
+                  clusterTitle = stringResource(R.string.featured_carousel),
+                  movieList = homeFeed.featured,
+                  onWatch = onWatch
+                )
+              }
+              item() {
+                MovieCarousel(
+                  clusterTitle = stringResource(R.string.recommended_carousel),
+                  movieList = homeFeed.recommended,
+                  onWatch = onWatch
+                )
+              }
+              item() {
+                MovieCarousel(
+                  clusterTitle = stringResource(R.string.recommendation_cluster_title),
+                  movieList = homeFeed.recommended,
+                  onWatch = onWatch
+                )
+              }
             }
           }
-          if (drawerState.value == DrawerState.OPEN) {
-            UserAccountActions(context, signedInState, viewModel)
+          else -> {
+            Text(
+              text = stringResource(R.string.sign_in_to_view_content),
+              textAlign = TextAlign.Center,
+              fontSize = 24.sp,
+              fontWeight = FontWeight.Bold,
+              modifier = Modifier.fillMaxWidth().fillMaxWidth().padding(18.dp)
+            )
           }
         }
+        if (drawerState == DrawerState.OPEN) {
+          UserAccountActions(onSignIn = onSignIn, onSignOut = onSignOut)
+        }
       }
-    )
-  }
+    }
+  )
+}
 
-  @OptIn(ExperimentalMaterial3Api::class)
-  @Composable
-  fun UserAccountActions(
-    context: Context,
-    signedInState: MutableState<SignInState>,
-    viewModel: MainActivityViewModel
+@OptIn(ExperimentalMaterial3Api::class)
+@Composable
+fun UserAccountActions(onSignIn: () -> Unit, onSignOut: () -> Unit) {
+  ModalDrawerSheet(
+    modifier = Modifier.width(300.dp),
+    drawerContainerColor = MaterialTheme.colorScheme.primaryContainer,
+    drawerTonalElevation = 150.dp
   ) {
-    val signedInToast = stringResource(R.string.signed_in_toast)
-    val signedOutToast = stringResource(R.string.signed_out_toast)
-    ModalDrawerSheet(
-      modifier = Modifier.width(300.dp),
-      drawerContainerColor = MaterialTheme.colorScheme.primaryContainer,
-      drawerTonalElevation = 150.dp
+    Column(
+      verticalArrangement = Arrangement.Center,
+      horizontalAlignment = Alignment.CenterHorizontally,
+      modifier = Modifier.fillMaxWidth()
     ) {
-      Column(
-        verticalArrangement = Arrangement.Center,
-        horizontalAlignment = Alignment.CenterHorizontally,
-        modifier = Modifier.fillMaxWidth()
-      ) {
-        Image(
-          painterResource(R.drawable.blue),
-          contentDescription = null,
-          modifier = Modifier.height(150.dp).fillMaxWidth().blur(400.dp)
-        )
-        Button(
-          onClick = {
-            Toast.makeText(context, signedInToast, Toast.LENGTH_SHORT).show()
-            signIn(viewModel, signedInState)
-          },
-          modifier = Modifier.padding(10.dp)
-        ) {
-          Text(stringResource(R.string.sign_in_button))
-        }
-        Button(
-          onClick = {
-            Toast.makeText(context, signedOutToast, Toast.LENGTH_SHORT).show()
-            signOut(viewModel, signedInState)
-          },
-          modifier = Modifier.padding(10.dp)
-        ) {
-          Text(stringResource(R.string.sign_out_button))
-        }
+      Image(
+        painterResource(R.drawable.blue),
+        contentDescription = null,
+        modifier = Modifier.height(150.dp).fillMaxWidth().blur(400.dp)
+      )
+      Button(onClick = onSignIn, modifier = Modifier.padding(10.dp)) {
+        Text(stringResource(R.string.sign_in_button))
+      }
+      Button(onClick = onSignOut, modifier = Modifier.padding(10.dp)) {
+        Text(stringResource(R.string.sign_out_button))
       }
-    }
-  }
-
-  private fun signIn(viewModel: MainActivityViewModel, signedInState: MutableState<SignInState>) =
-    scope.launch {
-      viewModel.signIn()
-      signedInState.value = SignInState.SIGNED_IN
-    }
-
-  private fun signOut(viewModel: MainActivityViewModel, signedInState: MutableState<SignInState>) =
-    scope.launch {
-      viewModel.signOut()
-      signedInState.value = SignInState.SIGNED_OFF
-    }
-
-  companion object {
-    val scope = CoroutineScope(Dispatchers.Default)
-
-    enum class DrawerState {
-      OPEN,
-      CLOSED
-    }
-
-    enum class SignInState {
-      SIGNED_IN,
-      SIGNED_OFF
     }
   }
 }
@@ -0,0 +1,72 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.watch.ui.images
+
+import androidx.annotation.DrawableRes
+import androidx.compose.foundation.Image
+import androidx.compose.foundation.layout.Box
+import androidx.compose.foundation.layout.size
+import androidx.compose.runtime.Composable
+import androidx.compose.runtime.getValue
+import androidx.compose.runtime.produceState
+import androidx.compose.runtime.remember
+import androidx.compose.ui.Modifier
+import androidx.compose.ui.graphics.ImageBitmap
+import androidx.compose.ui.graphics.asImageBitmap
+import androidx.compose.ui.layout.ContentScale
+import androidx.compose.ui.platform.LocalContext
+import androidx.compose.ui.platform.LocalDensity
+import androidx.compose.ui.unit.Dp
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.withContext
+
+/**
+ * Shows the poster [resourceId] at [width] x [height]. A cached poster is shown on the first frame;
+ * otherwise the space stays empty until the poster has been decoded off the main thread.
+ */
+@Composable
+fun PosterImage(
+  @DrawableRes resourceId: Int,
+  width: Dp,
+  height: Dp,
+  blurred: Boolean,
+  modifier: Modifier = Modifier
+) {
+  val loader = PosterLoader.getInstance(LocalContext.current)
+  val density = LocalDensity.current
+  val key =
+    remember(resourceId, width, height, blurred, density) {
+      with(density) { PosterKey(resourceId, width.roundToPx(), height.roundToPx(), blurred) }
+    }
+  val poster: ImageBitmap? by
+    produceState(loader.getCached(key)?.asImageBitmap(), key) {
+      value =
+        loader.getCached(key)?.asImageBitmap()
+          ?: withContext(Dispatchers.IO) { loader.load(key)?.asImageBitmap() }
+    }
+
+  val sizedModifier = modifier.size(width, height)
+  val bitmap = poster
+  if (bitmap == null) {
+    Box(modifier = sizedModifier)
+  } else {
+    Image(
+      bitmap = bitmap,
+      contentDescription = null,
+      contentScale = ContentScale.Crop,
+      modifier = sizedModifier
+    )
+  }
+}
@@ -0,0 +1,145 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.watch.ui.images
+
+import android.app.ActivityManager
+import android.content.Context
+import android.content.res.Resources
+import android.graphics.Bitmap
+import android.graphics.BitmapFactory
+import android.util.Log
+import android.util.LruCache
+import androidx.annotation.DrawableRes
+import androidx.annotation.WorkerThread
+
+/** A poster decoded for display at [widthPx] x [heightPx] pixels, optionally blurred. */
+data class PosterKey(
+  @DrawableRes val resourceId: Int,
+  val widthPx: Int,
+  val heightPx: Int,
+  val blurred: Boolean
+) {
+  init {
+    require(widthPx > 0 && heightPx > 0) { "Poster size must be positive." }
+  }
+}
+
+/**
+ * Decodes poster drawables into bitmaps no larger than the cards showing them, and keeps them in a
+ * memory cache sized from the app's memory class. Blurred posters are cached already blurred, so
+ * scrolling back to a poster neither decodes nor blurs it again.
+ */
+class PosterLoader private constructor(private val resources: Resources, maxCacheKilobytes: Int) {
+
+  private val cache =
+    object : LruCache<PosterKey, Bitmap>(maxCacheKilobytes) {
+      override fun sizeOf(key: PosterKey, value: Bitmap): Int = value.byteCount / 1024
+    }
+
+  /** Returns the poster for [key] if it is cached. Cheap enough for the main thread. */
+  fun getCached(key: PosterKey): Bitmap? = cache.get(key)
+
+  /** Returns the poster for [key], decoding and caching it if needed. */
+  @WorkerThread
+  fun load(key: PosterKey): Bitmap? {
+    cache.get(key)?.let {
+      return it
+    }
+    val bitmap =
+      if (key.blurred) decodeBlurred(key) else decode(key.resourceId, key.widthPx, key.heightPx)
+    if (bitmap == null) {
+      Log.e(TAG, "Could not decode poster ${key.resourceId}")
+      return null
+    }
+    cache.put(key, bitmap)
+    return bitmap
+  }
+
+  /**
+   * Blurs by shrinking: the poster is decoded at a fraction of the card size, and the bilinear
+   * filtering used to stretch it back over the card smooths it out. Unlike Modifier.blur, this costs
+   * nothing per frame and also works below Android 12.
+   */
+  private fun decodeBlurred(key: PosterKey): Bitmap? {
+    val widthPx = maxOf(1, key.widthPx / BLUR_DOWNSCALE_FACTOR)
+    val heightPx = maxOf(1, key.heightPx / BLUR_DOWNSCALE_FACTOR)
+    val sampled = decode(key.resourceId, widthPx, heightPx) ?: return null
+    val blurred = Bitmap.createScaledBitmap(sampled, widthPx, heightPx, /* filter= */ true)
+    if (blurred !== sampled) {
+      sampled.recycle()
+    }
+    return blurred
+  }
+
+  private fun decode(@DrawableRes resourceId: Int, widthPx: Int, heightPx: Int): Bitmap? {
+    val options = BitmapFactory.Options()
+    // Sample from the file's own pixels rather than first scaling them to the screen density.
+    options.inScaled = false
+    options.inJustDecodeBounds = true
+    BitmapFactory.decodeResource(resources, resourceId, options)
+    options.inSampleSize =
+      calculateInSampleSize(options.outWidth, options.outHeight, widthPx, heightPx)
+    options.inJustDecodeBounds = false
+    return BitmapFactory.decodeResource(resources, resourceId, options)
+  }
+
+  companion object {
+    private val TAG = PosterLoader::class.java.simpleName
+
+    /** The cache may use up to 1/CACHE_MEMORY_DIVISOR of the app's memory class. */
+    private const val CACHE_MEMORY_DIVISOR = 8
+
+    /** How much smaller than the card a blurred poster is decoded. */
+    private const val BLUR_DOWNSCALE_FACTOR = 16
+
+    @Volatile private var instance: PosterLoader? = null
+
+    fun getInstance(context: Context): PosterLoader =
+      instance
+        ?: synchronized(this) {
+          instance
+            ?: run {
+              val appContext = context.applicationContext
+              val activityManager =
+                appContext.getSystemService(Context.ACTIVITY_SERVICE) as ActivityManager
+              PosterLoader(
+                  appContext.resources,
+                  activityManager.memoryClass * 1024 / CACHE_MEMORY_DIVISOR
+                )
+                .also { instance = it }
+            }
+        }
+
+    /**
+     * Returns the largest power of two by which a [width] x [height] image can be subsampled while
+     * staying at least [requestedWidth] x [requestedHeight].
+     */
+    fun calculateInSampleSize(
+      width: Int,
+      height: Int,
+      requestedWidth: Int,
+      requestedHeight: Int
+    ): Int {
+      var inSampleSize = 1
+      while (
+        width / (inSampleSize * 2) >= requestedWidth &&
+          height / (inSampleSize * 2) >= requestedHeight
+      ) {
+        inSampleSize *= 2
+      }
+      return inSampleSize
+    }
+  }
+}
@@ -0,0 +1,246 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.watch.publish
+
+import android.content.Context
+import com.google.android.engage.service.AppEngageErrorCode
+import com.google.android.engage.service.AppEngageException
+import com.google.android.engage.service.AppEngagePublishClient
+import com.google.android.engage.service.PublishContinuationClusterRequest
+import com.google.android.engage.service.PublishFeaturedClusterRequest
+import com.google.android.engage.service.PublishRecommendationClustersRequest
+import com.google.android.engage.service.PublishStatusRequest
+import com.google.android.engage.service.PublishUserAccountManagementRequest
+import com.google.android.gms.tasks.Task
+import com.google.android.gms.tasks.TaskCompletionSource
+import com.google.android.gms.tasks.Tasks
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+import kotlin.math.PI
+import kotlin.math.cos
+import kotlin.math.exp
+import kotlin.math.ln
+import kotlin.math.sqrt
+import kotlin.random.Random
+
+/** Draws the latency of each call to a [FakeAppEngagePublishClient]. */
+fun interface LatencyModel {
+  fun nextLatencyMillis(random: Random): Long
+
+  companion object {
+    val NONE = LatencyModel { 0L }
+
+    fun fixed(latencyMillis: Long) = LatencyModel { latencyMillis }
+
+    fun uniform(minMillis: Long, maxMillis: Long) = LatencyModel { random ->
+      random.nextLong(minMillis, maxMillis + 1)
+    }
+
+    /**
+     * Log-normal latencies with the given median, as IPC latencies typically are. A [sigma] of 0.5
+     * puts the 99th percentile at about 3.2 times the median.
+     */
+    fun logNormal(medianMillis: Long, sigma: Double) = LatencyModel { random ->
+      // Box-Muller transform of two uniform draws into a standard normal draw.
+      val u1 = 1.0 - random.nextDouble()
+      val u2 = random.nextDouble()
+      val normal = sqrt(-2.0 * ln(u1)) * cos(2.0 * PI * u2)
+      (medianMillis * exp(sigma * normal)).toLong()
+    }
+  }
+}
+
+/**
+ * How a [FakeAppEngagePublishClient] behaves.
+ *
+ * @param seed Seeds every random draw, so a given sequence of calls always sees the same latencies
+ *   and failures
+ * @param latency Latency of every call, including [AppEngagePublishClient.isServiceAvailable]
+ * @param errorRates Probability of each [AppEngageErrorCode] failing a call other than
+ *   [AppEngagePublishClient.isServiceAvailable]. The rates must not sum to more than 1.
+ * @param throttleLimit Calls other than [AppEngagePublishClient.isServiceAvailable] allowed per
+ *   [throttleWindowMillis] before calls fail with SERVICE_CALL_RESOURCE_EXHAUSTED until the window
+ *   ends, or 0 for no throttling
+ * @param throttleWindowMillis Length of each throttling window
+ */
+data class FakeEngageConfig(
+  val seed: Long = 0L,
+  val latency: LatencyModel = LatencyModel.NONE,
+  val errorRates: Map<Int, Double> = emptyMap(),
+  val throttleLimit: Int = 0,
+  val throttleWindowMillis: Long = 1_000L
+) {
+  init {
+    require(errorRates.values.all { it in 0.0..1.0 }) { "Error rates must be probabilities." }
+    require(errorRates.values.sum() <= 1.0) { "Error rates must not sum to more than 1." }
+    require(throttleLimit >= 0) { "throttleLimit must not be negative." }
+    require(throttleWindowMillis > 0) { "throttleWindowMillis must be positive." }
+  }
+}
+
+/** A call received by a [FakeAppEngagePublishClient] and how it was answered. */
+data class ReceivedCall(
+  val method: String,
+  val request: Any?,
+  val latencyMillis: Long,
+  /** The [AppEngageErrorCode] the call failed with, or null if it succeeded. */
+  val errorCode: Int?
+)
+
+/**
+ * In-process stand-in for the Engage service, for JVM tests and load tests that cannot reach the
+ * real service. Every call is recorded in [receivedCalls] and answered after a latency drawn from
+ * [FakeEngageConfig.latency], failing as [FakeEngageConfig] and [serviceAvailable] dictate.
+ *
+ * @param clock Milliseconds since an arbitrary origin, used for throttling windows
+ */
+class FakeAppEngagePublishClient(
+  context: Context,
+  private val config: FakeEngageConfig = FakeEngageConfig(),
+  private val clock: () -> Long = { System.nanoTime() / 1_000_000L }
+) : AppEngagePublishClient(context) {
+
+  /** Whether the service is available. When false, every call fails with SERVICE_NOT_AVAILABLE. */
+  @Volatile var serviceAvailable = true
+
+  private val lock = Any()
+  private val random = Random(config.seed)
+  private val calls = mutableListOf<ReceivedCall>()
+  private var windowStartMillis = Long.MIN_VALUE
+  private var callsInWindow = 0
+  private val scheduler: ScheduledExecutorService by lazy {
+    Executors.newSingleThreadScheduledExecutor { runnable ->
+      Thread(runnable, "FakeEngageService").apply { isDaemon = true }
+    }
+  }
+
+  /** Returns a snapshot of the calls received so far, in the order they were made. */
+  val receivedCalls: List<ReceivedCall>
+    get() = synchronized(lock) { calls.toList() }
+
+  /** Returns the requests of the successful calls to [method], in the order they were made. */
+  fun succeededRequests(method: String): List<Any?> =
+    receivedCalls.filter { it.method == method && it.errorCode == null }.map { it.request }
+
+  fun clearReceivedCalls() {
+    synchronized(lock) { calls.clear() }
+  }
+
+  override fun isServiceAvailable(): Task<Boolean> {
+    val latencyMillis = synchronized(lock) { config.latency.nextLatencyMillis(random) }
+    return complete(latencyMillis, serviceAvailable)
+  }
+
+  override fun publishRecommendationClusters(
+    request: PublishRecommendationClustersRequest
+  ): Task<Void> = receive(PUBLISH_RECOMMENDATIONS, request)
+
+  override fun publishFeaturedCluster(request: PublishFeaturedClusterRequest): Task<Void> =
+    receive(PUBLISH_FEATURED, request)
+
+  override fun publishContinuationCluster(request: PublishContinuationClusterRequest): Task<Void> =
+    receive(PUBLISH_CONTINUATION, request)
+
+  override fun publishUserAccountManagementRequest(
+    request: PublishUserAccountManagementRequest
+  ): Task<Void> = receive(PUBLISH_USER_ACCOUNT_MANAGEMENT, request)
+
+  override fun updatePublishStatus(request: PublishStatusRequest): Task<Void> =
+    receive(UPDATE_PUBLISH_STATUS, request)
+
+  override fun deleteRecommendationsClusters(): Task<Void> =
+    receive(DELETE_RECOMMENDATIONS, request = null)
+
+  override fun deleteFeaturedCluster(): Task<Void> = receive(DELETE_FEATURED, request = null)
+
+  override fun deleteContinuationCluster(): Task<Void> =
+    receive(DELETE_CONTINUATION, request = null)
+
+  override fun deleteUserManagementCluster(): Task<Void> =
+    receive(DELETE_USER_ACCOUNT_MANAGEMENT, request = null)
+
+  private fun receive(method: String, request: Any?): Task<Void> {
+    val call: ReceivedCall
+    synchronized(lock) {
+      val latencyMillis = config.latency.nextLatencyMillis(random)
+      // Always draw, so whether earlier calls were throttled does not shift later draws.
+      val errorDraw = random.nextDouble()
+      call = ReceivedCall(method, request, latencyMillis, nextErrorCode(errorDraw))
+      calls += call
+    }
+    val errorCode = call.errorCode
+    return if (errorCode == null) complete(call.latencyMillis, null)
+    else fail(call.latencyMillis, AppEngageException(errorCode))
+  }
+
+  /**
+   * Returns the error code the next call fails with, or null, given [errorDraw] drawn uniformly
+   * from [0, 1). Must be called holding [lock].
+   */
+  private fun nextErrorCode(errorDraw: Double): Int? {
+    if (!serviceAvailable) {
+      return AppEngageErrorCode.SERVICE_NOT_AVAILABLE
+    }
+    if (config.throttleLimit > 0) {
+      val nowMillis = clock()
+      if (nowMillis - windowStartMillis >= config.throttleWindowMillis) {
+        windowStartMillis = nowMillis
+        callsInWindow = 0
+      }
+      if (++callsInWindow > config.throttleLimit) {
+        return AppEngageErrorCode.SERVICE_CALL_RESOURCE_EXHAUSTED
+      }
+    }
+    var draw = errorDraw
+    for ((errorCode, rate) in config.errorRates) {
+      if (draw < rate) {
+        return errorCode
+      }
+      draw -= rate
+    }
+    return null
+  }
+
+  private fun <T> complete(latencyMillis: Long, result: T): Task<T> {
+    if (latencyMillis <= 0) {
+      return Tasks.forResult(result)
+    }
+    val source = TaskCompletionSource<T>()
+    scheduler.schedule({ source.setResult(result) }, latencyMillis, TimeUnit.MILLISECONDS)
+    return source.task
+  }
+
+  private fun <T> fail(latencyMillis: Long, exception: Exception): Task<T> {
+    if (latencyMillis <= 0) {
+      return Tasks.forException(exception)
+    }
+    val source = TaskCompletionSource<T>()
+    scheduler.schedule({ source.setException(exception) }, latencyMillis, TimeUnit.MILLISECONDS)
+    return source.task
+  }
+
+  companion object {
+    const val PUBLISH_RECOMMENDATIONS = "publishRecommendationClusters"
+    const val PUBLISH_FEATURED = "publishFeaturedCluster"
+    const val PUBLISH_CONTINUATION = "publishContinuationCluster"
+    const val PUBLISH_USER_ACCOUNT_MANAGEMENT = "publishUserAccountManagementRequest"
+    const val UPDATE_PUBLISH_STATUS = "updatePublishStatus"
+    const val DELETE_RECOMMENDATIONS = "deleteRecommendationsClusters"
+    const val DELETE_FEATURED = "deleteFeaturedCluster"
+    const val DELETE_CONTINUATION = "deleteContinuationCluster"
+    const val DELETE_USER_ACCOUNT_MANAGEMENT = "deleteUserManagementCluster"
+  }
+}
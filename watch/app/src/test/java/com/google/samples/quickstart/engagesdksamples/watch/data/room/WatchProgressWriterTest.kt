@@ -0,0 +1,167 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.watch.data.room
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.MovieItem
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.WatchProgress
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.emptyFlow
+import kotlinx.coroutines.test.StandardTestDispatcher
+import kotlinx.coroutines.test.TestScope
+import kotlinx.coroutines.test.advanceTimeBy
+import kotlinx.coroutines.test.runCurrent
+import kotlinx.coroutines.test.runTest
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.annotation.Config
+
+/** Runs [WatchProgressWriter] against a fake [MovieDao] in virtual time. */
+@OptIn(ExperimentalCoroutinesApi::class)
+@RunWith(AndroidJUnit4::class)
+@Config(sdk = [28])
+class WatchProgressWriterTest {
+
+  @Test
+  fun updatesOfOneMovieAreMergedTest() = runTest {
+    val dao = FakeMovieDao()
+    val scope = writerScope()
+    var batchesWritten = 0
+    val writer = WatchProgressWriter(dao, scope, FLUSH_WINDOW_MILLIS) { batchesWritten++ }
+
+    writer.submit(progress(MOVIE_1, currentlyWatching = true, advanceMillis = 10L))
+    writer.submit(progress(MOVIE_2, currentlyWatching = true, advanceMillis = 5L))
+    writer.submit(progress(MOVIE_1, currentlyWatching = false, advanceMillis = 20L))
+    runCurrent()
+    assertEquals(0, dao.batches.size)
+
+    advanceTimeBy(FLUSH_WINDOW_MILLIS + 1)
+
+    // The later update's state wins, and playback advances by both updates.
+    assertEquals(
+      listOf(
+        listOf(
+          progress(MOVIE_1, currentlyWatching = false, advanceMillis = 30L),
+          progress(MOVIE_2, currentlyWatching = true, advanceMillis = 5L)
+        )
+      ),
+      dao.batches
+    )
+    assertEquals(1, batchesWritten)
+    scope.cancel()
+  }
+
+  @Test
+  fun failedBatchDoesNotStopWriterTest() = runTest {
+    val dao = FakeMovieDao(failuresLeft = 1)
+    val scope = writerScope()
+    var batchesWritten = 0
+    val writer = WatchProgressWriter(dao, scope, FLUSH_WINDOW_MILLIS) { batchesWritten++ }
+
+    writer.submit(progress(MOVIE_1, currentlyWatching = true, advanceMillis = 10L))
+    advanceTimeBy(FLUSH_WINDOW_MILLIS + 1)
+    assertEquals(0, dao.batches.size)
+    assertEquals(0, batchesWritten)
+
+    writer.submit(progress(MOVIE_2, currentlyWatching = true, advanceMillis = 5L))
+    advanceTimeBy(FLUSH_WINDOW_MILLIS + 1)
+
+    assertEquals(
+      listOf(listOf(progress(MOVIE_2, currentlyWatching = true, advanceMillis = 5L))),
+      dao.batches
+    )
+    assertEquals(1, batchesWritten)
+    scope.cancel()
+  }
+
+  @Test
+  fun bufferedUpdatesAreWrittenOnCancelTest() = runTest {
+    val dao = FakeMovieDao()
+    val scope = writerScope()
+    var batchesWritten = 0
+    val writer = WatchProgressWriter(dao, scope, FLUSH_WINDOW_MILLIS) { batchesWritten++ }
+
+    writer.submit(progress(MOVIE_1, currentlyWatching = true, advanceMillis = 10L))
+    runCurrent()
+    writer.submit(progress(MOVIE_1, currentlyWatching = true, advanceMillis = 20L))
+    scope.cancel()
+    runCurrent()
+
+    assertEquals(
+      listOf(listOf(progress(MOVIE_1, currentlyWatching = true, advanceMillis = 30L))),
+      dao.batches
+    )
+    // Only batches written while the scope is active are reported.
+    assertEquals(0, batchesWritten)
+  }
+
+  private fun TestScope.writerScope() =
+    CoroutineScope(StandardTestDispatcher(testScheduler) + Job())
+
+  private fun progress(movieId: String, currentlyWatching: Boolean, advanceMillis: Long) =
+    WatchProgress(
+      movieId = movieId,
+      currentlyWatching = currentlyWatching,
+      watchNextType = 0,
+      lastEngagementTimeMillis = ENGAGEMENT_TIME_MILLIS,
+      playbackAdvanceMillis = advanceMillis
+    )
+
+  /** Records the batches written, throwing instead for the first [failuresLeft] batches. */
+  private class FakeMovieDao(private var failuresLeft: Int = 0) : MovieDao() {
+    val batches = mutableListOf<List<WatchProgress>>()
+
+    override suspend fun updateWatchProgress(updates: List<WatchProgress>) {
+      if (failuresLeft > 0) {
+        failuresLeft--
+        throw IllegalStateException("Database is closed")
+      }
+      batches.add(updates)
+    }
+
+    override suspend fun insertMovieItems(movies: List<MovieItem>) = unsupported()
+
+    override suspend fun deleteMovieItem(id: String) = unsupported()
+
+    override suspend fun loadMovieIsCurrentlyWatching(currentlyWatching: Boolean) =
+      unsupported()
+
+    override suspend fun loadMovieItemsOrderedById(): List<MovieItem> = unsupported()
+
+    override fun loadAllMovieItems(): Flow<List<MovieItem>> = emptyFlow()
+
+    override suspend fun updateWatchProgress(
+      id: String,
+      currentlyWatching: Boolean,
+      watchNextType: Int,
+      lastEngagementTimeMillis: Long,
+      playbackAdvanceMillis: Long
+    ) = unsupported()
+
+    private fun unsupported(): Nothing = throw UnsupportedOperationException()
+  }
+
+  companion object {
+    private const val FLUSH_WINDOW_MILLIS = 100L
+    private const val ENGAGEMENT_TIME_MILLIS = 1000L
+    private const val MOVIE_1 = "movie_1"
+    private const val MOVIE_2 = "movie_2"
+  }
+}
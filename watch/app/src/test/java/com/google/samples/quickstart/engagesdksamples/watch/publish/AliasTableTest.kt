@@ -0,0 +1,55 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.watch.publish
+
+import kotlin.random.Random
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertThrows
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+
+@RunWith(JUnit4::class)
+class AliasTableTest {
+
+  @Test
+  fun samplesInProportionToWeightsTest() {
+    val table = AliasTable(doubleArrayOf(1.0, 2.0, 0.0, 5.0))
+    val random = Random(42)
+    val numSamples = 80_000
+    val counts = IntArray(table.size)
+    repeat(numSamples) { counts[table.sample(random)]++ }
+
+    assertEquals(numSamples / 8.0, counts[0].toDouble(), numSamples * 0.01)
+    assertEquals(numSamples * 2 / 8.0, counts[1].toDouble(), numSamples * 0.01)
+    assertEquals(0, counts[2])
+    assertEquals(numSamples * 5 / 8.0, counts[3].toDouble(), numSamples * 0.01)
+  }
+
+  @Test
+  fun singleWeightAlwaysSamplesItTest() {
+    val table = AliasTable(doubleArrayOf(3.0))
+    val random = Random(42)
+
+    repeat(100) { assertEquals(0, table.sample(random)) }
+  }
+
+  @Test
+  fun invalidWeightsExceptionTest() {
+    assertThrows(IllegalArgumentException::class.java) { AliasTable(doubleArrayOf()) }
+    assertThrows(IllegalArgumentException::class.java) { AliasTable(doubleArrayOf(0.0, 0.0)) }
+    assertThrows(IllegalArgumentException::class.java) { AliasTable(doubleArrayOf(1.0, -1.0)) }
+  }
+}
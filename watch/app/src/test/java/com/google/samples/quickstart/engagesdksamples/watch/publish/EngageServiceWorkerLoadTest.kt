@@ -0,0 +1,214 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.watch.publish
+
+import android.content.Context
+import android.util.Log
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.work.ListenableWorker
+import androidx.work.ListenableWorker.Result
+import androidx.work.WorkerFactory
+import androidx.work.WorkerParameters
+import androidx.work.testing.TestListenableWorkerBuilder
+import androidx.work.workDataOf
+import com.google.android.engage.service.AppEngageErrorCode
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.SyntheticMovieGenerator
+import com.google.samples.quickstart.engagesdksamples.watch.data.room.DatabaseTuning
+import com.google.samples.quickstart.engagesdksamples.watch.data.room.WatchDatabase
+import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.PUBLISH_TYPE
+import com.google.samples.quickstart.engagesdksamples.watch.publish.Constants.PUBLISH_TYPE_FEATURED
+import com.google.samples.quickstart.engagesdksamples.watch.publish.FakeAppEngagePublishClient.Companion.PUBLISH_FEATURED
+import com.google.samples.quickstart.engagesdksamples.watch.publish.FakeAppEngagePublishClient.Companion.UPDATE_PUBLISH_STATUS
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.annotation.Config
+
+/**
+ * Runs [EngageServiceWorker] against a [FakeAppEngagePublishClient] on the JVM, covering how the
+ * worker reacts to the service's failure modes and measuring publish latency under load.
+ */
+@RunWith(AndroidJUnit4::class)
+@Config(sdk = [28])
+class EngageServiceWorkerLoadTest {
+
+  private lateinit var context: Context
+  private lateinit var db: WatchDatabase
+
+  @Before
+  fun setUp() {
+    context = ApplicationProvider.getApplicationContext()
+    db =
+      WatchDatabase.buildDatabase(context, DATABASE_NAME, DatabaseTuning.DEFAULT) {
+          SyntheticMovieGenerator(NUM_GENRES, SEED).generate(NUM_MOVIES, NUM_IN_PROGRESS)
+        }
+        .build()
+    runBlocking { db.accountDao().setAccountSignedIn() }
+  }
+
+  @After
+  fun tearDown() {
+    db.close()
+    context.deleteDatabase(DATABASE_NAME)
+  }
+
+  @Test
+  fun publishRecordsPayloadAndStatusTest() {
+    val client = FakeAppEngagePublishClient(context)
+
+    val result = runBlocking { createWorker(client, PUBLISH_TYPE_FEATURED).doWork() }
+
+    assertEquals(Result.success(), result)
+    assertEquals(1, client.succeededRequests(PUBLISH_FEATURED).size)
+    assertEquals(1, client.succeededRequests(UPDATE_PUBLISH_STATUS).size)
+  }
+
+  @Test
+  fun recoverableErrorRetriesTest() {
+    val config =
+      FakeEngageConfig(errorRates = mapOf(AppEngageErrorCode.SERVICE_CALL_INTERNAL to 1.0))
+    val client = FakeAppEngagePublishClient(context, config)
+
+    val result = runBlocking { createWorker(client, PUBLISH_TYPE_FEATURED).doWork() }
+
+    assertEquals(Result.retry(), result)
+    assertTrue(client.succeededRequests(PUBLISH_FEATURED).isEmpty())
+  }
+
+  @Test
+  fun unavailableServiceFailsWithoutPublishingTest() {
+    val client = FakeAppEngagePublishClient(context)
+    client.serviceAvailable = false
+
+    val result = runBlocking { createWorker(client, PUBLISH_TYPE_FEATURED).doWork() }
+
+    assertEquals(Result.failure(), result)
+    assertTrue(client.receivedCalls.isEmpty())
+  }
+
+  @Test
+  fun throttledPublishRetriesUntilWindowEndsTest() {
+    var nowMillis = 0L
+    // Each publish also updates the publish status, so a window fits exactly one publish.
+    val config = FakeEngageConfig(throttleLimit = 2, throttleWindowMillis = 1_000L)
+    val client = FakeAppEngagePublishClient(context, config) { nowMillis }
+
+    runBlocking {
+      assertEquals(Result.success(), createWorker(client, PUBLISH_TYPE_FEATURED).doWork())
+      assertEquals(Result.retry(), createWorker(client, PUBLISH_TYPE_FEATURED).doWork())
+      nowMillis += 1_000L
+      assertEquals(Result.success(), createWorker(client, PUBLISH_TYPE_FEATURED).doWork())
+    }
+    assertEquals(
+      AppEngageErrorCode.SERVICE_CALL_RESOURCE_EXHAUSTED,
+      client.receivedCalls.first { it.errorCode != null }.errorCode
+    )
+  }
+
+  @Test
+  fun sameSeedGivesSameOutcomesTest() {
+    val config =
+      FakeEngageConfig(
+        seed = SEED,
+        errorRates =
+          mapOf(
+            AppEngageErrorCode.SERVICE_CALL_INTERNAL to 0.3,
+            AppEngageErrorCode.SERVICE_CALL_EXECUTION_FAILURE to 0.2
+          )
+      )
+
+    fun outcomes(): List<Result> {
+      val client = FakeAppEngagePublishClient(context, config)
+      return runBlocking {
+        List(NUM_PUBLISHES) { createWorker(client, PUBLISH_TYPE_FEATURED).doWork() }
+      }
+    }
+
+    val outcomes = outcomes()
+    assertEquals(outcomes, outcomes())
+    assertTrue(outcomes.contains(Result.success()))
+    assertTrue(outcomes.contains(Result.retry()))
+  }
+
+  @Test
+  fun publishLatencyUnderLoadTest() {
+    val config =
+      FakeEngageConfig(
+        seed = SEED,
+        latency = LatencyModel.logNormal(medianMillis = 5L, sigma = 0.5),
+        errorRates = mapOf(AppEngageErrorCode.SERVICE_CALL_RESOURCE_EXHAUSTED to 0.01)
+      )
+    val client = FakeAppEngagePublishClient(context, config)
+
+    val startNanos = System.nanoTime()
+    val latenciesMillis =
+      runBlocking(Dispatchers.Default) {
+          List(NUM_PUBLISHES) {
+              async {
+                val publishStartNanos = System.nanoTime()
+                createWorker(client, PUBLISH_TYPE_FEATURED).doWork()
+                (System.nanoTime() - publishStartNanos) / 1_000_000L
+              }
+            }
+            .awaitAll()
+        }
+        .sorted()
+    val elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000L
+
+    val p50 = latenciesMillis[latenciesMillis.size / 2]
+    val p99 = latenciesMillis[latenciesMillis.size * 99 / 100]
+    val publishesPerSecond = NUM_PUBLISHES * 1_000L / maxOf(1L, elapsedMillis)
+    Log.i(TAG, "publishes: $NUM_PUBLISHES p50: ${p50}ms p99: ${p99}ms rate: $publishesPerSecond/s")
+    assertTrue(p50 <= p99)
+    assertEquals(NUM_PUBLISHES, client.receivedCalls.count { it.method == PUBLISH_FEATURED })
+  }
+
+  private fun createWorker(
+    client: FakeAppEngagePublishClient,
+    publishType: String
+  ): EngageServiceWorker =
+    TestListenableWorkerBuilder<EngageServiceWorker>(
+        context = context,
+        inputData = workDataOf(PUBLISH_TYPE to publishType)
+      )
+      .setWorkerFactory(
+        object : WorkerFactory() {
+          override fun createWorker(
+            appContext: Context,
+            workerClassName: String,
+            workerParameters: WorkerParameters
+          ): ListenableWorker = EngageServiceWorker(appContext, workerParameters, client, db)
+        }
+      )
+      .build()
+
+  companion object {
+    private val TAG = EngageServiceWorkerLoadTest::class.java.simpleName
+    private const val DATABASE_NAME = "load_test_watch_database.db"
+    private const val NUM_GENRES = 5
+    private const val NUM_MOVIES = 200
+    private const val NUM_IN_PROGRESS = 10
+    private const val NUM_PUBLISHES = 200
+    private const val SEED = 42L
+  }
+}
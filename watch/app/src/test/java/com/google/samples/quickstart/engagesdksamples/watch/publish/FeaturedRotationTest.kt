@@ -0,0 +1,94 @@
+/* Copyright 2022 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.samples.quickstart.engagesdksamples.watch.publish
+
+import com.google.samples.quickstart.engagesdksamples.watch.data.model.SyntheticMovieGenerator
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNotEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+
+@RunWith(JUnit4::class)
+class FeaturedRotationTest {
+
+  private val movies = SyntheticMovieGenerator(numGenres = 3, seed = 1L).generate(numMovies = 50)
+  private val notWatchingIds = movies.take(3).map { it.id }.toSet()
+
+  @Test
+  fun sameSeedSelectsSameMoviesTest() {
+    val first = FeaturedRotation().select(movies, count = 5, seed = 1L)
+    val second = FeaturedRotation().select(movies, count = 5, seed = 1L)
+
+    assertEquals(5, first.size)
+    assertEquals(first, second)
+    assertEquals(5, first.map { it.id }.toSet().size)
+  }
+
+  @Test
+  fun selectionRotatesDailyTest() {
+    val rotation = FeaturedRotation()
+    val today = FeaturedRotation.seedForDay(100 * DAY_MILLIS)
+    val laterToday = FeaturedRotation.seedForDay(100 * DAY_MILLIS + 1000L)
+    val tomorrow = FeaturedRotation.seedForDay(101 * DAY_MILLIS)
+
+    assertEquals(today, laterToday)
+    assertNotEquals(
+      rotation.select(movies, count = 5, seed = today),
+      rotation.select(movies, count = 5, seed = tomorrow)
+    )
+  }
+
+  @Test
+  fun watchedMoviesAreNotSelectedTest() {
+    val watching = movies.map { it.copy(currentlyWatching = it.id !in notWatchingIds) }
+
+    // Every movie not being watched is picked, even though most draws hit watched movies.
+    val featured = FeaturedRotation().select(watching, count = 5, seed = 1L)
+
+    assertEquals(notWatchingIds, featured.map { it.id }.toSet())
+  }
+
+  @Test
+  fun watchingMovieKeepsOtherPicksTest() {
+    val rotation = FeaturedRotation()
+    val featured = rotation.select(movies, count = 5, seed = 1L)
+    val watched = featured[2]
+    val watching = movies.map { if (it.id == watched.id) it.copy(currentlyWatching = true) else it }
+
+    val refeatured = rotation.select(watching, count = 5, seed = 1L)
+
+    assertEquals(5, refeatured.size)
+    assertFalse(refeatured.any { it.id == watched.id })
+    assertTrue(refeatured.map { it.id }.containsAll(featured.map { it.id } - watched.id))
+  }
+
+  @Test
+  fun newerMoviesWeighMoreTest() {
+    val weights = FeaturedRotation.editorialWeights(movies)
+    val newest = movies.indices.maxByOrNull { movies[it].releaseDate }!!
+    val oldest = movies.indices.minByOrNull { movies[it].releaseDate }!!
+
+    assertEquals(2.0, weights[newest], 1e-9)
+    assertEquals(1.0, weights[oldest], 1e-9)
+    assertTrue(weights.all { it in 1.0..2.0 })
+  }
+
+  private companion object {
+    const val DAY_MILLIS = 24 * 60 * 60 * 1000L
+  }
+}